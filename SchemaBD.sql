@@ -3,7 +3,8 @@ CREATE TABLE ContaCorrente (
     saldo DECIMAL(15, 2) NOT NULL CHECK(saldo >= 0),
     limite_credito DECIMAL(15, 2) NOT NULL CHECK (limite_credito >= 0),
     data_criacao DATE NOT NULL,
-    limite_Maximo DECIMAL(15,2) NOT NULL
+    limite_Maximo DECIMAL(15,2) NOT NULL,
+    versao BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE Transacao (
@@ -14,12 +15,73 @@ CREATE TABLE Transacao (
     descricao VARCHAR(255),
     conta_corrente_numero VARCHAR(20),
     FOREIGN KEY (conta_corrente_numero) REFERENCES ContaCorrente(numero) ON DELETE CASCADE
-                       INDEX idx_conta_corrente_numero(conta_corrente_numero)
+                       INDEX idx_conta_corrente_numero(conta_corrente_numero),
+                       INDEX idx_transacao_conta_data_id(conta_corrente_numero, data, id)
 );
 
 CREATE TABLE Auditoria (
     id UUID PRIMARY KEY,
-    mensagem VARCHAR(255) NOT NULL,
+    mensagem VARCHAR(255),
+    numero_conta VARCHAR(20),
+    tipo VARCHAR(20),
+    valor DECIMAL(15, 2),
+    taxa DECIMAL(15, 2),
+    saldo_anterior DECIMAL(15, 2),
+    saldo_posterior DECIMAL(15, 2),
+    limite_anterior DECIMAL(15, 2),
+    limite_posterior DECIMAL(15, 2),
+    conta_destino VARCHAR(20),
+    data_hora DATETIME,
     transacao_id UUID,
-    FOREIGN KEY (transacao_id) REFERENCES Transacao(id) ON DELETE CASCADE
-);
\ No newline at end of file
+    FOREIGN KEY (transacao_id) REFERENCES Transacao(id) ON DELETE CASCADE,
+    INDEX idx_auditoria_conta_data_hora_id(numero_conta, data_hora, id)
+);
+
+-- Livro-razão do modo LANCAMENTOS: só recebe INSERTs. As contas internas (#CAIXA, #TARIFAS) não têm sequência nem totais
+CREATE TABLE Lancamento (
+    id UUID PRIMARY KEY,
+    movimento UUID NOT NULL,
+    numero_conta VARCHAR(20) NOT NULL,
+    sequencia BIGINT,
+    valor DECIMAL(15, 2) NOT NULL,
+    parcela_limite DECIMAL(15, 2) NOT NULL,
+    saldo DECIMAL(15, 2),
+    limite_credito DECIMAL(15, 2),
+    data_hora DATETIME,
+    UNIQUE KEY uk_lancamento_conta_sequencia(numero_conta, sequencia),
+    INDEX idx_lancamento_movimento(movimento)
+);
+
+-- Motor em memória: último lsn do log já projetado nas tabelas
+CREATE TABLE ponto_projecao (
+    id VARCHAR(40) PRIMARY KEY,
+    lsn BIGINT NOT NULL
+);
+
+-- Resultado das requisições com Idempotency-Key; transacao_id nulo enquanto a primeira execução está em andamento
+CREATE TABLE chave_idempotencia (
+    chave VARCHAR(255) PRIMARY KEY,
+    impressao VARCHAR(64) NOT NULL,
+    expira_em DATETIME NOT NULL,
+    transacao_id UUID,
+    tipo VARCHAR(20),
+    valor DECIMAL(15, 2),
+    data DATE,
+    descricao VARCHAR(255),
+    INDEX idx_chave_idempotencia_expira_em(expira_em)
+);
+
+-- Partes do saldo das contas quentes; o saldo da conta é o da ContaCorrente mais a soma das partes
+CREATE TABLE sub_saldo (
+    numero_conta VARCHAR(20) NOT NULL,
+    slot INT NOT NULL,
+    saldo DECIMAL(15, 2) NOT NULL,
+    versao BIGINT NOT NULL,
+    PRIMARY KEY (numero_conta, slot)
+);
+
+-- Bases existentes: copia o número da conta da transação para os registros de auditoria gravados antes da coluna
+UPDATE Auditoria a JOIN Transacao t ON t.id = a.transacao_id
+SET a.numero_conta = t.conta_corrente_numero,
+    a.data_hora = COALESCE(a.data_hora, t.data)
+WHERE a.numero_conta IS NULL;
\ No newline at end of file
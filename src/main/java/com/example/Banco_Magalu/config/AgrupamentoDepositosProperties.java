@@ -0,0 +1,64 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações do agrupamento de depósitos, lidas das propriedades banco.agrupamento-depositos.*
+ */
+@ConfigurationProperties(prefix = "banco.agrupamento-depositos")
+public class AgrupamentoDepositosProperties {
+
+    /*
+     * Liga o agrupamento. Desligado, cada depósito roda na sua própria transação, como antes.
+     */
+    private boolean habilitado = false;
+
+    /*
+     * Tempo máximo que o primeiro depósito de um grupo espera pelos seguintes antes de o grupo ser aplicado.
+     * É a latência a mais que um depósito pode ter em troca de dividir o commit com os outros.
+     */
+    private long janelaMs = 5;
+
+    /*
+     * Quantidade máxima de depósitos aplicados na mesma transação; um grupo cheio é aplicado sem esperar a janela.
+     */
+    private int tamanhoMaximoGrupo = 500;
+
+    /*
+     * Quantidade máxima de depósitos aguardando um grupo. Com a fila cheia o depósito roda sozinho, na thread de quem
+     * o pediu.
+     */
+    private int capacidadeFila = 10000;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public long getJanelaMs() {
+        return janelaMs;
+    }
+
+    public void setJanelaMs(long janelaMs) {
+        this.janelaMs = janelaMs;
+    }
+
+    public int getTamanhoMaximoGrupo() {
+        return tamanhoMaximoGrupo;
+    }
+
+    public void setTamanhoMaximoGrupo(int tamanhoMaximoGrupo) {
+        this.tamanhoMaximoGrupo = tamanhoMaximoGrupo;
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações do gravador assíncrono de auditoria, lidas das propriedades banco.auditoria.*
+ */
+@ConfigurationProperties(prefix = "banco.auditoria")
+public class AuditoriaProperties {
+
+    /*
+     * Quantidade máxima de registros aguardando gravação em memória.
+     */
+    private int capacidadeFila = 10000;
+
+    /*
+     * Quantidade máxima de registros gravados por transação.
+     */
+    private int tamanhoLote = 200;
+
+    /*
+     * Tempo que uma operação espera por espaço na fila cheia antes de gravar o registro no arquivo de contingência.
+     */
+    private long esperaFilaMs = 50;
+
+    /*
+     * Tempo máximo que a leitura da auditoria espera os registros já confirmados serem gravados.
+     */
+    private long esperaLeituraMs = 2000;
+
+    /*
+     * Arquivo onde ficam os registros que não couberam na fila ou não puderam ser gravados, até serem reprocessados.
+     */
+    private String arquivoContingencia = "auditoria-pendente.jsonl";
+
+    /*
+     * Diretório do diário da auditoria, onde os registros são anotados antes do commit da operação que os gerou.
+     */
+    private String diretorioDiario = "auditoria-diario";
+
+    /*
+     * Quantidade de registros anotados em cada segmento do diário antes de abrir o próximo.
+     */
+    private int registrosPorSegmentoDiario = 10000;
+
+    /*
+     * Espera o sistema operacional gravar cada anotação no disco (DSYNC), para que os registros sobrevivam também a
+     * uma queda da máquina, e não só da aplicação.
+     */
+    private boolean sincronizarDiario = false;
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    public int getTamanhoLote() {
+        return tamanhoLote;
+    }
+
+    public void setTamanhoLote(int tamanhoLote) {
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public long getEsperaFilaMs() {
+        return esperaFilaMs;
+    }
+
+    public void setEsperaFilaMs(long esperaFilaMs) {
+        this.esperaFilaMs = esperaFilaMs;
+    }
+
+    public long getEsperaLeituraMs() {
+        return esperaLeituraMs;
+    }
+
+    public void setEsperaLeituraMs(long esperaLeituraMs) {
+        this.esperaLeituraMs = esperaLeituraMs;
+    }
+
+    public String getArquivoContingencia() {
+        return arquivoContingencia;
+    }
+
+    public void setArquivoContingencia(String arquivoContingencia) {
+        this.arquivoContingencia = arquivoContingencia;
+    }
+
+    public String getDiretorioDiario() {
+        return diretorioDiario;
+    }
+
+    public void setDiretorioDiario(String diretorioDiario) {
+        this.diretorioDiario = diretorioDiario;
+    }
+
+    public int getRegistrosPorSegmentoDiario() {
+        return registrosPorSegmentoDiario;
+    }
+
+    public void setRegistrosPorSegmentoDiario(int registrosPorSegmentoDiario) {
+        this.registrosPorSegmentoDiario = registrosPorSegmentoDiario;
+    }
+
+    public boolean isSincronizarDiario() {
+        return sincronizarDiario;
+    }
+
+    public void setSincronizarDiario(boolean sincronizarDiario) {
+        this.sincronizarDiario = sincronizarDiario;
+    }
+}
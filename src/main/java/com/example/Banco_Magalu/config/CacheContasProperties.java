@@ -0,0 +1,64 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações do cache em memória dos cabeçalhos de conta, lidas das propriedades banco.cache-contas.*
+ */
+@ConfigurationProperties(prefix = "banco.cache-contas")
+public class CacheContasProperties {
+
+    /*
+     * Liga o cache. Desligado, toda leitura de cabeçalho vai ao banco.
+     */
+    private boolean habilitado = true;
+
+    /*
+     * Quantidade máxima de contas no cache; acima disso as menos usadas são removidas.
+     */
+    private long tamanhoMaximo = 10000;
+
+    /*
+     * Tempo de vida de cada entrada. Limita por quanto tempo uma alteração feita fora desta instância pode ficar invisível.
+     */
+    private long expiracaoMs = 10000;
+
+    /*
+     * Modo estrito: dentro de transações de escrita as leituras de cabeçalho sempre vão ao banco, então a taxa e a
+     * restituição de limite são calculadas sobre a conta confirmada, e o cache serve só às consultas. Desligado, as
+     * operações podem calcular a taxa a partir de um cabeçalho desatualizado por outra instância até a expiração.
+     */
+    private boolean estrito = true;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public long getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+
+    public void setTamanhoMaximo(long tamanhoMaximo) {
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    public long getExpiracaoMs() {
+        return expiracaoMs;
+    }
+
+    public void setExpiracaoMs(long expiracaoMs) {
+        this.expiracaoMs = expiracaoMs;
+    }
+
+    public boolean isEstrito() {
+        return estrito;
+    }
+
+    public void setEstrito(boolean estrito) {
+        this.estrito = estrito;
+    }
+}
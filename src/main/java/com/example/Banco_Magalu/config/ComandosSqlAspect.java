@@ -0,0 +1,87 @@
+package com.example.Banco_Magalu.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/*
+ * Conta os comandos SQL de cada chamada aos métodos públicos dos *Service e registra na distribuição
+ * banco.sql.comandos.servico, com as tags servico e metodo. A contagem inclui as chamadas internas a outros serviços.
+ * Roda depois das métricas e das retentativas e antes do interceptor de transação, então cada tentativa é contada
+ * separadamente e os comandos do flush no commit entram na conta.
+ * Quando o método tem @OrcamentoComandosSql e passa do orçamento, o excesso é contado em banco.sql.orcamento.excedido
+ * ou, com banco.sql.falhar-orcamento-excedido=true (nos testes), a chamada falha com IllegalStateException depois de
+ * concluída. Os orçamentos são os do modo ATOMICO e só são verificados nele; nos outros modos as chamadas só aparecem
+ * na métrica. As contas quentes também executam mais comandos que o orçamento.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class ComandosSqlAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(ComandosSqlAspect.class);
+
+    private final ContadorComandosSql contadorComandosSql;
+    private final ComandosSqlProperties properties;
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final MeterRegistry meterRegistry;
+
+    public ComandosSqlAspect(ContadorComandosSql contadorComandosSql, ComandosSqlProperties properties,
+                             ConcorrenciaProperties concorrenciaProperties, MeterRegistry meterRegistry) {
+        this.contadorComandosSql = contadorComandosSql;
+        this.properties = properties;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("within(com.example.Banco_Magalu.service.*Service) && execution(public * *(..))")
+    public Object contar(ProceedingJoinPoint joinPoint) throws Throwable {
+        contadorComandosSql.iniciar();
+        Object retorno;
+        try {
+            retorno = joinPoint.proceed();
+        } catch (Throwable e) {
+            registrar(joinPoint, contadorComandosSql.encerrar());
+            throw e;
+        }
+        long comandos = contadorComandosSql.encerrar();
+        registrar(joinPoint, comandos);
+        verificarOrcamento(joinPoint, comandos);
+        return retorno;
+    }
+
+    private void registrar(ProceedingJoinPoint joinPoint, long comandos) {
+        DistributionSummary.builder("banco.sql.comandos.servico")
+                .description("Comandos SQL executados por chamada de serviço")
+                .tag("servico", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                .tag("metodo", joinPoint.getSignature().getName())
+                .register(meterRegistry)
+                .record(comandos);
+    }
+
+    private void verificarOrcamento(ProceedingJoinPoint joinPoint, long comandos) {
+        OrcamentoComandosSql orcamento = ((MethodSignature) joinPoint.getSignature()).getMethod()
+                .getAnnotation(OrcamentoComandosSql.class);
+        if (orcamento == null || comandos <= orcamento.value()
+                || concorrenciaProperties.getModo() != ModoConcorrencia.ATOMICO) {
+            return;
+        }
+        String mensagem = joinPoint.getSignature().toShortString() + " executou " + comandos +
+                " comandos SQL, acima do orçamento de " + orcamento.value();
+        if (properties.isFalharOrcamentoExcedido()) {
+            throw new IllegalStateException(mensagem);
+        }
+        meterRegistry.counter("banco.sql.orcamento.excedido",
+                "servico", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                "metodo", joinPoint.getSignature().getName()).increment();
+        log.debug(mensagem);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.Banco_Magalu.config;
+
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/*
+ * Envolve o DataSource em um proxy do datasource-proxy, que avisa o ContadorComandosSql e o RegistroConsultasLentas
+ * a cada comando executado. Substitui o spring.jpa.show-sql: para ver todos os comandos com os parâmetros, ligue
+ * logging.level.banco.sql.comandos=DEBUG; desligado, o log dos comandos não monta nenhuma entrada.
+ */
+@Configuration
+@EnableConfigurationProperties(ComandosSqlProperties.class)
+public class ComandosSqlConfig {
+
+    static final String LOGGER_COMANDOS = "banco.sql.comandos";
+
+    @Bean
+    public ContadorComandosSql contadorComandosSql(ComandosSqlProperties properties) {
+        return new ContadorComandosSql(properties);
+    }
+
+    @Bean
+    public RegistroConsultasLentas registroConsultasLentas(ComandosSqlProperties properties) {
+        return new RegistroConsultasLentas(properties);
+    }
+
+    @Bean
+    public static BeanPostProcessor proxyDataSourceBeanPostProcessor(ObjectProvider<ContadorComandosSql> contadorComandosSql,
+                                                                     ObjectProvider<RegistroConsultasLentas> registroConsultasLentas) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                SLF4JQueryLoggingListener logComandos = new SLF4JQueryLoggingListener();
+                logComandos.setLogger(LOGGER_COMANDOS);
+                logComandos.setLogLevel(SLF4JLogLevel.DEBUG);
+                logComandos.setLoggingCondition(() -> logComandos.getLogger().isDebugEnabled());
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(contadorComandosSql.getObject())
+                        .listener(registroConsultasLentas.getObject())
+                        .listener(logComandos)
+                        .build();
+            }
+        };
+    }
+}
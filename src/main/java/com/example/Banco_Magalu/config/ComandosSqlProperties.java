@@ -0,0 +1,65 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações da contagem e do log dos comandos SQL, lidas das propriedades banco.sql.*
+ */
+@ConfigurationProperties(prefix = "banco.sql")
+public class ComandosSqlProperties {
+
+    /*
+     * Duração a partir da qual um comando é considerado lento e pode ir para o log, com os parâmetros.
+     */
+    private long limiteConsultaLentaMs = 200;
+
+    /*
+     * Fração dos comandos lentos que vão para o log, de 0 (nenhum) a 1 (todos). Evita que um banco sobrecarregado,
+     * em que todos os comandos ficam lentos, seja agravado pelo próprio log.
+     */
+    private double amostragemConsultaLenta = 0.1;
+
+    /*
+     * Quantidade de vezes que o mesmo comando pode rodar em uma requisição (ou em uma operação fora de requisição)
+     * antes de ir para o log como possível N+1. Zero desliga a verificação.
+     */
+    private int repeticoesSuspeitas = 20;
+
+    /*
+     * Faz uma operação anotada com @OrcamentoComandosSql falhar com IllegalStateException quando executa mais comandos
+     * do que o orçamento. Desligado, o excesso só vai para o log. Ligado nos testes.
+     */
+    private boolean falharOrcamentoExcedido = false;
+
+    public long getLimiteConsultaLentaMs() {
+        return limiteConsultaLentaMs;
+    }
+
+    public void setLimiteConsultaLentaMs(long limiteConsultaLentaMs) {
+        this.limiteConsultaLentaMs = limiteConsultaLentaMs;
+    }
+
+    public double getAmostragemConsultaLenta() {
+        return amostragemConsultaLenta;
+    }
+
+    public void setAmostragemConsultaLenta(double amostragemConsultaLenta) {
+        this.amostragemConsultaLenta = amostragemConsultaLenta;
+    }
+
+    public int getRepeticoesSuspeitas() {
+        return repeticoesSuspeitas;
+    }
+
+    public void setRepeticoesSuspeitas(int repeticoesSuspeitas) {
+        this.repeticoesSuspeitas = repeticoesSuspeitas;
+    }
+
+    public boolean isFalharOrcamentoExcedido() {
+        return falharOrcamentoExcedido;
+    }
+
+    public void setFalharOrcamentoExcedido(boolean falharOrcamentoExcedido) {
+        this.falharOrcamentoExcedido = falharOrcamentoExcedido;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcorrenciaProperties.class)
+public class ConcorrenciaConfig {
+}
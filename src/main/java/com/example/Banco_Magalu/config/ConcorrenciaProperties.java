@@ -0,0 +1,53 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações de concorrência das transações, lidas das propriedades banco.concorrencia.*
+ */
+@ConfigurationProperties(prefix = "banco.concorrencia")
+public class ConcorrenciaProperties {
+
+    private ModoConcorrencia modo = ModoConcorrencia.ATOMICO;
+
+    /*
+     * Número máximo de execuções de uma operação que falhou por conflito de bloqueio.
+     */
+    private int tentativas = 3;
+
+    private long backoffInicialMs = 20;
+
+    private long backoffMaximoMs = 500;
+
+    public ModoConcorrencia getModo() {
+        return modo;
+    }
+
+    public void setModo(ModoConcorrencia modo) {
+        this.modo = modo;
+    }
+
+    public int getTentativas() {
+        return tentativas;
+    }
+
+    public void setTentativas(int tentativas) {
+        this.tentativas = tentativas;
+    }
+
+    public long getBackoffInicialMs() {
+        return backoffInicialMs;
+    }
+
+    public void setBackoffInicialMs(long backoffInicialMs) {
+        this.backoffInicialMs = backoffInicialMs;
+    }
+
+    public long getBackoffMaximoMs() {
+        return backoffMaximoMs;
+    }
+
+    public void setBackoffMaximoMs(long backoffMaximoMs) {
+        this.backoffMaximoMs = backoffMaximoMs;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.Banco_Magalu.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Conta os comandos SQL executados pelo DataSource na thread corrente, entre iniciar() e encerrar().
+ * As contagens se aninham: o MetricasRequisicaoFilter abre uma por requisição e o ComandosSqlAspect uma por chamada de
+ * serviço, e cada comando conta em todas as abertas. Um lote JDBC conta como um comando, porque é uma ida ao banco.
+ * Comandos executados em outras threads (executor do lote, gravador de auditoria, agrupador de depósitos) entram nas
+ * contagens abertas naquelas threads, não na da requisição.
+ * Na contagem mais externa também são contadas as repetições de cada comando; um comando repetido
+ * banco.sql.repeticoes-suspeitas vezes vai para o log como possível N+1.
+ */
+public class ContadorComandosSql implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ContadorComandosSql.class);
+
+    private static final ThreadLocal<Contagem> ATUAL = new ThreadLocal<>();
+
+    private final int repeticoesSuspeitas;
+
+    public ContadorComandosSql(ComandosSqlProperties properties) {
+        this.repeticoesSuspeitas = properties.getRepeticoesSuspeitas();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Contagem contagem = ATUAL.get();
+        if (contagem == null) {
+            return;
+        }
+        Contagem externa = contagem;
+        for (Contagem aberta = contagem; aberta != null; aberta = aberta.anterior) {
+            aberta.comandos++;
+            externa = aberta;
+        }
+        if (repeticoesSuspeitas > 0 && !queryInfoList.isEmpty()) {
+            externa.repeticoes.merge(queryInfoList.get(0).getQuery(), 1, Integer::sum);
+        }
+    }
+
+    /*
+     * Abre uma contagem na thread corrente, dentro da que já estiver aberta.
+     */
+    public void iniciar() {
+        Contagem anterior = ATUAL.get();
+        ATUAL.set(new Contagem(anterior, anterior == null && repeticoesSuspeitas > 0));
+    }
+
+    /*
+     * Encerra a contagem aberta por último na thread corrente.
+     *
+     * @return long - comandos executados desde o iniciar() correspondente, ou zero se não havia contagem aberta
+     */
+    public long encerrar() {
+        Contagem contagem = ATUAL.get();
+        if (contagem == null) {
+            return 0;
+        }
+        if (contagem.anterior != null) {
+            ATUAL.set(contagem.anterior);
+        } else {
+            ATUAL.remove();
+            registrarRepeticoes(contagem);
+        }
+        return contagem.comandos;
+    }
+
+    private void registrarRepeticoes(Contagem contagem) {
+        if (contagem.repeticoes == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> repeticao : contagem.repeticoes.entrySet()) {
+            if (repeticao.getValue() >= repeticoesSuspeitas) {
+                log.warn("Possível N+1: comando executado {} vezes na mesma operação: {}", repeticao.getValue(), repeticao.getKey());
+            }
+        }
+    }
+
+    private static final class Contagem {
+
+        private final Contagem anterior;
+        private final Map<String, Integer> repeticoes;
+        private long comandos;
+
+        private Contagem(Contagem anterior, boolean contarRepeticoes) {
+            this.anterior = anterior;
+            this.repeticoes = contarRepeticoes ? new HashMap<>() : null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Configurações das contas quentes, lidas das propriedades banco.contas-quentes.*
+ */
+@ConfigurationProperties(prefix = "banco.contas-quentes")
+public class ContasQuentesProperties {
+
+    /*
+     * Liga a divisão do saldo das contas quentes em partes. Só tem efeito no modo ATOMICO e com o motor em memória
+     * desligado; nos outros modos os créditos vão para a linha da conta.
+     */
+    private boolean habilitado = false;
+
+    /*
+     * Números das contas quentes, como contas de recebimento de lojistas, que recebem muitos créditos ao mesmo tempo.
+     */
+    private Set<String> contas = new HashSet<>();
+
+    /*
+     * Quantidade de partes do saldo de cada conta quente. Mais partes espalham mais os créditos, mas deixam a leitura
+     * do saldo e a consolidação mais caras.
+     */
+    private int slots = 16;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public Set<String> getContas() {
+        return contas;
+    }
+
+    public void setContas(Set<String> contas) {
+        this.contas = contas;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações das exportações de auditoria e de transações, lidas das propriedades banco.exportacao.*
+ */
+@ConfigurationProperties(prefix = "banco.exportacao")
+public class ExportacaoProperties {
+
+    /*
+     * Fetch size das consultas de exportação, aplicado só a elas. Com Integer.MIN_VALUE o driver do MySQL entrega o
+     * resultado linha a linha, sem carregá-lo inteiro na memória e sem useCursorFetch na URL, que valeria para todas as
+     * conexões. Bancos que não aceitam valor negativo, como o H2 dos testes, usam um tamanho positivo.
+     */
+    private int tamanhoBusca = Integer.MIN_VALUE;
+
+    public int getTamanhoBusca() {
+        return tamanhoBusca;
+    }
+
+    public void setTamanhoBusca(int tamanhoBusca) {
+        this.tamanhoBusca = tamanhoBusca;
+    }
+}
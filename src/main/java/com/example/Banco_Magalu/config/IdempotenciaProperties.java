@@ -0,0 +1,90 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações das chaves de idempotência (cabeçalho Idempotency-Key), lidas das propriedades banco.idempotencia.*
+ */
+@ConfigurationProperties(prefix = "banco.idempotencia")
+public class IdempotenciaProperties {
+
+    /*
+     * Liga o tratamento do cabeçalho. Desligado, requisições com a chave são executadas como as demais.
+     */
+    private boolean habilitado = true;
+
+    /*
+     * Tempo durante o qual o resultado de uma chave é guardado e devolvido às requisições repetidas.
+     */
+    private long validadeMs = 24 * 60 * 60 * 1000L;
+
+    /*
+     * Validade da reserva de uma chave cuja execução não terminou. Se a instância cair entre a operação e a gravação
+     * do resultado, ou se a gravação falhar, a reserva expira nesse tempo e as repetições executam a operação de novo,
+     * em vez de receberem 409 até o fim de validade-ms. Deve ser maior que a duração das operações.
+     */
+    private long reservaMs = 60000;
+
+    /*
+     * Quantidade máxima de resultados guardados em memória; os demais são lidos da tabela chave_idempotencia.
+     */
+    private long tamanhoMaximoMemoria = 10000;
+
+    /*
+     * Quanto uma requisição repetida espera pela execução em andamento com a mesma chave antes de responder 409.
+     */
+    private long esperaMs = 10000;
+
+    /*
+     * Intervalo mínimo entre as limpezas das chaves expiradas na tabela.
+     */
+    private long intervaloLimpezaMs = 60000;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public long getValidadeMs() {
+        return validadeMs;
+    }
+
+    public void setValidadeMs(long validadeMs) {
+        this.validadeMs = validadeMs;
+    }
+
+    public long getReservaMs() {
+        return reservaMs;
+    }
+
+    public void setReservaMs(long reservaMs) {
+        this.reservaMs = reservaMs;
+    }
+
+    public long getTamanhoMaximoMemoria() {
+        return tamanhoMaximoMemoria;
+    }
+
+    public void setTamanhoMaximoMemoria(long tamanhoMaximoMemoria) {
+        this.tamanhoMaximoMemoria = tamanhoMaximoMemoria;
+    }
+
+    public long getEsperaMs() {
+        return esperaMs;
+    }
+
+    public void setEsperaMs(long esperaMs) {
+        this.esperaMs = esperaMs;
+    }
+
+    public long getIntervaloLimpezaMs() {
+        return intervaloLimpezaMs;
+    }
+
+    public void setIntervaloLimpezaMs(long intervaloLimpezaMs) {
+        this.intervaloLimpezaMs = intervaloLimpezaMs;
+    }
+}
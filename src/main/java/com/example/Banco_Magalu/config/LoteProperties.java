@@ -0,0 +1,62 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações do executor das transferências em lote, lidas das propriedades banco.lote.*
+ */
+@ConfigurationProperties(prefix = "banco.lote")
+public class LoteProperties {
+
+    /*
+     * Usa uma virtual thread por transferência. Só tem efeito quando a aplicação roda em Java 21 ou superior.
+     */
+    private boolean virtualThreads = false;
+
+    /*
+     * Máximo de transferências do lote executando ao mesmo tempo. Com 0 o valor é calculado a partir do pool do Hikari.
+     */
+    private int maxConcorrencia = 0;
+
+    /*
+     * Conexões do pool que ficam livres para as demais requisições quando a concorrência é calculada automaticamente.
+     */
+    private int reservaConexoes = 2;
+
+    /*
+     * Quantidade de transferências cujas linhas são enviadas ao banco a cada flush no lote por compensação.
+     */
+    private int tamanhoGrupoInsercao = 50;
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcorrencia() {
+        return maxConcorrencia;
+    }
+
+    public void setMaxConcorrencia(int maxConcorrencia) {
+        this.maxConcorrencia = maxConcorrencia;
+    }
+
+    public int getReservaConexoes() {
+        return reservaConexoes;
+    }
+
+    public void setReservaConexoes(int reservaConexoes) {
+        this.reservaConexoes = reservaConexoes;
+    }
+
+    public int getTamanhoGrupoInsercao() {
+        return tamanhoGrupoInsercao;
+    }
+
+    public void setTamanhoGrupoInsercao(int tamanhoGrupoInsercao) {
+        this.tamanhoGrupoInsercao = tamanhoGrupoInsercao;
+    }
+}
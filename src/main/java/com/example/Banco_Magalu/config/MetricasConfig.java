@@ -0,0 +1,27 @@
+package com.example.Banco_Magalu.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Métricas publicadas em /actuator/prometheus, além das que o Spring Boot já registra (http.server.requests,
+ * hikaricp.connections.*, jvm.*):
+ * - banco.transacao: duração e contagem das operações do TransacaoService por operação e resultado (MetricasTransacaoAspect)
+ * - banco.lote.tamanho e banco.lote.duracao: distribuição do tamanho e da duração dos lotes de transferências
+ * - banco.sql.comandos: comandos SQL por requisição (ContadorComandosSql e MetricasRequisicaoFilter)
+ * - banco.sql.comandos.servico: comandos SQL por chamada de serviço (ComandosSqlAspect)
+ */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public FilterRegistrationBean<MetricasRequisicaoFilter> metricasRequisicaoFilter(ContadorComandosSql contadorComandosSql,
+                                                                                   MeterRegistry meterRegistry) {
+        FilterRegistrationBean<MetricasRequisicaoFilter> registro =
+                new FilterRegistrationBean<>(new MetricasRequisicaoFilter(contadorComandosSql, meterRegistry));
+        registro.addUrlPatterns("/*");
+        return registro;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.Banco_Magalu.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/*
+ * Registra, para cada requisição, quantos comandos SQL ela executou, na distribuição banco.sql.comandos com as tags
+ * method e uri (o padrão da rota, como /conta-corrente/{numero}, para não criar uma série por conta).
+ */
+public class MetricasRequisicaoFilter extends OncePerRequestFilter {
+
+    private final ContadorComandosSql contadorComandosSql;
+    private final MeterRegistry meterRegistry;
+
+    public MetricasRequisicaoFilter(ContadorComandosSql contadorComandosSql, MeterRegistry meterRegistry) {
+        this.contadorComandosSql = contadorComandosSql;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        contadorComandosSql.iniciar();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long comandos = contadorComandosSql.encerrar();
+            Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("banco.sql.comandos")
+                    .description("Comandos SQL executados por requisição")
+                    .baseUnit("comandos")
+                    .tag("method", request.getMethod())
+                    .tag("uri", rota != null ? rota.toString() : "UNKNOWN")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(comandos);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.Banco_Magalu.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/*
+ * Mede as operações transacionais do TransacaoService no timer banco.transacao, com as tags operacao (nome do método)
+ * e resultado: sucesso ou o nome simples da exceção que saiu da operação (SaldoInsuficienteException,
+ * ContaNaoEncontradaException, IllegalArgumentException, ...). O timer também conta as operações por resultado.
+ * Roda antes das retentativas, então a duração inclui as tentativas repetidas e o resultado é o da última.
+ * As chamadas feitas dentro de outra operação (o lote chamando a transferência) são medidas separadamente.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricasTransacaoAspect {
+
+    static final String SUCESSO = "sucesso";
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricasTransacaoAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.example.Banco_Magalu.service.TransacaoService.*(..)) " +
+            "&& @annotation(jakarta.transaction.Transactional)")
+    public Object medir(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        String resultado = SUCESSO;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            resultado = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            amostra.stop(Timer.builder("banco.transacao")
+                    .description("Duração das operações do TransacaoService, por operação e resultado")
+                    .tag("operacao", joinPoint.getSignature().getName())
+                    .tag("resultado", resultado)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
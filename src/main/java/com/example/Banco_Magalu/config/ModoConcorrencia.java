@@ -0,0 +1,30 @@
+package com.example.Banco_Magalu.config;
+
+/*
+ * Estratégia de controle de concorrência usada pelo TransacaoService.
+ */
+public enum ModoConcorrencia {
+
+    /*
+     * Cada alteração de saldo é um UPDATE condicional; não há bloqueio explícito das contas.
+     */
+    ATOMICO,
+
+    /*
+     * As contas envolvidas são bloqueadas (SELECT ... FOR UPDATE) em ordem de número antes de qualquer leitura.
+     */
+    PESSIMISTA,
+
+    /*
+     * As contas são alteradas pela entidade e o UPDATE confere a coluna de versão; em caso de conflito a operação é refeita.
+     * Indicado para contas com pouca disputa.
+     */
+    OTIMISTA,
+
+    /*
+     * Livro-razão de partidas dobradas: cada operação só insere lançamentos (RazaoService) e a posição da conta é a do
+     * último lançamento; as colunas de saldo e limite da conta ficam como a posição de abertura.
+     * Duas operações que partem da mesma posição disputam a mesma sequência e a que perder é refeita.
+     */
+    LANCAMENTOS
+}
@@ -0,0 +1,115 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações do motor em memória, lidas das propriedades banco.motor.*
+ */
+@ConfigurationProperties(prefix = "banco.motor")
+public class MotorProperties {
+
+    /*
+     * Liga o motor: depósitos, saques e transferências passam a ser aplicados nos saldos em memória, e não pelo
+     * TransacaoService. O saldo e o limite das contas só podem ser alterados por essas operações enquanto ele estiver ligado.
+     */
+    private boolean habilitado = false;
+
+    /*
+     * Quantidade de shards, cada um com uma thread escritora. As contas são distribuídas pelo hash do número.
+     */
+    private int shards = 4;
+
+    /*
+     * Operações aguardando na fila de cada shard. Com a fila cheia, quem envia a operação espera por espaço.
+     */
+    private int capacidadeFila = 10000;
+
+    /*
+     * Diretório dos segmentos do log de escrita antecipada (WAL).
+     */
+    private String diretorioLog = "motor-wal";
+
+    /*
+     * Tamanho de cada segmento do log, mapeado em memória.
+     */
+    private int tamanhoSegmentoBytes = 64 * 1024 * 1024;
+
+    /*
+     * Máximo de registros gravados no log a cada fsync.
+     */
+    private int registrosPorFsync = 4096;
+
+    /*
+     * Intervalo entre as projeções do motor nas tabelas do JPA.
+     */
+    private long intervaloProjecaoMs = 200;
+
+    /*
+     * Máximo de registros do log projetados por transação.
+     */
+    private int tamanhoLoteProjecao = 2000;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getCapacidadeFila() {
+        return capacidadeFila;
+    }
+
+    public void setCapacidadeFila(int capacidadeFila) {
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    public String getDiretorioLog() {
+        return diretorioLog;
+    }
+
+    public void setDiretorioLog(String diretorioLog) {
+        this.diretorioLog = diretorioLog;
+    }
+
+    public int getTamanhoSegmentoBytes() {
+        return tamanhoSegmentoBytes;
+    }
+
+    public void setTamanhoSegmentoBytes(int tamanhoSegmentoBytes) {
+        this.tamanhoSegmentoBytes = tamanhoSegmentoBytes;
+    }
+
+    public int getRegistrosPorFsync() {
+        return registrosPorFsync;
+    }
+
+    public void setRegistrosPorFsync(int registrosPorFsync) {
+        this.registrosPorFsync = registrosPorFsync;
+    }
+
+    public long getIntervaloProjecaoMs() {
+        return intervaloProjecaoMs;
+    }
+
+    public void setIntervaloProjecaoMs(long intervaloProjecaoMs) {
+        this.intervaloProjecaoMs = intervaloProjecaoMs;
+    }
+
+    public int getTamanhoLoteProjecao() {
+        return tamanhoLoteProjecao;
+    }
+
+    public void setTamanhoLoteProjecao(int tamanhoLoteProjecao) {
+        this.tamanhoLoteProjecao = tamanhoLoteProjecao;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.Banco_Magalu.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Quantidade máxima de comandos SQL que um método público de um *Service pode executar, contando os das chamadas que
+ * ele faz e o commit da sua transação, no modo ATOMICO e com o cache de contas frio. Verificado pelo ComandosSqlAspect:
+ * o excesso é contado em banco.sql.orcamento.excedido ou, com banco.sql.falhar-orcamento-excedido=true, faz a operação
+ * falhar.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrcamentoComandosSql {
+
+    int value();
+}
@@ -0,0 +1,43 @@
+package com.example.Banco_Magalu.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Registra no log, com os parâmetros, uma amostra dos comandos SQL que levaram banco.sql.limite-consulta-lenta-ms ou
+ * mais. A entrada só é montada para os comandos sorteados, então os comandos rápidos custam uma comparação.
+ */
+public class RegistroConsultasLentas implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroConsultasLentas.class);
+
+    private final long limiteMs;
+    private final double amostragem;
+    private final DefaultQueryLogEntryCreator criadorEntrada = new DefaultQueryLogEntryCreator();
+
+    public RegistroConsultasLentas(ComandosSqlProperties properties) {
+        this.limiteMs = properties.getLimiteConsultaLentaMs();
+        this.amostragem = properties.getAmostragemConsultaLenta();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < limiteMs || !log.isWarnEnabled()
+                || ThreadLocalRandom.current().nextDouble() >= amostragem) {
+            return;
+        }
+        log.warn("Comando SQL lento ({} ms): {}", execInfo.getElapsedTime(),
+                criadorEntrada.getLogEntry(execInfo, queryInfoList, false, false, false));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.Banco_Magalu.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Reexecuta as operações transacionais do TransacaoService que falharam por conflito de concorrência:
+ * timeout de bloqueio ou deadlock (modos ATOMICO e PESSIMISTA), versão desatualizada (modo OTIMISTA) e sequência
+ * de lançamento já usada (modo LANCAMENTOS).
+ * Roda antes do interceptor de transação, então cada tentativa abre uma transação nova, e logo depois do
+ * MetricasTransacaoAspect, que mede a operação com todas as tentativas.
+ * As retentativas são contadas na métrica banco.transacao.retentativas, por operação e causa do conflito.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RetentativaTransacaoAspect {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentativaTransacaoAspect.class);
+
+    private final ConcorrenciaProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public RetentativaTransacaoAspect(ConcorrenciaProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.example.Banco_Magalu.service.TransacaoService.*(..)) " +
+            "&& @annotation(jakarta.transaction.Transactional)")
+    public Object executarComRetentativa(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Dentro de uma transação já aberta não é possível repetir só esta parte; quem abriu a transação decide
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operacao = joinPoint.getSignature().getName();
+        int tentativa = 1;
+        while (true) {
+            try {
+                return joinPoint.proceed();
+            } catch (PessimisticLockingFailureException | OptimisticLockingFailureException | OptimisticLockException e) {
+                String causa = e instanceof PessimisticLockingFailureException ? "bloqueio" : "versao";
+                if (tentativa >= properties.getTentativas()) {
+                    contador("banco.transacao.retentativas.esgotadas", operacao, causa).increment();
+                    throw e;
+                }
+                contador("banco.transacao.retentativas", operacao, causa).increment();
+                long espera = calcularEspera(tentativa);
+                log.debug("Conflito de {} em {} (tentativa {}), nova tentativa em {} ms",
+                        causa, operacao, tentativa, espera);
+                Thread.sleep(espera);
+                tentativa++;
+            }
+        }
+    }
+
+    private Counter contador(String nome, String operacao, String causa) {
+        return Counter.builder(nome)
+                .tag("operacao", operacao)
+                .tag("causa", causa)
+                .register(meterRegistry);
+    }
+
+    /*
+     * Backoff exponencial com jitter: espera um valor aleatório entre zero e o teto da tentativa.
+     */
+    private long calcularEspera(int tentativa) {
+        long teto = Math.min(properties.getBackoffMaximoMs(), properties.getBackoffInicialMs() << Math.min(tentativa - 1, 20));
+        return ThreadLocalRandom.current().nextLong(teto + 1);
+    }
+}
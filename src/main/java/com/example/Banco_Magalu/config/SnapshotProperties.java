@@ -0,0 +1,75 @@
+package com.example.Banco_Magalu.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Configurações dos snapshots binários das posições das contas, lidas das propriedades banco.snapshot.*
+ */
+@ConfigurationProperties(prefix = "banco.snapshot")
+public class SnapshotProperties {
+
+    /*
+     * Liga os snapshots periódicos e a carga do último snapshot na partida.
+     */
+    private boolean habilitado = false;
+
+    /*
+     * Diretório dos arquivos de snapshot.
+     */
+    private String diretorio = "snapshot-contas";
+
+    /*
+     * Intervalo entre os snapshots incrementais, que regravam só as contas alteradas desde o anterior.
+     */
+    private long intervaloMs = 5000;
+
+    /*
+     * Snapshots incrementais sobre a mesma base; ao atingir o limite o próximo snapshot é uma base completa.
+     */
+    private int incrementosPorBase = 32;
+
+    /*
+     * Preenche o cache de contas com o snapshot na partida, se o último snapshot foi gravado no desligamento.
+     */
+    private boolean aquecerCache = true;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public void setHabilitado(boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public String getDiretorio() {
+        return diretorio;
+    }
+
+    public void setDiretorio(String diretorio) {
+        this.diretorio = diretorio;
+    }
+
+    public long getIntervaloMs() {
+        return intervaloMs;
+    }
+
+    public void setIntervaloMs(long intervaloMs) {
+        this.intervaloMs = intervaloMs;
+    }
+
+    public int getIncrementosPorBase() {
+        return incrementosPorBase;
+    }
+
+    public void setIncrementosPorBase(int incrementosPorBase) {
+        this.incrementosPorBase = incrementosPorBase;
+    }
+
+    public boolean isAquecerCache() {
+        return aquecerCache;
+    }
+
+    public void setAquecerCache(boolean aquecerCache) {
+        this.aquecerCache = aquecerCache;
+    }
+}
@@ -1,50 +1,109 @@
 package com.example.Banco_Magalu.controller;
 
+import com.example.Banco_Magalu.dto.FormatoExportacao;
+import com.example.Banco_Magalu.dto.PaginaAuditoriaDto;
 import com.example.Banco_Magalu.service.AuditoriaService;
+import com.example.Banco_Magalu.service.ExportacaoService;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/auditoria")
 public class AuditoriaController {
 
     private final AuditoriaService auditoriaService;
+    private final ExportacaoService exportacaoService;
 
-    public AuditoriaController(AuditoriaService auditoriaService) {
+    public AuditoriaController(AuditoriaService auditoriaService, ExportacaoService exportacaoService) {
         this.auditoriaService = auditoriaService;
+        this.exportacaoService = exportacaoService;
     }
 
     /**
-     * Endpoint para buscar mensagens de auditoria realacionada as contas
+     * Endpoint para buscar mensagens de auditoria realacionada as contas, paginadas por cursor
      * @param numeroConta numero da conta a ser buscada
-     * @return Lista menagens de auditoria
+     * @param de primeiro dia do período, inclusive
+     * @param ate último dia do período, inclusive
+     * @param cursorDataHora data e hora do último registro da página anterior
+     * @param cursorId id do último registro da página anterior
+     * @param tamanho quantidade máxima de mensagens na página
+     * @return Página de mensagens de auditoria
      */
     @Operation(
             summary = "Buscar mensagens de auditoria por conta",
-            description = "Retorna uma lista de mensagens de auditoria relacionadas a uma conta específica."
+            description = "Retorna as mensagens de auditoria de uma conta da mais recente para a mais antiga, paginadas por cursor " +
+                    "e opcionalmente filtradas pelo período de e ate. Para a próxima página, envie proximaDataHora e proximoId " +
+                    "da resposta como cursorDataHora e cursorId."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
-                    description = "Lista de mensagens de auditoria retornada com sucesso.",
+                    description = "Página de mensagens de auditoria retornada com sucesso.",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = String.class))),
-            @ApiResponse(responseCode = "404",
-                    description = "Conta não encontrada ou sem mensagens de auditoria.")
+                            schema = @Schema(implementation = PaginaAuditoriaDto.class))),
+            @ApiResponse(responseCode = "400",
+                    description = "Período, cursor ou tamanho de página inválido.")
     })
     @GetMapping("/conta/{numeroConta}")
-    public ResponseEntity<List<String>> buscarMensagensAuditoriaConta(@PathVariable String numeroConta){
-        List<String> mensagens = auditoriaService.buscarMensagensPorConta(numeroConta);
-        return ResponseEntity.ok(mensagens);
+    public ResponseEntity<PaginaAuditoriaDto> buscarMensagensAuditoriaConta(@PathVariable String numeroConta,
+                                                                            @RequestParam(value = "de", required = false)
+                                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                            @RequestParam(value = "ate", required = false)
+                                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                                                            @RequestParam(value = "cursorDataHora", required = false)
+                                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorDataHora,
+                                                                            @RequestParam(value = "cursorId", required = false) UUID cursorId,
+                                                                            @RequestParam(value = "tamanho", defaultValue = "50") int tamanho){
+        return ResponseEntity.ok(auditoriaService.buscarMensagensPorConta(numeroConta, de, ate, cursorDataHora, cursorId, tamanho));
+    }
+
+    /**
+     * Endpoint para exportar a auditoria em NDJSON ou CSV.
+     * A resposta é escrita enquanto as linhas são lidas do banco, sem carregar o resultado inteiro na memória.
+     * @param numeroConta número da conta; sem ele exporta todas as contas
+     * @param de primeiro dia do período, inclusive
+     * @param ate último dia do período, inclusive
+     * @param formato NDJSON (um objeto JSON por linha) ou CSV
+     * @return Arquivo com a auditoria
+     */
+    @Operation(
+            summary = "Exportar a auditoria",
+            description = "Exporta a auditoria em ordem cronológica, de uma conta ou de todas, opcionalmente filtrada " +
+                    "pelo período de e ate. A resposta é enviada aos poucos, enquanto as linhas são lidas do banco."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportação iniciada",
+                    content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Período ou formato inválido")
+    })
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarAuditoria(@RequestParam(value = "conta", required = false) String numeroConta,
+                                                                   @RequestParam(value = "de", required = false)
+                                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                   @RequestParam(value = "ate", required = false)
+                                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                                                   @RequestParam(value = "formato", defaultValue = "NDJSON") FormatoExportacao formato) {
+        exportacaoService.validarPeriodo(de, ate);
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarAuditoria(numeroConta, de, ate, formato, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getTipoConteudo()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"auditoria." + formato.getExtensao() + "\"")
+                .body(corpo);
     }
 }
@@ -1,6 +1,8 @@
 package com.example.Banco_Magalu.controller;
 
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
 import com.example.Banco_Magalu.dto.ContaCorrenteDto;
+import com.example.Banco_Magalu.dto.ExtratoDto;
 import com.example.Banco_Magalu.entity.ContaCorrente;
 import com.example.Banco_Magalu.service.ContaCorrenteService;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,6 +16,10 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.UUID;
 
 @RestController
 @RequestMapping(value="/conta-corrente", produces = "application/json")
@@ -41,21 +47,45 @@ public class ContaCorrenteController {
     }
 
 
-    @Operation(summary = "Consultar uma conta corrente", description = "Busca os detalhes de uma conta corrente pelo número da conta.")
+    @Operation(summary = "Consultar uma conta corrente",
+            description = "Busca saldo, limites e versão de uma conta corrente pelo número da conta. " +
+                    "O histórico de transações é consultado pelo extrato.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Conta encontrada",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = ContaCorrente.class))),
+                            schema = @Schema(implementation = CabecalhoContaDto.class))),
             @ApiResponse(responseCode = "404", description = "Conta não encontrada")
     })
     @GetMapping("/{numero}")
-    public ResponseEntity<ContaCorrente> buscarConta(@PathVariable("numero") String numero){
-        return contaCorrenteService.buscarConta(numero)
+    public ResponseEntity<CabecalhoContaDto> buscarConta(@PathVariable("numero") String numero){
+        return contaCorrenteService.buscarCabecalho(numero)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
 
+    @Operation(
+            summary = "Consultar o extrato de uma conta corrente",
+            description = "Retorna as transações da conta da mais recente para a mais antiga, paginadas por cursor. " +
+                    "Para a próxima página, envie proximaData e proximoId da resposta como cursorData e cursorId."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página do extrato retornada com sucesso",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ExtratoDto.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho de página inválido"),
+            @ApiResponse(responseCode = "404", description = "Conta não encontrada")
+    })
+    @GetMapping("/{numero}/extrato")
+    public ResponseEntity<ExtratoDto> buscarExtrato(@PathVariable("numero") String numero,
+                                                    @RequestParam(value = "cursorData", required = false)
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cursorData,
+                                                    @RequestParam(value = "cursorId", required = false) UUID cursorId,
+                                                    @RequestParam(value = "tamanho", defaultValue = "50") int tamanho) {
+        return ResponseEntity.ok(contaCorrenteService.buscarExtrato(numero, cursorData, cursorId, tamanho));
+    }
+
+
     @Operation(
             summary = "Atualiza o saldo de uma conta corrente",
             description = "Permite atualizar o saldo de uma conta corrente identificada pelo número da conta."
@@ -0,0 +1,63 @@
+package com.example.Banco_Magalu.controller;
+
+import com.example.Banco_Magalu.dto.VerificacaoSnapshotDto;
+import com.example.Banco_Magalu.service.SnapshotContas;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping(value = "/snapshot", produces = "application/json")
+@Tag(name = "Snapshot")
+public class SnapshotController {
+
+    private final SnapshotContas snapshotContas;
+
+    public SnapshotController(SnapshotContas snapshotContas) {
+        this.snapshotContas = snapshotContas;
+    }
+
+    @Operation(summary = "Gravar um snapshot das contas",
+            description = "Grava agora o próximo snapshot, com as contas alteradas desde o anterior, sem esperar o intervalo. " +
+                    "Retorna a quantidade de contas gravadas.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot gravado"),
+            @ApiResponse(responseCode = "409", description = "Snapshots desligados")
+    })
+    @PostMapping
+    public ResponseEntity<Integer> gravar() {
+        try {
+            return ResponseEntity.ok(snapshotContas.gravarAgora());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Verificar o snapshot das contas",
+            description = "Compara o último snapshot válido em disco com as contas no banco e lista as divergências. " +
+                    "Contas alteradas depois do snapshot aparecem como DESATUALIZADA.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Verificação concluída",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = VerificacaoSnapshotDto.class))),
+            @ApiResponse(responseCode = "409", description = "Nenhum snapshot válido")
+    })
+    @GetMapping("/verificacao")
+    public ResponseEntity<VerificacaoSnapshotDto> verificar() {
+        try {
+            return ResponseEntity.ok(snapshotContas.verificar());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+}
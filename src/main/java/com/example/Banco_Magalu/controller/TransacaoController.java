@@ -1,26 +1,34 @@
 package com.example.Banco_Magalu.controller;
 
 import com.example.Banco_Magalu.dto.DepositoDto;
+import com.example.Banco_Magalu.dto.FormatoExportacao;
 import com.example.Banco_Magalu.dto.LoteTransferenciaDto;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
 import com.example.Banco_Magalu.dto.SaqueDto;
 import com.example.Banco_Magalu.dto.TransferenciaDto;
 import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.service.AgrupadorDepositos;
+import com.example.Banco_Magalu.service.ExportacaoService;
+import com.example.Banco_Magalu.service.IdempotenciaService;
+import com.example.Banco_Magalu.service.LoteTransferenciaService;
+import com.example.Banco_Magalu.service.MotorContas;
 import com.example.Banco_Magalu.service.TransacaoService;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.util.function.Supplier;
 
 
 @RestController
@@ -28,84 +36,134 @@ import java.util.stream.Collectors;
 public class TransacaoController {
 
     private final TransacaoService transacaoService;
+    private final LoteTransferenciaService loteTransferenciaService;
+    private final ExportacaoService exportacaoService;
+    private final MotorContas motorContas;
+    private final IdempotenciaService idempotenciaService;
+    private final AgrupadorDepositos agrupadorDepositos;
 
-    public TransacaoController(TransacaoService transacaoService) {
+    public TransacaoController(TransacaoService transacaoService, LoteTransferenciaService loteTransferenciaService,
+                               ExportacaoService exportacaoService, MotorContas motorContas,
+                               IdempotenciaService idempotenciaService, AgrupadorDepositos agrupadorDepositos) {
         this.transacaoService = transacaoService;
+        this.loteTransferenciaService = loteTransferenciaService;
+        this.exportacaoService = exportacaoService;
+        this.motorContas = motorContas;
+        this.idempotenciaService = idempotenciaService;
+        this.agrupadorDepositos = agrupadorDepositos;
     }
 
     /**
      * EndPoint para depositar valor na conta.
+     * Com banco.motor.habilitado=true esta e as demais operações são feitas pelo motor em memória.
+     * Com banco.agrupamento-depositos.habilitado=true o depósito é aplicado junto com os que chegam ao mesmo tempo,
+     * em uma única transação.
+     * Com o cabeçalho Idempotency-Key esta e as demais operações rodam uma única vez por chave; as repetições recebem
+     * a transação da primeira execução.
      * @param depositoDto Número da conta e valor a ser depositado.
+     * @param chaveIdempotencia Chave escolhida pelo cliente para identificar a requisição nas repetições.
      * @return A transação realizada.
      */
     @Operation(summary = "Realizar depósito",
-            description = "Realiza um depósito em uma conta específica, aumentando o saldo.")
+            description = "Realiza um depósito em uma conta específica, aumentando o saldo. Repetições com o mesmo " +
+                    "cabeçalho Idempotency-Key recebem a transação da primeira execução, sem depositar de novo.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Depósito realizado com sucesso",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Transacao.class))),
             @ApiResponse(responseCode = "400", description = "Dados inválidos ou número da conta não informado"),
-            @ApiResponse(responseCode = "404", description = "Conta não encontrada")
+            @ApiResponse(responseCode = "404", description = "Conta não encontrada"),
+            @ApiResponse(responseCode = "409", description = "Requisição com a mesma chave ainda em andamento"),
+            @ApiResponse(responseCode = "422", description = "Chave já usada em uma requisição diferente")
     })
     @PostMapping("/deposito")
-    public ResponseEntity<Transacao> realizarDeposito(@Valid @RequestBody DepositoDto depositoDto) {
-        Transacao transacao = transacaoService.realizarDeposito(depositoDto.getNumeroConta(), depositoDto.getValor());
+    public ResponseEntity<Transacao> realizarDeposito(@Valid @RequestBody DepositoDto depositoDto,
+                                                      @RequestHeader(value = IdempotenciaService.CABECALHO, required = false)
+                                                      String chaveIdempotencia) {
+        Transacao transacao = executar(chaveIdempotencia, "deposito", () -> motorContas.isHabilitado()
+                        ? motorContas.realizarDeposito(depositoDto.getNumeroConta(), depositoDto.getValor())
+                        : agrupadorDepositos.isHabilitado()
+                        ? agrupadorDepositos.realizarDeposito(depositoDto.getNumeroConta(), depositoDto.getValor())
+                        : transacaoService.realizarDeposito(depositoDto.getNumeroConta(), depositoDto.getValor()),
+                depositoDto.getNumeroConta(), depositoDto.getValor());
         return ResponseEntity.ok(transacao);
     }
 
     /**
      * Endpoint para realizar saque da conta.
      * @param saqueDto DTO com número da conta e valor do saque.
+     * @param chaveIdempotencia Chave escolhida pelo cliente para identificar a requisição nas repetições.
      * @return A transação realizada.
      */
-    @Operation(summary = "Realizar saque", description = "Realiza um saque na conta com um valor específico, aplicando taxas.")
+    @Operation(summary = "Realizar saque", description = "Realiza um saque na conta com um valor específico, aplicando taxas. " +
+            "Repetições com o mesmo cabeçalho Idempotency-Key recebem a transação da primeira execução.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Saque realizado com sucesso"),
             @ApiResponse(responseCode = "400", description = "Saldo insuficiente ou valor inválido"),
-            @ApiResponse(responseCode = "404", description = "Conta não encontrada")
+            @ApiResponse(responseCode = "404", description = "Conta não encontrada"),
+            @ApiResponse(responseCode = "409", description = "Requisição com a mesma chave ainda em andamento"),
+            @ApiResponse(responseCode = "422", description = "Chave já usada em uma requisição diferente")
     })
     @PostMapping("/saque")
-    public ResponseEntity<Transacao> realizarSaque(@Valid @RequestBody SaqueDto saqueDto) {
-        Transacao transacao = transacaoService.realizarSaque(saqueDto.getNumeroConta(), saqueDto.getValor());
+    public ResponseEntity<Transacao> realizarSaque(@Valid @RequestBody SaqueDto saqueDto,
+                                                   @RequestHeader(value = IdempotenciaService.CABECALHO, required = false)
+                                                   String chaveIdempotencia) {
+        Transacao transacao = executar(chaveIdempotencia, "saque", () -> motorContas.isHabilitado()
+                        ? motorContas.realizarSaque(saqueDto.getNumeroConta(), saqueDto.getValor())
+                        : transacaoService.realizarSaque(saqueDto.getNumeroConta(), saqueDto.getValor()),
+                saqueDto.getNumeroConta(), saqueDto.getValor());
         return ResponseEntity.ok(transacao);
     }
 
     /**
      * Endpoint para realizar uma transferência entre contas.
      * @param transferenciaDto DTO com os dados da transferência.
+     * @param chaveIdempotencia Chave escolhida pelo cliente para identificar a requisição nas repetições.
      * @return A transação realizada.
      */
-    @Operation(summary = "Realizar transferência", description = "Realiza uma transferência entre duas contas, aplicando taxas.")
+    @Operation(summary = "Realizar transferência", description = "Realiza uma transferência entre duas contas, aplicando taxas. " +
+            "Repetições com o mesmo cabeçalho Idempotency-Key recebem a transação da primeira execução.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transferência realizada com sucesso"),
             @ApiResponse(responseCode = "400", description = "Saldo insuficiente ou valor inválido"),
-            @ApiResponse(responseCode = "404", description = "Conta não encontrada")
+            @ApiResponse(responseCode = "404", description = "Conta não encontrada"),
+            @ApiResponse(responseCode = "409", description = "Requisição com a mesma chave ainda em andamento"),
+            @ApiResponse(responseCode = "422", description = "Chave já usada em uma requisição diferente")
     })
     @PostMapping("/transferencia")
-    public ResponseEntity<Transacao> realizarTransferencia(@Valid @RequestBody TransferenciaDto transferenciaDto) {
-        Transacao transacao = transacaoService.realizarTransferencia(
-                transferenciaDto.getContaOrigem(),
-                transferenciaDto.getContaDestino(),
-                transferenciaDto.getValor()
-        );
+    public ResponseEntity<Transacao> realizarTransferencia(@Valid @RequestBody TransferenciaDto transferenciaDto,
+                                                           @RequestHeader(value = IdempotenciaService.CABECALHO, required = false)
+                                                           String chaveIdempotencia) {
+        Transacao transacao = executar(chaveIdempotencia, "transferencia", () -> motorContas.isHabilitado()
+                        ? motorContas.realizarTransferencia(transferenciaDto.getContaOrigem(), transferenciaDto.getContaDestino(),
+                                transferenciaDto.getValor())
+                        : transacaoService.realizarTransferencia(
+                                transferenciaDto.getContaOrigem(),
+                                transferenciaDto.getContaDestino(),
+                                transferenciaDto.getValor()
+                        ),
+                transferenciaDto.getContaOrigem(), transferenciaDto.getContaDestino(), transferenciaDto.getValor());
         return ResponseEntity.ok(transacao);
     }
 
     /**
      * Endpoint para transação em lote.
+     * Transferências que compartilham uma conta são executadas em sequência, na ordem de envio; as demais rodam em paralelo.
+     * Com compensar=true o lote é liquidado pelo saldo líquido de cada conta, com um único UPDATE por conta.
      * @param loteTransferenciaDto DTO com as transferências a serem realizadas.
+     * @param compensar Liquida o lote por compensação.
      * @return Uma lista de transferências bem-sucedidas e falhas.
      */
     @Operation(
             summary = "Realizar transferências em lote",
-            description = "Permite realizar múltiplas transferências simultaneamente. Retorna as transferências bem-sucedidas e as falhas."
+            description = "Permite realizar múltiplas transferências simultaneamente. Transferências que envolvem a mesma conta são executadas na ordem de envio. Com compensar=true, o lote é liquidado pelo saldo líquido de cada conta em uma única transação. Retorna as transferências bem-sucedidas e as falhas."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
                     description = "Transferências processadas com sucesso",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Map.class),
+                            schema = @Schema(implementation = ResultadoLoteDto.class),
                             examples = @ExampleObject(value = "{\n" +
                                     "  \"sucesso\": [\n" +
                                     "    { \"contaOrigem\": \"12345\", \"contaDestino\": \"54321\", \"valor\": 100.0 },\n" +
@@ -127,41 +185,52 @@ public class TransacaoController {
             )
     })
     @PostMapping("/lote")
-    public ResponseEntity<Map<String, Object>> realizarTransferenciaEmLote(@RequestBody LoteTransferenciaDto loteTransferenciaDto) {
-        List<TransferenciaDto> transferencias = loteTransferenciaDto.getTransferencias();
-
-        List<TransferenciaDto> transferenciasBemSucedidas = new ArrayList<>();
-        List<String> transferenciasFalhas = new ArrayList<>();
-
-        List<CompletableFuture<Void>> futures = transferencias.stream()
-                .map(transferencia -> CompletableFuture.runAsync(() -> {
-                    try {
-                        // Realiza a transferência
-                        transacaoService.realizarTransferencia(
-                                transferencia.getContaOrigem(),
-                                transferencia.getContaDestino(),
-                                transferencia.getValor()
-                        );
-                        synchronized (transferenciasBemSucedidas) {
-                            transferenciasBemSucedidas.add(transferencia);
-                        }
-                    } catch (Exception e) {
-                        synchronized (transferenciasFalhas) {
-                            transferenciasFalhas.add("Erro na transferência de " +
-                                    transferencia.getContaOrigem() + " para " +
-                                    transferencia.getContaDestino() + ": " + e.getMessage());
-                        }
-                    }
-                }))
-                .collect(Collectors.toList());
+    public ResponseEntity<ResultadoLoteDto> realizarTransferenciaEmLote(@RequestBody LoteTransferenciaDto loteTransferenciaDto,
+                                                                        @RequestParam(defaultValue = "false") boolean compensar) {
+        ResultadoLoteDto resultado = compensar
+                ? loteTransferenciaService.realizarTransferenciasCompensadas(loteTransferenciaDto.getTransferencias())
+                : loteTransferenciaService.realizarTransferencias(loteTransferenciaDto.getTransferencias());
+        return ResponseEntity.ok(resultado);
+    }
 
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    /**
+     * Endpoint para exportar as transações em NDJSON ou CSV.
+     * A resposta é escrita enquanto as linhas são lidas do banco, sem carregar o resultado inteiro na memória.
+     * @param numeroConta número da conta; sem ele exporta todas as contas
+     * @param de primeiro dia do período, inclusive
+     * @param ate último dia do período, inclusive
+     * @param formato NDJSON (um objeto JSON por linha) ou CSV
+     * @return Arquivo com as transações
+     */
+    @Operation(
+            summary = "Exportar as transações",
+            description = "Exporta as transações em ordem cronológica, de uma conta ou de todas, opcionalmente filtradas " +
+                    "pelo período de e ate. A resposta é enviada aos poucos, enquanto as linhas são lidas do banco."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportação iniciada",
+                    content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Período ou formato inválido")
+    })
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarTransacoes(@RequestParam(value = "conta", required = false) String numeroConta,
+                                                                    @RequestParam(value = "de", required = false)
+                                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+                                                                    @RequestParam(value = "ate", required = false)
+                                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+                                                                    @RequestParam(value = "formato", defaultValue = "NDJSON") FormatoExportacao formato) {
+        exportacaoService.validarPeriodo(de, ate);
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarTransacoes(numeroConta, de, ate, formato, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getTipoConteudo()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transacoes." + formato.getExtensao() + "\"")
+                .body(corpo);
+    }
 
-        return ResponseEntity.ok(
-                Map.of(
-                        "sucesso", transferenciasBemSucedidas,
-                        "falhas", transferenciasFalhas
-                )
-        );
+    // Sem o cabeçalho a operação roda direto, como antes
+    private Transacao executar(String chaveIdempotencia, String operacao, Supplier<Transacao> execucao, Object... parametros) {
+        return chaveIdempotencia == null
+                ? execucao.get()
+                : idempotenciaService.executar(chaveIdempotencia, operacao, execucao, parametros);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package com.example.Banco_Magalu.dto;
+
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Lancamento;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/*
+ * Cabeçalho de uma conta corrente, sem o histórico de transações.
+ * É imutável porque a mesma instância fica no cache de contas e é lida por várias threads.
+ */
+@Schema(description = "DTO com os dados de uma conta corrente, sem o histórico de transações (consulte o extrato).")
+public class CabecalhoContaDto {
+
+    @Schema(description = "Número único da conta corrente.", example = "12345")
+    private final String numero;
+
+    @Schema(description = "Saldo atual da conta corrente.", example = "500.00")
+    private final BigDecimal saldo;
+
+    @Schema(description = "Limite de crédito disponível.", example = "300.00")
+    private final BigDecimal limiteCredito;
+
+    @Schema(description = "Limite de crédito máximo da conta.", example = "1000.00")
+    private final BigDecimal limiteMaximo;
+
+    @Schema(description = "Data de criação da conta.", example = "2024-11-19")
+    private final LocalDate dataDeCriacao;
+
+    @Schema(description = "Versão da conta, incrementada a cada alteração de saldo ou limite.", example = "3")
+    private final long versao;
+
+    public CabecalhoContaDto(String numero, BigDecimal saldo, BigDecimal limiteCredito, BigDecimal limiteMaximo,
+                             LocalDate dataDeCriacao, long versao) {
+        this.numero = numero;
+        this.saldo = saldo;
+        this.limiteCredito = limiteCredito;
+        this.limiteMaximo = limiteMaximo;
+        this.dataDeCriacao = dataDeCriacao;
+        this.versao = versao;
+    }
+
+    public static CabecalhoContaDto de(ContaCorrente conta) {
+        return new CabecalhoContaDto(conta.getNumero(), conta.getSaldo(), conta.getLimiteCredito(), conta.getLimiteMaximo(),
+                conta.getDataDeCriacao(), conta.getVersao());
+    }
+
+    /*
+     * Posição da conta no modo LANCAMENTOS: saldo e limite acumulados no último lançamento da conta, cuja sequência é
+     * a versão, ou os da própria conta (posição de abertura) se ela ainda não tem lançamentos.
+     */
+    public static CabecalhoContaDto de(ContaCorrente conta, Lancamento ultimoLancamento) {
+        if (ultimoLancamento == null) {
+            return de(conta);
+        }
+        return new CabecalhoContaDto(conta.getNumero(), ultimoLancamento.getSaldo().toBigDecimal(),
+                ultimoLancamento.getLimiteCredito().toBigDecimal(), conta.getLimiteMaximo(), conta.getDataDeCriacao(),
+                ultimoLancamento.getSequencia());
+    }
+
+    public String getNumero() {
+        return numero;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public BigDecimal getLimiteCredito() {
+        return limiteCredito;
+    }
+
+    public BigDecimal getLimiteMaximo() {
+        return limiteMaximo;
+    }
+
+    public LocalDate getDataDeCriacao() {
+        return dataDeCriacao;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.Banco_Magalu.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+@Schema(description = "DTO com uma conta cuja posição no snapshot difere da posição no banco.")
+public class DivergenciaSnapshotDto {
+
+    public static final String AUSENTE_NO_SNAPSHOT = "AUSENTE_NO_SNAPSHOT";
+    public static final String AUSENTE_NO_BANCO = "AUSENTE_NO_BANCO";
+    public static final String DESATUALIZADA = "DESATUALIZADA";
+    public static final String DIVERGENTE = "DIVERGENTE";
+
+    @Schema(description = "Número da conta corrente.", example = "12345")
+    private final String numero;
+
+    @Schema(description = "AUSENTE_NO_SNAPSHOT, AUSENTE_NO_BANCO, DESATUALIZADA (alterada no banco depois do snapshot) " +
+            "ou DIVERGENTE (mesma versão com valores diferentes).", example = "DESATUALIZADA")
+    private final String motivo;
+
+    @Schema(description = "Saldo no snapshot.", example = "500.00")
+    private final BigDecimal saldoSnapshot;
+
+    @Schema(description = "Saldo no banco.", example = "450.00")
+    private final BigDecimal saldoBanco;
+
+    @Schema(description = "Limite de crédito no snapshot.", example = "300.00")
+    private final BigDecimal limiteCreditoSnapshot;
+
+    @Schema(description = "Limite de crédito no banco.", example = "300.00")
+    private final BigDecimal limiteCreditoBanco;
+
+    @Schema(description = "Versão da conta no snapshot.", example = "3")
+    private final Long versaoSnapshot;
+
+    @Schema(description = "Versão da conta no banco.", example = "4")
+    private final Long versaoBanco;
+
+    public DivergenciaSnapshotDto(String numero, String motivo, BigDecimal saldoSnapshot, BigDecimal saldoBanco,
+                                  BigDecimal limiteCreditoSnapshot, BigDecimal limiteCreditoBanco,
+                                  Long versaoSnapshot, Long versaoBanco) {
+        this.numero = numero;
+        this.motivo = motivo;
+        this.saldoSnapshot = saldoSnapshot;
+        this.saldoBanco = saldoBanco;
+        this.limiteCreditoSnapshot = limiteCreditoSnapshot;
+        this.limiteCreditoBanco = limiteCreditoBanco;
+        this.versaoSnapshot = versaoSnapshot;
+        this.versaoBanco = versaoBanco;
+    }
+
+    public static DivergenciaSnapshotDto de(String numero, String motivo, CabecalhoContaDto snapshot, CabecalhoContaDto banco) {
+        return new DivergenciaSnapshotDto(numero, motivo,
+                snapshot != null ? snapshot.getSaldo() : null, banco != null ? banco.getSaldo() : null,
+                snapshot != null ? snapshot.getLimiteCredito() : null, banco != null ? banco.getLimiteCredito() : null,
+                snapshot != null ? snapshot.getVersao() : null, banco != null ? banco.getVersao() : null);
+    }
+
+    public String getNumero() {
+        return numero;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+
+    public BigDecimal getSaldoSnapshot() {
+        return saldoSnapshot;
+    }
+
+    public BigDecimal getSaldoBanco() {
+        return saldoBanco;
+    }
+
+    public BigDecimal getLimiteCreditoSnapshot() {
+        return limiteCreditoSnapshot;
+    }
+
+    public BigDecimal getLimiteCreditoBanco() {
+        return limiteCreditoBanco;
+    }
+
+    public Long getVersaoSnapshot() {
+        return versaoSnapshot;
+    }
+
+    public Long getVersaoBanco() {
+        return versaoBanco;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.Banco_Magalu.dto;
+
+import com.example.Banco_Magalu.entity.Transacao;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Schema(description = "DTO para representar uma página do extrato de uma conta corrente, com o cursor da próxima página.")
+public class ExtratoDto {
+
+    @Schema(description = "Transações da página, da mais recente para a mais antiga.")
+    private List<Transacao> transacoes;
+
+    @Schema(description = "Data da última transação da página. Nulo quando não há próxima página.", example = "2024-11-19")
+    private LocalDate proximaData;
+
+    @Schema(description = "Id da última transação da página. Nulo quando não há próxima página.")
+    private UUID proximoId;
+
+    public ExtratoDto(List<Transacao> transacoes, LocalDate proximaData, UUID proximoId) {
+        this.transacoes = transacoes;
+        this.proximaData = proximaData;
+        this.proximoId = proximoId;
+    }
+
+    public List<Transacao> getTransacoes() {
+        return transacoes;
+    }
+
+    public void setTransacoes(List<Transacao> transacoes) {
+        this.transacoes = transacoes;
+    }
+
+    public LocalDate getProximaData() {
+        return proximaData;
+    }
+
+    public void setProximaData(LocalDate proximaData) {
+        this.proximaData = proximaData;
+    }
+
+    public UUID getProximoId() {
+        return proximoId;
+    }
+
+    public void setProximoId(UUID proximoId) {
+        this.proximoId = proximoId;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.Banco_Magalu.dto;
+
+/*
+ * Formatos das exportações de auditoria e transações: um objeto JSON por linha (NDJSON) ou CSV com cabeçalho.
+ */
+public enum FormatoExportacao {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String tipoConteudo;
+    private final String extensao;
+
+    FormatoExportacao(String tipoConteudo, String extensao) {
+        this.tipoConteudo = tipoConteudo;
+        this.extensao = extensao;
+    }
+
+    public String getTipoConteudo() {
+        return tipoConteudo;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.Banco_Magalu.dto;
+
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Linha da exportação da auditoria: as colunas do registro e a mensagem legível montada a partir delas.
+ */
+public class LinhaAuditoriaDto {
+
+    private final UUID id;
+    private final String numeroConta;
+    private final UUID transacaoId;
+    private final TipoTransacao tipo;
+    private final Dinheiro valor;
+    private final Dinheiro taxa;
+    private final Dinheiro saldoAnterior;
+    private final Dinheiro saldoPosterior;
+    private final Dinheiro limiteAnterior;
+    private final Dinheiro limitePosterior;
+    private final String contaDestino;
+    private final LocalDateTime dataHora;
+    private final String mensagem;
+
+    public LinhaAuditoriaDto(UUID id, String numeroConta, UUID transacaoId, TipoTransacao tipo, Dinheiro valor, Dinheiro taxa,
+                             Dinheiro saldoAnterior, Dinheiro saldoPosterior,
+                             Dinheiro limiteAnterior, Dinheiro limitePosterior,
+                             String contaDestino, LocalDateTime dataHora, String mensagem) {
+        this.id = id;
+        this.numeroConta = numeroConta;
+        this.transacaoId = transacaoId;
+        this.tipo = tipo;
+        this.valor = valor;
+        this.taxa = taxa;
+        this.saldoAnterior = saldoAnterior;
+        this.saldoPosterior = saldoPosterior;
+        this.limiteAnterior = limiteAnterior;
+        this.limitePosterior = limitePosterior;
+        this.contaDestino = contaDestino;
+        this.dataHora = dataHora;
+        this.mensagem = mensagem;
+    }
+
+    /*
+     * O id da transação vem do proxy da associação, sem carregar a transação.
+     */
+    public static LinhaAuditoriaDto de(Auditoria auditoria, String mensagem) {
+        return new LinhaAuditoriaDto(auditoria.getId(), auditoria.getNumeroConta(), auditoria.getTransacao().getId(),
+                auditoria.getTipo(), auditoria.getValor(), auditoria.getTaxa(),
+                auditoria.getSaldoAnterior(), auditoria.getSaldoPosterior(),
+                auditoria.getLimiteAnterior(), auditoria.getLimitePosterior(),
+                auditoria.getContaDestino(), auditoria.getDataHora(), mensagem);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public UUID getTransacaoId() {
+        return transacaoId;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    public Dinheiro getTaxa() {
+        return taxa;
+    }
+
+    public Dinheiro getSaldoAnterior() {
+        return saldoAnterior;
+    }
+
+    public Dinheiro getSaldoPosterior() {
+        return saldoPosterior;
+    }
+
+    public Dinheiro getLimiteAnterior() {
+        return limiteAnterior;
+    }
+
+    public Dinheiro getLimitePosterior() {
+        return limitePosterior;
+    }
+
+    public String getContaDestino() {
+        return contaDestino;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.Banco_Magalu.dto;
+
+import com.example.Banco_Magalu.entity.TipoTransacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+ * Linha da exportação de transações. É montada direto pela consulta, sem carregar a entidade nem a conta.
+ */
+public class LinhaTransacaoDto {
+
+    private final UUID id;
+    private final String numeroConta;
+    private final TipoTransacao tipo;
+    private final BigDecimal valor;
+    private final LocalDate data;
+    private final String descricao;
+
+    public LinhaTransacaoDto(UUID id, String numeroConta, TipoTransacao tipo, BigDecimal valor, LocalDate data, String descricao) {
+        this.id = id;
+        this.numeroConta = numeroConta;
+        this.tipo = tipo;
+        this.valor = valor;
+        this.data = data;
+        this.descricao = descricao;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
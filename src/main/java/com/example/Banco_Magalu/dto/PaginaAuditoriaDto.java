@@ -0,0 +1,50 @@
+package com.example.Banco_Magalu.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Schema(description = "DTO para representar uma página das mensagens de auditoria de uma conta, com o cursor da próxima página.")
+public class PaginaAuditoriaDto {
+
+    @Schema(description = "Mensagens de auditoria da página, da mais recente para a mais antiga.")
+    private List<String> mensagens;
+
+    @Schema(description = "Data e hora do último registro da página. Nulo quando não há próxima página.", example = "2024-11-19T10:15:30")
+    private LocalDateTime proximaDataHora;
+
+    @Schema(description = "Id do último registro da página. Nulo quando não há próxima página.")
+    private UUID proximoId;
+
+    public PaginaAuditoriaDto(List<String> mensagens, LocalDateTime proximaDataHora, UUID proximoId) {
+        this.mensagens = mensagens;
+        this.proximaDataHora = proximaDataHora;
+        this.proximoId = proximoId;
+    }
+
+    public List<String> getMensagens() {
+        return mensagens;
+    }
+
+    public void setMensagens(List<String> mensagens) {
+        this.mensagens = mensagens;
+    }
+
+    public LocalDateTime getProximaDataHora() {
+        return proximaDataHora;
+    }
+
+    public void setProximaDataHora(LocalDateTime proximaDataHora) {
+        this.proximaDataHora = proximaDataHora;
+    }
+
+    public UUID getProximoId() {
+        return proximoId;
+    }
+
+    public void setProximoId(UUID proximoId) {
+        this.proximoId = proximoId;
+    }
+}
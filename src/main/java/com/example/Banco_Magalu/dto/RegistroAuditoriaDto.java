@@ -0,0 +1,144 @@
+package com.example.Banco_Magalu.dto;
+
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Dados de auditoria de uma operação, aguardando gravação pelo GravadorAuditoria.
+ * Saldos e limites anteriores e posteriores referem-se à conta que originou a operação.
+ * O id do registro de auditoria é atribuído pelo GravadorAuditoria ao receber o registro, para que a regravação do
+ * diário ou da contingência depois de uma queda não duplique registros.
+ */
+public class RegistroAuditoriaDto {
+
+    private UUID id;
+    private UUID transacaoId;
+    private String numeroConta;
+    private TipoTransacao tipo;
+    private Dinheiro valor;
+    private Dinheiro taxa;
+    private Dinheiro saldoAnterior;
+    private Dinheiro saldoPosterior;
+    private Dinheiro limiteAnterior;
+    private Dinheiro limitePosterior;
+    private String contaDestino;
+    private LocalDateTime dataHora;
+
+    public RegistroAuditoriaDto() { }
+
+    public RegistroAuditoriaDto(UUID transacaoId, String numeroConta, TipoTransacao tipo, Dinheiro valor, Dinheiro taxa,
+                                Dinheiro saldoAnterior, Dinheiro saldoPosterior,
+                                Dinheiro limiteAnterior, Dinheiro limitePosterior,
+                                String contaDestino, LocalDateTime dataHora) {
+        this.transacaoId = transacaoId;
+        this.numeroConta = numeroConta;
+        this.tipo = tipo;
+        this.valor = valor;
+        this.taxa = taxa;
+        this.saldoAnterior = saldoAnterior;
+        this.saldoPosterior = saldoPosterior;
+        this.limiteAnterior = limiteAnterior;
+        this.limitePosterior = limitePosterior;
+        this.contaDestino = contaDestino;
+        this.dataHora = dataHora;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getTransacaoId() {
+        return transacaoId;
+    }
+
+    public void setTransacaoId(UUID transacaoId) {
+        this.transacaoId = transacaoId;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public void setNumeroConta(String numeroConta) {
+        this.numeroConta = numeroConta;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(TipoTransacao tipo) {
+        this.tipo = tipo;
+    }
+
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    public void setValor(Dinheiro valor) {
+        this.valor = valor;
+    }
+
+    public Dinheiro getTaxa() {
+        return taxa;
+    }
+
+    public void setTaxa(Dinheiro taxa) {
+        this.taxa = taxa;
+    }
+
+    public Dinheiro getSaldoAnterior() {
+        return saldoAnterior;
+    }
+
+    public void setSaldoAnterior(Dinheiro saldoAnterior) {
+        this.saldoAnterior = saldoAnterior;
+    }
+
+    public Dinheiro getSaldoPosterior() {
+        return saldoPosterior;
+    }
+
+    public void setSaldoPosterior(Dinheiro saldoPosterior) {
+        this.saldoPosterior = saldoPosterior;
+    }
+
+    public Dinheiro getLimiteAnterior() {
+        return limiteAnterior;
+    }
+
+    public void setLimiteAnterior(Dinheiro limiteAnterior) {
+        this.limiteAnterior = limiteAnterior;
+    }
+
+    public Dinheiro getLimitePosterior() {
+        return limitePosterior;
+    }
+
+    public void setLimitePosterior(Dinheiro limitePosterior) {
+        this.limitePosterior = limitePosterior;
+    }
+
+    public String getContaDestino() {
+        return contaDestino;
+    }
+
+    public void setContaDestino(String contaDestino) {
+        this.contaDestino = contaDestino;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public void setDataHora(LocalDateTime dataHora) {
+        this.dataHora = dataHora;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.Banco_Magalu.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO com o resultado de um lote de transferências, na ordem em que foram enviadas.")
+public class ResultadoLoteDto {
+
+    @Schema(description = "Transferências realizadas com sucesso.")
+    private List<TransferenciaDto> sucesso;
+
+    @Schema(description = "Mensagens das transferências que falharam.")
+    private List<String> falhas;
+
+    public ResultadoLoteDto(List<TransferenciaDto> sucesso, List<String> falhas) {
+        this.sucesso = sucesso;
+        this.falhas = falhas;
+    }
+
+    public List<TransferenciaDto> getSucesso() {
+        return sucesso;
+    }
+
+    public void setSucesso(List<TransferenciaDto> sucesso) {
+        this.sucesso = sucesso;
+    }
+
+    public List<String> getFalhas() {
+        return falhas;
+    }
+
+    public void setFalhas(List<String> falhas) {
+        this.falhas = falhas;
+    }
+}
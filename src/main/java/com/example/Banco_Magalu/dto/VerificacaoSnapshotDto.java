@@ -0,0 +1,45 @@
+package com.example.Banco_Magalu.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "DTO com o resultado da comparação do último snapshot de contas com o banco.")
+public class VerificacaoSnapshotDto {
+
+    @Schema(description = "Sequência do último snapshot válido comparado.", example = "17")
+    private final long sequencia;
+
+    @Schema(description = "Contas no snapshot.", example = "1000")
+    private final long contasNoSnapshot;
+
+    @Schema(description = "Contas no banco.", example = "1001")
+    private final long contasNoBanco;
+
+    @Schema(description = "Contas com posição diferente entre o snapshot e o banco, em ordem de número.")
+    private final List<DivergenciaSnapshotDto> divergencias;
+
+    public VerificacaoSnapshotDto(long sequencia, long contasNoSnapshot, long contasNoBanco,
+                                  List<DivergenciaSnapshotDto> divergencias) {
+        this.sequencia = sequencia;
+        this.contasNoSnapshot = contasNoSnapshot;
+        this.contasNoBanco = contasNoBanco;
+        this.divergencias = divergencias;
+    }
+
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    public long getContasNoSnapshot() {
+        return contasNoSnapshot;
+    }
+
+    public long getContasNoBanco() {
+        return contasNoBanco;
+    }
+
+    public List<DivergenciaSnapshotDto> getDivergencias() {
+        return divergencias;
+    }
+}
@@ -1,18 +1,51 @@
 package com.example.Banco_Magalu.entity;
 
 import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
 import java.util.UUID;
 
+/*
+ * Registro de auditoria de uma operação, com os dados da operação em colunas.
+ * A mensagem legível é montada na leitura pelo AuditoriaService; a coluna mensagem só é preenchida em registros antigos.
+ * O número da conta é copiado da transação para que a consulta por conta use o índice (conta, data e hora, id)
+ * sem juntar Transacao e ContaCorrente.
+ */
 @Entity
+@Table(indexes = @Index(name = "idx_auditoria_conta_data_hora_id", columnList = "numero_conta, data_hora, id"))
 public class Auditoria {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     private UUID id;
 
     private String mensagem;
 
-    @ManyToOne
+    @Column(length = 20)
+    private String numeroConta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TipoTransacao tipo;
+
+    private Dinheiro valor;
+
+    private Dinheiro taxa;
+
+    private Dinheiro saldoAnterior;
+
+    private Dinheiro saldoPosterior;
+
+    private Dinheiro limiteAnterior;
+
+    private Dinheiro limitePosterior;
+
+    @Column(length = 20)
+    private String contaDestino;
+
+    private LocalDateTime dataHora;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "transacao_id", nullable = false)
     private Transacao transacao;
 
@@ -40,6 +73,86 @@ public class Auditoria {
         this.mensagem = mensagem;
     }
 
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public void setNumeroConta(String numeroConta) {
+        this.numeroConta = numeroConta;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(TipoTransacao tipo) {
+        this.tipo = tipo;
+    }
+
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    public void setValor(Dinheiro valor) {
+        this.valor = valor;
+    }
+
+    public Dinheiro getTaxa() {
+        return taxa;
+    }
+
+    public void setTaxa(Dinheiro taxa) {
+        this.taxa = taxa;
+    }
+
+    public Dinheiro getSaldoAnterior() {
+        return saldoAnterior;
+    }
+
+    public void setSaldoAnterior(Dinheiro saldoAnterior) {
+        this.saldoAnterior = saldoAnterior;
+    }
+
+    public Dinheiro getSaldoPosterior() {
+        return saldoPosterior;
+    }
+
+    public void setSaldoPosterior(Dinheiro saldoPosterior) {
+        this.saldoPosterior = saldoPosterior;
+    }
+
+    public Dinheiro getLimiteAnterior() {
+        return limiteAnterior;
+    }
+
+    public void setLimiteAnterior(Dinheiro limiteAnterior) {
+        this.limiteAnterior = limiteAnterior;
+    }
+
+    public Dinheiro getLimitePosterior() {
+        return limitePosterior;
+    }
+
+    public void setLimitePosterior(Dinheiro limitePosterior) {
+        this.limitePosterior = limitePosterior;
+    }
+
+    public String getContaDestino() {
+        return contaDestino;
+    }
+
+    public void setContaDestino(String contaDestino) {
+        this.contaDestino = contaDestino;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public void setDataHora(LocalDateTime dataHora) {
+        this.dataHora = dataHora;
+    }
+
     public Transacao getTransacao() {
         return transacao;
     }
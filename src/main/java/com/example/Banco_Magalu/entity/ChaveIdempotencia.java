@@ -0,0 +1,89 @@
+package com.example.Banco_Magalu.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Resultado de uma requisição enviada com o cabeçalho Idempotency-Key.
+ * A linha é reservada (transacaoId nulo) antes de a operação rodar e preenchida com a transação resultante depois dela;
+ * enquanto estiver reservada, outras requisições com a mesma chave esperam. A impressão é o hash da operação e dos
+ * parâmetros, para recusar a mesma chave em uma requisição diferente. Linhas expiradas são apagadas periodicamente.
+ */
+@Entity
+@Table(name = "chave_idempotencia", indexes = @Index(name = "idx_chave_idempotencia_expira_em", columnList = "expiraEm"))
+public class ChaveIdempotencia {
+
+    @Id
+    @Column(length = 255)
+    private String chave;
+
+    @Column(nullable = false, length = 64)
+    private String impressao;
+
+    @Column(nullable = false)
+    private LocalDateTime expiraEm;
+
+    private UUID transacaoId;
+
+    @Enumerated(EnumType.STRING)
+    private TipoTransacao tipo;
+
+    private BigDecimal valor;
+
+    private LocalDate data;
+
+    private String descricao;
+
+    public ChaveIdempotencia() { }
+
+    public ChaveIdempotencia(String chave, String impressao, LocalDateTime expiraEm) {
+        this.chave = chave;
+        this.impressao = impressao;
+        this.expiraEm = expiraEm;
+    }
+
+    public boolean isConcluida() {
+        return transacaoId != null;
+    }
+
+    /*
+     * Guarda a transação resultante, que passa a ser a resposta das requisições repetidas.
+     */
+    public void concluir(Transacao transacao, LocalDateTime expiraEm) {
+        this.transacaoId = transacao.getId();
+        this.tipo = transacao.getTipo();
+        this.valor = transacao.getValor();
+        this.data = transacao.getData();
+        this.descricao = transacao.getDescricao();
+        this.expiraEm = expiraEm;
+    }
+
+    /*
+     * A transação guardada, sem a conta, como é serializada na resposta.
+     */
+    public Transacao getTransacao() {
+        return isConcluida() ? new Transacao(transacaoId, tipo, valor, data, descricao, null) : null;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    public String getImpressao() {
+        return impressao;
+    }
+
+    public LocalDateTime getExpiraEm() {
+        return expiraEm;
+    }
+}
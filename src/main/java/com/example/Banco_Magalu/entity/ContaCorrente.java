@@ -26,7 +26,11 @@ public class ContaCorrente {
     @Column(name = "limite_maximo")
     public BigDecimal limiteMaximo;
 
-    @OneToMany(mappedBy = "contaCorrente", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    @Version
+    @Column(name = "versao", nullable = false)
+    private long versao;
+
+    @OneToMany(mappedBy = "contaCorrente", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JsonManagedReference
     private List<Transacao> transacoes = new ArrayList<>();
 
@@ -81,6 +85,14 @@ public class ContaCorrente {
         this.transacoes = transacoes;
     }
 
+    public long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(long versao) {
+        this.versao = versao;
+    }
+
     public BigDecimal getLimiteMaximo() {
         return limiteMaximo;
     }
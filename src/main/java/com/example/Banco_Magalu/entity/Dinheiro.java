@@ -0,0 +1,136 @@
+package com.example.Banco_Magalu.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/*
+ * Valor monetário em centavos, guardado em um long.
+ * Imutável e sem estado compartilhado, pode ser usado por várias threads. As operações lançam ArithmeticException
+ * em caso de estouro em vez de perder valor silenciosamente.
+ * Regras de arredondamento: valores com mais de duas casas decimais e percentuais (como as taxas de 1% e 2%)
+ * são arredondados para o centavo mais próximo, com meio centavo arredondado para longe do zero (HALF_UP),
+ * o mesmo que o MySQL aplica ao gravar em uma coluna DECIMAL(15,2).
+ */
+public final class Dinheiro implements Comparable<Dinheiro> {
+
+    public static final Dinheiro ZERO = new Dinheiro(0);
+
+    private static final long PONTOS_BASE_POR_UNIDADE = 10_000;
+
+    private final long centavos;
+
+    private Dinheiro(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinheiro deCentavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos);
+    }
+
+    /*
+     * Converte um BigDecimal, arredondando para centavos.
+     *
+     * @param valor - valor em reais
+     * @return Dinheiro - valor em centavos, ou null se o valor for null
+     */
+    @JsonCreator
+    public static Dinheiro de(BigDecimal valor) {
+        if (valor == null) {
+            return null;
+        }
+        return deCentavos(valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public long getCentavos() {
+        return centavos;
+    }
+
+    public Dinheiro somar(Dinheiro outro) {
+        return deCentavos(Math.addExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro subtrair(Dinheiro outro) {
+        return deCentavos(Math.subtractExact(centavos, outro.centavos));
+    }
+
+    public Dinheiro negar() {
+        return deCentavos(Math.negateExact(centavos));
+    }
+
+    /*
+     * Aplica um percentual expresso em pontos-base (1% = 100), arredondando meio centavo para longe do zero.
+     *
+     * @param pontosBase - percentual em centésimos de ponto percentual
+     * @return Dinheiro - valor do percentual
+     */
+    public Dinheiro percentual(long pontosBase) {
+        long produto = Math.multiplyExact(centavos, pontosBase);
+        long quociente = produto / PONTOS_BASE_POR_UNIDADE;
+        long resto = produto % PONTOS_BASE_POR_UNIDADE;
+        if (Math.abs(resto) * 2 >= PONTOS_BASE_POR_UNIDADE) {
+            quociente += Long.signum(produto);
+        }
+        return deCentavos(quociente);
+    }
+
+    public Dinheiro min(Dinheiro outro) {
+        return centavos <= outro.centavos ? this : outro;
+    }
+
+    public Dinheiro max(Dinheiro outro) {
+        return centavos >= outro.centavos ? this : outro;
+    }
+
+    public int sinal() {
+        return Long.signum(centavos);
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        return Long.compare(centavos, outro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object outro) {
+        return this == outro || (outro instanceof Dinheiro dinheiro && dinheiro.centavos == centavos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    /*
+     * Formata com duas casas decimais e ponto como separador (ex.: 1234.50, -0.05), sem depender de locale
+     * e sem objetos intermediários além da String final.
+     */
+    @Override
+    public String toString() {
+        long absoluto = Math.abs(centavos);
+        long reais = absoluto / 100;
+        int fracao = (int) (absoluto % 100);
+
+        // Sinal + 19 dígitos de um long + ponto + 2 casas
+        char[] buffer = new char[23];
+        int posicao = buffer.length;
+        buffer[--posicao] = (char) ('0' + fracao % 10);
+        buffer[--posicao] = (char) ('0' + fracao / 10);
+        buffer[--posicao] = '.';
+        do {
+            buffer[--posicao] = (char) ('0' + reais % 10);
+            reais /= 10;
+        } while (reais > 0);
+        if (centavos < 0) {
+            buffer[--posicao] = '-';
+        }
+        return new String(buffer, posicao, buffer.length - posicao);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.Banco_Magalu.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Lançamento do livro-razão (modo LANCAMENTOS): uma perna de um movimento de partidas dobradas.
+ * O valor é positivo no crédito e negativo no débito, e as pernas de um mesmo movimento somam zero.
+ * Nas contas de clientes a perna também guarda a parte do valor aplicada ao limite de crédito, a sequência da conta
+ * e o saldo e o limite de crédito depois dela; a chave única (numero_conta, sequencia) impede que duas operações
+ * concorrentes partam da mesma posição. As contas internas não têm sequência nem totais acumulados.
+ * Lançamentos nunca são alterados nem apagados.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_lancamento_conta_sequencia", columnNames = {"numero_conta", "sequencia"}),
+        indexes = @Index(name = "idx_lancamento_movimento", columnList = "movimento"))
+public class Lancamento {
+
+    @Id
+    @UuidV7
+    private UUID id;
+
+    // Id da Transacao da operação, ou um id próprio para o lote compensado
+    @Column(nullable = false)
+    private UUID movimento;
+
+    @Column(length = 20, nullable = false)
+    private String numeroConta;
+
+    private Long sequencia;
+
+    @Column(nullable = false)
+    private Dinheiro valor;
+
+    @Column(nullable = false)
+    private Dinheiro parcelaLimite;
+
+    private Dinheiro saldo;
+
+    private Dinheiro limiteCredito;
+
+    private LocalDateTime dataHora;
+
+    public Lancamento() { }
+
+    public Lancamento(String numeroConta, Long sequencia, Dinheiro valor, Dinheiro parcelaLimite,
+                      Dinheiro saldo, Dinheiro limiteCredito, LocalDateTime dataHora) {
+        this.numeroConta = numeroConta;
+        this.sequencia = sequencia;
+        this.valor = valor;
+        this.parcelaLimite = parcelaLimite;
+        this.saldo = saldo;
+        this.limiteCredito = limiteCredito;
+        this.dataHora = dataHora;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getMovimento() {
+        return movimento;
+    }
+
+    public void setMovimento(UUID movimento) {
+        this.movimento = movimento;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public Long getSequencia() {
+        return sequencia;
+    }
+
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    public Dinheiro getParcelaLimite() {
+        return parcelaLimite;
+    }
+
+    public Dinheiro getSaldo() {
+        return saldo;
+    }
+
+    public Dinheiro getLimiteCredito() {
+        return limiteCredito;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+}
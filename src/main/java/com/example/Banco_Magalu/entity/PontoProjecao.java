@@ -0,0 +1,40 @@
+package com.example.Banco_Magalu.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/*
+ * Até onde o log de um processo já foi projetado nas tabelas: o último lsn (número de sequência no log) cujas
+ * alterações estão gravadas. É atualizado na mesma transação que grava a projeção, então o banco nunca fica com
+ * parte de um lote projetado. Na partida, o motor em memória reaplica só os registros do log posteriores a ele.
+ */
+@Entity
+public class PontoProjecao {
+
+    @Id
+    @Column(length = 40)
+    private String id;
+
+    @Column(nullable = false)
+    private long lsn;
+
+    public PontoProjecao() { }
+
+    public PontoProjecao(String id, long lsn) {
+        this.id = id;
+        this.lsn = lsn;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    public void setLsn(long lsn) {
+        this.lsn = lsn;
+    }
+}
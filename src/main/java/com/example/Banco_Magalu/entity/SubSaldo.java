@@ -0,0 +1,89 @@
+package com.example.Banco_Magalu.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/*
+ * Parte do saldo de uma conta quente. Os créditos da conta são espalhados entre as partes, cada uma com a sua linha,
+ * para que créditos concorrentes não esperem todos pelo bloqueio da mesma linha da conta. O saldo da conta é o saldo da
+ * ContaCorrente mais a soma das partes; só os débitos levam as partes para a conta, na consolidação.
+ * A versão é incrementada a cada crédito, e a versão da conta quente é a da ContaCorrente mais a soma das partes.
+ */
+@Entity
+@Table(name = "sub_saldo")
+@IdClass(SubSaldo.Chave.class)
+public class SubSaldo {
+
+    @Id
+    @Column(name = "numero_conta", length = 20)
+    private String numeroConta;
+
+    @Id
+    private int slot;
+
+    @Column(nullable = false)
+    private BigDecimal saldo;
+
+    @Column(nullable = false)
+    private long versao;
+
+    public SubSaldo() { }
+
+    public SubSaldo(String numeroConta, int slot) {
+        this.numeroConta = numeroConta;
+        this.slot = slot;
+        this.saldo = BigDecimal.ZERO;
+    }
+
+    public String getNumeroConta() {
+        return numeroConta;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public static class Chave implements Serializable {
+
+        private String numeroConta;
+        private int slot;
+
+        public Chave() { }
+
+        public Chave(String numeroConta, int slot) {
+            this.numeroConta = numeroConta;
+            this.slot = slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Chave chave)) {
+                return false;
+            }
+            return slot == chave.slot && Objects.equals(numeroConta, chave.numeroConta);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(numeroConta, slot);
+        }
+    }
+}
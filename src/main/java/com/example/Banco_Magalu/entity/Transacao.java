@@ -8,10 +8,11 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "idx_transacao_conta_data_id", columnList = "conta_corrente_numero, data, id"))
 public class Transacao {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     private UUID id;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,61 @@
+package com.example.Banco_Magalu.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Gerador de UUID versão 7 (RFC 9562): 48 bits de timestamp em milissegundos, seguidos de 12 bits de sequência
+ * e 62 bits aleatórios.
+ * Como o id é gerado na aplicação antes do INSERT, o Hibernate consegue agrupar os INSERTs em lotes JDBC, e como os
+ * valores crescem com o tempo, novas linhas entram no fim do índice da chave primária em vez de em posições aleatórias.
+ * Um id já atribuído antes do persist é mantido; é o caso das linhas projetadas pelo motor em memória, cujo id é
+ * gerado por gerar() quando a operação é aplicada.
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    // Timestamp em milissegundos deslocado 12 bits, somado à sequência dentro do mesmo milissegundo
+    private static final AtomicLong ultimoInstante = new AtomicLong();
+
+    /*
+     * Gera um novo UUID versão 7. Os valores gerados por esta JVM são estritamente crescentes.
+     *
+     * @return UUID - novo UUID versão 7
+     */
+    public static UUID gerar() {
+        long agora = System.currentTimeMillis() << 12;
+        long instante = ultimoInstante.updateAndGet(anterior -> Math.max(anterior + 1, agora));
+
+        long timestamp = instante >>> 12;
+        long sequencia = instante & 0xFFFL;
+        long maisSignificativos = (timestamp << 16) | 0x7000L | sequencia;
+        long menosSignificativos = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(maisSignificativos, menosSignificativos);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (currentValue != null) {
+            return currentValue;
+        }
+        // No persist o Hibernate 6.5 não informa o valor atual; o id atribuído é lido da própria entidade
+        Object atribuido = owner != null ? session.getEntityPersister(null, owner).getIdentifier(owner, session) : null;
+        return atribuido != null ? atribuido : gerar();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.Banco_Magalu.exception;
+
+public class ChaveIdempotenciaEmAndamentoException extends RuntimeException {
+    public ChaveIdempotenciaEmAndamentoException(String message) {
+        super(message);
+    }
+}
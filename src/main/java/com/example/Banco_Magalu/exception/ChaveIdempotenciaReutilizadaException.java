@@ -0,0 +1,7 @@
+package com.example.Banco_Magalu.exception;
+
+public class ChaveIdempotenciaReutilizadaException extends RuntimeException {
+    public ChaveIdempotenciaReutilizadaException(String message) {
+        super(message);
+    }
+}
@@ -22,6 +22,16 @@ public class GlobalExeptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
 
+    @ExceptionHandler(ChaveIdempotenciaEmAndamentoException.class)
+    public ResponseEntity<?> handleChaveIdempotenciaEmAndamentoException(ChaveIdempotenciaEmAndamentoException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ChaveIdempotenciaReutilizadaException.class)
+    public ResponseEntity<?> handleChaveIdempotenciaReutilizadaException(ChaveIdempotenciaReutilizadaException ex) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getMessage());
+    }
+
     @ExceptionHandler(SaldoInsuficienteException.class)
     public ResponseEntity<?> handleSaldoInsuficienteException(SaldoInsuficienteException ex) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
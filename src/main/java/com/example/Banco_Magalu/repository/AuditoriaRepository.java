@@ -1,15 +1,43 @@
 package com.example.Banco_Magalu.repository;
 
 import com.example.Banco_Magalu.entity.Auditoria;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface AuditoriaRepository extends JpaRepository<Auditoria, UUID> {
 
-    List<Auditoria> findByTransacao_ContaCorrente_Numero(String numero);
+    /*
+     * Primeira página da auditoria de uma conta no intervalo [inicio, fim), do registro mais recente para o mais antigo.
+     * Percorre o índice (numero_conta, data_hora, id) sem juntar Transacao e ContaCorrente.
+     */
+    @Query("SELECT a FROM Auditoria a WHERE a.numeroConta = :numero " +
+            "AND a.dataHora >= :inicio AND a.dataHora < :fim " +
+            "ORDER BY a.dataHora DESC, a.id DESC")
+    List<Auditoria> buscarPorConta(@Param("numero") String numero,
+                                   @Param("inicio") LocalDateTime inicio,
+                                   @Param("fim") LocalDateTime fim,
+                                   Limit limite);
+
+    /*
+     * Páginas seguintes: retorna os registros posteriores ao cursor (data e hora, id) na ordenação da auditoria.
+     */
+    @Query("SELECT a FROM Auditoria a WHERE a.numeroConta = :numero " +
+            "AND a.dataHora >= :inicio AND a.dataHora < :fim " +
+            "AND (a.dataHora < :dataHora OR (a.dataHora = :dataHora AND a.id < :id)) " +
+            "ORDER BY a.dataHora DESC, a.id DESC")
+    List<Auditoria> buscarPorContaAposCursor(@Param("numero") String numero,
+                                             @Param("inicio") LocalDateTime inicio,
+                                             @Param("fim") LocalDateTime fim,
+                                             @Param("dataHora") LocalDateTime dataHora,
+                                             @Param("id") UUID id,
+                                             Limit limite);
 
 }
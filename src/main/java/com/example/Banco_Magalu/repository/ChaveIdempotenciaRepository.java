@@ -0,0 +1,29 @@
+package com.example.Banco_Magalu.repository;
+
+import com.example.Banco_Magalu.entity.ChaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.expiraEm < :agora")
+    int apagarExpiradas(@Param("agora") LocalDateTime agora);
+
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.chave = :chave AND c.expiraEm < :agora")
+    int apagarSeExpirada(@Param("chave") String chave, @Param("agora") LocalDateTime agora);
+
+    /*
+     * Remove a reserva de uma operação que falhou, para que a mesma chave possa ser usada de novo.
+     */
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.chave = :chave AND c.transacaoId IS NULL")
+    int liberarReserva(@Param("chave") String chave);
+}
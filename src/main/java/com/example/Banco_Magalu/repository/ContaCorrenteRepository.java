@@ -1,11 +1,93 @@
 package com.example.Banco_Magalu.repository;
 
 import com.example.Banco_Magalu.entity.ContaCorrente;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Optional;
 
 @Repository
 public interface ContaCorrenteRepository extends JpaRepository<ContaCorrente, String> {
 
-    ContaCorrente findByNumero(String numero);
+    /*
+     * Busca a conta bloqueando a linha para escrita (SELECT ... FOR UPDATE) até o fim da transação.
+     * O tempo de espera pelo bloqueio segue a propriedade jakarta.persistence.lock.timeout.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM ContaCorrente c WHERE c.numero = :numero")
+    Optional<ContaCorrente> findComBloqueioByNumero(@Param("numero") String numero);
+
+    /*
+     * Debita o valor só do saldo da conta, sem usar o limite de crédito. É o débito usado quando o saldo lido cobre o
+     * valor: quando aplicado, o valor inteiro saiu do saldo.
+     * Como os UPDATEs em lote não passam pelo contexto de persistência, a versão é incrementada explicitamente
+     * para que leituras otimistas concorrentes detectem a alteração. Quem chama tira a conta do contexto de
+     * persistência depois do UPDATE.
+     *
+     * @return 1 se o débito foi aplicado, 0 se a conta não existe ou o saldo é menor que o valor
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContaCorrente c SET c.saldo = c.saldo - :valor, c.versao = c.versao + 1 " +
+            "WHERE c.numero = :numero AND c.saldo >= :valor")
+    int debitarDoSaldo(@Param("numero") String numero, @Param("valor") BigDecimal valor);
+
+    /*
+     * Debita o valor do saldo e do limite de crédito da conta, quando saldo + limite de crédito cobre o valor.
+     * É o débito usado quando o saldo lido não cobre o valor: o UPDATE só é aplicado se o saldo ainda é o lido, então
+     * a parte que sai do saldo é exatamente a calculada a partir dele, e o resto sai do limite de crédito.
+     *
+     * @return 1 se o débito foi aplicado, 0 se a conta não existe, o saldo já não é o lido ou saldo + limite de crédito
+     * é menor que o valor
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContaCorrente c SET c.saldo = c.saldo - :debitoDoSaldo, c.limiteCredito = c.limiteCredito - :debitoDoLimite, " +
+            "c.versao = c.versao + 1 " +
+            "WHERE c.numero = :numero AND c.saldo = :saldoLido AND c.saldo + c.limiteCredito >= :valor")
+    int debitar(@Param("numero") String numero, @Param("valor") BigDecimal valor, @Param("saldoLido") BigDecimal saldoLido,
+                @Param("debitoDoSaldo") BigDecimal debitoDoSaldo, @Param("debitoDoLimite") BigDecimal debitoDoLimite);
+
+    /*
+     * Credita o valor diretamente no saldo da conta.
+     *
+     * @return 1 se o crédito foi aplicado, 0 se a conta não existe
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContaCorrente c SET c.saldo = c.saldo + :valor, c.versao = c.versao + 1 WHERE c.numero = :numero")
+    int creditarSaldo(@Param("numero") String numero, @Param("valor") BigDecimal valor);
+
+    /*
+     * Credita a conta restituindo parte do valor ao limite de crédito, sem ultrapassar o limite máximo.
+     *
+     * @return 1 se o crédito foi aplicado, 0 se a conta não existe ou a restituição ultrapassaria o limite máximo
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContaCorrente c SET c.saldo = c.saldo + :valorParaSaldo, c.limiteCredito = c.limiteCredito + :valorParaLimite, " +
+            "c.versao = c.versao + 1 " +
+            "WHERE c.numero = :numero AND c.limiteCredito + :valorParaLimite <= c.limiteMaximo")
+    int creditarComRestituicaoLimite(@Param("numero") String numero,
+                                     @Param("valorParaSaldo") BigDecimal valorParaSaldo,
+                                     @Param("valorParaLimite") BigDecimal valorParaLimite);
+
+    /*
+     * Grava na conta o saldo e o limite de crédito calculados pelo motor em memória, que é quem decide as operações
+     * enquanto está ligado. Deve ser chamado dentro da transação da projeção.
+     *
+     * @return 1 se a conta foi atualizada, 0 se ela não existe
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ContaCorrente c SET c.saldo = :saldo, c.limiteCredito = :limiteCredito, c.versao = c.versao + 1 " +
+            "WHERE c.numero = :numero")
+    int projetarPosicao(@Param("numero") String numero, @Param("saldo") BigDecimal saldo,
+                        @Param("limiteCredito") BigDecimal limiteCredito);
 }
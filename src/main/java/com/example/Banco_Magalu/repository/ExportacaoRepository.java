@@ -0,0 +1,84 @@
+package com.example.Banco_Magalu.repository;
+
+import com.example.Banco_Magalu.config.ExportacaoProperties;
+import com.example.Banco_Magalu.dto.LinhaTransacaoDto;
+import com.example.Banco_Magalu.entity.Auditoria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/*
+ * Consultas das exportações. Ficam fora do AuditoriaRepository e do TransacaoRepository porque o fetch size vem de
+ * banco.exportacao.tamanho-busca, e uma dica de @QueryHints só aceita constante.
+ * Os resultados são lidos do banco aos poucos; devem ser consumidos dentro de uma transação e fechados ao final. Com o
+ * streaming do MySQL a conexão não executa outro comando até o resultado ser fechado.
+ */
+@Repository
+public class ExportacaoRepository {
+
+    private final EntityManager entityManager;
+    private final ExportacaoProperties properties;
+
+    public ExportacaoRepository(EntityManager entityManager, ExportacaoProperties properties) {
+        this.entityManager = entityManager;
+        this.properties = properties;
+    }
+
+    /*
+     * Auditoria de uma conta no intervalo [inicio, fim), em ordem cronológica.
+     */
+    public Stream<Auditoria> exportarAuditoriaPorConta(String numero, LocalDateTime inicio, LocalDateTime fim) {
+        return emFluxo(entityManager.createQuery("SELECT a FROM Auditoria a WHERE a.numeroConta = :numero " +
+                        "AND a.dataHora >= :inicio AND a.dataHora < :fim " +
+                        "ORDER BY a.dataHora, a.id", Auditoria.class)
+                .setParameter("numero", numero)
+                .setParameter("inicio", inicio)
+                .setParameter("fim", fim)
+                .setHint(HibernateHints.HINT_READ_ONLY, true));
+    }
+
+    /*
+     * Auditoria de todas as contas no intervalo [inicio, fim), na ordem do id (UUID v7, cronológico).
+     */
+    public Stream<Auditoria> exportarAuditoria(LocalDateTime inicio, LocalDateTime fim) {
+        return emFluxo(entityManager.createQuery("SELECT a FROM Auditoria a WHERE a.dataHora >= :inicio " +
+                        "AND a.dataHora < :fim ORDER BY a.id", Auditoria.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fim", fim)
+                .setHint(HibernateHints.HINT_READ_ONLY, true));
+    }
+
+    /*
+     * Transações de uma conta entre inicio e fim, inclusive, em ordem cronológica, já como linhas de exportação: a conta
+     * não é carregada e nada fica no contexto de persistência.
+     */
+    public Stream<LinhaTransacaoDto> exportarTransacoesPorConta(String numero, LocalDate inicio, LocalDate fim) {
+        return emFluxo(entityManager.createQuery("SELECT new com.example.Banco_Magalu.dto.LinhaTransacaoDto(t.id, " +
+                        "t.contaCorrente.numero, t.tipo, t.valor, t.data, t.descricao) " +
+                        "FROM Transacao t WHERE t.contaCorrente.numero = :numero AND t.data >= :inicio AND t.data <= :fim " +
+                        "ORDER BY t.data, t.id", LinhaTransacaoDto.class)
+                .setParameter("numero", numero)
+                .setParameter("inicio", inicio)
+                .setParameter("fim", fim));
+    }
+
+    /*
+     * Transações de todas as contas entre inicio e fim, inclusive, na ordem do id (UUID v7, cronológico).
+     */
+    public Stream<LinhaTransacaoDto> exportarTransacoes(LocalDate inicio, LocalDate fim) {
+        return emFluxo(entityManager.createQuery("SELECT new com.example.Banco_Magalu.dto.LinhaTransacaoDto(t.id, " +
+                        "t.contaCorrente.numero, t.tipo, t.valor, t.data, t.descricao) " +
+                        "FROM Transacao t WHERE t.data >= :inicio AND t.data <= :fim ORDER BY t.id", LinhaTransacaoDto.class)
+                .setParameter("inicio", inicio)
+                .setParameter("fim", fim));
+    }
+
+    private <T> Stream<T> emFluxo(TypedQuery<T> consulta) {
+        return consulta.setHint(HibernateHints.HINT_FETCH_SIZE, properties.getTamanhoBusca()).getResultStream();
+    }
+}
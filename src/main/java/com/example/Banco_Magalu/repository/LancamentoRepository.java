@@ -0,0 +1,40 @@
+package com.example.Banco_Magalu.repository;
+
+import com.example.Banco_Magalu.entity.Lancamento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface LancamentoRepository extends JpaRepository<Lancamento, UUID> {
+
+    /*
+     * Últimos lançamentos de uma conta de cliente, do mais recente para o mais antigo.
+     * Com limite 1 é a leitura da posição atual: percorre a chave única (numero_conta, sequencia) de trás para frente.
+     */
+    @Query("SELECT l FROM Lancamento l WHERE l.numeroConta = :numero AND l.sequencia IS NOT NULL ORDER BY l.sequencia DESC")
+    List<Lancamento> buscarUltimos(@Param("numero") String numero, Limit limite);
+
+    /*
+     * Todos os lançamentos de uma conta, na ordem em que foram feitos, para o recálculo da posição.
+     * Deve ser consumido dentro de uma transação e fechado ao final. O fetch size vale para os drivers que o respeitam
+     * sem configuração na conexão; o do MySQL traz os lançamentos da conta de uma vez.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT l FROM Lancamento l WHERE l.numeroConta = :numero ORDER BY l.sequencia, l.id")
+    Stream<Lancamento> percorrerPorConta(@Param("numero") String numero);
+
+    List<Lancamento> findByMovimento(UUID movimento);
+}
@@ -0,0 +1,9 @@
+package com.example.Banco_Magalu.repository;
+
+import com.example.Banco_Magalu.entity.PontoProjecao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PontoProjecaoRepository extends JpaRepository<PontoProjecao, String> {
+}
@@ -0,0 +1,69 @@
+package com.example.Banco_Magalu.repository;
+
+import com.example.Banco_Magalu.entity.SubSaldo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface SubSaldoRepository extends JpaRepository<SubSaldo, SubSaldo.Chave> {
+
+    /*
+     * Partes do saldo da conta, sempre na mesma ordem, para que duas consolidações bloqueiem as partes na mesma ordem.
+     */
+    List<SubSaldo> findByNumeroContaOrderBySlot(String numeroConta);
+
+    /*
+     * Partes do saldo da conta, em ordem de slot, bloqueadas para escrita (SELECT ... FOR UPDATE) até o fim da
+     * transação: os créditos nessas partes esperam a consolidação terminar.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SubSaldo s WHERE s.numeroConta = :numeroConta ORDER BY s.slot")
+    List<SubSaldo> findComBloqueioByNumeroConta(@Param("numeroConta") String numeroConta);
+
+    /*
+     * Credita o valor em uma das partes do saldo da conta.
+     *
+     * @return 1 se o crédito foi aplicado, 0 se a parte ainda não existe
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SubSaldo s SET s.saldo = s.saldo + :valor, s.versao = s.versao + 1 " +
+            "WHERE s.numeroConta = :numeroConta AND s.slot = :slot")
+    int creditar(@Param("numeroConta") String numeroConta, @Param("slot") int slot, @Param("valor") BigDecimal valor);
+
+    /*
+     * Cria a parte já com o valor creditado ou, se outra thread a criou antes, credita nela, na conexão da transação
+     * corrente. O ON DUPLICATE KEY UPDATE resolve a corrida na criação sem a chave primária recusar o INSERT.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO sub_saldo (numero_conta, slot, saldo, versao) VALUES (:numeroConta, :slot, :valor, 1) " +
+            "ON DUPLICATE KEY UPDATE saldo = saldo + :valor, versao = versao + 1", nativeQuery = true)
+    int criarCreditando(@Param("numeroConta") String numeroConta, @Param("slot") int slot, @Param("valor") BigDecimal valor);
+
+    /*
+     * Zera uma parte cujo saldo ainda é o lido, para levá-lo à conta. A condição garante que só o valor lido sai da
+     * parte: se a parte mudou desde a leitura, nada é retirado.
+     *
+     * @return 1 se a parte foi zerada, 0 se o saldo da parte já não é o lido
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE SubSaldo s SET s.saldo = 0, s.versao = s.versao + 1 " +
+            "WHERE s.numeroConta = :numeroConta AND s.slot = :slot AND s.saldo = :saldoLido")
+    int zerar(@Param("numeroConta") String numeroConta, @Param("slot") int slot, @Param("saldoLido") BigDecimal saldoLido);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SubSaldo s WHERE s.numeroConta = :numeroConta")
+    int apagarDaConta(@Param("numeroConta") String numeroConta);
+}
@@ -1,13 +1,35 @@
 package com.example.Banco_Magalu.repository;
 
 import com.example.Banco_Magalu.entity.Transacao;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface TransacaoRepository extends JpaRepository<Transacao, UUID> {
 
+    /*
+     * Primeira página do extrato de uma conta, da transação mais recente para a mais antiga.
+     */
+    @Query("SELECT t FROM Transacao t WHERE t.contaCorrente.numero = :numero ORDER BY t.data DESC, t.id DESC")
+    List<Transacao> buscarExtrato(@Param("numero") String numero, Limit limite);
+
+    /*
+     * Páginas seguintes do extrato: retorna as transações posteriores ao cursor (data, id) na ordenação do extrato.
+     */
+    @Query("SELECT t FROM Transacao t WHERE t.contaCorrente.numero = :numero " +
+            "AND (t.data < :data OR (t.data = :data AND t.id < :id)) " +
+            "ORDER BY t.data DESC, t.id DESC")
+    List<Transacao> buscarExtratoAposCursor(@Param("numero") String numero,
+                                            @Param("data") LocalDate data,
+                                            @Param("id") UUID id,
+                                            Limit limite);
+
 }
@@ -0,0 +1,222 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.AgrupamentoDepositosProperties;
+import com.example.Banco_Magalu.dto.DepositoDto;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Agrupamento de depósitos (banco.agrupamento-depositos.habilitado=true): os depósitos que chegam dentro de
+ * banco.agrupamento-depositos.janela-ms, até banco.agrupamento-depositos.tamanho-maximo-grupo, são aplicados juntos
+ * por TransacaoService.realizarDepositosAgrupados, com um único UPDATE por conta e um único commit para o grupo.
+ * Cada depósito continua com a sua Transacao, entregue a quem o pediu quando o grupo é confirmado.
+ * Uma thread dedicada forma e aplica os grupos; enquanto um grupo está no banco, o seguinte se forma na fila.
+ * Se o grupo falhar, os depósitos dele são refeitos um a um, para que um depósito com problema não derrube os outros.
+ * Os grupos e os depósitos agrupados são contados em banco.deposito.agrupamento.grupos e .depositos.
+ */
+@Service
+public class AgrupadorDepositos implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AgrupadorDepositos.class);
+
+    private static final long INTERVALO_ESPERA_MS = 200;
+
+    private final AgrupamentoDepositosProperties properties;
+    private final TransacaoService transacaoService;
+    private final BlockingQueue<Pedido> fila;
+    private final Counter grupos;
+    private final Counter depositosAgrupados;
+
+    private volatile boolean ativo;
+    private Thread thread;
+
+    public AgrupadorDepositos(AgrupamentoDepositosProperties properties, TransacaoService transacaoService,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transacaoService = transacaoService;
+        this.fila = new ArrayBlockingQueue<>(properties.getCapacidadeFila());
+        this.grupos = Counter.builder("banco.deposito.agrupamento.grupos")
+                .description("Grupos de depósitos aplicados em uma única transação")
+                .register(meterRegistry);
+        this.depositosAgrupados = Counter.builder("banco.deposito.agrupamento.depositos")
+                .description("Depósitos aplicados em grupos")
+                .register(meterRegistry);
+        Gauge.builder("banco.deposito.agrupamento.fila", fila, BlockingQueue::size)
+                .description("Depósitos aguardando um grupo")
+                .register(meterRegistry);
+    }
+
+    public boolean isHabilitado() {
+        return properties.isHabilitado();
+    }
+
+    /*
+     * Realiza um depósito no próximo grupo e espera o commit do grupo.
+     */
+    public Transacao realizarDeposito(String numeroConta, BigDecimal valor) {
+        try {
+            return depositar(numeroConta, valor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * Versão assíncrona de realizarDeposito: o futuro é concluído depois do commit do grupo do depósito.
+     * Com o agrupador parado ou a fila cheia, o depósito roda na hora, sozinho, na thread de quem chamou.
+     */
+    public CompletableFuture<Transacao> depositar(String numeroConta, BigDecimal valor) {
+        if (valor == null || valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("O valor do depósito não pode ser nulo ou negativo");
+        }
+        Pedido pedido = new Pedido(new DepositoDto(numeroConta, valor));
+        if (!ativo || !fila.offer(pedido)) {
+            depositarSozinho(pedido);
+        } else if (!ativo && fila.remove(pedido)) {
+            // O agrupador parou entre a verificação e a entrada na fila, depois de esvaziá-la
+            depositarSozinho(pedido);
+        }
+        return pedido.resultado;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isHabilitado()) {
+            return;
+        }
+        ativo = true;
+        thread = new Thread(this::executar, "agrupador-depositos");
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!ativo) {
+            return;
+        }
+        ativo = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Depósitos que entraram na fila depois da última volta da thread
+        List<Pedido> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        restantes.forEach(this::depositarSozinho);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    // Para depois do servidor web, aplicando os depósitos já recebidos, e antes do gravador de auditoria
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    private void executar() {
+        List<Pedido> grupo = new ArrayList<>(properties.getTamanhoMaximoGrupo());
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pedido primeiro = fila.poll(INTERVALO_ESPERA_MS, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                grupo.add(primeiro);
+                formarGrupo(grupo);
+                aplicar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                grupo.forEach(this::depositarSozinho);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Erro no agrupador de depósitos", e);
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    /*
+     * Junta ao grupo os depósitos que chegam até o fim da janela aberta pelo primeiro, ou até o grupo encher.
+     */
+    private void formarGrupo(List<Pedido> grupo) throws InterruptedException {
+        int tamanhoMaximo = Math.max(1, properties.getTamanhoMaximoGrupo());
+        long fimJanela = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getJanelaMs());
+        while (grupo.size() < tamanhoMaximo) {
+            fila.drainTo(grupo, tamanhoMaximo - grupo.size());
+            long restante = fimJanela - System.nanoTime();
+            if (grupo.size() >= tamanhoMaximo || restante <= 0) {
+                return;
+            }
+            Pedido proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+            if (proximo == null) {
+                return;
+            }
+            grupo.add(proximo);
+        }
+    }
+
+    private void aplicar(List<Pedido> grupo) {
+        List<Transacao> transacoes;
+        try {
+            transacoes = transacaoService.realizarDepositosAgrupados(grupo.stream().map(pedido -> pedido.deposito).toList());
+        } catch (RuntimeException e) {
+            log.warn("Grupo de {} depósitos desfeito, refazendo um a um: {}", grupo.size(), e.getMessage());
+            grupo.forEach(this::depositarSozinho);
+            return;
+        }
+        grupos.increment();
+        depositosAgrupados.increment(grupo.size());
+        for (int i = 0; i < grupo.size(); i++) {
+            Pedido pedido = grupo.get(i);
+            Transacao transacao = transacoes.get(i);
+            if (transacao != null) {
+                pedido.resultado.complete(transacao);
+            } else {
+                pedido.resultado.completeExceptionally(
+                        new ContaNaoEncontradaException("Conta não encontrada: " + pedido.deposito.getNumeroConta()));
+            }
+        }
+    }
+
+    private void depositarSozinho(Pedido pedido) {
+        try {
+            pedido.resultado.complete(transacaoService.realizarDeposito(pedido.deposito.getNumeroConta(), pedido.deposito.getValor()));
+        } catch (RuntimeException e) {
+            pedido.resultado.completeExceptionally(e);
+        }
+    }
+
+    private static final class Pedido {
+
+        private final DepositoDto deposito;
+        private final CompletableFuture<Transacao> resultado = new CompletableFuture<>();
+
+        private Pedido(DepositoDto deposito) {
+            this.deposito = deposito;
+        }
+    }
+}
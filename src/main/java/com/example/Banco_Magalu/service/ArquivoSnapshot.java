@@ -0,0 +1,225 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.Dinheiro;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Formato dos arquivos de snapshot das contas.
+ * Cada arquivo é uma base (todas as contas) ou um incremento (só as contas alteradas desde o snapshot anterior, com
+ * as removidas marcadas), e tem o cabeçalho [magia][formato][tipo][sequência][base][instante][encerramento][quantidade],
+ * as posições e, no fim, o CRC32C de todos os bytes anteriores. Os valores em dinheiro são gravados em centavos.
+ * O arquivo é escrito em um .tmp, sincronizado com o disco e só então renomeado, de modo atômico: depois de uma queda
+ * ou ele está inteiro com o nome final ou não existe.
+ */
+final class ArquivoSnapshot {
+
+    static final String PREFIXO = "snapshot-";
+    static final String SUFIXO = ".bin";
+
+    private static final int MAGIA = 0x424D534E;
+    private static final int FORMATO = 1;
+    private static final byte TIPO_BASE = 0;
+    private static final byte TIPO_INCREMENTO = 1;
+    private static final byte PRESENTE = 0;
+    private static final byte REMOVIDA = 1;
+    private static final long AUSENTE = Long.MIN_VALUE;
+
+    private final long sequencia;
+    private final long base;
+    private final long instante;
+    private final boolean encerramento;
+    private final Map<String, CabecalhoContaDto> posicoes;
+
+    private ArquivoSnapshot(long sequencia, long base, long instante, boolean encerramento,
+                            Map<String, CabecalhoContaDto> posicoes) {
+        this.sequencia = sequencia;
+        this.base = base;
+        this.instante = instante;
+        this.encerramento = encerramento;
+        this.posicoes = posicoes;
+    }
+
+    /*
+     * Grava um snapshot no diretório.
+     *
+     * @param sequencia - sequência do snapshot, que dá nome ao arquivo
+     * @param base - sequência da base sobre a qual o incremento se aplica; igual à sequência em uma base
+     * @param encerramento - gravado no desligamento, depois da última alteração
+     * @param posicoes - posições das contas; um valor null marca a conta como removida (só em incrementos)
+     * @return Path - arquivo gravado
+     */
+    static Path gravar(Path diretorio, long sequencia, long base, boolean encerramento,
+                       Map<String, CabecalhoContaDto> posicoes) throws IOException {
+        Path arquivo = diretorio.resolve(nome(sequencia));
+        Path temporario = diretorio.resolve(nome(sequencia) + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32C crc = new CRC32C();
+            DataOutputStream saida = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal), 64 * 1024), crc));
+            saida.writeInt(MAGIA);
+            saida.writeInt(FORMATO);
+            saida.writeByte(sequencia == base ? TIPO_BASE : TIPO_INCREMENTO);
+            saida.writeLong(sequencia);
+            saida.writeLong(base);
+            saida.writeLong(System.currentTimeMillis());
+            saida.writeBoolean(encerramento);
+            saida.writeInt(posicoes.size());
+            for (Map.Entry<String, CabecalhoContaDto> posicao : posicoes.entrySet()) {
+                byte[] numero = posicao.getKey().getBytes(StandardCharsets.UTF_8);
+                saida.writeShort(numero.length);
+                saida.write(numero);
+                CabecalhoContaDto cabecalho = posicao.getValue();
+                if (cabecalho == null) {
+                    saida.writeByte(REMOVIDA);
+                    continue;
+                }
+                saida.writeByte(PRESENTE);
+                saida.writeLong(centavos(cabecalho.getSaldo()));
+                saida.writeLong(centavos(cabecalho.getLimiteCredito()));
+                saida.writeLong(centavos(cabecalho.getLimiteMaximo()));
+                saida.writeLong(cabecalho.getDataDeCriacao() != null ? cabecalho.getDataDeCriacao().toEpochDay() : AUSENTE);
+                saida.writeLong(cabecalho.getVersao());
+            }
+            saida.flush();
+            saida.writeInt((int) crc.getValue());
+            saida.flush();
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return arquivo;
+    }
+
+    /*
+     * Lê um snapshot mapeando o arquivo em memória.
+     *
+     * @return ArquivoSnapshot - o conteúdo do arquivo
+     * @throws IllegalStateException - se o arquivo estiver truncado, corrompido ou em outro formato
+     */
+    static ArquivoSnapshot ler(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < 42 || tamanho > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot " + arquivo + " com tamanho inválido: " + tamanho);
+            }
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            int fim = (int) tamanho - Integer.BYTES;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, fim));
+            if ((int) crc.getValue() != buffer.getInt(fim)) {
+                throw new IllegalStateException("Snapshot " + arquivo + " com checksum inválido");
+            }
+            ByteBuffer conteudo = buffer.slice(0, fim);
+            if (conteudo.getInt() != MAGIA || conteudo.getInt() != FORMATO) {
+                throw new IllegalStateException("Snapshot " + arquivo + " em formato desconhecido");
+            }
+            byte tipo = conteudo.get();
+            long sequencia = conteudo.getLong();
+            long base = conteudo.getLong();
+            if ((tipo == TIPO_BASE) != (sequencia == base)) {
+                throw new IllegalStateException("Snapshot " + arquivo + " com cabeçalho inconsistente");
+            }
+            long instante = conteudo.getLong();
+            boolean encerramento = conteudo.get() != 0;
+            int quantidade = conteudo.getInt();
+            Map<String, CabecalhoContaDto> posicoes = new LinkedHashMap<>(Math.max(16, quantidade * 4 / 3 + 1));
+            byte[] numero = new byte[256];
+            for (int i = 0; i < quantidade; i++) {
+                int tamanhoNumero = Short.toUnsignedInt(conteudo.getShort());
+                if (tamanhoNumero > numero.length) {
+                    numero = new byte[tamanhoNumero];
+                }
+                conteudo.get(numero, 0, tamanhoNumero);
+                String chave = new String(numero, 0, tamanhoNumero, StandardCharsets.UTF_8);
+                if (conteudo.get() == REMOVIDA) {
+                    posicoes.put(chave, null);
+                    continue;
+                }
+                BigDecimal saldo = valor(conteudo.getLong());
+                BigDecimal limiteCredito = valor(conteudo.getLong());
+                BigDecimal limiteMaximo = valor(conteudo.getLong());
+                long dataDeCriacao = conteudo.getLong();
+                long versao = conteudo.getLong();
+                posicoes.put(chave, new CabecalhoContaDto(chave, saldo, limiteCredito, limiteMaximo,
+                        dataDeCriacao != AUSENTE ? LocalDate.ofEpochDay(dataDeCriacao) : null, versao));
+            }
+            if (conteudo.hasRemaining()) {
+                throw new IllegalStateException("Snapshot " + arquivo + " com bytes sobrando depois das posições");
+            }
+            return new ArquivoSnapshot(sequencia, base, instante, encerramento, posicoes);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalStateException("Snapshot " + arquivo + " truncado", e);
+        }
+    }
+
+    static String nome(long sequencia) {
+        return String.format("%s%020d%s", PREFIXO, sequencia, SUFIXO);
+    }
+
+    /*
+     * Sequência do snapshot pelo nome do arquivo, ou -1 se o arquivo não é um snapshot.
+     */
+    static long sequencia(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        if (!nome.startsWith(PREFIXO) || !nome.endsWith(SUFIXO)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    boolean isBase() {
+        return sequencia == base;
+    }
+
+    long getSequencia() {
+        return sequencia;
+    }
+
+    long getBase() {
+        return base;
+    }
+
+    long getInstante() {
+        return instante;
+    }
+
+    boolean isEncerramento() {
+        return encerramento;
+    }
+
+    Map<String, CabecalhoContaDto> getPosicoes() {
+        return posicoes;
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor != null ? Dinheiro.de(valor).getCentavos() : AUSENTE;
+    }
+
+    private static BigDecimal valor(long centavos) {
+        return centavos != AUSENTE ? Dinheiro.deCentavos(centavos).toBigDecimal() : null;
+    }
+}
@@ -1,34 +1,44 @@
 package com.example.Banco_Magalu.service;
 
+import com.example.Banco_Magalu.dto.PaginaAuditoriaDto;
+import com.example.Banco_Magalu.dto.RegistroAuditoriaDto;
 import com.example.Banco_Magalu.entity.Auditoria;
-import com.example.Banco_Magalu.entity.Transacao;
 import com.example.Banco_Magalu.repository.AuditoriaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class AuditoriaService {
 
+    private static final int TAMANHO_MAXIMO_PAGINA = 500;
+
+    // Limites do tipo DATETIME do MySQL, usados quando o período não é informado
+    private static final LocalDateTime DATA_HORA_MINIMA = LocalDate.of(1000, 1, 1).atStartOfDay();
+    private static final LocalDateTime DATA_HORA_MAXIMA = LocalDate.of(9999, 12, 31).atStartOfDay();
+
     private final AuditoriaRepository auditoriaRepository;
+    private final GravadorAuditoria gravadorAuditoria;
 
-    public AuditoriaService(@Autowired AuditoriaRepository auditoriaRepository) {
+    public AuditoriaService(@Autowired AuditoriaRepository auditoriaRepository, GravadorAuditoria gravadorAuditoria) {
         this.auditoriaRepository = auditoriaRepository;
+        this.gravadorAuditoria = gravadorAuditoria;
     }
 
     /*
-     * Este método salva uma mensagem de auditoria no banco de dados.
+     * Este método registra os dados de auditoria de uma operação. A gravação no banco de dados é feita de forma assíncrona,
+     * em lotes, depois do commit da transação corrente.
      *
-     * @param mensagem - Mensagem de auditoria a ser salva.
+     * @param registro - Dados de auditoria da operação.
      */
-    public void save(String mensagem, Transacao transacao) {
-
-        Auditoria auditoria = new Auditoria();
-        auditoria.setMensagem(mensagem);
-        auditoria.setTransacao(transacao);
-        auditoriaRepository.save(auditoria);
+    public void save(RegistroAuditoriaDto registro) {
+        gravadorAuditoria.registrar(registro);
     }
 
 
@@ -40,31 +50,76 @@ public class AuditoriaService {
     }
 
     /*
-    * Este método lista mensagens por conta do usuário.
-    *
-    * @param usuario - Usuário que deseja listar as mensagens de auditoria.
-    * @return - Lista de mensagens de auditoria do usuário.
+     * Este método busca uma página das mensagens de auditoria de uma conta, da mais recente para a mais antiga,
+     * paginada por cursor (data e hora, id) e opcionalmente filtrada por período.
+     *
+     * @param numero - número da conta corrente
+     * @param de - primeiro dia do período, inclusive; nulo para não limitar
+     * @param ate - último dia do período, inclusive; nulo para não limitar
+     * @param cursorDataHora - data e hora do último registro da página anterior; nulo na primeira página
+     * @param cursorId - id do último registro da página anterior; nulo na primeira página
+     * @param tamanho - quantidade máxima de mensagens na página
+     * @return - Mensagens da página e cursor da próxima página.
      */
-    public List<String> buscarMensagensPorConta(String numero) {
-        // Recupera as auditorias associadas à conta
-        List<Auditoria> auditorias = auditoriaRepository.findByTransacao_ContaCorrente_Numero(numero);
+    public PaginaAuditoriaDto buscarMensagensPorConta(String numero, LocalDate de, LocalDate ate,
+                                                      LocalDateTime cursorDataHora, UUID cursorId, int tamanho) {
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+        }
+        if ((cursorDataHora == null) != (cursorId == null)) {
+            throw new IllegalArgumentException("O cursor da auditoria deve informar data e hora e id");
+        }
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new IllegalArgumentException("A data inicial do período não pode ser posterior à data final");
+        }
+        gravadorAuditoria.aguardarPendentes(numero);
 
-        // Retorna uma lista de mensagens extraídas das auditorias
-        return auditorias.stream()
-                .map(Auditoria::getMensagem)
+        LocalDateTime inicio = de != null ? de.atStartOfDay() : DATA_HORA_MINIMA;
+        LocalDateTime fim = ate != null ? ate.plusDays(1).atStartOfDay() : DATA_HORA_MAXIMA;
+
+        // Busca um registro a mais para saber se existe próxima página sem precisar de um count
+        Limit limite = Limit.of(tamanho + 1);
+        List<Auditoria> auditorias = cursorDataHora == null
+                ? auditoriaRepository.buscarPorConta(numero, inicio, fim, limite)
+                : auditoriaRepository.buscarPorContaAposCursor(numero, inicio, fim, cursorDataHora, cursorId, limite);
+
+        boolean temProxima = auditorias.size() > tamanho;
+        List<Auditoria> pagina = temProxima ? auditorias.subList(0, tamanho) : auditorias;
+        List<String> mensagens = pagina.stream()
+                .map(AuditoriaService::montarMensagem)
                 .collect(Collectors.toList());
+        if (!temProxima) {
+            return new PaginaAuditoriaDto(mensagens, null, null);
+        }
+        Auditoria ultima = pagina.get(tamanho - 1);
+        return new PaginaAuditoriaDto(mensagens, ultima.getDataHora(), ultima.getId());
     }
 
     /*
-     * Este método retorna todas as mensagens de auditoria do banco de dados.
+     * Este método monta a mensagem legível de um registro de auditoria a partir das suas colunas.
+     * Registros antigos, gravados antes das colunas estruturadas, já trazem a mensagem pronta.
      *
-     * @return - Lista de mensagens de auditoria.
+     * @param auditoria - Registro de auditoria.
+     * @return - Mensagem de auditoria.
      */
-    public Iterable<String> findAll() {
-        return auditoriaRepository.findAll()
-                .stream()
-                .map(Auditoria::getMensagem)
-                .collect(Collectors.toList());
+    static String montarMensagem(Auditoria auditoria) {
+        if (auditoria.getTipo() == null) {
+            return auditoria.getMensagem();
+        }
+        String numeroConta = auditoria.getNumeroConta();
+        LocalDate data = auditoria.getDataHora().toLocalDate();
+        return switch (auditoria.getTipo()) {
+            case DEPOSITO -> "Depósito na conta " + numeroConta + " na data de " + data +
+                    ", Restituição de limite de crédito: R$ " + auditoria.getLimitePosterior().subtrair(auditoria.getLimiteAnterior()) +
+                    ", Saldo atual: R$ " + auditoria.getSaldoPosterior() +
+                    ". Limite disponível: R$ " + auditoria.getLimitePosterior();
+            case SAQUE -> "Saque de R$ " + auditoria.getValor() + " realizado na conta " + numeroConta + ", na data de " + data +
+                    ". Taxa de saque: R$ " + auditoria.getTaxa() +
+                    ". Limite disponível: R$ " + auditoria.getLimitePosterior();
+            case TRANSFERENCIA -> "Transferência de R$ " + auditoria.getValor() + " para conta " + auditoria.getContaDestino() +
+                    " na data de " + data + ". Taxa de transferência: R$ " + auditoria.getTaxa() +
+                    "  Limite disponível: R$ " + auditoria.getLimitePosterior();
+        };
     }
 
 }
@@ -0,0 +1,166 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.CacheContasProperties;
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.Lancamento;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.LancamentoRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/*
+ * Cache em memória dos cabeçalhos de conta (número, saldo, limites e versão), limitado por tamanho e por tempo de vida.
+ * É preenchido nas leituras feitas fora de transações de escrita, como a consulta da conta, e invalidado por quem altera
+ * a conta, na hora e de novo ao fim da transação, para que nenhuma leitura concorrente deixe no cache um valor anterior
+ * ao commit. Transações de escrita nunca preenchem o cache: o que elas leem pode ainda não estar confirmado. No modo
+ * estrito, o padrão, elas também não leem do cache, que fica só para as consultas.
+ * Alterações feitas fora do ContaCorrenteService (outra instância, SQL direto) só aparecem depois da expiração.
+ * No modo LANCAMENTOS o cabeçalho é a posição da conta no livro-razão, lida do último lançamento.
+ * As métricas ficam em cache.gets, cache.puts, cache.evictions e cache.size, com a tag cache=contas.
+ * Toda invalidação também marca a conta em ContasAlteradas, de onde o SnapshotContas tira as contas a regravar.
+ */
+@Component
+public class CacheContas {
+
+    private final CacheContasProperties properties;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final LancamentoRepository lancamentoRepository;
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final ContasAlteradas contasAlteradas;
+    private final ContasQuentes contasQuentes;
+    private final Cache<String, CabecalhoContaDto> cache;
+
+    public CacheContas(CacheContasProperties properties, ContaCorrenteRepository contaCorrenteRepository,
+                       LancamentoRepository lancamentoRepository, ConcorrenciaProperties concorrenciaProperties,
+                       ContasAlteradas contasAlteradas, ContasQuentes contasQuentes, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.lancamentoRepository = lancamentoRepository;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.contasAlteradas = contasAlteradas;
+        this.contasQuentes = contasQuentes;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getTamanhoMaximo())
+                .expireAfterWrite(Duration.ofMillis(properties.getExpiracaoMs()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "contas");
+    }
+
+    /*
+     * Busca o cabeçalho da conta no cache, lendo do banco quando não está no cache.
+     * Dentro de uma transação de escrita lê do banco se o modo estrito estiver ligado ou se a própria transação
+     * já alterou a conta.
+     *
+     * @param numero - número da conta corrente
+     * @return Optional<CabecalhoContaDto> - cabeçalho da conta, vazio se a conta não existe
+     */
+    public Optional<CabecalhoContaDto> buscar(String numero) {
+        if (!properties.isHabilitado()) {
+            return lerDoBanco(numero);
+        }
+        if (isTransacaoDeEscrita()) {
+            if (properties.isEstrito() || isAlteradaNaTransacao(numero)) {
+                return lerDoBanco(numero);
+            }
+            CabecalhoContaDto cabecalho = cache.getIfPresent(numero);
+            return cabecalho != null ? Optional.of(cabecalho) : lerDoBanco(numero);
+        }
+        return Optional.ofNullable(cache.get(numero, n -> lerDoBanco(n).orElse(null)));
+    }
+
+    /*
+     * Remove a conta do cache. Dentro de uma transação, remove de novo ao fim dela, com commit ou rollback,
+     * e até lá as leituras da conta nesta transação vão ao banco.
+     *
+     * @param numero - número da conta alterada
+     */
+    public void invalidar(String numero) {
+        cache.invalidate(numero);
+        contasAlteradas.marcar(numero);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            alteradasNaTransacao().add(numero);
+        }
+    }
+
+    /*
+     * Preenche o cache com cabeçalhos lidos de um snapshot, até o tamanho máximo do cache, sem ir ao banco.
+     *
+     * @param cabecalhos - cabeçalhos das contas
+     * @return int - quantidade de contas colocadas no cache
+     */
+    public int aquecer(Collection<CabecalhoContaDto> cabecalhos) {
+        if (!properties.isHabilitado()) {
+            return 0;
+        }
+        int colocadas = 0;
+        for (CabecalhoContaDto cabecalho : cabecalhos) {
+            if (colocadas >= properties.getTamanhoMaximo()) {
+                break;
+            }
+            cache.put(cabecalho.getNumero(), cabecalho);
+            colocadas++;
+        }
+        return colocadas;
+    }
+
+    /*
+     * Lê o cabeçalho da conta no banco, sem passar pelo cache. Nas contas quentes soma as partes do saldo.
+     */
+    Optional<CabecalhoContaDto> lerDoBanco(String numero) {
+        if (concorrenciaProperties.getModo() != ModoConcorrencia.LANCAMENTOS) {
+            return contaCorrenteRepository.findById(numero).map(CabecalhoContaDto::de).map(contasQuentes::somarPartes);
+        }
+        return contaCorrenteRepository.findById(numero).map(conta -> {
+            List<Lancamento> ultimos = lancamentoRepository.buscarUltimos(numero, Limit.of(1));
+            return CabecalhoContaDto.de(conta, ultimos.isEmpty() ? null : ultimos.get(0));
+        });
+    }
+
+    private boolean isTransacaoDeEscrita() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private boolean isAlteradaNaTransacao(String numero) {
+        InvalidacaoAoFimDaTransacao invalidacao = (InvalidacaoAoFimDaTransacao) TransactionSynchronizationManager.getResource(this);
+        return invalidacao != null && invalidacao.numeros.contains(numero);
+    }
+
+    private Set<String> alteradasNaTransacao() {
+        InvalidacaoAoFimDaTransacao invalidacao = (InvalidacaoAoFimDaTransacao) TransactionSynchronizationManager.getResource(this);
+        if (invalidacao == null) {
+            invalidacao = new InvalidacaoAoFimDaTransacao();
+            TransactionSynchronizationManager.bindResource(this, invalidacao);
+            TransactionSynchronizationManager.registerSynchronization(invalidacao);
+        }
+        return invalidacao.numeros;
+    }
+
+    private final class InvalidacaoAoFimDaTransacao implements TransactionSynchronization {
+
+        private final Set<String> numeros = new HashSet<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CacheContas.this);
+            cache.invalidateAll(numeros);
+            numeros.forEach(contasAlteradas::marcar);
+        }
+    }
+}
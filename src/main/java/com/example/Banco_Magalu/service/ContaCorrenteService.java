@@ -1,20 +1,50 @@
 package com.example.Banco_Magalu.service;
 
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.config.MotorProperties;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.dto.ExtratoDto;
 import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
 import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
-import org.hibernate.Hibernate;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class ContaCorrenteService {
 
+    private static final int TAMANHO_MAXIMO_PAGINA_EXTRATO = 500;
+
     private final ContaCorrenteRepository contaCorrenteRepository;
+    private final TransacaoRepository transacaoRepository;
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final CacheContas cacheContas;
+    private final MotorProperties motorProperties;
+    private final ContasQuentes contasQuentes;
+    private final EntityManager entityManager;
 
-    public ContaCorrenteService(ContaCorrenteRepository contaCorrenteRepository) {
+    public ContaCorrenteService(ContaCorrenteRepository contaCorrenteRepository, TransacaoRepository transacaoRepository,
+                                ConcorrenciaProperties concorrenciaProperties, CacheContas cacheContas,
+                                MotorProperties motorProperties, ContasQuentes contasQuentes, EntityManager entityManager) {
         this.contaCorrenteRepository = contaCorrenteRepository;
+        this.transacaoRepository = transacaoRepository;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.cacheContas = cacheContas;
+        this.motorProperties = motorProperties;
+        this.contasQuentes = contasQuentes;
+        this.entityManager = entityManager;
     }
 
     /*
@@ -43,20 +73,115 @@ public class ContaCorrenteService {
             contaCorrente.setLimiteMaximo(BigDecimal.valueOf(1000.00));
         }
 
-        return contaCorrenteRepository.save(contaCorrente);
+        ContaCorrente contaCriada = contaCorrenteRepository.save(contaCorrente);
+        cacheContas.invalidar(contaCriada.getNumero());
+        return contaCriada;
     }
 
     /*
-     * Método para buscar uma conta corrente pelo número da conta
+     * Método para buscar uma conta corrente pelo número da conta.
+     * Carrega apenas a linha da conta; o histórico de transações é lido pelo extrato paginado.
      *
      * @param numero - número da conta corrente a ser buscada
      * @return Optional<ContaCorrente> - objeto ContaCorrente com os dados da conta buscada ou null caso não encontre a conta
      */
     public Optional<ContaCorrente> buscarConta(String numero)
     {
-        Optional<ContaCorrente> conta = contaCorrenteRepository.findById(numero);
-        conta.ifPresent(c -> Hibernate.initialize(c.getTransacoes()));
-        return conta;
+        return contaCorrenteRepository.findById(numero);
+    }
+
+    /*
+     * Método para buscar o cabeçalho de uma conta corrente (saldo, limites e versão), pelo cache de contas.
+     * Serve às consultas e às validações que não precisam da entidade gerenciada.
+     *
+     * @param numero - número da conta corrente
+     * @return Optional<CabecalhoContaDto> - cabeçalho da conta, vazio se a conta não existe
+     */
+    public Optional<CabecalhoContaDto> buscarCabecalho(String numero) {
+        return cacheContas.buscar(numero);
+    }
+
+    /*
+     * Método para montar o cabeçalho de uma conta corrente já lida. Nas contas quentes o saldo e a versão incluem
+     * as partes do saldo.
+     *
+     * @param conta - conta corrente lida do banco
+     * @return CabecalhoContaDto - cabeçalho da conta
+     */
+    public CabecalhoContaDto montarCabecalho(ContaCorrente conta) {
+        return contasQuentes.somarPartes(CabecalhoContaDto.de(conta));
+    }
+
+    /*
+     * Método para buscar várias contas correntes em uma única consulta.
+     * Contas inexistentes não aparecem no resultado.
+     *
+     * @param numeros - números das contas correntes
+     * @return List<ContaCorrente> - contas encontradas
+     */
+    public List<ContaCorrente> buscarContas(Collection<String> numeros) {
+        return contaCorrenteRepository.findAllById(numeros);
+    }
+
+    /*
+     * Método para bloquear as contas para escrita até o fim da transação corrente.
+     * Os bloqueios são obtidos sempre em ordem crescente de número da conta, assim duas transferências
+     * em sentidos opostos entre as mesmas contas esperam uma pela outra em vez de entrar em deadlock.
+     * Contas inexistentes são ignoradas; quem chama continua responsável por validar a existência.
+     *
+     * @param numeros - números das contas a serem bloqueadas
+     */
+    public void bloquearContas(String... numeros) {
+        Stream.of(numeros)
+                .distinct()
+                .sorted()
+                .forEach(contaCorrenteRepository::findComBloqueioByNumero);
+    }
+
+    /*
+     * Método para buscar o cabeçalho de uma conta corrente bloqueando a linha para escrita até o fim da transação.
+     * A leitura com bloqueio vê a última versão confirmada da conta, mesmo em REPEATABLE READ.
+     *
+     * @param numero - número da conta corrente
+     * @return Optional<CabecalhoContaDto> - cabeçalho da conta, vazio se a conta não existe
+     */
+    public Optional<CabecalhoContaDto> buscarCabecalhoComBloqueio(String numero) {
+        return contaCorrenteRepository.findComBloqueioByNumero(numero).map(this::montarCabecalho);
+    }
+
+    /*
+     * Método para buscar uma página do extrato de uma conta corrente, paginado por cursor (data, id).
+     *
+     * @param numero - número da conta corrente
+     * @param cursorData - data da última transação da página anterior, ou null para a primeira página
+     * @param cursorId - id da última transação da página anterior, ou null para a primeira página
+     * @param tamanho - quantidade máxima de transações na página
+     * @return ExtratoDto - transações da página e cursor da próxima página
+     */
+    public ExtratoDto buscarExtrato(String numero, LocalDate cursorData, UUID cursorId, int tamanho) {
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_PAGINA_EXTRATO) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA_EXTRATO);
+        }
+        if ((cursorData == null) != (cursorId == null)) {
+            throw new IllegalArgumentException("O cursor do extrato deve informar data e id");
+        }
+        if (!contaCorrenteRepository.existsById(numero)) {
+            throw new ContaNaoEncontradaException("Conta não encontrada: " + numero);
+        }
+
+        // Busca um registro a mais para saber se existe próxima página sem precisar de um count
+        Limit limite = Limit.of(tamanho + 1);
+        List<Transacao> transacoes = cursorData == null
+                ? transacaoRepository.buscarExtrato(numero, limite)
+                : transacaoRepository.buscarExtratoAposCursor(numero, cursorData, cursorId, limite);
+
+        if (transacoes.size() <= tamanho) {
+            return new ExtratoDto(transacoes, null, null);
+        }
+
+        List<Transacao> pagina = transacoes.subList(0, tamanho);
+        Transacao ultima = pagina.get(tamanho - 1);
+        return new ExtratoDto(pagina, ultima.getData(), ultima.getId());
     }
 
     /*
@@ -66,14 +191,21 @@ public class ContaCorrenteService {
      * @param novoSaldo - novo saldo da conta corrente
      */
     public void atualizarSaldo(String numero, BigDecimal novoSaldo){
+       verificarMotorDesligado();
+       verificarForaDoRazao();
        if(novoSaldo.compareTo(BigDecimal.ZERO) < 0 ){
            throw new IllegalArgumentException("O saldo não pode ser negativo");
        }
+       // Nas contas quentes o novo saldo substitui também o que estava nas partes
+       if (contasQuentes.isQuente(numero) && contasQuentes.consolidar(numero)) {
+           cacheContas.invalidar(numero);
+       }
        ContaCorrente conta = contaCorrenteRepository.findById(numero)
                .orElseThrow(() -> new IllegalArgumentException("Conta não encontrada" + numero));
 
        conta.setSaldo(novoSaldo);
        contaCorrenteRepository.save(conta);
+       cacheContas.invalidar(numero);
     }
 
     /*
@@ -83,6 +215,8 @@ public class ContaCorrenteService {
      * @param novoLimite - novo limite da conta corrente
      */
     public void atualizarLimite(String numero, BigDecimal novoLimite){
+        verificarMotorDesligado();
+        verificarForaDoRazao();
         if(novoLimite.compareTo(BigDecimal.ZERO) < 0){
             throw new IllegalArgumentException("O limite não pode ser negativo");
         }
@@ -91,6 +225,173 @@ public class ContaCorrenteService {
 
         conta.setLimiteCredito(novoLimite);
         contaCorrenteRepository.save(conta);
+        cacheContas.invalidar(numero);
+    }
+
+    /*
+     * Método para debitar um valor da conta corrente. O valor sai do saldo e o que faltar sai do limite de crédito.
+     *
+     * @param numero - número da conta corrente
+     * @param valor - valor a ser debitado, já com as taxas
+     * @return boolean - false se a conta não existe ou não tem saldo + limite de crédito suficiente
+     */
+    public boolean debitar(String numero, BigDecimal valor) {
+        return debitarSeparandoSaldo(numero, valor).isPresent();
+    }
+
+    /*
+     * Método para debitar um valor da conta corrente, informando quanto dele saiu do saldo; o resto saiu do limite de
+     * crédito. Lê o cabeçalho da conta pelo cache de contas e debita a partir dele.
+     *
+     * @param numero - número da conta corrente
+     * @param valor - valor a ser debitado, já com as taxas
+     * @return Optional<BigDecimal> - parte do valor que saiu do saldo, vazio se a conta não existe ou não tem
+     * saldo + limite de crédito suficiente
+     */
+    public Optional<BigDecimal> debitarSeparandoSaldo(String numero, BigDecimal valor) {
+        return buscarCabecalho(numero).flatMap(cabecalho -> debitarSeparandoSaldo(cabecalho, valor));
+    }
+
+    /*
+     * Método para debitar um valor da conta corrente a partir do cabeçalho lido, informando quanto dele saiu do saldo.
+     * O débito é um único UPDATE condicional, escolhido pelo saldo lido: quando ele cobre o valor, o UPDATE confere só
+     * o saldo e o valor inteiro sai dele; senão o UPDATE confere que o saldo ainda é o lido e que saldo + limite de
+     * crédito cobre o valor, então a parte que saiu do saldo é exatamente a calculada. Com essa parte, a posição
+     * anterior ao débito é a posição lida depois dele, com a linha bloqueada pelo próprio UPDATE, mais as partes
+     * aplicadas. Nas contas quentes as partes do saldo são consolidadas na conta antes do débito que usa o limite.
+     * Se o UPDATE é recusado, porque o cabeçalho já estava desatualizado ou não cobre o valor, a conta é relida com
+     * bloqueio, que vê a última versão confirmada, e o débito é aplicado na entidade bloqueada.
+     * No modo otimista a conta é alterada pela entidade e o UPDATE confere a versão no commit.
+     *
+     * @param cabecalho - cabeçalho da conta lido antes do débito
+     * @param valor - valor a ser debitado, já com as taxas
+     * @return Optional<BigDecimal> - parte do valor que saiu do saldo, vazio se a conta não existe ou não tem
+     * saldo + limite de crédito suficiente
+     */
+    public Optional<BigDecimal> debitarSeparandoSaldo(CabecalhoContaDto cabecalho, BigDecimal valor) {
+        String numero = cabecalho.getNumero();
+        if (!isModoOtimista()) {
+            Optional<BigDecimal> debitoDoSaldo = debitarPeloCabecalho(cabecalho, valor);
+            // Também depois da recusa: a entidade lida antes no contexto não seria relida pela leitura com bloqueio
+            descartarPosicaoLida(numero);
+            if (debitoDoSaldo.isPresent()) {
+                return debitoDoSaldo;
+            }
+            if (contasQuentes.isQuente(numero)) {
+                contasQuentes.consolidar(numero);
+            }
+            // Com a linha bloqueada até o commit, a entidade é a conta atual e a leitura seguinte não volta ao banco
+            debitoDoSaldo = aplicarDebito(contaCorrenteRepository.findComBloqueioByNumero(numero).orElse(null), valor);
+            cacheContas.invalidar(numero);
+            return debitoDoSaldo;
+        }
+
+        Optional<BigDecimal> debitoDoSaldo = aplicarDebito(contaCorrenteRepository.findById(numero).orElse(null), valor);
+        cacheContas.invalidar(numero);
+        return debitoDoSaldo;
+    }
+
+    private Optional<BigDecimal> debitarPeloCabecalho(CabecalhoContaDto cabecalho, BigDecimal valor) {
+        String numero = cabecalho.getNumero();
+        BigDecimal saldoLido = cabecalho.getSaldo();
+        if (saldoLido.compareTo(valor) >= 0) {
+            return contaCorrenteRepository.debitarDoSaldo(numero, valor) > 0 ? Optional.of(valor) : Optional.empty();
+        }
+        if (saldoLido.add(cabecalho.getLimiteCredito()).compareTo(valor) < 0) {
+            return Optional.empty();
+        }
+        if (contasQuentes.isQuente(numero)) {
+            contasQuentes.consolidar(numero);
+        }
+        BigDecimal debitoDoSaldo = saldoLido.max(BigDecimal.ZERO);
+        return contaCorrenteRepository.debitar(numero, valor, saldoLido, debitoDoSaldo, valor.subtract(debitoDoSaldo)) > 0
+                ? Optional.of(debitoDoSaldo)
+                : Optional.empty();
+    }
+
+    private static Optional<BigDecimal> aplicarDebito(ContaCorrente conta, BigDecimal valor) {
+        if (conta == null || conta.getSaldo().add(conta.getLimiteCredito()).compareTo(valor) < 0) {
+            return Optional.empty();
+        }
+        BigDecimal debitoDoSaldo = conta.getSaldo().min(valor).max(BigDecimal.ZERO);
+        conta.setSaldo(conta.getSaldo().subtract(debitoDoSaldo));
+        conta.setLimiteCredito(conta.getLimiteCredito().subtract(valor.subtract(debitoDoSaldo)));
+        return Optional.of(debitoDoSaldo);
+    }
+
+    /*
+     * Método para creditar um valor no saldo de uma conta corrente em um único UPDATE.
+     * Nas contas quentes o valor vai para uma parte sorteada do saldo, e não para a linha da conta.
+     *
+     * @param numero - número da conta corrente
+     * @param valor - valor a ser creditado
+     * @return boolean - false se a conta não existe
+     */
+    public boolean creditarSaldo(String numero, BigDecimal valor) {
+        if (contasQuentes.isCreditoEmPartes(numero)) {
+            boolean creditado = contasQuentes.creditar(numero, valor);
+            cacheContas.invalidar(numero);
+            return creditado;
+        }
+        if (!isModoOtimista()) {
+            boolean creditado = contaCorrenteRepository.creditarSaldo(numero, valor) > 0;
+            descartarPosicaoLida(numero);
+            return creditado;
+        }
+
+        ContaCorrente conta = contaCorrenteRepository.findById(numero).orElse(null);
+        if (conta == null) {
+            return false;
+        }
+        conta.setSaldo(conta.getSaldo().add(valor));
+        cacheContas.invalidar(numero);
+        return true;
+    }
+
+    /*
+     * Método para creditar uma conta corrente restituindo parte do valor ao limite de crédito, em um único UPDATE.
+     *
+     * @param numero - número da conta corrente
+     * @param valorParaSaldo - parte do valor creditada no saldo
+     * @param valorParaLimite - parte do valor restituída ao limite de crédito
+     * @return boolean - false se a conta não existe ou a restituição ultrapassaria o limite máximo
+     */
+    public boolean creditarComRestituicaoLimite(String numero, BigDecimal valorParaSaldo, BigDecimal valorParaLimite) {
+        if (valorParaLimite.compareTo(BigDecimal.ZERO) == 0) {
+            return creditarSaldo(numero, valorParaSaldo);
+        }
+        if (!isModoOtimista()) {
+            boolean creditado = contaCorrenteRepository.creditarComRestituicaoLimite(numero, valorParaSaldo, valorParaLimite) > 0;
+            descartarPosicaoLida(numero);
+            return creditado;
+        }
+
+        ContaCorrente conta = contaCorrenteRepository.findById(numero).orElse(null);
+        if (conta == null || conta.getLimiteCredito().add(valorParaLimite).compareTo(conta.getLimiteMaximo()) > 0) {
+            return false;
+        }
+        conta.setSaldo(conta.getSaldo().add(valorParaSaldo));
+        conta.setLimiteCredito(conta.getLimiteCredito().add(valorParaLimite));
+        cacheContas.invalidar(numero);
+        return true;
+    }
+
+    private boolean isModoOtimista() {
+        return concorrenciaProperties.getModo() == ModoConcorrencia.OTIMISTA;
+    }
+
+    /*
+     * Descarta a posição da conta lida antes de um UPDATE em lote, que não passa pelo contexto de persistência nem pelo
+     * cache de contas: só essa conta sai do contexto, e a próxima leitura dela na transação volta ao banco.
+     * O getReference devolve a entidade gerenciada, se houver, ou uma referência que não vai ao banco; o flush antes
+     * evita que o detach descarte uma alteração ainda não enviada, como o INSERT de uma conta recém-criada.
+     */
+    private void descartarPosicaoLida(String numero) {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+        entityManager.detach(entityManager.getReference(ContaCorrente.class, numero));
+        cacheContas.invalidar(numero);
     }
 
     /**
@@ -109,7 +410,10 @@ public class ContaCorrenteService {
      * @param conta
      */
     public void atualizarSaldo(ContaCorrente conta) {
+        verificarMotorDesligado();
+        verificarForaDoRazao();
         contaCorrenteRepository.save(conta);
+        cacheContas.invalidar(conta.getNumero());
     }
 
     /**
@@ -117,10 +421,31 @@ public class ContaCorrenteService {
      * @param numero
      */
      public void deletarConta(String numero) {
+         verificarMotorDesligado();
          ContaCorrente conta = contaCorrenteRepository.findById(numero)
                  .orElseThrow(() -> new IllegalArgumentException("Conta não encontrada " + numero));
+          contasQuentes.apagarPartes(numero);
           contaCorrenteRepository.delete(conta);
+          cacheContas.invalidar(numero);
      }
-}
 
+    /*
+     * Com o motor em memória ligado, o saldo e o limite das contas ficam nele e a projeção sobrescreveria qualquer
+     * alteração feita direto no banco.
+     */
+    private void verificarMotorDesligado() {
+        if (motorProperties.isHabilitado()) {
+            throw new IllegalArgumentException("Com o motor em memória ligado, a conta só é alterada por depósitos, saques e transferências");
+        }
+    }
 
+    /*
+     * No modo LANCAMENTOS a posição da conta é a linha mais os lançamentos do razão; alterar a linha direto faria o
+     * cabeçalho ignorar o valor novo e o recálculo apontar divergência.
+     */
+    private void verificarForaDoRazao() {
+        if (concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS) {
+            throw new IllegalArgumentException("No modo LANCAMENTOS, a conta só é alterada por depósitos, saques e transferências");
+        }
+    }
+}
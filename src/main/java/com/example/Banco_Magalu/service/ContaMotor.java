@@ -0,0 +1,125 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+ * Posição de uma conta no motor em memória. Só é lida e alterada pela thread do shard dono da conta, por isso não
+ * tem sincronização. As operações aplicam as regras do TransacaoService e devolvem o registro a ser gravado no log.
+ */
+final class ContaMotor {
+
+    private final String numero;
+    private final Dinheiro limiteMaximo;
+    private final LocalDate dataDeCriacao;
+    private Dinheiro saldo;
+    private Dinheiro limiteCredito;
+    private long versao;
+
+    private ContaMotor(String numero, Dinheiro saldo, Dinheiro limiteCredito, Dinheiro limiteMaximo,
+                       LocalDate dataDeCriacao, long versao) {
+        this.numero = numero;
+        this.saldo = saldo;
+        this.limiteCredito = limiteCredito;
+        this.limiteMaximo = limiteMaximo;
+        this.dataDeCriacao = dataDeCriacao;
+        this.versao = versao;
+    }
+
+    static ContaMotor de(ContaCorrente conta) {
+        BigDecimal limiteMaximo = conta.getLimiteMaximo() != null ? conta.getLimiteMaximo() : BigDecimal.ZERO;
+        return new ContaMotor(conta.getNumero(), Dinheiro.de(conta.getSaldo()), Dinheiro.de(conta.getLimiteCredito()),
+                Dinheiro.de(limiteMaximo), conta.getDataDeCriacao(), conta.getVersao());
+    }
+
+    /*
+     * Depósito: parte do valor restitui o limite de crédito até o limite máximo e o restante vai para o saldo.
+     */
+    RegistroMotor depositar(UUID transacaoId, Dinheiro valor, long instante) {
+        Dinheiro valorParaLimite = TransacaoService.calcularRestituicaoLimite(limiteMaximo, limiteCredito, valor);
+        return aplicar(transacaoId, RegistroMotor.Operacao.DEPOSITO, null, valor, Dinheiro.ZERO,
+                valor.subtrair(valorParaLimite), valorParaLimite, instante);
+    }
+
+    /*
+     * Débito do saque ou da transferência: o saldo é usado primeiro e o restante sai do limite de crédito.
+     *
+     * @return RegistroMotor - débito aplicado, ou null se saldo + limite de crédito não cobre o valor com a taxa
+     */
+    RegistroMotor debitar(UUID transacaoId, RegistroMotor.Operacao operacao, String contaDestino, Dinheiro valor,
+                          Dinheiro taxa, long instante) {
+        Dinheiro valorComTaxa = valor.somar(taxa);
+        if (saldo.somar(limiteCredito).compareTo(valorComTaxa) < 0) {
+            return null;
+        }
+        Dinheiro debitoDoSaldo = saldo.max(Dinheiro.ZERO).min(valorComTaxa);
+        return aplicar(transacaoId, operacao, contaDestino, valor, taxa, debitoDoSaldo.negar(),
+                valorComTaxa.subtrair(debitoDoSaldo).negar(), instante);
+    }
+
+    /*
+     * Crédito da transferência, direto no saldo, como no TransacaoService.
+     */
+    RegistroMotor creditarTransferencia(UUID transacaoId, String contaOrigem, Dinheiro valor, long instante) {
+        return aplicar(transacaoId, RegistroMotor.Operacao.CREDITO_TRANSFERENCIA, contaOrigem, valor, Dinheiro.ZERO,
+                valor, Dinheiro.ZERO, instante);
+    }
+
+    /*
+     * Reaplica um registro do log na recuperação, levando a conta à posição posterior dele.
+     */
+    void reaplicar(RegistroMotor registro) {
+        saldo = registro.getSaldoPosterior();
+        limiteCredito = registro.getLimitePosterior();
+        versao++;
+    }
+
+    /*
+     * Desfaz um registro que não chegou ao log, voltando a conta à posição anterior a ele. Depois de uma falha do log
+     * todos os registros seguintes também falham, então a conta deve terminar na posição anterior ao primeiro deles;
+     * como os desfazimentos podem chegar em qualquer ordem, um registro posterior ao último já desfeito é ignorado.
+     *
+     * @param versaoPosterior - versão da conta logo depois de aplicar o registro
+     */
+    void desfazer(RegistroMotor registro, long versaoPosterior) {
+        if (versaoPosterior > versao) {
+            return;
+        }
+        saldo = registro.getSaldoAnterior();
+        limiteCredito = registro.getLimiteAnterior();
+        versao = versaoPosterior - 1;
+    }
+
+    CabecalhoContaDto cabecalho() {
+        return new CabecalhoContaDto(numero, saldo.toBigDecimal(), limiteCredito.toBigDecimal(), limiteMaximo.toBigDecimal(),
+                dataDeCriacao, versao);
+    }
+
+    String getNumero() {
+        return numero;
+    }
+
+    Dinheiro getLimiteCredito() {
+        return limiteCredito;
+    }
+
+    long getVersao() {
+        return versao;
+    }
+
+    private RegistroMotor aplicar(UUID transacaoId, RegistroMotor.Operacao operacao, String contraparte, Dinheiro valor,
+                                  Dinheiro taxa, Dinheiro variacaoSaldo, Dinheiro variacaoLimite, long instante) {
+        Dinheiro saldoAnterior = saldo;
+        Dinheiro limiteAnterior = limiteCredito;
+        saldo = saldo.somar(variacaoSaldo);
+        limiteCredito = limiteCredito.somar(variacaoLimite);
+        versao++;
+        return new RegistroMotor(0, transacaoId, operacao, numero, contraparte, valor, taxa,
+                saldoAnterior, saldo, limiteAnterior, limiteCredito, instante);
+    }
+}
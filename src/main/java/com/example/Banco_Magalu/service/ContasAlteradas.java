@@ -0,0 +1,48 @@
+package com.example.Banco_Magalu.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Números das contas alteradas desde o último snapshot.
+ * Marcado pelo CacheContas a cada invalidação, na hora e de novo ao fim da transação: uma conta lida pelo snapshot
+ * antes do commit volta a ser marcada e é regravada no snapshot seguinte. Só acumula depois de ativado pelo
+ * SnapshotContas, para não crescer sem limite com os snapshots desligados.
+ */
+@Component
+public class ContasAlteradas {
+
+    private final Set<String> numeros = ConcurrentHashMap.newKeySet();
+    private volatile boolean ativo;
+
+    void ativar() {
+        ativo = true;
+    }
+
+    void desativar() {
+        ativo = false;
+        numeros.clear();
+    }
+
+    void marcar(String numero) {
+        if (ativo) {
+            numeros.add(numero);
+        }
+    }
+
+    /*
+     * Retira e devolve as contas marcadas até agora.
+     */
+    Set<String> drenar() {
+        Set<String> drenadas = new HashSet<>();
+        for (String numero : numeros) {
+            if (numeros.remove(numero)) {
+                drenadas.add(numero);
+            }
+        }
+        return drenadas;
+    }
+}
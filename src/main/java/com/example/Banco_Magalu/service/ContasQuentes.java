@@ -0,0 +1,160 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ContasQuentesProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.config.MotorProperties;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.SubSaldo;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.SubSaldoRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Contas quentes: o saldo fica dividido entre a linha da conta e banco.contas-quentes.slots partes (SubSaldo).
+ * Cada crédito vai para uma parte sorteada, então créditos concorrentes na mesma conta esperam só quando caem na mesma
+ * parte, em vez de todos esperarem pelo bloqueio da linha da conta. Os débitos continuam na linha da conta; quando o
+ * saldo dela não cobre o débito, as partes são consolidadas na conta, na mesma transação, e o débito é refeito.
+ * As leituras da conta somam as partes ao saldo, então a conta continua com um único saldo para quem a consulta.
+ * As partes só recebem créditos no modo ATOMICO com o motor em memória desligado; as partes que já existem continuam
+ * somadas nas leituras e, fora do modo OTIMISTA, consolidadas nos débitos, enquanto a conta estiver em
+ * banco.contas-quentes.contas.
+ */
+@Component
+public class ContasQuentes {
+
+    private final ContasQuentesProperties properties;
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final MotorProperties motorProperties;
+    private final SubSaldoRepository subSaldoRepository;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacao;
+
+    public ContasQuentes(ContasQuentesProperties properties, ConcorrenciaProperties concorrenciaProperties,
+                         MotorProperties motorProperties, SubSaldoRepository subSaldoRepository,
+                         ContaCorrenteRepository contaCorrenteRepository, EntityManager entityManager,
+                         PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.motorProperties = motorProperties;
+        this.subSaldoRepository = subSaldoRepository;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.entityManager = entityManager;
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    /*
+     * A conta está configurada como quente: as leituras somam as partes e os débitos as consolidam.
+     */
+    public boolean isQuente(String numero) {
+        return properties.getContas().contains(numero);
+    }
+
+    /*
+     * Os créditos da conta vão para as partes.
+     */
+    public boolean isCreditoEmPartes(String numero) {
+        return properties.isHabilitado()
+                && concorrenciaProperties.getModo() == ModoConcorrencia.ATOMICO
+                && !motorProperties.isHabilitado()
+                && isQuente(numero);
+    }
+
+    /*
+     * Credita o valor em uma parte sorteada do saldo da conta, criando a parte no primeiro crédito que cai nela.
+     *
+     * @param numero - número da conta corrente
+     * @param valor - valor a ser creditado
+     * @return boolean - false se a conta não existe
+     */
+    public boolean creditar(String numero, BigDecimal valor) {
+        int slot = ThreadLocalRandom.current().nextInt(Math.max(1, properties.getSlots()));
+        boolean creditado = subSaldoRepository.creditar(numero, slot, valor) > 0
+                || contaCorrenteRepository.existsById(numero) && subSaldoRepository.criarCreditando(numero, slot, valor) > 0;
+        descartarPartes(numero);
+        return creditado;
+    }
+
+    /*
+     * Leva o saldo das partes para a linha da conta, na transação corrente ou em uma nova se não houver.
+     * As partes são lidas bloqueadas, em ordem de slot, e cada uma é zerada só se ainda tem o saldo lido; a conta
+     * recebe apenas a soma das partes efetivamente zeradas, então um crédito concorrente nunca é levado nem perdido.
+     *
+     * @param numero - número da conta corrente
+     * @return boolean - true se algum valor foi levado para a conta
+     */
+    public boolean consolidar(String numero) {
+        return Boolean.TRUE.equals(transacao.execute(status -> {
+            // A leitura com bloqueio não relê as partes que já estão no contexto de persistência
+            descartarPartes(numero);
+            Dinheiro consolidado = Dinheiro.ZERO;
+            for (SubSaldo parte : subSaldoRepository.findComBloqueioByNumeroConta(numero)) {
+                if (parte.getSaldo().signum() > 0
+                        && subSaldoRepository.zerar(numero, parte.getSlot(), parte.getSaldo()) > 0) {
+                    consolidado = consolidado.somar(Dinheiro.de(parte.getSaldo()));
+                }
+            }
+            descartarPartes(numero);
+            if (consolidado.sinal() == 0) {
+                return false;
+            }
+            boolean creditado = contaCorrenteRepository.creditarSaldo(numero, consolidado.toBigDecimal()) > 0;
+            entityManager.detach(entityManager.getReference(ContaCorrente.class, numero));
+            if (!creditado) {
+                // A conta foi apagada depois da leitura das partes; desfaz as retiradas
+                status.setRollbackOnly();
+                return false;
+            }
+            return true;
+        }));
+    }
+
+    /*
+     * Soma as partes ao saldo e à versão do cabeçalho, se a conta é quente.
+     */
+    public CabecalhoContaDto somarPartes(CabecalhoContaDto cabecalho) {
+        if (cabecalho == null || !isQuente(cabecalho.getNumero())) {
+            return cabecalho;
+        }
+        List<SubSaldo> partes = subSaldoRepository.findByNumeroContaOrderBySlot(cabecalho.getNumero());
+        if (partes.isEmpty()) {
+            return cabecalho;
+        }
+        Dinheiro saldo = Dinheiro.de(cabecalho.getSaldo());
+        long versao = cabecalho.getVersao();
+        for (SubSaldo parte : partes) {
+            saldo = saldo.somar(Dinheiro.de(parte.getSaldo()));
+            versao += parte.getVersao();
+        }
+        return new CabecalhoContaDto(cabecalho.getNumero(), saldo.toBigDecimal(), cabecalho.getLimiteCredito(),
+                cabecalho.getLimiteMaximo(), cabecalho.getDataDeCriacao(), versao);
+    }
+
+    /*
+     * Tira as partes da conta do contexto de persistência, depois dos UPDATEs em lote que não passam por ele: a próxima
+     * leitura delas na transação volta ao banco. O getReference devolve a parte gerenciada, se houver, ou uma
+     * referência que não vai ao banco.
+     */
+    private void descartarPartes(String numero) {
+        for (int slot = 0; slot < Math.max(1, properties.getSlots()); slot++) {
+            entityManager.detach(entityManager.getReference(SubSaldo.class, new SubSaldo.Chave(numero, slot)));
+        }
+    }
+
+    /*
+     * Apaga as partes de uma conta que está sendo apagada.
+     */
+    public void apagarPartes(String numero) {
+        subSaldoRepository.apagarDaConta(numero);
+    }
+}
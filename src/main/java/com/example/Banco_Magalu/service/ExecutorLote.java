@@ -0,0 +1,115 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.LoteProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Executor dedicado às transferências em lote.
+ * Cada transferência usa uma conexão do pool durante a transação, então a quantidade de transferências em andamento
+ * é limitada por um semáforo dimensionado a partir do pool do Hikari. Quando o limite é atingido, quem submete
+ * espera uma vaga, assim um lote grande não esgota as conexões nem enfileira milhares de tarefas.
+ */
+@Component
+public class ExecutorLote implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorLote.class);
+
+    private static final int TAMANHO_POOL_PADRAO = 10;
+
+    private final int maxConcorrencia;
+    private final Semaphore vagas;
+    private final ExecutorService executor;
+
+    public ExecutorLote(LoteProperties properties, ObjectProvider<DataSource> dataSource) {
+        this.maxConcorrencia = calcularMaxConcorrencia(properties, dataSource.getIfAvailable());
+        this.vagas = new Semaphore(maxConcorrencia);
+        this.executor = criarExecutor(properties.isVirtualThreads(), maxConcorrencia);
+    }
+
+    /*
+     * Executa a tarefa no executor do lote, esperando uma vaga se o limite de concorrência foi atingido.
+     *
+     * @param tarefa - tarefa a ser executada
+     * @return CompletableFuture<Void> - concluído quando a tarefa termina
+     */
+    public CompletableFuture<Void> executar(Runnable tarefa) {
+        vagas.acquireUninterruptibly();
+        try {
+            return CompletableFuture.runAsync(tarefa, executor)
+                    .whenComplete((resultado, erro) -> vagas.release());
+        } catch (RejectedExecutionException e) {
+            vagas.release();
+            throw e;
+        }
+    }
+
+    public int getMaxConcorrencia() {
+        return maxConcorrencia;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int calcularMaxConcorrencia(LoteProperties properties, DataSource dataSource) {
+        int tamanhoPool = tamanhoPool(dataSource);
+        int limitePool = Math.max(1, tamanhoPool - properties.getReservaConexoes());
+        if (properties.getMaxConcorrencia() <= 0) {
+            return limitePool;
+        }
+        return Math.min(properties.getMaxConcorrencia(), limitePool);
+    }
+
+    private static int tamanhoPool(DataSource dataSource) {
+        if (dataSource == null) {
+            return TAMANHO_POOL_PADRAO;
+        }
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            log.warn("Não foi possível ler o tamanho do pool de conexões, usando {}", TAMANHO_POOL_PADRAO, e);
+        }
+        return TAMANHO_POOL_PADRAO;
+    }
+
+    private static ExecutorService criarExecutor(boolean virtualThreads, int maxConcorrencia) {
+        if (virtualThreads) {
+            // Executors.newVirtualThreadPerTaskExecutor existe a partir do Java 21; o build ainda compila para o 17
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads não disponíveis no Java {}, usando pool de threads da plataforma",
+                        Runtime.version().feature());
+            }
+        }
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory threadFactory = tarefa -> {
+            Thread thread = new Thread(tarefa, "lote-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(maxConcorrencia, threadFactory);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.FormatoExportacao;
+import com.example.Banco_Magalu.dto.LinhaAuditoriaDto;
+import com.example.Banco_Magalu.dto.LinhaTransacaoDto;
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.repository.ExportacaoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/*
+ * Exportação da auditoria e das transações em NDJSON ou CSV, escrita direto na saída da resposta.
+ * As linhas são lidas do banco aos poucos e escritas uma a uma, então a memória usada não depende do tamanho do resultado.
+ */
+@Service
+public class ExportacaoService {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    // Limites do tipo DATETIME do MySQL, usados quando o período não é informado
+    private static final LocalDate DATA_MINIMA = LocalDate.of(1000, 1, 1);
+    private static final LocalDate DATA_MAXIMA = LocalDate.of(9999, 12, 31);
+
+    private static final List<String> COLUNAS_AUDITORIA = List.of("id", "numeroConta", "transacaoId", "tipo", "valor", "taxa",
+            "saldoAnterior", "saldoPosterior", "limiteAnterior", "limitePosterior", "contaDestino", "dataHora", "mensagem");
+    private static final List<String> COLUNAS_TRANSACAO = List.of("id", "numeroConta", "tipo", "valor", "data", "descricao");
+
+    private final ExportacaoRepository exportacaoRepository;
+    private final GravadorAuditoria gravadorAuditoria;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ExportacaoService(ExportacaoRepository exportacaoRepository, GravadorAuditoria gravadorAuditoria,
+                             EntityManager entityManager, ObjectMapper objectMapper) {
+        this.exportacaoRepository = exportacaoRepository;
+        this.gravadorAuditoria = gravadorAuditoria;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /*
+     * Valida o período da exportação. Chamado pelo controller antes de começar a resposta, quando ainda é possível
+     * responder com erro.
+     *
+     * @param de - primeiro dia do período, inclusive; nulo para não limitar
+     * @param ate - último dia do período, inclusive; nulo para não limitar
+     */
+    public void validarPeriodo(LocalDate de, LocalDate ate) {
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new IllegalArgumentException("A data inicial do período não pode ser posterior à data final");
+        }
+    }
+
+    /*
+     * Exporta os registros de auditoria, de uma conta ou de todas, no período informado.
+     *
+     * @param numeroConta - número da conta; nulo para todas as contas
+     * @param de - primeiro dia do período, inclusive; nulo para não limitar
+     * @param ate - último dia do período, inclusive; nulo para não limitar
+     * @param formato - formato da exportação
+     * @param saida - saída onde a exportação é escrita
+     */
+    @Transactional(readOnly = true)
+    public void exportarAuditoria(String numeroConta, LocalDate de, LocalDate ate, FormatoExportacao formato,
+                                  OutputStream saida) throws IOException {
+        validarPeriodo(de, ate);
+        if (numeroConta != null) {
+            gravadorAuditoria.aguardarPendentes(numeroConta);
+        } else {
+            gravadorAuditoria.aguardarPendentes();
+        }
+
+        LocalDateTime inicio = (de != null ? de : DATA_MINIMA).atStartOfDay();
+        LocalDateTime fim = ate != null ? ate.plusDays(1).atStartOfDay() : DATA_MAXIMA.atStartOfDay();
+        try (Stream<Auditoria> auditorias = numeroConta != null
+                ? exportacaoRepository.exportarAuditoriaPorConta(numeroConta, inicio, fim)
+                : exportacaoRepository.exportarAuditoria(inicio, fim)) {
+            // Cada registro sai do contexto de persistência assim que vira linha, para não acumular entidades
+            Stream<LinhaAuditoriaDto> linhas = auditorias.map(auditoria -> {
+                LinhaAuditoriaDto linha = LinhaAuditoriaDto.de(auditoria, AuditoriaService.montarMensagem(auditoria));
+                entityManager.detach(auditoria);
+                return linha;
+            });
+            escrever(linhas, LinhaAuditoriaDto.class, formato, COLUNAS_AUDITORIA, linha -> Arrays.asList(
+                    linha.getId(), linha.getNumeroConta(), linha.getTransacaoId(), linha.getTipo(), linha.getValor(),
+                    linha.getTaxa(), linha.getSaldoAnterior(), linha.getSaldoPosterior(), linha.getLimiteAnterior(),
+                    linha.getLimitePosterior(), linha.getContaDestino(), linha.getDataHora(), linha.getMensagem()), saida);
+        }
+    }
+
+    /*
+     * Exporta as transações, de uma conta ou de todas, no período informado.
+     *
+     * @param numeroConta - número da conta; nulo para todas as contas
+     * @param de - primeiro dia do período, inclusive; nulo para não limitar
+     * @param ate - último dia do período, inclusive; nulo para não limitar
+     * @param formato - formato da exportação
+     * @param saida - saída onde a exportação é escrita
+     */
+    @Transactional(readOnly = true)
+    public void exportarTransacoes(String numeroConta, LocalDate de, LocalDate ate, FormatoExportacao formato,
+                                   OutputStream saida) throws IOException {
+        validarPeriodo(de, ate);
+
+        LocalDate inicio = de != null ? de : DATA_MINIMA;
+        LocalDate fim = ate != null ? ate : DATA_MAXIMA;
+        try (Stream<LinhaTransacaoDto> linhas = numeroConta != null
+                ? exportacaoRepository.exportarTransacoesPorConta(numeroConta, inicio, fim)
+                : exportacaoRepository.exportarTransacoes(inicio, fim)) {
+            escrever(linhas, LinhaTransacaoDto.class, formato, COLUNAS_TRANSACAO, linha -> Arrays.asList(
+                    linha.getId(), linha.getNumeroConta(), linha.getTipo(), linha.getValor(), linha.getData(),
+                    linha.getDescricao()), saida);
+        }
+    }
+
+    private <T> void escrever(Stream<T> linhas, Class<T> tipo, FormatoExportacao formato, List<String> cabecalho,
+                              Function<T, List<Object>> colunas, OutputStream saida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+        ObjectWriter json = objectMapper.writerFor(tipo);
+        if (formato == FormatoExportacao.CSV) {
+            escreverLinhaCsv(escritor, cabecalho);
+        }
+        for (Iterator<T> iterador = linhas.iterator(); iterador.hasNext(); ) {
+            T linha = iterador.next();
+            if (formato == FormatoExportacao.CSV) {
+                escreverLinhaCsv(escritor, colunas.apply(linha));
+            } else {
+                escritor.write(json.writeValueAsString(linha));
+                escritor.write('\n');
+            }
+        }
+        escritor.flush();
+    }
+
+    private static void escreverLinhaCsv(Writer escritor, List<?> campos) throws IOException {
+        for (int i = 0; i < campos.size(); i++) {
+            if (i > 0) {
+                escritor.write(',');
+            }
+            escritor.write(campoCsv(campos.get(i)));
+        }
+        escritor.write("\r\n");
+    }
+
+    // Campos com vírgula, aspas ou quebra de linha vão entre aspas, com as aspas internas duplicadas (RFC 4180)
+    private static String campoCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor instanceof BigDecimal numero ? numero.toPlainString() : valor.toString();
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+}
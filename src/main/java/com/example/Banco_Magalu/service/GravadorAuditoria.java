@@ -0,0 +1,576 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.AuditoriaProperties;
+import com.example.Banco_Magalu.dto.RegistroAuditoriaDto;
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.entity.UuidV7Generator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Gravador assíncrono da auditoria.
+ * Antes do commit da transação que os gerou, os registros são anotados em um diário em disco; depois do commit entram
+ * em uma fila limitada, e uma thread dedicada os grava em lotes, fora do caminho crítico das operações. Se a aplicação
+ * cair com registros confirmados ainda na fila, eles continuam no diário, que é levado para a contingência na partida
+ * seguinte. O diário é dividido em segmentos, e cada segmento é apagado quando todos os seus registros foram
+ * gravados, descartados ou levados para a contingência.
+ * Com a fila cheia a operação espera um pouco por espaço e, se ainda assim não houver, o registro vai para um arquivo
+ * de contingência, reprocessado quando a fila esvazia. No desligamento a fila é esvaziada depois que o servidor web
+ * para de receber requisições.
+ * Cada registro recebe o seu id antes de ser anotado, então um registro regravado depois de uma queda é recusado
+ * pela chave primária em vez de duplicado. Um registro de uma transação que não foi confirmada é recusado pela chave
+ * estrangeira e descartado; um registro recusado por qualquer outra restrição vai para a quarentena.
+ * Linhas do arquivo de contingência que não podem ser lidas, e registros que o banco recusa, vão para um arquivo de
+ * quarentena, com o sufixo .quarentena, e o reprocessamento continua com as linhas seguintes.
+ */
+@Component
+public class GravadorAuditoria implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GravadorAuditoria.class);
+
+    private static final long INTERVALO_ESPERA_MS = 200;
+
+    // Códigos de erro do MySQL e do H2 para a transação do registro que não existe (chave estrangeira) e para o
+    // registro já gravado (chave primária repetida)
+    private static final Set<Integer> ERROS_TRANSACAO_INEXISTENTE = Set.of(1452, 23506);
+    private static final Set<Integer> ERROS_REGISTRO_JA_GRAVADO = Set.of(1062, 23505);
+
+    private final AuditoriaProperties properties;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pendente> fila;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Path arquivoContingencia;
+    private final Path arquivoEmProcessamento;
+    private final Path arquivoQuarentena;
+    private final Path diretorioDiario;
+    private final OpenOption[] opcoesDiario;
+
+    private final Object travaArquivo = new Object();
+    private final Object travaDiario = new Object();
+    private final Object travaProgresso = new Object();
+    private final Progresso progresso = new Progresso();
+    private final Map<String, Progresso> progressoPorConta = new HashMap<>();
+
+    // Protegidos por travaDiario
+    private SegmentoDiario segmentoAtual;
+    private long sequenciaSegmento;
+
+    private volatile boolean ativo;
+    private Thread thread;
+
+    public GravadorAuditoria(AuditoriaProperties properties, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fila = new ArrayBlockingQueue<>(properties.getCapacidadeFila());
+        this.arquivoContingencia = Path.of(properties.getArquivoContingencia());
+        this.arquivoEmProcessamento = arquivoContingencia.resolveSibling(arquivoContingencia.getFileName() + ".processando");
+        this.arquivoQuarentena = arquivoContingencia.resolveSibling(arquivoContingencia.getFileName() + ".quarentena");
+        this.diretorioDiario = Path.of(properties.getDiretorioDiario());
+        this.opcoesDiario = properties.isSincronizarDiario()
+                ? new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC}
+                : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.APPEND};
+        Gauge.builder("banco.auditoria.fila", fila, BlockingQueue::size)
+                .description("Registros de auditoria aguardando gravação")
+                .register(meterRegistry);
+    }
+
+    /*
+     * Registra os dados de auditoria de uma operação para gravação assíncrona.
+     * Dentro de uma transação os registros são anotados no diário antes do commit, em uma única escrita por transação,
+     * e só são enfileirados após o commit; se a transação for desfeita, eles são descartados. Se o diário não puder
+     * ser escrito, o commit falha, em vez de a operação ser confirmada sem auditoria.
+     *
+     * @param registro - dados de auditoria da operação
+     */
+    public void registrar(RegistroAuditoriaDto registro) {
+        if (registro.getId() == null) {
+            registro.setId(UuidV7Generator.gerar());
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enfileirar(List.of(registro), anotarNoDiario(List.of(registro)));
+            return;
+        }
+        // As sincronizações de uma transação suspensa (REQUIRES_NEW) não aparecem aqui, então cada transação tem a sua
+        RegistrosDaTransacao registrosDaTransacao = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(sincronizacao -> sincronizacao instanceof RegistrosDaTransacao registros && registros.getGravador() == this)
+                .map(RegistrosDaTransacao.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    RegistrosDaTransacao registros = new RegistrosDaTransacao();
+                    TransactionSynchronizationManager.registerSynchronization(registros);
+                    return registros;
+                });
+        registrosDaTransacao.registros.add(registro);
+    }
+
+    /*
+     * Espera a gravação de todos os registros recebidos até agora, limitado a banco.auditoria.espera-leitura-ms.
+     * Usado pela leitura da auditoria de todas as contas para refletir as operações já confirmadas.
+     */
+    public void aguardarPendentes() {
+        synchronized (travaProgresso) {
+            aguardar(progresso, progresso.recebidos);
+        }
+    }
+
+    /*
+     * Espera a gravação dos registros da conta recebidos até agora, limitado a banco.auditoria.espera-leitura-ms.
+     * Os registros de outras contas, e os que chegarem depois da chamada, não são esperados.
+     *
+     * @param numeroConta - número da conta cuja auditoria vai ser lida
+     */
+    public void aguardarPendentes(String numeroConta) {
+        synchronized (travaProgresso) {
+            Progresso progressoDaConta = progressoPorConta.get(numeroConta);
+            if (progressoDaConta != null) {
+                aguardar(progressoDaConta, progressoDaConta.recebidos);
+            }
+        }
+    }
+
+    // Chamado com travaProgresso
+    private void aguardar(Progresso alvoProgresso, long alvo) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getEsperaLeituraMs());
+        while (alvoProgresso.processados < alvo && ativo) {
+            long restanteMs = TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+            if (restanteMs <= 0) {
+                log.warn("Leitura da auditoria sem aguardar {} registros pendentes", alvo - alvoProgresso.processados);
+                return;
+            }
+            try {
+                travaProgresso.wait(restanteMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        recuperarDiario();
+        ativo = true;
+        thread = new Thread(this::executar, "gravador-auditoria");
+        // Não segura a JVM se o contexto não for fechado; no fechamento normal o stop esvazia a fila antes
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        ativo = false;
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pendente> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        if (!restantes.isEmpty()) {
+            gravarContingencia(restantes.stream().map(pendente -> pendente.registro).toList());
+            liberar(restantes);
+        }
+        synchronized (travaDiario) {
+            if (segmentoAtual != null) {
+                liberar(segmentoAtual, 0);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    // Para depois do servidor web, para gravar a auditoria das requisições que ainda estavam em andamento
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void enfileirar(List<RegistroAuditoriaDto> registros, SegmentoDiario segmento) {
+        for (RegistroAuditoriaDto registro : registros) {
+            synchronized (travaProgresso) {
+                progresso.recebidos++;
+                progressoPorConta.computeIfAbsent(registro.getNumeroConta(), numero -> new Progresso()).recebidos++;
+            }
+            Pendente pendente = new Pendente(registro, segmento);
+            try {
+                if (ativo && fila.offer(pendente, properties.getEsperaFilaMs(), TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            gravarContingencia(List.of(registro));
+            liberar(List.of(pendente));
+        }
+    }
+
+    private void executar() {
+        List<Pendente> lote = new ArrayList<>(properties.getTamanhoLote());
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(INTERVALO_ESPERA_MS, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    reprocessarContingencia();
+                    continue;
+                }
+                lote.add(primeiro);
+                fila.drainTo(lote, properties.getTamanhoLote() - 1);
+                gravar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Erro no gravador de auditoria", e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /*
+     * Grava o lote em uma transação. Se falhar, grava um a um para que um registro inválido não impeça os demais:
+     * registros de transações que não existem mais são descartados, registros já gravados são ignorados, registros
+     * recusados por outra restrição do banco vão para a quarentena e os outros erros vão para a contingência.
+     */
+    private void gravar(List<Pendente> lote) {
+        List<Pendente> resolvidos = lote;
+        try {
+            persistir(lote);
+        } catch (RuntimeException erroLote) {
+            resolvidos = new ArrayList<>(lote.size());
+            for (Pendente pendente : lote) {
+                RegistroAuditoriaDto registro = pendente.registro;
+                try {
+                    persistir(List.of(pendente));
+                } catch (DataIntegrityViolationException e) {
+                    int codigoErro = codigoErro(e);
+                    if (ERROS_TRANSACAO_INEXISTENTE.contains(codigoErro)) {
+                        log.warn("Auditoria descartada, transação {} não encontrada", registro.getTransacaoId());
+                    } else if (ERROS_REGISTRO_JA_GRAVADO.contains(codigoErro)) {
+                        log.debug("Auditoria {} já gravada", registro.getId());
+                    } else {
+                        log.error("Auditoria da transação {} recusada pelo banco, movida para {}", registro.getTransacaoId(), arquivoQuarentena, e);
+                        gravarQuarentena(registro);
+                    }
+                } catch (RuntimeException e) {
+                    gravarContingencia(List.of(registro));
+                    continue;
+                }
+                resolvidos.add(pendente);
+            }
+        }
+        synchronized (travaProgresso) {
+            progresso.processados += resolvidos.size();
+            for (Pendente pendente : resolvidos) {
+                // Registros de contingência de uma execução anterior não foram contados nesta
+                Progresso progressoDaConta = progressoPorConta.get(pendente.registro.getNumeroConta());
+                if (progressoDaConta != null && ++progressoDaConta.processados >= progressoDaConta.recebidos) {
+                    progressoPorConta.remove(pendente.registro.getNumeroConta());
+                }
+            }
+            travaProgresso.notifyAll();
+        }
+        // Os que foram para a contingência também saem do diário: o arquivo de contingência já os guarda
+        liberar(lote);
+    }
+
+    // Código de erro do banco na primeira SQLException da cadeia de causas, ou 0 se não houver
+    private static int codigoErro(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof SQLException sqlException) {
+                return sqlException.getErrorCode();
+            }
+        }
+        return 0;
+    }
+
+    private void persistir(List<Pendente> pendentes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Pendente pendente : pendentes) {
+                RegistroAuditoriaDto registro = pendente.registro;
+                Auditoria auditoria = new Auditoria();
+                auditoria.setId(registro.getId());
+                auditoria.setTransacao(entityManager.getReference(Transacao.class, registro.getTransacaoId()));
+                auditoria.setNumeroConta(registro.getNumeroConta());
+                auditoria.setTipo(registro.getTipo());
+                auditoria.setValor(registro.getValor());
+                auditoria.setTaxa(registro.getTaxa());
+                auditoria.setSaldoAnterior(registro.getSaldoAnterior());
+                auditoria.setSaldoPosterior(registro.getSaldoPosterior());
+                auditoria.setLimiteAnterior(registro.getLimiteAnterior());
+                auditoria.setLimitePosterior(registro.getLimitePosterior());
+                auditoria.setContaDestino(registro.getContaDestino());
+                auditoria.setDataHora(registro.getDataHora());
+                entityManager.persist(auditoria);
+            }
+        });
+    }
+
+    private void gravarContingencia(List<RegistroAuditoriaDto> registros) {
+        String linhas = serializar(registros);
+        synchronized (travaArquivo) {
+            try {
+                Files.writeString(arquivoContingencia, linhas, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.error("Auditoria perdida, não foi possível gravar o arquivo de contingência: {}", linhas, e);
+            }
+        }
+    }
+
+    private void gravarQuarentena(RegistroAuditoriaDto registro) {
+        String linha = serializar(List.of(registro));
+        synchronized (travaArquivo) {
+            try {
+                Files.writeString(arquivoQuarentena, linha, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.error("Auditoria perdida, não foi possível gravar o arquivo de quarentena: {}", linha, e);
+            }
+        }
+    }
+
+    private String serializar(List<RegistroAuditoriaDto> registros) {
+        StringBuilder linhas = new StringBuilder();
+        for (RegistroAuditoriaDto registro : registros) {
+            try {
+                linhas.append(objectMapper.writeValueAsString(registro)).append('\n');
+            } catch (JsonProcessingException e) {
+                log.error("Auditoria perdida, não foi possível serializar o registro da transação {}", registro.getTransacaoId(), e);
+            }
+        }
+        return linhas.toString();
+    }
+
+    /*
+     * Anota os registros no segmento atual do diário, abrindo um novo quando o atual já tem
+     * banco.auditoria.registros-por-segmento-diario registros.
+     *
+     * @return SegmentoDiario - segmento onde os registros foram anotados
+     */
+    private SegmentoDiario anotarNoDiario(List<RegistroAuditoriaDto> registros) {
+        String linhas = serializar(registros);
+        synchronized (travaDiario) {
+            try {
+                if (segmentoAtual == null || segmentoAtual.registros >= properties.getRegistrosPorSegmentoDiario()) {
+                    SegmentoDiario anterior = segmentoAtual;
+                    Files.createDirectories(diretorioDiario);
+                    segmentoAtual = new SegmentoDiario(diretorioDiario.resolve("segmento-" + ++sequenciaSegmento + ".jsonl"));
+                    if (anterior != null && anterior.pendentes == 0) {
+                        Files.deleteIfExists(anterior.arquivo);
+                    }
+                }
+                Files.writeString(segmentoAtual.arquivo, linhas, StandardCharsets.UTF_8, opcoesDiario);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Não foi possível anotar a auditoria no diário " + diretorioDiario, e);
+            }
+            segmentoAtual.registros += registros.size();
+            segmentoAtual.pendentes += registros.size();
+            return segmentoAtual;
+        }
+    }
+
+    /*
+     * Tira do diário os registros já gravados, descartados ou levados para a contingência. Um segmento que não é mais
+     * o atual é apagado quando não tem mais registros pendentes.
+     */
+    private void liberar(List<Pendente> pendentes) {
+        synchronized (travaDiario) {
+            for (Pendente pendente : pendentes) {
+                SegmentoDiario segmento = pendente.segmento;
+                if (segmento != null) {
+                    liberar(segmento, 1);
+                }
+            }
+        }
+    }
+
+    // Chamado com travaDiario
+    private void liberar(SegmentoDiario segmento, int quantidade) {
+        segmento.pendentes -= quantidade;
+        if (segmento.pendentes == 0 && (segmento != segmentoAtual || !ativo)) {
+            try {
+                Files.deleteIfExists(segmento.arquivo);
+            } catch (IOException e) {
+                log.warn("Não foi possível apagar o segmento {} do diário da auditoria; será regravado na próxima partida",
+                        segmento.arquivo, e);
+            }
+        }
+    }
+
+    /*
+     * Leva para a contingência os segmentos do diário deixados por uma execução anterior que não terminou normalmente.
+     * Os registros que já tinham sido gravados são recusados pela chave primária na regravação.
+     */
+    private void recuperarDiario() {
+        if (!Files.isDirectory(diretorioDiario)) {
+            return;
+        }
+        try (Stream<Path> segmentos = Files.list(diretorioDiario)) {
+            for (Path segmento : segmentos.sorted().toList()) {
+                synchronized (travaArquivo) {
+                    Files.write(arquivoContingencia, Files.readAllBytes(segmento),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                Files.delete(segmento);
+                log.warn("Segmento {} do diário da auditoria levado para a contingência", segmento);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao recuperar o diário da auditoria " + diretorioDiario, e);
+        }
+    }
+
+    /*
+     * Reprocessa o arquivo de contingência. O arquivo é renomeado antes da leitura para que novos registros
+     * continuem sendo gravados em um arquivo separado. Uma linha que não pode ser lida vai para a quarentena, para
+     * não travar o reprocessamento das demais a cada passagem.
+     */
+    private void reprocessarContingencia() {
+        try {
+            synchronized (travaArquivo) {
+                if (!Files.exists(arquivoEmProcessamento)) {
+                    if (!Files.exists(arquivoContingencia)) {
+                        return;
+                    }
+                    Files.move(arquivoContingencia, arquivoEmProcessamento, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            List<Pendente> lote = new ArrayList<>(properties.getTamanhoLote());
+            for (String linha : Files.readAllLines(arquivoEmProcessamento, StandardCharsets.UTF_8)) {
+                if (linha.isBlank()) {
+                    continue;
+                }
+                try {
+                    lote.add(new Pendente(objectMapper.readValue(linha, RegistroAuditoriaDto.class), null));
+                } catch (JsonProcessingException e) {
+                    log.error("Linha inválida no arquivo de contingência da auditoria, movida para {}: {}", arquivoQuarentena, e.getOriginalMessage());
+                    Files.writeString(arquivoQuarentena, linha + '\n', StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    continue;
+                }
+                if (lote.size() == properties.getTamanhoLote()) {
+                    gravar(lote);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                gravar(lote);
+            }
+            Files.delete(arquivoEmProcessamento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao reprocessar o arquivo de contingência da auditoria", e);
+        }
+    }
+
+    /*
+     * Registros de uma transação, anotados no diário antes do commit e enfileirados depois dele.
+     */
+    private final class RegistrosDaTransacao implements TransactionSynchronization {
+
+        private final List<RegistroAuditoriaDto> registros = new ArrayList<>();
+        private SegmentoDiario segmento;
+
+        private GravadorAuditoria getGravador() {
+            return GravadorAuditoria.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            segmento = anotarNoDiario(registros);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (segmento == null) {
+                return;
+            }
+            if (status == STATUS_COMMITTED) {
+                enfileirar(registros, segmento);
+                return;
+            }
+            synchronized (travaDiario) {
+                liberar(segmento, registros.size());
+            }
+        }
+    }
+
+    /*
+     * Registro aguardando gravação e o segmento do diário onde foi anotado; sem segmento nos registros lidos da
+     * contingência.
+     */
+    private static final class Pendente {
+        private final RegistroAuditoriaDto registro;
+        private final SegmentoDiario segmento;
+
+        private Pendente(RegistroAuditoriaDto registro, SegmentoDiario segmento) {
+            this.registro = registro;
+            this.segmento = segmento;
+        }
+    }
+
+    /*
+     * Segmento do diário: registros anotados nele e quantos ainda não foram resolvidos.
+     */
+    private static final class SegmentoDiario {
+        private final Path arquivo;
+        private int registros;
+        private int pendentes;
+
+        private SegmentoDiario(Path arquivo) {
+            this.arquivo = arquivo;
+        }
+    }
+
+    /*
+     * Registros recebidos e já resolvidos (gravados ou descartados), no total ou de uma conta.
+     */
+    private static final class Progresso {
+        private long recebidos;
+        private long processados;
+    }
+}
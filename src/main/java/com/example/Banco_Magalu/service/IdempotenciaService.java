@@ -0,0 +1,290 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.IdempotenciaProperties;
+import com.example.Banco_Magalu.entity.ChaveIdempotencia;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ChaveIdempotenciaEmAndamentoException;
+import com.example.Banco_Magalu.exception.ChaveIdempotenciaReutilizadaException;
+import com.example.Banco_Magalu.repository.ChaveIdempotenciaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Execução única das operações enviadas com o cabeçalho Idempotency-Key.
+ * O resultado da primeira execução de cada chave fica guardado por banco.idempotencia.validade-ms em dois níveis: um
+ * cache em memória limitado por tamanho e a tabela chave_idempotencia, que vale entre instâncias e reinícios. Uma
+ * requisição repetida recebe a transação guardada sem executar a operação de novo; uma repetida enquanto a primeira
+ * ainda roda espera por ela (na mesma instância, pelo resultado em memória; em outra, consultando a tabela).
+ * Só o sucesso é guardado: se a operação falha a chave é liberada e a repetição executa de novo, já que nada foi alterado.
+ * A reserva, a operação e o resultado são gravados em transações separadas, porque a operação pode terminar em outra
+ * thread (motor em memória, agrupador de depósitos) ou repetir a própria transação nos conflitos. Por isso a reserva
+ * vale só banco.idempotencia.reserva-ms: se a instância cair entre a operação e a gravação do resultado, ou se a
+ * gravação falhar, as repetições recebem 409 só até a reserva expirar e depois executam a operação de novo.
+ */
+@Service
+public class IdempotenciaService {
+
+    public static final String CABECALHO = "Idempotency-Key";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotenciaService.class);
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+    private static final long INTERVALO_CONSULTA_MS = 50;
+
+    private final IdempotenciaProperties properties;
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, ChaveIdempotencia> concluidas;
+    private final ConcurrentHashMap<String, Execucao> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong proximaLimpeza = new AtomicLong();
+
+    public IdempotenciaService(IdempotenciaProperties properties, ChaveIdempotenciaRepository chaveIdempotenciaRepository,
+                               EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.chaveIdempotenciaRepository = chaveIdempotenciaRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.concluidas = Caffeine.newBuilder()
+                .maximumSize(properties.getTamanhoMaximoMemoria())
+                .expireAfterWrite(Duration.ofMillis(properties.getValidadeMs()))
+                .build();
+    }
+
+    /*
+     * Executa a operação uma única vez por chave.
+     *
+     * @param chave - valor do cabeçalho Idempotency-Key
+     * @param operacao - nome da operação, parte da impressão da requisição
+     * @param execucao - a operação
+     * @param parametros - parâmetros da requisição; a mesma chave com outros parâmetros é recusada
+     * @return Transacao - a transação da primeira execução
+     * @throws ChaveIdempotenciaReutilizadaException - se a chave já foi usada em uma requisição diferente
+     * @throws ChaveIdempotenciaEmAndamentoException - se a execução com a mesma chave não terminou dentro da espera
+     */
+    public Transacao executar(String chave, String operacao, Supplier<Transacao> execucao, Object... parametros) {
+        if (!properties.isHabilitado()) {
+            return execucao.get();
+        }
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new IllegalArgumentException("O cabeçalho " + CABECALHO + " deve ter de 1 a " + TAMANHO_MAXIMO_CHAVE + " caracteres");
+        }
+        String impressao = impressao(operacao, parametros);
+
+        ChaveIdempotencia guardada = concluidas.getIfPresent(chave);
+        if (guardada != null) {
+            return resposta(guardada, impressao);
+        }
+        Execucao nova = new Execucao(impressao);
+        Execucao existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            return aguardar(chave, existente, impressao);
+        }
+        try {
+            return executarReservada(chave, nova, execucao);
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    private Transacao executarReservada(String chave, Execucao execucaoAtual, Supplier<Transacao> execucao) {
+        try {
+            ChaveIdempotencia concluida = reservar(chave, execucaoAtual.impressao);
+            if (concluida != null) {
+                concluidas.put(chave, concluida);
+                execucaoAtual.resultado.complete(concluida.getTransacao());
+                return concluida.getTransacao();
+            }
+        } catch (RuntimeException e) {
+            execucaoAtual.resultado.completeExceptionally(e);
+            throw e;
+        }
+
+        Transacao transacao;
+        try {
+            transacao = execucao.get();
+        } catch (RuntimeException e) {
+            liberar(chave);
+            execucaoAtual.resultado.completeExceptionally(e);
+            throw e;
+        }
+        concluir(chave, execucaoAtual.impressao, transacao);
+        execucaoAtual.resultado.complete(transacao);
+        limparExpiradas();
+        return transacao;
+    }
+
+    /*
+     * Reserva a chave na tabela. Se ela já existe e não expirou, devolve o resultado guardado ou, enquanto a outra
+     * execução não termina, consulta de novo até o limite de espera.
+     *
+     * @return ChaveIdempotencia - o resultado já guardado, ou null se a chave foi reservada para esta execução
+     */
+    private ChaveIdempotencia reservar(String chave, String impressao) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getEsperaMs());
+        while (true) {
+            ChaveIdempotencia existente;
+            try {
+                existente = transactionTemplate.execute(status -> {
+                    LocalDateTime agora = LocalDateTime.now();
+                    chaveIdempotenciaRepository.apagarSeExpirada(chave, agora);
+                    ChaveIdempotencia linha = entityManager.find(ChaveIdempotencia.class, chave);
+                    if (linha != null) {
+                        return linha;
+                    }
+                    entityManager.persist(new ChaveIdempotencia(chave, impressao, agora.plus(Duration.ofMillis(properties.getReservaMs()))));
+                    entityManager.flush();
+                    return null;
+                });
+            } catch (DataIntegrityViolationException | PersistenceException e) {
+                // Outra instância reservou a mesma chave ao mesmo tempo; a próxima leitura encontra a reserva dela
+                if (System.nanoTime() >= limite) {
+                    throw e;
+                }
+                continue;
+            }
+            if (existente == null) {
+                return null;
+            }
+            if (!existente.getImpressao().equals(impressao)) {
+                throw new ChaveIdempotenciaReutilizadaException("A chave " + chave + " já foi usada em outra requisição");
+            }
+            if (existente.isConcluida()) {
+                return existente;
+            }
+            if (System.nanoTime() >= limite) {
+                throw new ChaveIdempotenciaEmAndamentoException("A requisição com a chave " + chave + " ainda está em andamento");
+            }
+            try {
+                Thread.sleep(INTERVALO_CONSULTA_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ChaveIdempotenciaEmAndamentoException("A requisição com a chave " + chave + " ainda está em andamento");
+            }
+        }
+    }
+
+    private Transacao aguardar(String chave, Execucao existente, String impressao) {
+        if (!existente.impressao.equals(impressao)) {
+            throw new ChaveIdempotenciaReutilizadaException("A chave " + chave + " já foi usada em outra requisição");
+        }
+        try {
+            return existente.resultado.get(properties.getEsperaMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ChaveIdempotenciaEmAndamentoException("A requisição com a chave " + chave + " ainda está em andamento");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ChaveIdempotenciaEmAndamentoException("A requisição com a chave " + chave + " ainda está em andamento");
+        } catch (ExecutionException e) {
+            // A repetição recebe o mesmo erro da execução original
+            if (e.getCause() instanceof RuntimeException erro) {
+                throw erro;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void concluir(String chave, String impressao, Transacao transacao) {
+        LocalDateTime expiraEm = LocalDateTime.now().plus(Duration.ofMillis(properties.getValidadeMs()));
+        ChaveIdempotencia concluida = new ChaveIdempotencia(chave, impressao, expiraEm);
+        concluida.concluir(transacao, expiraEm);
+        concluidas.put(chave, concluida);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ChaveIdempotencia linha = entityManager.find(ChaveIdempotencia.class, chave);
+                if (linha == null) {
+                    entityManager.persist(concluida);
+                } else {
+                    linha.concluir(transacao, expiraEm);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Resultado da chave {} guardado só em memória; repetições em outra instância receberão 409 até a reserva expirar", chave, e);
+        }
+    }
+
+    private void liberar(String chave) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> chaveIdempotenciaRepository.liberarReserva(chave));
+        } catch (RuntimeException e) {
+            log.error("Não foi possível liberar a chave {}; ela fica reservada até a reserva expirar", chave, e);
+        }
+    }
+
+    // Apaga as chaves expiradas da tabela no máximo uma vez por banco.idempotencia.intervalo-limpeza-ms
+    private void limparExpiradas() {
+        long agora = System.currentTimeMillis();
+        long proxima = proximaLimpeza.get();
+        if (agora < proxima || !proximaLimpeza.compareAndSet(proxima, agora + properties.getIntervaloLimpezaMs())) {
+            return;
+        }
+        try {
+            Integer apagadas = transactionTemplate.execute(status -> chaveIdempotenciaRepository.apagarExpiradas(LocalDateTime.now()));
+            log.debug("{} chaves de idempotência expiradas apagadas", apagadas);
+        } catch (RuntimeException e) {
+            log.warn("Erro ao apagar as chaves de idempotência expiradas", e);
+        }
+    }
+
+    private static Transacao resposta(ChaveIdempotencia guardada, String impressao) {
+        if (!guardada.getImpressao().equals(impressao)) {
+            throw new ChaveIdempotenciaReutilizadaException("A chave " + guardada.getChave() + " já foi usada em outra requisição");
+        }
+        return guardada.getTransacao();
+    }
+
+    /*
+     * Hash SHA-256 da operação e dos parâmetros. Valores iguais escritos com casas decimais diferentes (10 e 10.00)
+     * têm a mesma impressão.
+     */
+    static String impressao(String operacao, Object... parametros) {
+        StringBuilder texto = new StringBuilder(operacao);
+        for (Object parametro : parametros) {
+            texto.append('|');
+            if (parametro instanceof BigDecimal valor) {
+                texto.append(valor.stripTrailingZeros().toPlainString());
+            } else {
+                texto.append(parametro);
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(texto.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Execucao {
+
+        private final String impressao;
+        private final CompletableFuture<Transacao> resultado = new CompletableFuture<>();
+
+        private Execucao(String impressao) {
+            this.impressao = impressao;
+        }
+    }
+}
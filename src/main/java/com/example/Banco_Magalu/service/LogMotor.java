@@ -0,0 +1,447 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.entity.Dinheiro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/*
+ * Log de escrita antecipada (WAL) do motor em memória, em segmentos de tamanho fixo mapeados em memória.
+ * Cada registro é gravado como [tamanho][crc32c][conteúdo]; o arquivo novo vem zerado, então um tamanho zero marca
+ * o fim do segmento. Uma thread dedicada recebe os registros dos shards na ordem em que foram aplicados, atribui o
+ * lsn, grava todos os que estiverem na fila e faz um único force() (fsync) por grupo antes de confirmar as operações
+ * do grupo (group commit). Os registros seguem para a projeção antes de as operações serem confirmadas.
+ * Depois de uma falha de gravação o log não grava mais nada: o grupo que falhou, os registros ainda na fila e os
+ * enviados depois terminam com erro, para que quem aplicou as operações possa desfazê-las.
+ * Os segmentos se chamam wal-<primeiro lsn>.log e são apagados quando todos os seus registros já foram projetados.
+ */
+final class LogMotor {
+
+    private static final Logger log = LoggerFactory.getLogger(LogMotor.class);
+
+    private static final String PREFIXO = "wal-";
+    private static final String SUFIXO = ".log";
+    private static final int CABECALHO = 2 * Integer.BYTES;
+    private static final int TAMANHO_MAXIMO_REGISTRO = 2048;
+    private static final long INTERVALO_ESPERA_MS = 200;
+
+    private static final RegistroMotor.Operacao[] OPERACOES = RegistroMotor.Operacao.values();
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final int registrosPorFsync;
+    private final Consumer<List<RegistroMotor>> aposGravacao;
+    private final BlockingQueue<Pendente> fila = new LinkedBlockingQueue<>();
+
+    // Usados só pela thread do log, depois de abrir()
+    private final ByteBuffer conteudo = ByteBuffer.allocate(TAMANHO_MAXIMO_REGISTRO);
+    private final CRC32C crc = new CRC32C();
+    private int inicioNaoForcado;
+
+    // Segmentos em ordem de lsn; o último é o que recebe os registros. Também alterada por descartarAte()
+    private final List<Segmento> segmentos = new ArrayList<>();
+
+    private volatile long ultimoLsnGravado;
+    private volatile boolean ativo;
+    private volatile boolean falhou;
+    private Thread thread;
+
+    /*
+     * @param diretorio - diretório dos segmentos
+     * @param tamanhoSegmento - tamanho de cada segmento em bytes
+     * @param registrosPorFsync - máximo de registros por grupo
+     * @param aposGravacao - recebe cada grupo depois do fsync, na thread do log
+     */
+    LogMotor(Path diretorio, int tamanhoSegmento, int registrosPorFsync, Consumer<List<RegistroMotor>> aposGravacao) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.registrosPorFsync = registrosPorFsync;
+        this.aposGravacao = aposGravacao;
+    }
+
+    /*
+     * Abre os segmentos existentes e lê os registros ainda não projetados. Um registro incompleto no fim do último
+     * segmento (queda durante a gravação, antes do fsync) é descartado e sobrescrito pelos próximos; um registro
+     * inválido em outro segmento impede a partida, porque os registros seguintes não poderiam ser reaplicados em ordem.
+     *
+     * @param lsnProjetado - último lsn já projetado no banco
+     * @return List<RegistroMotor> - registros posteriores a lsnProjetado, em ordem de lsn
+     */
+    List<RegistroMotor> abrir(long lsnProjetado) {
+        List<RegistroMotor> pendentes = new ArrayList<>();
+        long ultimoLsn = lsnProjetado;
+        try {
+            Files.createDirectories(diretorio);
+            List<Path> arquivos;
+            try (Stream<Path> listagem = Files.list(diretorio)) {
+                arquivos = listagem
+                        .filter(arquivo -> arquivo.getFileName().toString().startsWith(PREFIXO))
+                        .filter(arquivo -> arquivo.getFileName().toString().endsWith(SUFIXO))
+                        .sorted()
+                        .toList();
+            }
+
+            for (int i = 0; i < arquivos.size(); i++) {
+                Segmento segmento = Segmento.abrir(arquivos.get(i), tamanhoSegmento);
+                segmentos.add(segmento);
+                boolean ultimo = i == arquivos.size() - 1;
+                MappedByteBuffer buffer = segmento.buffer;
+                buffer.position(0);
+                while (true) {
+                    int inicio = buffer.position();
+                    RegistroMotor registro = ler(buffer);
+                    if (registro == null) {
+                        if (!ultimo && !isFimDoSegmento(buffer, inicio)) {
+                            throw new IllegalStateException("Registro inválido no segmento " + segmento.arquivo
+                                    + ", posição " + inicio);
+                        }
+                        buffer.position(inicio);
+                        break;
+                    }
+                    ultimoLsn = Math.max(ultimoLsn, registro.getLsn());
+                    if (registro.getLsn() > lsnProjetado) {
+                        pendentes.add(registro);
+                    }
+                }
+            }
+
+            if (segmentos.isEmpty()) {
+                segmentos.add(Segmento.criar(diretorio, ultimoLsn + 1, tamanhoSegmento));
+                forcarDiretorio();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir o log do motor em " + diretorio, e);
+        }
+        inicioNaoForcado = atual().buffer.position();
+        ultimoLsnGravado = ultimoLsn;
+        log.info("Log do motor aberto em {}: {} segmentos, {} registros a reaplicar, último lsn {}",
+                diretorio, segmentos.size(), pendentes.size(), ultimoLsn);
+        return pendentes;
+    }
+
+    void iniciar() {
+        ativo = true;
+        thread = new Thread(this::executar, "motor-log");
+        thread.start();
+    }
+
+    /*
+     * Envia um registro para gravação. Deve ser chamado pela thread do shard logo depois de aplicar a operação, para
+     * que o log fique na ordem em que as operações foram aplicadas.
+     *
+     * @return CompletableFuture<Void> - concluído depois do fsync do grupo que contém o registro
+     */
+    CompletableFuture<Void> anexar(RegistroMotor registro) {
+        if (!ativo) {
+            return CompletableFuture.failedFuture(new IllegalStateException("O log do motor está parado"));
+        }
+        Pendente pendente = new Pendente(registro);
+        fila.add(pendente);
+        // O log pode ter parado entre a verificação e o add, depois de a thread dele esvaziar a fila pela última vez
+        if (!ativo && fila.remove(pendente)) {
+            pendente.gravado.completeExceptionally(new IllegalStateException("O log do motor está parado"));
+        }
+        return pendente.gravado;
+    }
+
+    /*
+     * false antes de iniciar(), depois de encerrar() e depois de uma falha de gravação.
+     */
+    boolean isAtivo() {
+        return ativo;
+    }
+
+    long getUltimoLsnGravado() {
+        return ultimoLsnGravado;
+    }
+
+    /*
+     * Apaga os segmentos cujos registros já foram todos projetados. O segmento atual nunca é apagado.
+     */
+    void descartarAte(long lsnProjetado) {
+        synchronized (segmentos) {
+            while (segmentos.size() > 1 && segmentos.get(1).primeiroLsn <= lsnProjetado + 1) {
+                Segmento segmento = segmentos.remove(0);
+                try {
+                    segmento.fechar();
+                    Files.deleteIfExists(segmento.arquivo);
+                } catch (IOException e) {
+                    log.warn("Não foi possível apagar o segmento {} do log do motor", segmento.arquivo, e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Grava o que ainda estiver na fila e fecha os segmentos.
+     */
+    void encerrar() {
+        ativo = false;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Pendente> restantes = new ArrayList<>();
+        fila.drainTo(restantes);
+        restantes.forEach(pendente -> pendente.gravado.completeExceptionally(new IllegalStateException("O log do motor está parado")));
+        synchronized (segmentos) {
+            for (Segmento segmento : segmentos) {
+                try {
+                    segmento.fechar();
+                } catch (IOException e) {
+                    log.warn("Erro ao fechar o segmento {} do log do motor", segmento.arquivo, e);
+                }
+            }
+            segmentos.clear();
+        }
+    }
+
+    private void executar() {
+        List<Pendente> grupo = new ArrayList<>(registrosPorFsync);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pendente primeiro = fila.poll(INTERVALO_ESPERA_MS, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                grupo.add(primeiro);
+                fila.drainTo(grupo, registrosPorFsync - 1);
+                gravar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    /*
+     * Grava o grupo e faz o fsync. Se a gravação falhar, o estado em memória já tem operações que não estão no log:
+     * o log para de aceitar registros e as operações do grupo terminam com erro. Os grupos seguintes, já na fila, não
+     * são gravados depois do que falhou.
+     */
+    private void gravar(List<Pendente> grupo) {
+        if (falhou) {
+            grupo.forEach(pendente -> pendente.gravado.completeExceptionally(new IllegalStateException("O log do motor está parado")));
+            return;
+        }
+        List<RegistroMotor> registros = new ArrayList<>(grupo.size());
+        long lsn = ultimoLsnGravado;
+        try {
+            synchronized (segmentos) {
+                for (Pendente pendente : grupo) {
+                    pendente.registro.setLsn(++lsn);
+                    escrever(pendente.registro);
+                    registros.add(pendente.registro);
+                }
+                forcar();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Erro ao gravar o log do motor; o motor deixa de aceitar operações", e);
+            falhou = true;
+            ativo = false;
+            grupo.forEach(pendente -> pendente.gravado.completeExceptionally(
+                    new IllegalStateException("Erro ao gravar o log do motor", e)));
+            return;
+        }
+        ultimoLsnGravado = lsn;
+        aposGravacao.accept(registros);
+        grupo.forEach(pendente -> pendente.gravado.complete(null));
+    }
+
+    private void escrever(RegistroMotor registro) throws IOException {
+        conteudo.clear();
+        codificar(registro, conteudo);
+        conteudo.flip();
+        int tamanho = conteudo.remaining();
+
+        MappedByteBuffer buffer = atual().buffer;
+        if (buffer.remaining() < CABECALHO + tamanho) {
+            forcar();
+            segmentos.add(Segmento.criar(diretorio, registro.getLsn(), tamanhoSegmento));
+            forcarDiretorio();
+            buffer = atual().buffer;
+            inicioNaoForcado = 0;
+        }
+
+        crc.reset();
+        crc.update(conteudo.duplicate());
+        buffer.putInt(tamanho);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(conteudo);
+    }
+
+    private void forcar() {
+        MappedByteBuffer buffer = atual().buffer;
+        int fim = buffer.position();
+        if (fim > inicioNaoForcado) {
+            buffer.force(inicioNaoForcado, fim - inicioNaoForcado);
+            inicioNaoForcado = fim;
+        }
+    }
+
+    private Segmento atual() {
+        return segmentos.get(segmentos.size() - 1);
+    }
+
+    // O arquivo novo só sobrevive a uma queda depois do fsync do diretório
+    private void forcarDiretorio() {
+        try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            log.debug("Fsync do diretório {} não suportado", diretorio, e);
+        }
+    }
+
+    private static void codificar(RegistroMotor registro, ByteBuffer destino) {
+        destino.putLong(registro.getLsn());
+        destino.put((byte) registro.getOperacao().ordinal());
+        destino.putLong(registro.getTransacaoId().getMostSignificantBits());
+        destino.putLong(registro.getTransacaoId().getLeastSignificantBits());
+        destino.putLong(registro.getValor().getCentavos());
+        destino.putLong(registro.getTaxa().getCentavos());
+        destino.putLong(registro.getSaldoAnterior().getCentavos());
+        destino.putLong(registro.getSaldoPosterior().getCentavos());
+        destino.putLong(registro.getLimiteAnterior().getCentavos());
+        destino.putLong(registro.getLimitePosterior().getCentavos());
+        destino.putLong(registro.getInstante());
+        codificarTexto(registro.getNumeroConta(), destino);
+        codificarTexto(registro.getContraparte(), destino);
+    }
+
+    private static void codificarTexto(String texto, ByteBuffer destino) {
+        if (texto == null) {
+            destino.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        destino.putShort((short) bytes.length);
+        destino.put(bytes);
+    }
+
+    /*
+     * Lê o registro na posição atual do buffer, avançando-o.
+     *
+     * @return RegistroMotor - o registro, ou null no fim do segmento ou se o registro está incompleto ou corrompido
+     */
+    private RegistroMotor ler(ByteBuffer buffer) {
+        if (buffer.remaining() < CABECALHO) {
+            return null;
+        }
+        int tamanho = buffer.getInt();
+        int crcGravado = buffer.getInt();
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_REGISTRO || tamanho > buffer.remaining()) {
+            return null;
+        }
+        ByteBuffer registro = buffer.slice(buffer.position(), tamanho);
+        crc.reset();
+        crc.update(registro.duplicate());
+        if ((int) crc.getValue() != crcGravado) {
+            return null;
+        }
+        buffer.position(buffer.position() + tamanho);
+
+        long lsn = registro.getLong();
+        RegistroMotor.Operacao operacao = OPERACOES[registro.get()];
+        UUID transacaoId = new UUID(registro.getLong(), registro.getLong());
+        Dinheiro valor = Dinheiro.deCentavos(registro.getLong());
+        Dinheiro taxa = Dinheiro.deCentavos(registro.getLong());
+        Dinheiro saldoAnterior = Dinheiro.deCentavos(registro.getLong());
+        Dinheiro saldoPosterior = Dinheiro.deCentavos(registro.getLong());
+        Dinheiro limiteAnterior = Dinheiro.deCentavos(registro.getLong());
+        Dinheiro limitePosterior = Dinheiro.deCentavos(registro.getLong());
+        long instante = registro.getLong();
+        String numeroConta = lerTexto(registro);
+        String contraparte = lerTexto(registro);
+        return new RegistroMotor(lsn, transacaoId, operacao, numeroConta, contraparte, valor, taxa,
+                saldoAnterior, saldoPosterior, limiteAnterior, limitePosterior, instante);
+    }
+
+    private static String lerTexto(ByteBuffer origem) {
+        short tamanho = origem.getShort();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        origem.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // O resto do segmento está zerado: o segmento seguinte foi criado porque o próximo registro não cabia neste
+    private static boolean isFimDoSegmento(ByteBuffer buffer, int inicio) {
+        for (int i = inicio; i < Math.min(buffer.limit(), inicio + CABECALHO); i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Pendente {
+
+        private final RegistroMotor registro;
+        private final CompletableFuture<Void> gravado = new CompletableFuture<>();
+
+        private Pendente(RegistroMotor registro) {
+            this.registro = registro;
+        }
+    }
+
+    private static final class Segmento {
+
+        private final Path arquivo;
+        private final long primeiroLsn;
+        private final FileChannel canal;
+        private final MappedByteBuffer buffer;
+
+        private Segmento(Path arquivo, long primeiroLsn, FileChannel canal, MappedByteBuffer buffer) {
+            this.arquivo = arquivo;
+            this.primeiroLsn = primeiroLsn;
+            this.canal = canal;
+            this.buffer = buffer;
+        }
+
+        static Segmento criar(Path diretorio, long primeiroLsn, int tamanho) throws IOException {
+            Path arquivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO, primeiroLsn, SUFIXO));
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segmento(arquivo, primeiroLsn, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho));
+        }
+
+        static Segmento abrir(Path arquivo, int tamanhoMinimo) throws IOException {
+            String nome = arquivo.getFileName().toString();
+            long primeiroLsn = Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+            FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Um segmento criado com outro tamanho é lido inteiro e, se for o último, recebe os registros seguintes
+            long tamanho = Math.max(canal.size(), tamanhoMinimo);
+            return new Segmento(arquivo, primeiroLsn, canal, canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanho));
+        }
+
+        void fechar() throws IOException {
+            canal.close();
+        }
+    }
+}
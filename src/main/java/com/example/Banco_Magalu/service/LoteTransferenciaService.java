@@ -0,0 +1,193 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/*
+ * Serviço que processa os lotes de transferências.
+ * As transferências que compartilham uma conta (como origem ou destino) são executadas uma após a outra, na ordem
+ * em que foram enviadas; as que não têm conta em comum rodam em paralelo no executor do lote.
+ * Assim o resultado de cada conta não depende do escalonamento das threads.
+ * Com o motor em memória ligado as transferências são feitas por ele, com o mesmo agendamento.
+ * O tamanho e a duração de cada lote ficam nas distribuições banco.lote.tamanho e banco.lote.duracao, com a tag
+ * modo (agendado ou compensado), e as transferências recusadas em banco.lote.falhas.
+ */
+@Service
+public class LoteTransferenciaService {
+
+    private final TransacaoService transacaoService;
+    private final ExecutorLote executorLote;
+    private final MotorContas motorContas;
+    private final MeterRegistry meterRegistry;
+
+    public LoteTransferenciaService(TransacaoService transacaoService, ExecutorLote executorLote, MotorContas motorContas,
+                                    MeterRegistry meterRegistry) {
+        this.transacaoService = transacaoService;
+        this.executorLote = executorLote;
+        this.motorContas = motorContas;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /*
+     * Método para realizar um lote de transferências.
+     *
+     * @param transferencias - transferências na ordem de envio
+     * @return ResultadoLoteDto - transferências bem-sucedidas e mensagens das falhas, na ordem de envio
+     */
+    public ResultadoLoteDto realizarTransferencias(List<TransferenciaDto> transferencias) {
+        return medir("agendado", transferencias.size(), () -> agendarTransferencias(transferencias));
+    }
+
+    private ResultadoLoteDto agendarTransferencias(List<TransferenciaDto> transferencias) {
+        int total = transferencias.size();
+        String[] falhas = new String[total];
+        List<List<Integer>> dependentes = new ArrayList<>(total);
+        int[] pendencias = new int[total];
+        int finalizadas = 0;
+
+        // Grafo de conflitos: cada transferência depende da última transferência anterior de cada uma das suas contas
+        Map<String, Integer> ultimaPorConta = new HashMap<>();
+        for (int i = 0; i < total; i++) {
+            dependentes.add(new ArrayList<>());
+            TransferenciaDto transferencia = transferencias.get(i);
+            // Recusada antes do agendamento: com origem e destino iguais ela dependeria de si mesma e nunca ficaria pronta
+            if (Objects.equals(transferencia.getContaOrigem(), transferencia.getContaDestino())) {
+                falhas[i] = mensagemFalha(transferencia, "Conta de origem e destino não podem ser iguais.");
+                finalizadas++;
+                continue;
+            }
+            Integer anteriorOrigem = ultimaPorConta.put(transferencia.getContaOrigem(), i);
+            Integer anteriorDestino = ultimaPorConta.put(transferencia.getContaDestino(), i);
+            if (anteriorOrigem != null) {
+                dependentes.get(anteriorOrigem).add(i);
+                pendencias[i]++;
+            }
+            if (anteriorDestino != null && !anteriorDestino.equals(anteriorOrigem)) {
+                dependentes.get(anteriorDestino).add(i);
+                pendencias[i]++;
+            }
+        }
+
+        Deque<Integer> prontas = new ArrayDeque<>();
+        for (int i = 0; i < total; i++) {
+            if (pendencias[i] == 0 && falhas[i] == null) {
+                prontas.add(i);
+            }
+        }
+
+        // O agendamento fica na thread da requisição; as threads do executor só executam as transferências
+        BlockingQueue<Integer> concluidas = new LinkedBlockingQueue<>();
+        while (finalizadas < total) {
+            while (!prontas.isEmpty()) {
+                int indice = prontas.poll();
+                executorLote.executar(() -> falhas[indice] = realizarTransferencia(transferencias.get(indice)))
+                        .whenComplete((resultado, erro) -> concluidas.add(indice));
+            }
+
+            int indice = aguardarConclusao(concluidas);
+            finalizadas++;
+            for (int dependente : dependentes.get(indice)) {
+                if (--pendencias[dependente] == 0) {
+                    prontas.add(dependente);
+                }
+            }
+        }
+
+        List<TransferenciaDto> sucesso = new ArrayList<>();
+        List<String> mensagensFalha = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            if (falhas[i] == null) {
+                sucesso.add(transferencias.get(i));
+            } else {
+                mensagensFalha.add(falhas[i]);
+            }
+        }
+        return new ResultadoLoteDto(sucesso, mensagensFalha);
+    }
+
+    /*
+     * Método para realizar um lote de transferências por compensação: um único UPDATE por conta com o saldo líquido do lote,
+     * em uma transação. As transferências continuam registradas individualmente.
+     * O motor em memória não tem compensação: com ele ligado o lote é feito transferência a transferência.
+     *
+     * @param transferencias - transferências na ordem de envio
+     * @return ResultadoLoteDto - transferências bem-sucedidas e mensagens das falhas, na ordem de envio
+     */
+    public ResultadoLoteDto realizarTransferenciasCompensadas(List<TransferenciaDto> transferencias) {
+        return medir("compensado", transferencias.size(), () -> motorContas.isHabilitado()
+                ? agendarTransferencias(transferencias)
+                : transacaoService.realizarTransferenciasCompensadas(transferencias));
+    }
+
+    private ResultadoLoteDto medir(String modo, int tamanho, Supplier<ResultadoLoteDto> lote) {
+        DistributionSummary.builder("banco.lote.tamanho")
+                .description("Transferências por lote")
+                .baseUnit("transferencias")
+                .tag("modo", modo)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(tamanho);
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        ResultadoLoteDto resultado = lote.get();
+        amostra.stop(Timer.builder("banco.lote.duracao")
+                .description("Duração dos lotes de transferências")
+                .tag("modo", modo)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        meterRegistry.counter("banco.lote.falhas", "modo", modo).increment(resultado.getFalhas().size());
+        return resultado;
+    }
+
+    /*
+     * Realiza uma transferência do lote.
+     *
+     * @return String - mensagem de erro ou null se a transferência foi realizada
+     */
+    private String realizarTransferencia(TransferenciaDto transferencia) {
+        try {
+            if (motorContas.isHabilitado()) {
+                motorContas.realizarTransferencia(transferencia.getContaOrigem(), transferencia.getContaDestino(),
+                        transferencia.getValor());
+                return null;
+            }
+            transacaoService.realizarTransferencia(
+                    transferencia.getContaOrigem(),
+                    transferencia.getContaDestino(),
+                    transferencia.getValor()
+            );
+            return null;
+        } catch (Exception e) {
+            return mensagemFalha(transferencia, e.getMessage());
+        }
+    }
+
+    private static String mensagemFalha(TransferenciaDto transferencia, String motivo) {
+        return "Erro na transferência de " +
+                transferencia.getContaOrigem() + " para " +
+                transferencia.getContaDestino() + ": " + motivo;
+    }
+
+    private static int aguardarConclusao(BlockingQueue<Integer> concluidas) {
+        try {
+            return concluidas.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Processamento do lote interrompido", e);
+        }
+    }
+}
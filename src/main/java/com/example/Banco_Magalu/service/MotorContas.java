@@ -0,0 +1,409 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.MotorProperties;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.PontoProjecao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.entity.UuidV7Generator;
+import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.PontoProjecaoRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+ * Motor em memória (banco.motor.habilitado=true): os saldos ficam em memória, divididos em shards pelo número da conta,
+ * e cada shard tem uma única thread que aplica depósitos, saques e transferências com as regras de taxa e de limite
+ * do TransacaoService, sem transação de banco e sem bloqueios.
+ * A durabilidade vem do LogMotor: a operação só é confirmada depois do fsync do grupo em que foi gravada. Se a gravação
+ * falhar, a operação é desfeita na conta e o motor deixa de aceitar operações até ser reiniciado. A projeção
+ * nas tabelas (ContaCorrente, Transacao e auditoria) é assíncrona, então as consultas ao banco ficam atrás do motor
+ * por até banco.motor.intervalo-projecao-ms.
+ * As contas são carregadas do banco, que é a fotografia do estado até o ponto de projeção, na primeira operação de
+ * cada uma. Na partida só são carregadas as contas com registros do log posteriores ao ponto de projeção, que são
+ * reaplicados. Transferências entre shards cujo crédito não chegou ao log são completadas.
+ * Transferências entre contas de shards diferentes debitam a origem no shard dela e enviam o crédito ao shard do
+ * destino; o intervalo entre as duas gravações no log é o único momento em que o valor não está em nenhuma das contas.
+ */
+@Service
+public class MotorContas implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorContas.class);
+
+    private final MotorProperties properties;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final PontoProjecaoRepository pontoProjecaoRepository;
+    private final AuditoriaService auditoriaService;
+    private final CacheContas cacheContas;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+
+    // Números das contas que existem, para validar o destino da transferência sem passar pelo shard dele
+    private final Set<String> contasConhecidas = ConcurrentHashMap.newKeySet();
+
+    private ShardMotor[] shards;
+    private LogMotor logMotor;
+    private ProjecaoMotor projecao;
+    private volatile boolean ativo;
+
+    public MotorContas(MotorProperties properties, ContaCorrenteRepository contaCorrenteRepository,
+                       PontoProjecaoRepository pontoProjecaoRepository, AuditoriaService auditoriaService,
+                       CacheContas cacheContas, EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.pontoProjecaoRepository = pontoProjecaoRepository;
+        this.auditoriaService = auditoriaService;
+        this.cacheContas = cacheContas;
+        this.entityManager = entityManager;
+        this.transactionManager = transactionManager;
+    }
+
+    public boolean isHabilitado() {
+        return properties.isHabilitado();
+    }
+
+    /*
+     * Realiza um depósito na conta, com as regras de TransacaoService.realizarDeposito.
+     *
+     * @param numeroConta - número da conta
+     * @param valor - valor do depósito
+     * @return Transacao - transação realizada, já gravada no log
+     */
+    public Transacao realizarDeposito(String numeroConta, BigDecimal valor) {
+        return aguardar(depositar(numeroConta, valor));
+    }
+
+    /*
+     * Realiza um saque na conta, com as regras de TransacaoService.realizarSaque.
+     */
+    public Transacao realizarSaque(String numeroConta, BigDecimal valor) {
+        return aguardar(sacar(numeroConta, valor));
+    }
+
+    /*
+     * Realiza uma transferência entre contas, com as regras de TransacaoService.realizarTransferencia.
+     */
+    public Transacao realizarTransferencia(String numeroContaOrigem, String numeroContaDestino, BigDecimal valor) {
+        return aguardar(transferir(numeroContaOrigem, numeroContaDestino, valor));
+    }
+
+    /*
+     * Versão assíncrona de realizarDeposito: o futuro é concluído depois do fsync do log.
+     * As operações enviadas pela mesma thread para a mesma conta são aplicadas na ordem de envio.
+     */
+    public CompletableFuture<Transacao> depositar(String numeroConta, BigDecimal valor) {
+        if (valor == null || valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("O valor do depósito não pode ser nulo ou negativo");
+        }
+        Dinheiro valorDeposito = Dinheiro.de(valor);
+        ShardMotor shard = shard(numeroConta);
+        return shard.executar(() -> {
+            verificarLogAtivo();
+            ContaMotor conta = buscarConta(numeroConta, "Conta não encontrada: ");
+            return gravar(shard, conta, conta.depositar(UuidV7Generator.gerar(), valorDeposito, System.currentTimeMillis()));
+        }).thenCompose(gravado -> gravado);
+    }
+
+    /*
+     * Versão assíncrona de realizarSaque.
+     */
+    public CompletableFuture<Transacao> sacar(String numeroConta, BigDecimal valor) {
+        if (valor == null || valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("O valor do saque não pode ser nulo ou negativo");
+        }
+        Dinheiro valorSaque = Dinheiro.de(valor);
+        Dinheiro taxaSaque = TransacaoService.calcularTaxaSaque(valorSaque);
+        ShardMotor shard = shard(numeroConta);
+        return shard.executar(() -> {
+            verificarLogAtivo();
+            ContaMotor conta = buscarConta(numeroConta, "Conta não encontrada: ");
+            RegistroMotor debito = conta.debitar(UuidV7Generator.gerar(), RegistroMotor.Operacao.SAQUE, null,
+                    valorSaque, taxaSaque, System.currentTimeMillis());
+            if (debito == null) {
+                throw new SaldoInsuficienteException("Saldo insuficiente na conta: " + numeroConta);
+            }
+            return gravar(shard, conta, debito);
+        }).thenCompose(gravado -> gravado);
+    }
+
+    /*
+     * Versão assíncrona de realizarTransferencia. O futuro é concluído depois que o débito e o crédito estão no log.
+     */
+    public CompletableFuture<Transacao> transferir(String numeroContaOrigem, String numeroContaDestino, BigDecimal valor) {
+        if (valor == null || valor.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("O valor da transferência não pode ser nulo ou negativo");
+        }
+        if (numeroContaOrigem.equals(numeroContaDestino)) {
+            throw new IllegalArgumentException("Conta de origem e destino não podem ser iguais.");
+        }
+        Dinheiro valorTransferencia = Dinheiro.de(valor);
+        ShardMotor shardOrigem = shard(numeroContaOrigem);
+        ShardMotor shardDestino = shard(numeroContaDestino);
+        if (shardOrigem != shardDestino && !contasConhecidas.contains(numeroContaDestino)
+                && !contaCorrenteRepository.existsById(numeroContaDestino)) {
+            throw new ContaNaoEncontradaException("Conta de destino não encontrada: " + numeroContaDestino);
+        }
+
+        return shardOrigem.executar(() -> {
+            verificarLogAtivo();
+            ContaMotor origem = buscarConta(numeroContaOrigem, "Conta de origem não encontrada: ");
+            if (shardOrigem == shardDestino) {
+                buscarConta(numeroContaDestino, "Conta de destino não encontrada: ");
+            }
+            Dinheiro taxa = TransacaoService.calcularTaxaTransferencia(origem.getLimiteCredito(), valorTransferencia);
+            UUID transacaoId = UuidV7Generator.gerar();
+            long instante = System.currentTimeMillis();
+            RegistroMotor debito = origem.debitar(transacaoId, RegistroMotor.Operacao.DEBITO_TRANSFERENCIA,
+                    numeroContaDestino, valorTransferencia, taxa, instante);
+            if (debito == null) {
+                throw new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroContaOrigem);
+            }
+            CompletableFuture<Transacao> debitoGravado = gravar(shardOrigem, origem, debito);
+
+            // No mesmo shard o crédito é aplicado na mesma tarefa; em outro, vai como mensagem para a thread dele
+            CompletableFuture<CompletableFuture<Transacao>> credito = shardOrigem == shardDestino
+                    ? CompletableFuture.completedFuture(creditar(shardDestino, debito))
+                    : shardDestino.executarSemEspera(() -> creditar(shardDestino, debito));
+            return credito.thenCompose(creditoGravado -> creditoGravado).thenCombine(debitoGravado, (c, d) -> d);
+        }).thenCompose(gravado -> gravado);
+    }
+
+    /*
+     * Posição atual da conta no motor, lida na thread do shard.
+     */
+    public Optional<CabecalhoContaDto> buscarPosicao(String numeroConta) {
+        return Optional.ofNullable(aguardar(shard(numeroConta).executar(() -> {
+            ContaMotor conta = shard(numeroConta).buscar(numeroConta);
+            return conta != null ? conta.cabecalho() : null;
+        })));
+    }
+
+    /*
+     * Espera a projeção no banco de todas as operações já confirmadas.
+     */
+    public void aguardarProjecao() {
+        if (projecao != null) {
+            projecao.aguardar();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isHabilitado()) {
+            return;
+        }
+        long lsnProjetado = pontoProjecaoRepository.findById(ProjecaoMotor.ID_PONTO_PROJECAO)
+                .map(PontoProjecao::getLsn)
+                .orElse(0L);
+
+        shards = new ShardMotor[properties.getShards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardMotor(i, properties.getCapacidadeFila(), this::carregarConta);
+        }
+
+        logMotor = new LogMotor(Path.of(properties.getDiretorioLog()), properties.getTamanhoSegmentoBytes(),
+                properties.getRegistrosPorFsync(), registros -> projecao.enfileirar(registros));
+        List<RegistroMotor> pendentes = logMotor.abrir(lsnProjetado);
+        List<RegistroMotor> creditosFaltantes = reaplicar(pendentes);
+
+        projecao = new ProjecaoMotor(contaCorrenteRepository, auditoriaService, cacheContas, entityManager,
+                transactionManager, logMotor, properties.getIntervaloProjecaoMs(), properties.getTamanhoLoteProjecao(),
+                lsnProjetado);
+        projecao.enfileirar(pendentes);
+        projecao.iniciar();
+        logMotor.iniciar();
+        ativo = true;
+
+        for (RegistroMotor debito : creditosFaltantes) {
+            log.info("Completando a transferência {} de {} para {} interrompida na última parada",
+                    debito.getTransacaoId(), debito.getNumeroConta(), debito.getContraparte());
+            ShardMotor shardDestino = shard(debito.getContraparte());
+            aguardar(shardDestino.executarSemEspera(() -> creditar(shardDestino, debito)).thenCompose(gravado -> gravado));
+        }
+        log.info("Motor em memória iniciado: {} contas carregadas em {} shards, {} registros reaplicados do log",
+                contasConhecidas.size(), shards.length, pendentes.size());
+    }
+
+    // Para antes do GravadorAuditoria, que grava a auditoria da última projeção, e depois do servidor web
+    @Override
+    public void stop() {
+        if (!ativo) {
+            return;
+        }
+        ativo = false;
+        for (ShardMotor shard : shards) {
+            shard.encerrar();
+        }
+        logMotor.encerrar();
+        projecao.encerrar();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    /*
+     * Monta a Transacao de um registro do log, com a mesma descrição que o TransacaoService.
+     */
+    static Transacao transacaoDe(RegistroMotor registro, ContaCorrente conta) {
+        LocalDate data = ProjecaoMotor.dataHora(registro).toLocalDate();
+        String numeroConta = registro.getNumeroConta();
+        String descricao = switch (registro.getOperacao()) {
+            case DEPOSITO -> "Depósito na conta " + numeroConta + " na data de " + data +
+                    ", Restituição de limite de crédito: R$ " + registro.getLimitePosterior().subtrair(registro.getLimiteAnterior()) +
+                    ", Saldo atual: R$ " + registro.getSaldoPosterior() +
+                    ". Limite disponível: R$ " + registro.getLimitePosterior();
+            case SAQUE -> "Saque de R$ " + registro.getValor() + " na conta " + numeroConta + " na data de " + data +
+                    ". Taxa de saque: R$ " + registro.getTaxa() + ". Limite disponível: R$ " + registro.getLimitePosterior();
+            case DEBITO_TRANSFERENCIA, CREDITO_TRANSFERENCIA -> "Transferência de R$ " + registro.getValor() +
+                    " para conta " + registro.getContraparte() + " na data de " + data +
+                    ". Taxa de transferência: R$ " + registro.getTaxa() + " Limite disponível: R$ " + registro.getLimitePosterior();
+        };
+        return new Transacao(registro.getTransacaoId(), registro.getTipo(), registro.getValor().toBigDecimal(), data,
+                descricao, conta);
+    }
+
+    /*
+     * Leva as contas à posição dos registros do log ainda não projetados.
+     *
+     * @return List<RegistroMotor> - débitos de transferências cujo crédito não chegou ao log
+     */
+    private List<RegistroMotor> reaplicar(List<RegistroMotor> pendentes) {
+        Set<UUID> creditados = new HashSet<>();
+        for (RegistroMotor registro : pendentes) {
+            ContaMotor conta = shard(registro.getNumeroConta()).buscar(registro.getNumeroConta());
+            if (conta == null) {
+                log.warn("Registro {} do log para a conta {}, que não existe mais no banco", registro.getLsn(), registro.getNumeroConta());
+                continue;
+            }
+            conta.reaplicar(registro);
+            if (registro.getOperacao() == RegistroMotor.Operacao.CREDITO_TRANSFERENCIA) {
+                creditados.add(registro.getTransacaoId());
+            }
+        }
+        return pendentes.stream()
+                .filter(registro -> registro.getOperacao() == RegistroMotor.Operacao.DEBITO_TRANSFERENCIA)
+                .filter(registro -> !creditados.contains(registro.getTransacaoId()))
+                .toList();
+    }
+
+    /*
+     * Aplica o crédito da transferência na conta de destino. Roda na thread do shard do destino.
+     */
+    private CompletableFuture<Transacao> creditar(ShardMotor shardDestino, RegistroMotor debito) {
+        if (!logMotor.isAtivo()) {
+            // O débito também falhou e é desfeito na origem, ou já está no log e o crédito é completado na próxima partida
+            return CompletableFuture.failedFuture(new IllegalStateException("O log do motor está parado"));
+        }
+        ContaMotor destino = shardDestino.buscar(debito.getContraparte());
+        if (destino == null) {
+            // Só acontece se a conta foi apagada do banco depois da validação; o valor fica registrado no débito
+            log.error("Conta de destino {} da transferência {} não encontrada; crédito não aplicado",
+                    debito.getContraparte(), debito.getTransacaoId());
+            return CompletableFuture.failedFuture(new ContaNaoEncontradaException("Conta de destino não encontrada: "
+                    + debito.getContraparte()));
+        }
+        return gravar(shardDestino, destino, destino.creditarTransferencia(debito.getTransacaoId(), debito.getNumeroConta(),
+                debito.getValor(), debito.getInstante()));
+    }
+
+    /*
+     * Envia o registro ao log, na thread do shard que aplicou a operação. Se o registro não for gravado, a operação é
+     * desfeita na conta, na thread do shard.
+     *
+     * @return CompletableFuture<Transacao> - transação da operação, concluída depois do fsync
+     */
+    private CompletableFuture<Transacao> gravar(ShardMotor shard, ContaMotor conta, RegistroMotor registro) {
+        long versaoPosterior = conta.getVersao();
+        return logMotor.anexar(registro)
+                .whenComplete((gravado, erro) -> {
+                    if (erro != null) {
+                        desfazer(shard, conta, registro, versaoPosterior);
+                    }
+                })
+                .thenApply(gravado -> transacaoDe(registro, null));
+    }
+
+    /*
+     * Desfaz o registro na thread do shard da conta. Numa transferência entre shards cujo débito foi gravado e o
+     * crédito não, só o crédito é desfeito; ele é completado na próxima partida, como o de uma transferência interrompida.
+     */
+    private void desfazer(ShardMotor shard, ContaMotor conta, RegistroMotor registro, long versaoPosterior) {
+        try {
+            shard.executarSemEspera(() -> {
+                conta.desfazer(registro, versaoPosterior);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // Shard já encerrado: o motor está parando e as posições em memória são descartadas
+            log.debug("Registro {} da conta {} não desfeito: shard encerrado", registro.getTransacaoId(), registro.getNumeroConta());
+        }
+    }
+
+    private void verificarLogAtivo() {
+        if (!logMotor.isAtivo()) {
+            throw new IllegalStateException("O log do motor está parado; o motor não aceita operações");
+        }
+    }
+
+    private ContaMotor buscarConta(String numeroConta, String mensagemNaoEncontrada) {
+        ContaMotor conta = shard(numeroConta).buscar(numeroConta);
+        if (conta == null) {
+            throw new ContaNaoEncontradaException(mensagemNaoEncontrada + numeroConta);
+        }
+        return conta;
+    }
+
+    private Optional<ContaMotor> carregarConta(String numeroConta) {
+        Optional<ContaMotor> conta = contaCorrenteRepository.findById(numeroConta).map(ContaMotor::de);
+        conta.ifPresent(encontrada -> contasConhecidas.add(numeroConta));
+        return conta;
+    }
+
+    private ShardMotor shard(String numeroConta) {
+        if (!ativo && shards == null) {
+            throw new IllegalStateException("O motor em memória não está ligado");
+        }
+        return shards[Math.floorMod(numeroConta.hashCode(), shards.length)];
+    }
+
+    /*
+     * Espera o resultado da operação, relançando a exceção original (conta não encontrada, saldo insuficiente).
+     */
+    private static <T> T aguardar(CompletableFuture<T> operacao) {
+        try {
+            return operacao.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.RegistroAuditoriaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.PontoProjecao;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Projeção assíncrona do motor em memória nas tabelas do JPA.
+ * Recebe os registros depois do fsync do log e, a cada banco.motor.intervalo-projecao-ms, grava em uma transação:
+ * a posição final de cada conta alterada, a Transacao de cada operação (com o id gerado pelo motor) e o ponto de
+ * projeção com o último lsn do lote. A auditoria é enviada ao GravadorAuditoria, que a grava depois do commit.
+ * Se a gravação falhar o lote é tentado de novo no próximo intervalo; nada é descartado.
+ */
+final class ProjecaoMotor {
+
+    static final String ID_PONTO_PROJECAO = "motor";
+
+    private static final Logger log = LoggerFactory.getLogger(ProjecaoMotor.class);
+
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final AuditoriaService auditoriaService;
+    private final CacheContas cacheContas;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final LogMotor logMotor;
+    private final long intervaloMs;
+    private final int tamanhoLote;
+    private final BlockingQueue<RegistroMotor> fila = new LinkedBlockingQueue<>();
+
+    private final Object travaProgresso = new Object();
+    private long ultimoLsnProjetado;
+
+    private volatile boolean ativo;
+    private Thread thread;
+
+    ProjecaoMotor(ContaCorrenteRepository contaCorrenteRepository, AuditoriaService auditoriaService, CacheContas cacheContas,
+                  EntityManager entityManager, PlatformTransactionManager transactionManager, LogMotor logMotor,
+                  long intervaloMs, int tamanhoLote, long lsnProjetado) {
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.auditoriaService = auditoriaService;
+        this.cacheContas = cacheContas;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.logMotor = logMotor;
+        this.intervaloMs = intervaloMs;
+        this.tamanhoLote = tamanhoLote;
+        this.ultimoLsnProjetado = lsnProjetado;
+    }
+
+    void iniciar() {
+        ativo = true;
+        thread = new Thread(this::executar, "motor-projecao");
+        thread.start();
+    }
+
+    /*
+     * Recebe registros já gravados no log, em ordem de lsn.
+     */
+    void enfileirar(List<RegistroMotor> registros) {
+        fila.addAll(registros);
+    }
+
+    /*
+     * Espera a projeção de tudo o que já foi gravado no log até agora, antecipando a próxima projeção em vez de
+     * esperar o intervalo.
+     */
+    void aguardar() {
+        long alvo = logMotor.getUltimoLsnGravado();
+        synchronized (travaProgresso) {
+            while (ultimoLsnProjetado < alvo && thread != null && thread.isAlive()) {
+                travaProgresso.notifyAll();
+                try {
+                    travaProgresso.wait(intervaloMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * Projeta o que ainda estiver na fila e para a thread.
+     */
+    void encerrar() {
+        ativo = false;
+        synchronized (travaProgresso) {
+            travaProgresso.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.MINUTES.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!fila.isEmpty()) {
+            log.warn("{} registros do motor não foram projetados; serão reaplicados do log na próxima partida", fila.size());
+        }
+    }
+
+    private void executar() {
+        List<RegistroMotor> lote = new ArrayList<>(tamanhoLote);
+        while (ativo || !fila.isEmpty() || !lote.isEmpty()) {
+            if (ativo && lote.isEmpty() && fila.size() < tamanhoLote) {
+                esperar();
+            }
+            fila.drainTo(lote, tamanhoLote - lote.size());
+            if (lote.isEmpty()) {
+                continue;
+            }
+            try {
+                projetar(lote);
+                lote.clear();
+            } catch (RuntimeException e) {
+                log.error("Erro na projeção do motor; o lote de {} registros será tentado de novo", lote.size(), e);
+                if (!ativo) {
+                    return;
+                }
+                esperar();
+            }
+        }
+    }
+
+    private void esperar() {
+        synchronized (travaProgresso) {
+            try {
+                travaProgresso.wait(intervaloMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ativo = false;
+            }
+        }
+    }
+
+    private void projetar(List<RegistroMotor> lote) {
+        long lsn = lote.get(lote.size() - 1).getLsn();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Posição final de cada conta, em ordem de número, como os bloqueios do modo pessimista
+            Map<String, RegistroMotor> posicoes = new TreeMap<>();
+            lote.forEach(registro -> posicoes.put(registro.getNumeroConta(), registro));
+            for (RegistroMotor registro : posicoes.values()) {
+                if (contaCorrenteRepository.projetarPosicao(registro.getNumeroConta(), registro.getSaldoPosterior().toBigDecimal(),
+                        registro.getLimitePosterior().toBigDecimal()) == 0) {
+                    log.warn("Conta {} do motor não existe mais no banco; a posição não foi projetada", registro.getNumeroConta());
+                }
+                cacheContas.invalidar(registro.getNumeroConta());
+            }
+
+            // O crédito da transferência não tem Transacao própria, como no TransacaoService
+            for (RegistroMotor registro : lote) {
+                if (registro.getOperacao() == RegistroMotor.Operacao.CREDITO_TRANSFERENCIA) {
+                    continue;
+                }
+                entityManager.persist(MotorContas.transacaoDe(registro,
+                        entityManager.getReference(ContaCorrente.class, registro.getNumeroConta())));
+                auditoriaService.save(new RegistroAuditoriaDto(registro.getTransacaoId(), registro.getNumeroConta(),
+                        registro.getTipo(), registro.getValor(), registro.getTaxa(),
+                        registro.getSaldoAnterior(), registro.getSaldoPosterior(),
+                        registro.getLimiteAnterior(), registro.getLimitePosterior(),
+                        registro.getContraparte(), dataHora(registro)));
+            }
+
+            PontoProjecao ponto = entityManager.find(PontoProjecao.class, ID_PONTO_PROJECAO);
+            if (ponto == null) {
+                entityManager.persist(new PontoProjecao(ID_PONTO_PROJECAO, lsn));
+            } else {
+                ponto.setLsn(lsn);
+            }
+        });
+
+        logMotor.descartarAte(lsn);
+        synchronized (travaProgresso) {
+            ultimoLsnProjetado = lsn;
+            travaProgresso.notifyAll();
+        }
+    }
+
+    static LocalDateTime dataHora(RegistroMotor registro) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(registro.getInstante()), ZoneId.systemDefault());
+    }
+}
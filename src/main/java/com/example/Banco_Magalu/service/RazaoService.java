@@ -0,0 +1,241 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.Lancamento;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.LancamentoRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/*
+ * Livro-razão de partidas dobradas usado no modo LANCAMENTOS.
+ * As operações só gravam INSERTs: uma perna por conta envolvida, com as pernas de um movimento somando zero.
+ * O dinheiro que entra e sai do banco (depósitos e saques) tem como contrapartida a conta interna de caixa e as taxas
+ * vão para a conta interna de receita de tarifas. As contas internas não têm sequência nem totais acumulados, para que
+ * todas as operações não disputem a mesma linha; o saldo delas é a soma dos seus lançamentos.
+ * A posição das contas de clientes é lida pelo CacheContas. Os lançamentos são montados a partir de uma posição lida
+ * antes, com a sequência seguinte à dela, e gravados juntos por registrar(), onde aparece o conflito com outra operação
+ * que partiu da mesma posição.
+ */
+@Service
+public class RazaoService {
+
+    public static final String CONTA_CAIXA = "#CAIXA";
+    public static final String CONTA_RECEITA_TARIFAS = "#TARIFAS";
+
+    private static final Logger log = LoggerFactory.getLogger(RazaoService.class);
+
+    private static final String CHAVE_SEQUENCIA = "uk_lancamento_conta_sequencia";
+
+    private final LancamentoRepository lancamentoRepository;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final CacheContas cacheContas;
+    private final ExecutorLote executorLote;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacaoLeitura;
+
+    public RazaoService(LancamentoRepository lancamentoRepository, ContaCorrenteRepository contaCorrenteRepository,
+                        CacheContas cacheContas, ExecutorLote executorLote, EntityManager entityManager,
+                        PlatformTransactionManager transactionManager) {
+        this.lancamentoRepository = lancamentoRepository;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.cacheContas = cacheContas;
+        this.executorLote = executorLote;
+        this.entityManager = entityManager;
+        this.transacaoLeitura = new TransactionTemplate(transactionManager);
+        this.transacaoLeitura.setReadOnly(true);
+    }
+
+    /*
+     * Monta o débito na conta do cliente, ainda sem gravar. O valor sai do saldo e o que faltar sai do limite de crédito.
+     *
+     * @param posicao - posição da conta lida antes do débito
+     * @param valor - valor a ser debitado, já com as taxas
+     * @return Lancamento - débito com a posição seguinte, ou null se saldo + limite de crédito não cobre o valor
+     */
+    public Lancamento debito(CabecalhoContaDto posicao, Dinheiro valor) {
+        Dinheiro saldo = Dinheiro.de(posicao.getSaldo());
+        if (saldo.somar(Dinheiro.de(posicao.getLimiteCredito())).compareTo(valor) < 0) {
+            return null;
+        }
+        Dinheiro debitoDoLimite = valor.subtrair(saldo.min(valor));
+        return lancamento(posicao, valor.negar(), debitoDoLimite.negar());
+    }
+
+    /*
+     * Monta o crédito na conta do cliente, ainda sem gravar.
+     *
+     * @param posicao - posição da conta lida antes do crédito
+     * @param valor - valor creditado
+     * @param valorParaLimite - parte do valor restituída ao limite de crédito; o restante vai para o saldo
+     * @return Lancamento - crédito com a posição seguinte
+     */
+    public Lancamento credito(CabecalhoContaDto posicao, Dinheiro valor, Dinheiro valorParaLimite) {
+        return lancamento(posicao, valor, valorParaLimite);
+    }
+
+    /*
+     * Monta a contrapartida em uma conta interna (CONTA_CAIXA ou CONTA_RECEITA_TARIFAS), ainda sem gravar.
+     *
+     * @param contaInterna - conta interna
+     * @param valor - valor com sinal: positivo no crédito, negativo no débito
+     * @return Lancamento - contrapartida, sem sequência nem totais acumulados
+     */
+    public Lancamento contrapartida(String contaInterna, Dinheiro valor) {
+        return new Lancamento(contaInterna, null, valor, Dinheiro.ZERO, null, null, LocalDateTime.now());
+    }
+
+    /*
+     * Grava as pernas de um movimento e as envia ao banco. Contrapartidas zeradas não são gravadas.
+     * Se outra operação já gravou a mesma sequência em uma das contas, a posição lida estava desatualizada e o movimento
+     * é recusado com OptimisticLockingFailureException, para ser refeito pelo RetentativaTransacaoAspect.
+     *
+     * @param movimento - id do movimento, o mesmo em todas as pernas
+     * @param lancamentos - pernas do movimento, que devem somar zero
+     */
+    public void registrar(UUID movimento, List<Lancamento> lancamentos) {
+        Dinheiro soma = lancamentos.stream().map(Lancamento::getValor).reduce(Dinheiro.ZERO, Dinheiro::somar);
+        if (soma.sinal() != 0) {
+            throw new IllegalStateException("As pernas do movimento " + movimento + " somam " + soma + " em vez de zero");
+        }
+
+        // Insere as pernas das contas de clientes em ordem de número, como os bloqueios do modo pessimista: duas operações
+        // concorrentes sobre as mesmas contas esperam uma pela outra na chave única em vez de entrar em deadlock
+        List<Lancamento> ordenados = lancamentos.stream()
+                .sorted(Comparator.comparing((Lancamento lancamento) -> lancamento.getSequencia() == null)
+                        .thenComparing(Lancamento::getNumeroConta))
+                .toList();
+        for (Lancamento lancamento : ordenados) {
+            if (lancamento.getSequencia() == null && lancamento.getValor().sinal() == 0) {
+                continue;
+            }
+            lancamento.setMovimento(movimento);
+            lancamentoRepository.save(lancamento);
+            if (lancamento.getSequencia() != null) {
+                cacheContas.invalidar(lancamento.getNumeroConta());
+            }
+        }
+
+        try {
+            lancamentoRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (isConflitoDeSequencia(e)) {
+                throw new OptimisticLockingFailureException("Outra operação lançou na conta a partir da mesma posição", e);
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * Posição da conta depois do lançamento.
+     *
+     * @param anterior - posição da conta lida antes do lançamento
+     * @param lancamento - lançamento montado a partir dessa posição
+     * @return CabecalhoContaDto - posição com o saldo e o limite acumulados no lançamento
+     */
+    public static CabecalhoContaDto posicaoApos(CabecalhoContaDto anterior, Lancamento lancamento) {
+        return new CabecalhoContaDto(anterior.getNumero(), lancamento.getSaldo().toBigDecimal(),
+                lancamento.getLimiteCredito().toBigDecimal(), anterior.getLimiteMaximo(), anterior.getDataDeCriacao(),
+                lancamento.getSequencia());
+    }
+
+    /*
+     * Recalcula a posição das contas somando os lançamentos à posição de abertura, uma conta por tarefa no executor do
+     * lote, cada uma na sua transação de leitura. Também confere o saldo e o limite acumulados em cada lançamento e
+     * registra no log o primeiro que divergir da soma.
+     *
+     * @param numeros - números das contas de clientes
+     * @return Map<String, CabecalhoContaDto> - posição recalculada por conta; contas inexistentes não aparecem
+     */
+    public Map<String, CabecalhoContaDto> recalcularPosicoes(Collection<String> numeros) {
+        Map<String, CabecalhoContaDto> posicoes = new ConcurrentHashMap<>();
+        CompletableFuture.allOf(numeros.stream()
+                .distinct()
+                .map(numero -> executorLote.executar(() -> recalcularPosicao(numero).ifPresent(posicao -> posicoes.put(numero, posicao))))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        return posicoes;
+    }
+
+    /*
+     * Saldo de uma conta interna: soma de todos os seus lançamentos.
+     *
+     * @param conta - conta interna
+     * @return Dinheiro - saldo da conta; negativo no caixa quando entrou mais dinheiro do que saiu
+     */
+    public Dinheiro calcularSaldoContaInterna(String conta) {
+        return transacaoLeitura.execute(status -> {
+            Dinheiro saldo = Dinheiro.ZERO;
+            try (Stream<Lancamento> lancamentos = lancamentoRepository.percorrerPorConta(conta)) {
+                for (Iterator<Lancamento> iterator = lancamentos.iterator(); iterator.hasNext(); ) {
+                    Lancamento lancamento = iterator.next();
+                    saldo = saldo.somar(lancamento.getValor());
+                    entityManager.detach(lancamento);
+                }
+            }
+            return saldo;
+        });
+    }
+
+    private static Lancamento lancamento(CabecalhoContaDto posicao, Dinheiro valor, Dinheiro parcelaLimite) {
+        Dinheiro saldo = Dinheiro.de(posicao.getSaldo()).somar(valor.subtrair(parcelaLimite));
+        Dinheiro limiteCredito = Dinheiro.de(posicao.getLimiteCredito()).somar(parcelaLimite);
+        return new Lancamento(posicao.getNumero(), posicao.getVersao() + 1, valor, parcelaLimite, saldo, limiteCredito,
+                LocalDateTime.now());
+    }
+
+    private Optional<CabecalhoContaDto> recalcularPosicao(String numero) {
+        return transacaoLeitura.execute(status -> contaCorrenteRepository.findById(numero).map(conta -> {
+            Dinheiro saldo = Dinheiro.de(conta.getSaldo());
+            Dinheiro limiteCredito = Dinheiro.de(conta.getLimiteCredito());
+            long versao = conta.getVersao();
+            boolean divergente = false;
+            try (Stream<Lancamento> lancamentos = lancamentoRepository.percorrerPorConta(numero)) {
+                for (Iterator<Lancamento> iterator = lancamentos.iterator(); iterator.hasNext(); ) {
+                    Lancamento lancamento = iterator.next();
+                    saldo = saldo.somar(lancamento.getValor().subtrair(lancamento.getParcelaLimite()));
+                    limiteCredito = limiteCredito.somar(lancamento.getParcelaLimite());
+                    versao = lancamento.getSequencia();
+                    if (!divergente && (!saldo.equals(lancamento.getSaldo()) || !limiteCredito.equals(lancamento.getLimiteCredito()))) {
+                        divergente = true;
+                        log.warn("Lançamento {} da conta {} (sequência {}) diverge da soma dos lançamentos: saldo {} e limite {}, calculados {} e {}",
+                                lancamento.getId(), numero, versao, lancamento.getSaldo(), lancamento.getLimiteCredito(), saldo, limiteCredito);
+                    }
+                    // A conta pode ter muitos lançamentos; o contexto de persistência não precisa guardá-los
+                    entityManager.detach(lancamento);
+                }
+            }
+            return new CabecalhoContaDto(numero, saldo.toBigDecimal(), limiteCredito.toBigDecimal(), conta.getLimiteMaximo(),
+                    conta.getDataDeCriacao(), versao);
+        }));
+    }
+
+    private static boolean isConflitoDeSequencia(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa.getMessage() != null && causa.getMessage().toLowerCase(Locale.ROOT).contains(CHAVE_SEQUENCIA)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+
+import java.util.UUID;
+
+/*
+ * Registro do log do motor em memória: uma alteração aplicada a uma conta, com a posição antes e depois dela.
+ * A transferência gera dois registros com o mesmo id de transação, o débito na origem e o crédito no destino, porque
+ * as contas podem estar em shards diferentes. Na recuperação a conta recebe a posição posterior do registro, o que
+ * torna a reaplicação idempotente.
+ */
+final class RegistroMotor {
+
+    enum Operacao {
+        DEPOSITO, SAQUE, DEBITO_TRANSFERENCIA, CREDITO_TRANSFERENCIA
+    }
+
+    // Número de sequência no log, atribuído pelo LogMotor na gravação
+    private long lsn;
+    private final UUID transacaoId;
+    private final Operacao operacao;
+    private final String numeroConta;
+    // Destino no débito da transferência, origem no crédito
+    private final String contraparte;
+    private final Dinheiro valor;
+    private final Dinheiro taxa;
+    private final Dinheiro saldoAnterior;
+    private final Dinheiro saldoPosterior;
+    private final Dinheiro limiteAnterior;
+    private final Dinheiro limitePosterior;
+    // Epoch em milissegundos
+    private final long instante;
+
+    RegistroMotor(long lsn, UUID transacaoId, Operacao operacao, String numeroConta, String contraparte,
+                  Dinheiro valor, Dinheiro taxa, Dinheiro saldoAnterior, Dinheiro saldoPosterior,
+                  Dinheiro limiteAnterior, Dinheiro limitePosterior, long instante) {
+        this.lsn = lsn;
+        this.transacaoId = transacaoId;
+        this.operacao = operacao;
+        this.numeroConta = numeroConta;
+        this.contraparte = contraparte;
+        this.valor = valor;
+        this.taxa = taxa;
+        this.saldoAnterior = saldoAnterior;
+        this.saldoPosterior = saldoPosterior;
+        this.limiteAnterior = limiteAnterior;
+        this.limitePosterior = limitePosterior;
+        this.instante = instante;
+    }
+
+    TipoTransacao getTipo() {
+        return switch (operacao) {
+            case DEPOSITO -> TipoTransacao.DEPOSITO;
+            case SAQUE -> TipoTransacao.SAQUE;
+            case DEBITO_TRANSFERENCIA, CREDITO_TRANSFERENCIA -> TipoTransacao.TRANSFERENCIA;
+        };
+    }
+
+    long getLsn() {
+        return lsn;
+    }
+
+    void setLsn(long lsn) {
+        this.lsn = lsn;
+    }
+
+    UUID getTransacaoId() {
+        return transacaoId;
+    }
+
+    Operacao getOperacao() {
+        return operacao;
+    }
+
+    String getNumeroConta() {
+        return numeroConta;
+    }
+
+    String getContraparte() {
+        return contraparte;
+    }
+
+    Dinheiro getValor() {
+        return valor;
+    }
+
+    Dinheiro getTaxa() {
+        return taxa;
+    }
+
+    Dinheiro getSaldoAnterior() {
+        return saldoAnterior;
+    }
+
+    Dinheiro getSaldoPosterior() {
+        return saldoPosterior;
+    }
+
+    Dinheiro getLimiteAnterior() {
+        return limiteAnterior;
+    }
+
+    Dinheiro getLimitePosterior() {
+        return limitePosterior;
+    }
+
+    long getInstante() {
+        return instante;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.Banco_Magalu.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * Shard do motor em memória: as contas cujo número cai nele e a única thread que as altera.
+ * As operações são executadas uma de cada vez, na ordem de chegada, sem bloqueios. A fila é limitada por um semáforo,
+ * como no ExecutorLote: com ela cheia, quem envia a operação espera. As mensagens trocadas entre shards (o crédito de
+ * uma transferência) não passam pelo limite, para que uma thread de shard nunca espere por outra.
+ */
+final class ShardMotor {
+
+    private final Map<String, ContaMotor> contas = new HashMap<>();
+    private final Function<String, Optional<ContaMotor>> carregador;
+    private final ExecutorService executor;
+    private final Semaphore vagas;
+
+    /*
+     * @param indice - índice do shard, usado no nome da thread
+     * @param capacidadeFila - operações aguardando na fila
+     * @param carregador - busca no banco uma conta criada depois da partida do motor
+     */
+    ShardMotor(int indice, int capacidadeFila, Function<String, Optional<ContaMotor>> carregador) {
+        this.carregador = carregador;
+        this.vagas = new Semaphore(capacidadeFila);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                tarefa -> new Thread(tarefa, "motor-shard-" + indice));
+    }
+
+    /*
+     * Executa a tarefa na thread do shard, esperando por espaço na fila se necessário.
+     */
+    <T> CompletableFuture<T> executar(Supplier<T> tarefa) {
+        try {
+            vagas.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envio da operação ao motor interrompido", e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(tarefa, executor).whenComplete((resultado, erro) -> vagas.release());
+        } catch (RuntimeException e) {
+            vagas.release();
+            throw e;
+        }
+    }
+
+    /*
+     * Executa a tarefa na thread do shard sem passar pelo limite da fila. Usado por outro shard.
+     */
+    <T> CompletableFuture<T> executarSemEspera(Supplier<T> tarefa) {
+        return CompletableFuture.supplyAsync(tarefa, executor);
+    }
+
+    /*
+     * Busca a conta, carregando do banco as que ainda não estão no shard. Só pode ser chamado na thread do shard ou,
+     * na partida, antes de ele receber operações.
+     *
+     * @return ContaMotor - a conta, ou null se ela não existe
+     */
+    ContaMotor buscar(String numero) {
+        ContaMotor conta = contas.get(numero);
+        if (conta == null) {
+            conta = carregador.apply(numero).orElse(null);
+            if (conta != null) {
+                contas.put(numero, conta);
+            }
+        }
+        return conta;
+    }
+
+    /*
+     * Termina as operações já enviadas e para a thread.
+     */
+    void encerrar() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
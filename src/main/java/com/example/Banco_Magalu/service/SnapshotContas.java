@@ -0,0 +1,425 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.config.SnapshotProperties;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.dto.DivergenciaSnapshotDto;
+import com.example.Banco_Magalu.dto.VerificacaoSnapshotDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/*
+ * Snapshots binários periódicos das posições das contas (saldo, limites e versão), em banco.snapshot.diretorio.
+ * O primeiro snapshot é uma base com todas as contas; os seguintes são incrementos só com as contas marcadas em
+ * ContasAlteradas desde o anterior. A cada banco.snapshot.incrementos-por-base incrementos uma nova base é gravada a
+ * partir da posição já mantida em memória, sem reler o banco, e os arquivos da base anterior são apagados.
+ * Na partida o último snapshot válido é mapeado em memória e, se ele foi gravado no desligamento (nenhuma alteração
+ * depois dele), aquece o cache de contas antes do servidor web receber requisições. Depois de uma queda as contas
+ * alteradas após o último snapshot são desconhecidas: o cache não é aquecido e o primeiro snapshot é uma base nova.
+ */
+@Service
+public class SnapshotContas implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotContas.class);
+
+    private static final int TAMANHO_PAGINA = 1000;
+
+    private final SnapshotProperties properties;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final CacheContas cacheContas;
+    private final ContasAlteradas contasAlteradas;
+    private final ContasQuentes contasQuentes;
+    private final Path diretorio;
+
+    private final Object travaGravacao = new Object();
+    private final Object travaIntervalo = new Object();
+    // Posição de todas as contas no último snapshot gravado; só acessada com travaGravacao
+    private Map<String, CabecalhoContaDto> posicoes = new HashMap<>();
+    private long sequencia;
+    private long base;
+    private boolean precisaBase = true;
+
+    private volatile boolean ativo;
+    private Thread thread;
+
+    public SnapshotContas(SnapshotProperties properties, ContaCorrenteRepository contaCorrenteRepository,
+                          ConcorrenciaProperties concorrenciaProperties, CacheContas cacheContas,
+                          ContasAlteradas contasAlteradas, ContasQuentes contasQuentes) {
+        this.properties = properties;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.cacheContas = cacheContas;
+        this.contasAlteradas = contasAlteradas;
+        this.contasQuentes = contasQuentes;
+        this.diretorio = Path.of(properties.getDiretorio());
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isHabilitado()) {
+            return;
+        }
+        contasAlteradas.ativar();
+        synchronized (travaGravacao) {
+            boolean encerramentoLimpo = carregar();
+            if (encerramentoLimpo && properties.isAquecerCache()) {
+                long inicio = System.nanoTime();
+                int aquecidas = cacheContas.aquecer(posicoes.values());
+                log.info("Cache de contas aquecido com {} contas do snapshot {} em {} ms", aquecidas, sequencia,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            }
+        }
+        ativo = true;
+        thread = new Thread(this::executar, "snapshot-contas");
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!ativo) {
+            return;
+        }
+        ativo = false;
+        synchronized (travaIntervalo) {
+            travaIntervalo.notifyAll();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            gravar(true);
+        } catch (RuntimeException e) {
+            log.error("Erro ao gravar o snapshot de encerramento; na próxima partida o cache não será aquecido", e);
+        }
+        contasAlteradas.desativar();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    // Parte antes do servidor web, para aquecer o cache, e para depois do motor, cuja projeção ainda altera contas
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    /*
+     * Grava agora um snapshot: incremento com as contas alteradas desde o anterior ou, se for a vez, uma base.
+     *
+     * @return int - quantidade de contas gravadas no arquivo
+     */
+    public int gravarAgora() {
+        if (!ativo) {
+            throw new IllegalStateException("Os snapshots de contas estão desligados");
+        }
+        return gravar(false);
+    }
+
+    /*
+     * Compara o último snapshot válido em disco com as contas no banco.
+     * Uma conta com versão no banco maior que a do snapshot foi alterada depois dele (DESATUALIZADA); com a mesma
+     * versão e valores diferentes, o snapshot ou o banco foram alterados por fora (DIVERGENTE).
+     *
+     * @return VerificacaoSnapshotDto - resumo e divergências encontradas
+     */
+    public VerificacaoSnapshotDto verificar() {
+        Cadeia cadeia = lerCadeia(false);
+        if (cadeia == null) {
+            throw new IllegalStateException("Nenhum snapshot válido em " + diretorio);
+        }
+        Map<String, CabecalhoContaDto> noSnapshot = new HashMap<>(cadeia.posicoes);
+        List<DivergenciaSnapshotDto> divergencias = new ArrayList<>();
+        long[] contasNoBanco = {0};
+        percorrerBanco(doBanco -> {
+            contasNoBanco[0]++;
+            CabecalhoContaDto doSnapshot = noSnapshot.remove(doBanco.getNumero());
+            String motivo = comparar(doSnapshot, doBanco);
+            if (motivo != null) {
+                divergencias.add(DivergenciaSnapshotDto.de(doBanco.getNumero(), motivo, doSnapshot, doBanco));
+            }
+        });
+        noSnapshot.values().forEach(doSnapshot ->
+                divergencias.add(DivergenciaSnapshotDto.de(doSnapshot.getNumero(), DivergenciaSnapshotDto.AUSENTE_NO_BANCO,
+                        doSnapshot, null)));
+        divergencias.sort(Comparator.comparing(DivergenciaSnapshotDto::getNumero));
+        return new VerificacaoSnapshotDto(cadeia.ultimaSequencia, cadeia.posicoes.size(), contasNoBanco[0], divergencias);
+    }
+
+    private static String comparar(CabecalhoContaDto doSnapshot, CabecalhoContaDto doBanco) {
+        if (doSnapshot == null) {
+            return DivergenciaSnapshotDto.AUSENTE_NO_SNAPSHOT;
+        }
+        boolean iguais = mesmoValor(doSnapshot.getSaldo(), doBanco.getSaldo())
+                && mesmoValor(doSnapshot.getLimiteCredito(), doBanco.getLimiteCredito())
+                && mesmoValor(doSnapshot.getLimiteMaximo(), doBanco.getLimiteMaximo())
+                && Objects.equals(doSnapshot.getDataDeCriacao(), doBanco.getDataDeCriacao());
+        if (iguais && doSnapshot.getVersao() == doBanco.getVersao()) {
+            return null;
+        }
+        return doBanco.getVersao() > doSnapshot.getVersao()
+                ? DivergenciaSnapshotDto.DESATUALIZADA
+                : DivergenciaSnapshotDto.DIVERGENTE;
+    }
+
+    private static boolean mesmoValor(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private void executar() {
+        while (ativo) {
+            synchronized (travaIntervalo) {
+                try {
+                    travaIntervalo.wait(properties.getIntervaloMs());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (!ativo) {
+                return;
+            }
+            try {
+                gravar(false);
+            } catch (RuntimeException e) {
+                log.error("Erro ao gravar o snapshot de contas; será tentado de novo no próximo intervalo", e);
+            }
+        }
+    }
+
+    /*
+     * Grava o próximo snapshot. As contas retiradas de ContasAlteradas voltam a ser marcadas se a gravação falhar.
+     */
+    private int gravar(boolean encerramento) {
+        synchronized (travaGravacao) {
+            Set<String> alteradas = contasAlteradas.drenar();
+            try {
+                if (precisaBase) {
+                    Map<String, CabecalhoContaDto> todas = new LinkedHashMap<>();
+                    percorrerBanco(cabecalho -> todas.put(cabecalho.getNumero(), cabecalho));
+                    gravarBase(todas, encerramento);
+                    return todas.size();
+                }
+                Map<String, CabecalhoContaDto> incremento = lerPosicoes(alteradas);
+                if (sequencia - base >= properties.getIncrementosPorBase()) {
+                    Map<String, CabecalhoContaDto> todas = new LinkedHashMap<>(posicoes);
+                    aplicar(todas, incremento);
+                    gravarBase(todas, encerramento);
+                    return todas.size();
+                }
+                if (incremento.isEmpty() && !encerramento) {
+                    return 0;
+                }
+                ArquivoSnapshot.gravar(diretorio, sequencia + 1, base, encerramento, incremento);
+                forcarDiretorio();
+                sequencia++;
+                aplicar(posicoes, incremento);
+                return incremento.size();
+            } catch (IOException e) {
+                alteradas.forEach(contasAlteradas::marcar);
+                throw new UncheckedIOException("Erro ao gravar o snapshot em " + diretorio, e);
+            } catch (RuntimeException e) {
+                alteradas.forEach(contasAlteradas::marcar);
+                throw e;
+            }
+        }
+    }
+
+    private void gravarBase(Map<String, CabecalhoContaDto> todas, boolean encerramento) throws IOException {
+        long nova = sequencia + 1;
+        ArquivoSnapshot.gravar(diretorio, nova, nova, encerramento, todas);
+        forcarDiretorio();
+        posicoes = new HashMap<>(todas);
+        sequencia = nova;
+        base = nova;
+        precisaBase = false;
+        // A cadeia anterior só é apagada depois que a nova base está no disco
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            for (Path arquivo : arquivos.toList()) {
+                long anterior = ArquivoSnapshot.sequencia(arquivo);
+                if (anterior >= 0 && anterior < nova) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        }
+        log.info("Base de snapshot {} gravada com {} contas", nova, todas.size());
+    }
+
+    private static void aplicar(Map<String, CabecalhoContaDto> destino, Map<String, CabecalhoContaDto> incremento) {
+        incremento.forEach((numero, cabecalho) -> {
+            if (cabecalho == null) {
+                destino.remove(numero);
+            } else {
+                destino.put(numero, cabecalho);
+            }
+        });
+    }
+
+    /*
+     * Carrega a última cadeia válida (base e incrementos seguintes) para a memória.
+     *
+     * @return boolean - true se o último arquivo da cadeia foi gravado no desligamento e nada foi gravado depois dele
+     */
+    private boolean carregar() {
+        long inicio = System.nanoTime();
+        Cadeia cadeia = lerCadeia(true);
+        if (cadeia == null) {
+            log.info("Nenhum snapshot de contas em {}; a primeira base será gravada no próximo intervalo", diretorio);
+            return false;
+        }
+        posicoes = cadeia.posicoes;
+        sequencia = cadeia.ultimaSequencia;
+        base = cadeia.sequencia;
+        precisaBase = !cadeia.encerramentoLimpo;
+        log.info("Snapshot {} ({} contas) carregado em {} ms{}", cadeia.ultimaSequencia, posicoes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                cadeia.encerramentoLimpo ? "" : "; o desligamento anterior não gravou o snapshot final");
+        return cadeia.encerramentoLimpo;
+    }
+
+    /*
+     * Lê do disco a base válida mais recente e os incrementos contíguos a ela. A leitura para no primeiro incremento
+     * inválido; os seguintes são ignorados.
+     *
+     * @param limparTemporarios - apaga os .tmp deixados por uma gravação interrompida; só na partida
+     * @return Cadeia - posições resultantes, ou null se não há base válida
+     */
+    private Cadeia lerCadeia(boolean limparTemporarios) {
+        TreeMap<Long, Path> arquivos = new TreeMap<>();
+        try {
+            Files.createDirectories(diretorio);
+            try (Stream<Path> listagem = Files.list(diretorio)) {
+                for (Path arquivo : listagem.toList()) {
+                    if (limparTemporarios && arquivo.getFileName().toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(arquivo);
+                    } else if (ArquivoSnapshot.sequencia(arquivo) >= 0) {
+                        arquivos.put(ArquivoSnapshot.sequencia(arquivo), arquivo);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar os snapshots em " + diretorio, e);
+        }
+
+        for (Long candidata : arquivos.descendingKeySet()) {
+            ArquivoSnapshot arquivoBase = lerOuNull(arquivos.get(candidata));
+            if (arquivoBase == null || !arquivoBase.isBase()) {
+                continue;
+            }
+            Map<String, CabecalhoContaDto> resultado = new HashMap<>(arquivoBase.getPosicoes());
+            ArquivoSnapshot ultimo = arquivoBase;
+            for (Map.Entry<Long, Path> seguinte : arquivos.tailMap(candidata, false).entrySet()) {
+                ArquivoSnapshot incremento = seguinte.getKey() == ultimo.getSequencia() + 1 ? lerOuNull(seguinte.getValue()) : null;
+                if (incremento == null || incremento.getBase() != candidata) {
+                    break;
+                }
+                aplicar(resultado, incremento.getPosicoes());
+                ultimo = incremento;
+            }
+            boolean encerramentoLimpo = ultimo.isEncerramento() && ultimo.getSequencia() == arquivos.lastKey();
+            return new Cadeia(candidata, ultimo.getSequencia(), resultado, encerramentoLimpo);
+        }
+        return null;
+    }
+
+    private ArquivoSnapshot lerOuNull(Path arquivo) {
+        try {
+            return ArquivoSnapshot.ler(arquivo);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Snapshot {} ignorado: {}", arquivo, e.getMessage());
+            return null;
+        }
+    }
+
+    /*
+     * Posições atuais das contas no banco; as que não existem mais ficam com null, marcando a remoção.
+     */
+    private Map<String, CabecalhoContaDto> lerPosicoes(Set<String> numeros) {
+        Map<String, CabecalhoContaDto> lidas = new TreeMap<>();
+        if (concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS) {
+            numeros.forEach(numero -> lidas.put(numero, cacheContas.lerDoBanco(numero).orElse(null)));
+            return lidas;
+        }
+        numeros.forEach(numero -> lidas.put(numero, null));
+        List<String> pendentes = new ArrayList<>(numeros);
+        for (int i = 0; i < pendentes.size(); i += TAMANHO_PAGINA) {
+            contaCorrenteRepository.findAllById(pendentes.subList(i, Math.min(i + TAMANHO_PAGINA, pendentes.size())))
+                    .forEach(conta -> lidas.put(conta.getNumero(), contasQuentes.somarPartes(CabecalhoContaDto.de(conta))));
+        }
+        return lidas;
+    }
+
+    /*
+     * Percorre todas as contas do banco em páginas, sem manter as entidades em memória.
+     */
+    private void percorrerBanco(Consumer<CabecalhoContaDto> consumidor) {
+        boolean lancamentos = concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS;
+        Page<ContaCorrente> pagina;
+        int numeroPagina = 0;
+        do {
+            pagina = contaCorrenteRepository.findAll(PageRequest.of(numeroPagina++, TAMANHO_PAGINA, Sort.by("numero")));
+            for (ContaCorrente conta : pagina) {
+                consumidor.accept(lancamentos
+                        ? cacheContas.lerDoBanco(conta.getNumero()).orElseGet(() -> CabecalhoContaDto.de(conta))
+                        : contasQuentes.somarPartes(CabecalhoContaDto.de(conta)));
+            }
+        } while (pagina.hasNext());
+    }
+
+    // O arquivo renomeado só sobrevive a uma queda depois do fsync do diretório
+    private void forcarDiretorio() {
+        try (FileChannel canal = FileChannel.open(diretorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            log.debug("Fsync do diretório {} não suportado", diretorio, e);
+        }
+    }
+
+    private static final class Cadeia {
+
+        private final long sequencia;
+        private final long ultimaSequencia;
+        private final Map<String, CabecalhoContaDto> posicoes;
+        private final boolean encerramentoLimpo;
+
+        private Cadeia(long sequencia, long ultimaSequencia, Map<String, CabecalhoContaDto> posicoes,
+                       boolean encerramentoLimpo) {
+            this.sequencia = sequencia;
+            this.ultimaSequencia = ultimaSequencia;
+            this.posicoes = posicoes;
+            this.encerramentoLimpo = encerramentoLimpo;
+        }
+    }
+}
@@ -1,147 +1,211 @@
 package com.example.Banco_Magalu.service;
 
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.LoteProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.config.OrcamentoComandosSql;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.dto.DepositoDto;
+import com.example.Banco_Magalu.dto.RegistroAuditoriaDto;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
 import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.Lancamento;
 import com.example.Banco_Magalu.entity.TipoTransacao;
 import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.entity.UuidV7Generator;
 import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
 import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
 import com.example.Banco_Magalu.repository.TransacaoRepository;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TransacaoService {
 
+    // Taxas em pontos-base (1% = 100), arredondadas ao centavo pelas regras do Dinheiro
+    private static final long TAXA_SAQUE = 100;
+    private static final long TAXA_TRANSFERENCIA = 100;
+    private static final long TAXA_TRANSFERENCIA_COM_LIMITE = 200;
+
     private final TransacaoRepository transacaoRepository;
     private final ContaCorrenteService contaCorrenteService;
     private final AuditoriaService auditoriaService;
-
-    public TransacaoService(TransacaoRepository transacaoRepository, ContaCorrenteService contaCorrenteService, AuditoriaService auditoriaService) {
+    private final ConcorrenciaProperties concorrenciaProperties;
+    private final LoteProperties loteProperties;
+    private final RazaoService razaoService;
+    private final EntityManager entityManager;
+
+    public TransacaoService(TransacaoRepository transacaoRepository, ContaCorrenteService contaCorrenteService, AuditoriaService auditoriaService,
+                            ConcorrenciaProperties concorrenciaProperties, LoteProperties loteProperties, RazaoService razaoService,
+                            EntityManager entityManager) {
         this.transacaoRepository = transacaoRepository;
         this.contaCorrenteService = contaCorrenteService;
         this.auditoriaService = auditoriaService;
+        this.concorrenciaProperties = concorrenciaProperties;
+        this.loteProperties = loteProperties;
+        this.razaoService = razaoService;
+        this.entityManager = entityManager;
     }
-    DecimalFormat df = new DecimalFormat("0.00");
 
     /**
      * Realiza um depósito na conta.
+     * Parte do valor restitui o limite de crédito até o limite máximo e o restante vai para o saldo,
+     * aplicados em um único UPDATE. No modo LANCAMENTOS o depósito é um crédito na conta contra o caixa.
      * @param numeroConta Número da conta.
      * @param valor Valor do depósito.
      * @return A transação realizada.
      */
+    @OrcamentoComandosSql(4)
     @Transactional
     public Transacao realizarDeposito(String numeroConta, BigDecimal valor) {
 
-        ContaCorrente conta = contaCorrenteService.buscarConta(numeroConta)
-                .orElseThrow(() -> new ContaNaoEncontradaException("Conta não encontrada: " + numeroConta));
+        bloquearContasSeNecessario(numeroConta);
+
+        CabecalhoContaDto cabecalho = buscarCabecalho(numeroConta, "Conta não encontrada: ");
 
         if (valor == null ||valor.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("O valor do depósito não pode ser nulo ou negativo");
         }
 
-        BigDecimal limiteMaximo = conta.getLimiteMaximo();
-        BigDecimal limiteCreditoAtual = conta.getLimiteCredito();
-        BigDecimal saldoAtual = conta.getSaldo();
-
-        BigDecimal limiteDisponivel = limiteMaximo.subtract(limiteCreditoAtual);
-
-        BigDecimal valorParaLimite = BigDecimal.ZERO;
-        BigDecimal valorParaSaldo = valor;
-
-        if (limiteDisponivel.compareTo(BigDecimal.ZERO) > 0) {
-            valorParaLimite = valor.min(limiteDisponivel);
-            valorParaSaldo = valor.subtract(valorParaLimite);
-
-            conta.setLimiteCredito(limiteCreditoAtual.add(valorParaLimite));
-            contaCorrenteService.atualizarLimite(conta.getNumero(), conta.getLimiteCredito());
+        if (isModoLancamentos()) {
+            return depositarComLancamentos(cabecalho, valor);
         }
 
-        if (valorParaSaldo.compareTo(BigDecimal.ZERO) > 0) {
-            conta.setSaldo(saldoAtual.add(valorParaSaldo));
-            contaCorrenteService.atualizarSaldo(conta.getNumero(), conta.getSaldo());
-        }
+        Dinheiro valorParaLimite = creditarDeposito(cabecalho, Dinheiro.de(valor));
 
+        ContaCorrente conta = buscarConta(numeroConta, "Conta não encontrada: ");
+        Dinheiro saldo = Dinheiro.de(contaCorrenteService.montarCabecalho(conta).getSaldo());
+        Dinheiro limiteCredito = Dinheiro.de(conta.getLimiteCredito());
 
-        Transacao transacao = new Transacao();
-        transacao.setTipo(TipoTransacao.DEPOSITO);
-        transacao.setValor(valor);
-        transacao.setData(java.time.LocalDate.now());
-        transacao.setDescricao("Depósito na conta " + numeroConta + " na data de " + java.time.LocalDate.now() +
-                ", Restituição de limite de crédito: R$ " + df.format(valorParaLimite) +
-                ", Saldo atual: R$ " + df.format(conta.getSaldo()) +
-                ". Limite disponível: R$ " + df.format(conta.getLimiteCredito()));
-        transacao.setContaCorrente(conta);
-        transacaoRepository.save(transacao);
+        return registrarDeposito(conta, valor, valorParaLimite, saldo, limiteCredito);
+    }
 
+    /**
+     * Realiza um grupo de depósitos, de uma ou várias contas, em uma única transação.
+     * Os depósitos de cada conta são somados e aplicados em um único UPDATE, com a mesma restituição de limite que
+     * teriam um a um, na ordem do grupo; cada depósito ainda gera a sua Transacao e auditoria, com o saldo e o limite
+     * da conta logo depois dele. As contas são atualizadas em ordem de número. No modo LANCAMENTOS cada depósito é
+     * lançado separadamente, mas todos na mesma transação.
+     * Usado pelo AgrupadorDepositos, que junta os depósitos que chegam ao mesmo tempo para dividir um único commit.
+     *
+     * @param depositos Depósitos na ordem de chegada, com valores já validados.
+     * @return As transações, na ordem dos depósitos; null nas posições dos depósitos em contas que não existem.
+     */
+    @Transactional
+    public List<Transacao> realizarDepositosAgrupados(List<DepositoDto> depositos) {
+        Map<String, List<Integer>> depositosPorConta = new TreeMap<>();
+        for (int i = 0; i < depositos.size(); i++) {
+            depositosPorConta.computeIfAbsent(depositos.get(i).getNumeroConta(), numero -> new ArrayList<>()).add(i);
+        }
+        bloquearContasSeNecessario(depositosPorConta.keySet().toArray(String[]::new));
+
+        Transacao[] transacoes = new Transacao[depositos.size()];
+        for (Map.Entry<String, List<Integer>> depositosDaConta : depositosPorConta.entrySet()) {
+            String numeroConta = depositosDaConta.getKey();
+            List<Integer> indices = depositosDaConta.getValue();
+            CabecalhoContaDto cabecalho;
+            try {
+                cabecalho = buscarCabecalho(numeroConta, "Conta não encontrada: ");
+            } catch (ContaNaoEncontradaException e) {
+                continue;
+            }
 
-        String logMensagem = "Depósito na conta " + numeroConta + " na data de " + java.time.LocalDate.now() +
-                ", Restituição de limite de crédito: R$ " + df.format(valorParaLimite) +
-                ", Saldo atual: R$ " + df.format(conta.getSaldo()) +
-                ". Limite disponível: R$ " + df.format(conta.getLimiteCredito());
-        auditoriaService.save(logMensagem, transacao);
+            if (isModoLancamentos()) {
+                for (int indice : indices) {
+                    transacoes[indice] = depositarComLancamentos(cabecalho, depositos.get(indice).getValor());
+                    cabecalho = buscarCabecalho(numeroConta, "Conta não encontrada: ");
+                }
+                continue;
+            }
 
-        return transacao;
+            Dinheiro total = indices.stream()
+                    .map(indice -> Dinheiro.de(depositos.get(indice).getValor()))
+                    .reduce(Dinheiro.ZERO, Dinheiro::somar);
+            Dinheiro totalParaLimite = creditarDeposito(cabecalho, total);
+
+            // Parte da posição anterior ao grupo e reconstrói a posição da conta depois de cada depósito
+            ContaCorrente conta = buscarConta(numeroConta, "Conta não encontrada: ");
+            Dinheiro saldo = Dinheiro.de(contaCorrenteService.montarCabecalho(conta).getSaldo())
+                    .subtrair(total.subtrair(totalParaLimite));
+            Dinheiro limiteCredito = Dinheiro.de(conta.getLimiteCredito()).subtrair(totalParaLimite);
+            Dinheiro restanteParaLimite = totalParaLimite;
+            for (int indice : indices) {
+                BigDecimal valor = depositos.get(indice).getValor();
+                Dinheiro valorDeposito = Dinheiro.de(valor);
+                Dinheiro valorParaLimite = valorDeposito.min(restanteParaLimite);
+                restanteParaLimite = restanteParaLimite.subtrair(valorParaLimite);
+                saldo = saldo.somar(valorDeposito.subtrair(valorParaLimite));
+                limiteCredito = limiteCredito.somar(valorParaLimite);
+                transacoes[indice] = registrarDeposito(conta, valor, valorParaLimite, saldo, limiteCredito);
+            }
+        }
+        return Arrays.asList(transacoes);
     }
 
     /**
      * Realiza um saque na conta.
+     * O débito é um único UPDATE condicional a partir do cabeçalho lido, no saldo ou em saldo + limite de crédito; se o
+     * cabeçalho já estava desatualizado, a conta é relida com bloqueio e debitada.
+     * No modo LANCAMENTOS o saque é um débito na conta contra o caixa e a receita de tarifas.
      * @param numeroConta Número da conta.
      * @param valor Valor do saque.
      * @return A transação realizada.
      */
+    @OrcamentoComandosSql(4)
     @Transactional
     public Transacao realizarSaque(String numeroConta, BigDecimal valor){
 
-        ContaCorrente conta = contaCorrenteService.buscarConta(numeroConta)
-               .orElseThrow(() -> new ContaNaoEncontradaException("Conta não encontrada: " + numeroConta));
-
         if (valor == null ||valor.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("O valor do saque não pode ser nulo ou negativo");
         }
 
-        BigDecimal taxaSaque = valor.multiply(BigDecimal.valueOf(0.01));
-        BigDecimal valorComTaxa = valor.add(taxaSaque);
+        bloquearContasSeNecessario(numeroConta);
 
-        BigDecimal limiteDisponivel = conta.getSaldo().add(conta.getLimiteCredito());
-
-        if (limiteDisponivel.compareTo(valorComTaxa) < 0) {
-            throw new SaldoInsuficienteException("Saldo insuficiente na conta: " + numeroConta);
+        if (isModoLancamentos()) {
+            return sacarComLancamentos(numeroConta, valor);
         }
 
-        BigDecimal saldoDisponivel   = conta.getSaldo();
-        if(saldoDisponivel.compareTo(valorComTaxa) >= 0){
-            conta.setSaldo(saldoDisponivel.subtract(valorComTaxa));
-        }else{
+        Dinheiro valorSaque = Dinheiro.de(valor);
+        Dinheiro taxaSaque = calcularTaxaSaque(valorSaque);
+        Dinheiro valorComTaxa = valorSaque.somar(taxaSaque);
 
-            BigDecimal saldoRestante = valorComTaxa.subtract(conta.getSaldo());
-            conta.setSaldo(BigDecimal.ZERO);
-            if(saldoRestante.compareTo(conta.getLimiteCredito()) > 0){
-                throw new SaldoInsuficienteException("O Saque excede o limite de crédito da conta: " + numeroConta);
-            }
-            conta.setLimiteCredito(conta.getLimiteCredito().subtract(saldoRestante));
-
-        }
+        CabecalhoContaDto cabecalho = buscarCabecalho(numeroConta, "Conta não encontrada: ");
+        Dinheiro debitoDoSaldo = contaCorrenteService.debitarSeparandoSaldo(cabecalho, valorComTaxa.toBigDecimal())
+                .map(Dinheiro::de)
+                .orElseThrow(() -> new SaldoInsuficienteException("Saldo insuficiente na conta: " + numeroConta));
 
-        contaCorrenteService.atualizarSaldo(conta.getNumero(), conta.getSaldo());
-        contaCorrenteService.atualizarLimite(conta.getNumero(), conta.getLimiteCredito());
+        ContaCorrente conta = buscarConta(numeroConta, "Conta não encontrada: ");
+        Dinheiro limiteCredito = Dinheiro.de(conta.getLimiteCredito());
 
         Transacao transacao = new Transacao();
         transacao.setTipo(TipoTransacao.SAQUE);
         transacao.setValor(valor);
         transacao.setData(java.time.LocalDate.now());
         transacao.setDescricao("Saque de R$ " + valor + " na conta " + numeroConta +" na data de "+ java.time.LocalDate.now()
-                + ". Taxa de saque: R$ " +df.format( taxaSaque)+ ". Limite disponível: R$ "+ df.format( conta.getLimiteCredito()));
+                + ". Taxa de saque: R$ " + taxaSaque + ". Limite disponível: R$ " + limiteCredito);
 
         transacao.setContaCorrente(conta);
         transacaoRepository.save(transacao);
 
-        String logMensagem = "Saque de R$ "+ valor + " realizado na conta "+ numeroConta + ", na data de " + java.time.LocalDate.now()
-                + ". Taxa de saque: R$ " +df.format( taxaSaque)+ ". Limite disponível: R$ "+ df.format( conta.getLimiteCredito());
-        auditoriaService.save(logMensagem, transacao);
+        auditoriaService.save(auditoriaDeDebito(transacao, valorSaque, taxaSaque, debitoDoSaldo, conta, null));
 
         return transacao;
 
@@ -149,12 +213,16 @@ public class TransacaoService {
 
     /**
      * Realiza a transferência de valores entre contas.
+     * O débito na origem é um único UPDATE condicional a partir do cabeçalho lido, no saldo ou em saldo + limite de
+     * crédito; o crédito no destino é um UPDATE simples, na mesma transação.
+     * No modo LANCAMENTOS são lançados o débito na origem, o crédito no destino e a taxa na receita de tarifas.
      *
      * @param numeroContaOrigem Número da conta de origem.
      * @param numeroContaDestino Número da conta de destino.
      * @param valor Valor a ser transferido.
      * @return Transação realizada.
      */
+    @OrcamentoComandosSql(5)
     @Transactional
     public Transacao realizarTransferencia(String numeroContaOrigem, String numeroContaDestino, BigDecimal valor) {
 
@@ -166,56 +234,515 @@ public class TransacaoService {
                 throw new IllegalArgumentException("Conta de origem e destino não podem ser iguais.");
                 }
 
-            ContaCorrente contaOrigem = contaCorrenteService.buscarConta(numeroContaOrigem)
-                    .orElseThrow(() -> new ContaNaoEncontradaException("Conta de origem não encontrada: " + numeroContaOrigem));
+            bloquearContasSeNecessario(numeroContaOrigem, numeroContaDestino);
 
-            ContaCorrente contaDestino = contaCorrenteService.buscarConta(numeroContaDestino)
-                    .orElseThrow(() -> new ContaNaoEncontradaException("Conta de destino não encontrada: " + numeroContaDestino));
+            if (isModoLancamentos()) {
+                return transferirComLancamentos(numeroContaOrigem, numeroContaDestino, valor);
+            }
+
+            CabecalhoContaDto cabecalhoOrigem = buscarCabecalho(numeroContaOrigem, "Conta de origem não encontrada: ");
+
+            Dinheiro valorTransferencia = Dinheiro.de(valor);
+            Dinheiro taxaTransferencia = calcularTaxaTransferencia(Dinheiro.de(cabecalhoOrigem.getLimiteCredito()), valorTransferencia);
+            Dinheiro valorComTaxa = valorTransferencia.somar(taxaTransferencia);
 
+            Dinheiro debitoDoSaldo = contaCorrenteService.debitarSeparandoSaldo(cabecalhoOrigem, valorComTaxa.toBigDecimal())
+                    .map(Dinheiro::de)
+                    .orElseThrow(() -> new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroContaOrigem));
 
-            BigDecimal taxaTransferencia = valor.multiply(BigDecimal.valueOf(0.01));
-            BigDecimal valorComTaxa = valor.add(taxaTransferencia);
+            if (!contaCorrenteService.creditarSaldo(numeroContaDestino, valorTransferencia.toBigDecimal())) {
+                throw new ContaNaoEncontradaException("Conta de destino não encontrada: " + numeroContaDestino);
+            }
 
-            BigDecimal limiteDisponivel = contaOrigem.getSaldo().add(contaOrigem.getLimiteCredito());
+            ContaCorrente contaOrigem = buscarConta(numeroContaOrigem, "Conta de origem não encontrada: ");
 
-            if(limiteDisponivel.compareTo(valorComTaxa) < 0){
-                throw new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroContaOrigem);
+            Transacao transacao = new Transacao();
+            transacao.setTipo(TipoTransacao.TRANSFERENCIA);
+            transacao.setValor(valor);
+            transacao.setData(java.time.LocalDate.now());
+            transacao.setDescricao("Transferência de R$ " + valor +" para conta " + numeroContaDestino +" na data de "+ java.time.LocalDate.now()+ ". Taxa de transferência: R$ "+ taxaTransferencia +" Limite disponível: R$ "+ Dinheiro.de(contaOrigem.getLimiteCredito()));
+            transacao.setContaCorrente(contaOrigem);
+            transacaoRepository.save(transacao);
+
+            auditoriaService.save(auditoriaDeDebito(transacao, valorTransferencia, taxaTransferencia, debitoDoSaldo, contaOrigem, numeroContaDestino));
+
+            return transacao;
+    }
+
+    /**
+     * Realiza um lote de transferências por compensação.
+     * Os valores de todas as transferências são somados em um saldo líquido por conta, cada conta é validada uma única vez
+     * contra saldo + limite de crédito e recebe um único UPDATE. Cada transferência aceita ainda gera sua Transacao e auditoria.
+     * A taxa de cada transferência considera o limite de crédito da origem no início do lote, e a divisão entre saldo e
+     * limite reflete apenas o movimento líquido da conta.
+     * Quando uma conta não cobre o seu saldo líquido, as transferências enviadas por ela são recusadas a partir da última.
+     * Na auditoria de cada transferência, saldo e limite anteriores e posteriores são os da conta de origem antes e depois do lote.
+     * As Transacoes e auditorias são gravadas em grupos de banco.lote.tamanho-grupo-insercao, em INSERTs JDBC agrupados.
+     * No modo LANCAMENTOS cada conta recebe um lançamento com o seu movimento líquido e a soma das taxas vai para a
+     * receita de tarifas, todos sob um movimento próprio do lote.
+     *
+     * @param transferencias Transferências na ordem de envio.
+     * @return Transferências realizadas e mensagens das recusadas, na ordem de envio.
+     */
+    @Transactional
+    public ResultadoLoteDto realizarTransferenciasCompensadas(List<TransferenciaDto> transferencias) {
+        int total = transferencias.size();
+        String[] falhas = new String[total];
+
+        for (int i = 0; i < total; i++) {
+            TransferenciaDto transferencia = transferencias.get(i);
+            if (transferencia.getValor() == null || transferencia.getValor().compareTo(BigDecimal.ZERO) <= 0) {
+                falhas[i] = "O valor da transferência não pode ser nulo ou negativo";
+            } else if (Objects.equals(transferencia.getContaOrigem(), transferencia.getContaDestino())) {
+                falhas[i] = "Conta de origem e destino não podem ser iguais.";
             }
+        }
 
+        String[] numerosConta = transferencias.stream()
+                .flatMap(transferencia -> Stream.of(transferencia.getContaOrigem(), transferencia.getContaDestino()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(String[]::new);
+        bloquearContasSeNecessario(numerosConta);
 
-            if(contaOrigem.getLimiteCredito().compareTo(BigDecimal.ZERO) > 0){
-                taxaTransferencia = valor.multiply(BigDecimal.valueOf(0.02));
-                valorComTaxa = valor.add(taxaTransferencia);
+        Map<String, CabecalhoContaDto> contas = buscarPosicoes(List.of(numerosConta));
+
+        Dinheiro[] valores = new Dinheiro[total];
+        Dinheiro[] taxas = new Dinheiro[total];
+        for (int i = 0; i < total; i++) {
+            if (falhas[i] != null) {
+                continue;
+            }
+            TransferenciaDto transferencia = transferencias.get(i);
+            CabecalhoContaDto contaOrigem = contas.get(transferencia.getContaOrigem());
+            if (contaOrigem == null) {
+                falhas[i] = "Conta de origem não encontrada: " + transferencia.getContaOrigem();
+            } else if (!contas.containsKey(transferencia.getContaDestino())) {
+                falhas[i] = "Conta de destino não encontrada: " + transferencia.getContaDestino();
+            } else {
+                valores[i] = Dinheiro.de(transferencia.getValor());
+                taxas[i] = calcularTaxaTransferencia(Dinheiro.de(contaOrigem.getLimiteCredito()), valores[i]);
             }
+        }
 
-            BigDecimal saldoDisponivel = contaOrigem.getSaldo();
-            if(saldoDisponivel.compareTo(valorComTaxa) >= 0){
-                contaOrigem.setSaldo(saldoDisponivel.subtract(valorComTaxa));
-            }else{
-                BigDecimal saldoRestante = valorComTaxa.subtract(saldoDisponivel);
-                contaOrigem.setSaldo(BigDecimal.ZERO);
-                contaOrigem.setLimiteCredito(contaOrigem.getLimiteCredito().subtract(saldoRestante));
+        // Estado inicial das contas, usado na validação dos saldos líquidos e, no modo LANCAMENTOS, na auditoria
+        Map<String, Dinheiro> saldosAnteriores = new HashMap<>();
+        Map<String, Dinheiro> limitesAnteriores = new HashMap<>();
+        contas.values().forEach(conta -> {
+            saldosAnteriores.put(conta.getNumero(), Dinheiro.de(conta.getSaldo()));
+            limitesAnteriores.put(conta.getNumero(), Dinheiro.de(conta.getLimiteCredito()));
+        });
+
+        // Recusa as últimas transferências enviadas pelas contas que não cobrem o saldo líquido, até todas as contas fecharem
+        Map<String, Dinheiro> saldosLiquidos = calcularSaldosLiquidos(transferencias, valores, taxas, falhas);
+        String contaDescoberta = buscarContaDescoberta(saldosAnteriores, limitesAnteriores, saldosLiquidos);
+        while (contaDescoberta != null) {
+            for (int i = total - 1; i >= 0; i--) {
+                if (falhas[i] == null && transferencias.get(i).getContaOrigem().equals(contaDescoberta)) {
+                    falhas[i] = "Saldo insuficiente na conta de origem: " + contaDescoberta;
+                    break;
+                }
             }
+            saldosLiquidos = calcularSaldosLiquidos(transferencias, valores, taxas, falhas);
+            contaDescoberta = buscarContaDescoberta(saldosAnteriores, limitesAnteriores, saldosLiquidos);
+        }
 
-            contaCorrenteService.atualizarSaldo(contaOrigem.getNumero(), contaOrigem.getSaldo());
-            contaCorrenteService.atualizarLimite(contaOrigem.getNumero(), contaOrigem.getLimiteCredito());
+        if (isModoLancamentos()) {
+            contas = lancarSaldosLiquidos(contas, saldosLiquidos, taxas, falhas);
+        } else {
+            // Um UPDATE por conta; os guardas do UPDATE protegem contra alterações concorrentes desde a leitura
+            Map<String, Dinheiro> debitosDoSaldo = new HashMap<>();
+            for (Map.Entry<String, Dinheiro> saldoLiquido : saldosLiquidos.entrySet()) {
+                String numeroConta = saldoLiquido.getKey();
+                Dinheiro valor = saldoLiquido.getValue();
+                if (valor.sinal() < 0) {
+                    debitosDoSaldo.put(numeroConta, contaCorrenteService.debitarSeparandoSaldo(contas.get(numeroConta), valor.negar().toBigDecimal())
+                            .map(Dinheiro::de)
+                            .orElseThrow(() -> new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroConta)));
+                }
+                if (valor.sinal() > 0 && !contaCorrenteService.creditarSaldo(numeroConta, valor.toBigDecimal())) {
+                    throw new ContaNaoEncontradaException("Conta de destino não encontrada: " + numeroConta);
+                }
+            }
 
-           contaDestino.setSaldo(contaDestino.getSaldo().add(valor));
-            contaCorrenteService.atualizarSaldo(contaDestino.getNumero(), contaDestino.getSaldo());
+            contas = buscarPosicoes(saldosLiquidos.keySet());
+
+            // A posição anterior ao lote é a lida depois dos UPDATEs, que deixam as linhas bloqueadas, menos o que cada
+            // UPDATE aplicou; a leitura do início do lote, sem bloqueio, pode já estar desatualizada
+            for (Map.Entry<String, Dinheiro> saldoLiquido : saldosLiquidos.entrySet()) {
+                String numeroConta = saldoLiquido.getKey();
+                Dinheiro valor = saldoLiquido.getValue();
+                CabecalhoContaDto posicao = contas.get(numeroConta);
+                Dinheiro debitoDoSaldo = debitosDoSaldo.get(numeroConta);
+                if (debitoDoSaldo != null) {
+                    saldosAnteriores.put(numeroConta, Dinheiro.de(posicao.getSaldo()).somar(debitoDoSaldo));
+                    limitesAnteriores.put(numeroConta, Dinheiro.de(posicao.getLimiteCredito()).somar(valor.negar().subtrair(debitoDoSaldo)));
+                } else {
+                    saldosAnteriores.put(numeroConta, Dinheiro.de(posicao.getSaldo()).subtrair(valor));
+                    limitesAnteriores.put(numeroConta, Dinheiro.de(posicao.getLimiteCredito()));
+                }
+            }
+        }
 
+        List<TransferenciaDto> sucesso = new ArrayList<>();
+        List<String> mensagensFalha = new ArrayList<>();
+        int tamanhoGrupo = Math.max(1, loteProperties.getTamanhoGrupoInsercao());
+        for (int i = 0; i < total; i++) {
+            TransferenciaDto transferencia = transferencias.get(i);
+            if (falhas[i] != null) {
+                mensagensFalha.add("Erro na transferência de " + transferencia.getContaOrigem() + " para " +
+                        transferencia.getContaDestino() + ": " + falhas[i]);
+                continue;
+            }
+            CabecalhoContaDto contaOrigem = contas.get(transferencia.getContaOrigem());
+            Dinheiro saldoOrigem = Dinheiro.de(contaOrigem.getSaldo());
+            Dinheiro limiteOrigem = Dinheiro.de(contaOrigem.getLimiteCredito());
 
             Transacao transacao = new Transacao();
             transacao.setTipo(TipoTransacao.TRANSFERENCIA);
-            transacao.setValor(valor);
+            transacao.setValor(transferencia.getValor());
             transacao.setData(java.time.LocalDate.now());
-            transacao.setDescricao("Transferência de R$ " + valor +" para conta " + numeroContaDestino +" na data de "+ java.time.LocalDate.now()+ ". Taxa de transferência: R$ "+ df.format( taxaTransferencia)+" Limite disponível: R$ "+ df.format( contaOrigem.getLimiteCredito()));
-            transacao.setContaCorrente(contaOrigem);
+            transacao.setDescricao("Transferência de R$ " + transferencia.getValor() +" para conta " + transferencia.getContaDestino() +" na data de "+ java.time.LocalDate.now()+ ". Taxa de transferência: R$ "+ taxas[i] +" Limite disponível: R$ "+ limiteOrigem);
+            transacao.setContaCorrente(entityManager.getReference(ContaCorrente.class, contaOrigem.getNumero()));
             transacaoRepository.save(transacao);
 
-            String logMensagem = "Transferência de R$ " + valor + " para conta " + numeroContaDestino +" na data de "+ java.time.LocalDate.now()+ ". Taxa de transferência: R$ "+ df.format( taxaTransferencia)+"  Limite disponível: R$ "+ df.format( contaOrigem.getLimiteCredito());
-            auditoriaService.save(logMensagem, transacao);
+            auditoriaService.save(new RegistroAuditoriaDto(transacao.getId(), contaOrigem.getNumero(), TipoTransacao.TRANSFERENCIA, valores[i], taxas[i],
+                    saldosAnteriores.get(contaOrigem.getNumero()), saldoOrigem,
+                    limitesAnteriores.get(contaOrigem.getNumero()), limiteOrigem,
+                    transferencia.getContaDestino(), LocalDateTime.now()));
 
-            return transacao;
+            sucesso.add(transferencia);
+
+            // Envia as linhas do grupo em INSERTs JDBC agrupados e libera o contexto de persistência para o próximo grupo
+            if (sucesso.size() % tamanhoGrupo == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        return new ResultadoLoteDto(sucesso, mensagensFalha);
+    }
+
+    /**
+     * Credita um depósito na conta, restituindo o limite de crédito a partir do cabeçalho lido. O UPDATE recusa a
+     * restituição se outra operação já restituiu o limite depois da leitura; nesse caso a conta é relida com bloqueio,
+     * que vê a última versão confirmada, e o segundo UPDATE não pode mais ser recusado pelo limite.
+     * @return A parte do valor que restituiu o limite de crédito.
+     */
+    private Dinheiro creditarDeposito(CabecalhoContaDto cabecalho, Dinheiro valor) {
+        String numeroConta = cabecalho.getNumero();
+        Dinheiro valorParaLimite = calcularRestituicaoLimite(cabecalho, valor);
+        if (contaCorrenteService.creditarComRestituicaoLimite(numeroConta,
+                valor.subtrair(valorParaLimite).toBigDecimal(), valorParaLimite.toBigDecimal())) {
+            return valorParaLimite;
+        }
+
+        CabecalhoContaDto atual = contaCorrenteService.buscarCabecalhoComBloqueio(numeroConta)
+                .orElseThrow(() -> new ContaNaoEncontradaException("Conta não encontrada: " + numeroConta));
+        valorParaLimite = calcularRestituicaoLimite(atual, valor);
+        if (!contaCorrenteService.creditarComRestituicaoLimite(numeroConta,
+                valor.subtrair(valorParaLimite).toBigDecimal(), valorParaLimite.toBigDecimal())) {
+            throw new IllegalStateException("Depósito recusado na conta bloqueada: " + numeroConta);
+        }
+        return valorParaLimite;
+    }
+
+    /**
+     * Grava a Transacao e a auditoria de um depósito já aplicado. Saldo e limite anteriores saem dos posteriores, lidos
+     * na mesma transação, menos as partes creditadas.
+     */
+    private Transacao registrarDeposito(ContaCorrente conta, BigDecimal valor, Dinheiro valorParaLimite, Dinheiro saldo,
+                                        Dinheiro limiteCredito) {
+        Dinheiro valorDeposito = Dinheiro.de(valor);
+
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.DEPOSITO);
+        transacao.setValor(valor);
+        transacao.setData(java.time.LocalDate.now());
+        transacao.setDescricao("Depósito na conta " + conta.getNumero() + " na data de " + java.time.LocalDate.now() +
+                ", Restituição de limite de crédito: R$ " + valorParaLimite +
+                ", Saldo atual: R$ " + saldo +
+                ". Limite disponível: R$ " + limiteCredito);
+        transacao.setContaCorrente(conta);
+        transacaoRepository.save(transacao);
+
+        auditoriaService.save(new RegistroAuditoriaDto(transacao.getId(), conta.getNumero(), TipoTransacao.DEPOSITO, valorDeposito, Dinheiro.ZERO,
+                saldo.subtrair(valorDeposito.subtrair(valorParaLimite)), saldo,
+                limiteCredito.subtrair(valorParaLimite), limiteCredito,
+                null, LocalDateTime.now()));
+
+        return transacao;
+    }
+
+    /**
+     * Depósito no modo LANCAMENTOS: crédito na conta, com a mesma restituição de limite do UPDATE, contra o caixa.
+     */
+    private Transacao depositarComLancamentos(CabecalhoContaDto conta, BigDecimal valor) {
+        Dinheiro valorDeposito = Dinheiro.de(valor);
+        Dinheiro valorParaLimite = calcularRestituicaoLimite(conta, valorDeposito);
+        Lancamento credito = razaoService.credito(conta, valorDeposito, valorParaLimite);
+
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.DEPOSITO);
+        transacao.setValor(valor);
+        transacao.setData(java.time.LocalDate.now());
+        transacao.setDescricao("Depósito na conta " + conta.getNumero() + " na data de " + java.time.LocalDate.now() +
+                ", Restituição de limite de crédito: R$ " + valorParaLimite +
+                ", Saldo atual: R$ " + credito.getSaldo() +
+                ". Limite disponível: R$ " + credito.getLimiteCredito());
+        transacao.setContaCorrente(entityManager.getReference(ContaCorrente.class, conta.getNumero()));
+        transacaoRepository.save(transacao);
+
+        razaoService.registrar(transacao.getId(), List.of(credito,
+                razaoService.contrapartida(RazaoService.CONTA_CAIXA, valorDeposito.negar())));
+
+        auditoriaService.save(new RegistroAuditoriaDto(transacao.getId(), conta.getNumero(), TipoTransacao.DEPOSITO, valorDeposito, Dinheiro.ZERO,
+                Dinheiro.de(conta.getSaldo()), credito.getSaldo(),
+                Dinheiro.de(conta.getLimiteCredito()), credito.getLimiteCredito(),
+                null, LocalDateTime.now()));
+
+        return transacao;
+    }
+
+    /**
+     * Saque no modo LANCAMENTOS: débito na conta do valor com a taxa, contra o caixa e a receita de tarifas.
+     */
+    private Transacao sacarComLancamentos(String numeroConta, BigDecimal valor) {
+        CabecalhoContaDto conta = buscarCabecalho(numeroConta, "Conta não encontrada: ");
+
+        Dinheiro valorSaque = Dinheiro.de(valor);
+        Dinheiro taxaSaque = calcularTaxaSaque(valorSaque);
+        Lancamento debito = razaoService.debito(conta, valorSaque.somar(taxaSaque));
+        if (debito == null) {
+            throw new SaldoInsuficienteException("Saldo insuficiente na conta: " + numeroConta);
+        }
+
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.SAQUE);
+        transacao.setValor(valor);
+        transacao.setData(java.time.LocalDate.now());
+        transacao.setDescricao("Saque de R$ " + valor + " na conta " + numeroConta +" na data de "+ java.time.LocalDate.now()
+                + ". Taxa de saque: R$ " + taxaSaque + ". Limite disponível: R$ " + debito.getLimiteCredito());
+        transacao.setContaCorrente(entityManager.getReference(ContaCorrente.class, numeroConta));
+        transacaoRepository.save(transacao);
+
+        razaoService.registrar(transacao.getId(), List.of(debito,
+                razaoService.contrapartida(RazaoService.CONTA_CAIXA, valorSaque),
+                razaoService.contrapartida(RazaoService.CONTA_RECEITA_TARIFAS, taxaSaque)));
+
+        auditoriaService.save(new RegistroAuditoriaDto(transacao.getId(), numeroConta, TipoTransacao.SAQUE, valorSaque, taxaSaque,
+                Dinheiro.de(conta.getSaldo()), debito.getSaldo(),
+                Dinheiro.de(conta.getLimiteCredito()), debito.getLimiteCredito(),
+                null, LocalDateTime.now()));
+
+        return transacao;
+    }
+
+    /**
+     * Transferência no modo LANCAMENTOS: débito na origem do valor com a taxa, crédito no saldo do destino e a taxa na
+     * receita de tarifas.
+     */
+    private Transacao transferirComLancamentos(String numeroContaOrigem, String numeroContaDestino, BigDecimal valor) {
+        CabecalhoContaDto origem = buscarCabecalho(numeroContaOrigem, "Conta de origem não encontrada: ");
+        Optional<CabecalhoContaDto> destino = contaCorrenteService.buscarCabecalho(numeroContaDestino);
+
+        Dinheiro valorTransferencia = Dinheiro.de(valor);
+        Dinheiro taxaTransferencia = calcularTaxaTransferencia(Dinheiro.de(origem.getLimiteCredito()), valorTransferencia);
+        Lancamento debito = razaoService.debito(origem, valorTransferencia.somar(taxaTransferencia));
+        if (debito == null) {
+            throw new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroContaOrigem);
+        }
+        Lancamento credito = razaoService.credito(destino
+                .orElseThrow(() -> new ContaNaoEncontradaException("Conta de destino não encontrada: " + numeroContaDestino)),
+                valorTransferencia, Dinheiro.ZERO);
+
+        Transacao transacao = new Transacao();
+        transacao.setTipo(TipoTransacao.TRANSFERENCIA);
+        transacao.setValor(valor);
+        transacao.setData(java.time.LocalDate.now());
+        transacao.setDescricao("Transferência de R$ " + valor +" para conta " + numeroContaDestino +" na data de "+ java.time.LocalDate.now()+ ". Taxa de transferência: R$ "+ taxaTransferencia +" Limite disponível: R$ "+ debito.getLimiteCredito());
+        transacao.setContaCorrente(entityManager.getReference(ContaCorrente.class, numeroContaOrigem));
+        transacaoRepository.save(transacao);
+
+        razaoService.registrar(transacao.getId(), List.of(debito, credito,
+                razaoService.contrapartida(RazaoService.CONTA_RECEITA_TARIFAS, taxaTransferencia)));
+
+        auditoriaService.save(new RegistroAuditoriaDto(transacao.getId(), numeroContaOrigem, TipoTransacao.TRANSFERENCIA, valorTransferencia, taxaTransferencia,
+                Dinheiro.de(origem.getSaldo()), debito.getSaldo(),
+                Dinheiro.de(origem.getLimiteCredito()), debito.getLimiteCredito(),
+                numeroContaDestino, LocalDateTime.now()));
+
+        return transacao;
+    }
+
+    /**
+     * Lote compensado no modo LANCAMENTOS: um lançamento por conta com o movimento líquido e a soma das taxas aceitas
+     * na receita de tarifas. Contas com movimento líquido zero não recebem lançamento.
+     * @return Posição de cada conta do lote depois dos lançamentos.
+     */
+    private Map<String, CabecalhoContaDto> lancarSaldosLiquidos(Map<String, CabecalhoContaDto> contas, Map<String, Dinheiro> saldosLiquidos,
+                                                                 Dinheiro[] taxas, String[] falhas) {
+        Map<String, CabecalhoContaDto> posicoes = new HashMap<>();
+        List<Lancamento> lancamentos = new ArrayList<>();
+        for (Map.Entry<String, Dinheiro> saldoLiquido : saldosLiquidos.entrySet()) {
+            String numeroConta = saldoLiquido.getKey();
+            Dinheiro valor = saldoLiquido.getValue();
+            CabecalhoContaDto conta = contas.get(numeroConta);
+            Lancamento lancamento = null;
+            if (valor.sinal() < 0) {
+                lancamento = razaoService.debito(conta, valor.negar());
+                if (lancamento == null) {
+                    throw new SaldoInsuficienteException("Saldo insuficiente na conta de origem: " + numeroConta);
+                }
+            } else if (valor.sinal() > 0) {
+                lancamento = razaoService.credito(conta, valor, Dinheiro.ZERO);
+            }
+            if (lancamento != null) {
+                lancamentos.add(lancamento);
+            }
+            posicoes.put(numeroConta, lancamento != null ? RazaoService.posicaoApos(conta, lancamento) : conta);
+        }
+
+        Dinheiro totalTaxas = Dinheiro.ZERO;
+        for (int i = 0; i < taxas.length; i++) {
+            if (falhas[i] == null) {
+                totalTaxas = totalTaxas.somar(taxas[i]);
+            }
+        }
+        lancamentos.add(razaoService.contrapartida(RazaoService.CONTA_RECEITA_TARIFAS, totalTaxas));
+
+        razaoService.registrar(UuidV7Generator.gerar(), lancamentos);
+        return posicoes;
+    }
+
+    /**
+     * Monta a auditoria de um débito. Saldo e limite posteriores são os lidos depois do débito, com a linha bloqueada
+     * por ele; os anteriores são os posteriores mais as partes que o débito tirou do saldo e do limite de crédito.
+     */
+    private RegistroAuditoriaDto auditoriaDeDebito(Transacao transacao, Dinheiro valor, Dinheiro taxa, Dinheiro debitoDoSaldo,
+                                                   ContaCorrente contaAtual, String contaDestino) {
+        Dinheiro saldo = Dinheiro.de(contaCorrenteService.montarCabecalho(contaAtual).getSaldo());
+        Dinheiro limiteCredito = Dinheiro.de(contaAtual.getLimiteCredito());
+        Dinheiro valorComTaxa = valor.somar(taxa);
+        return new RegistroAuditoriaDto(transacao.getId(), contaAtual.getNumero(), transacao.getTipo(), valor, taxa,
+                saldo.somar(debitoDoSaldo), saldo,
+                limiteCredito.somar(valorComTaxa.subtrair(debitoDoSaldo)), limiteCredito,
+                contaDestino, LocalDateTime.now());
+    }
+
+    /**
+     * Soma o movimento líquido de cada conta considerando apenas as transferências não recusadas.
+     * As contas ficam em ordem de número para que os UPDATEs sigam a mesma ordem dos bloqueios.
+     */
+    private Map<String, Dinheiro> calcularSaldosLiquidos(List<TransferenciaDto> transferencias, Dinheiro[] valores, Dinheiro[] taxas,
+                                                         String[] falhas) {
+        Map<String, Dinheiro> saldosLiquidos = new TreeMap<>();
+        for (int i = 0; i < transferencias.size(); i++) {
+            if (falhas[i] != null) {
+                continue;
+            }
+            TransferenciaDto transferencia = transferencias.get(i);
+            saldosLiquidos.merge(transferencia.getContaOrigem(), valores[i].somar(taxas[i]).negar(), Dinheiro::somar);
+            saldosLiquidos.merge(transferencia.getContaDestino(), valores[i], Dinheiro::somar);
+        }
+        return saldosLiquidos;
+    }
+
+    /**
+     * Retorna a primeira conta cujo saldo + limite de crédito não cobre o movimento líquido, ou null se todas cobrem.
+     */
+    private String buscarContaDescoberta(Map<String, Dinheiro> saldos, Map<String, Dinheiro> limites, Map<String, Dinheiro> saldosLiquidos) {
+        for (Map.Entry<String, Dinheiro> saldoLiquido : saldosLiquidos.entrySet()) {
+            String numeroConta = saldoLiquido.getKey();
+            if (saldos.get(numeroConta).somar(limites.get(numeroConta)).somar(saldoLiquido.getValue()).sinal() < 0) {
+                return numeroConta;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Taxa de 1% sobre o valor do saque. As regras de taxa e de limite ficam em métodos estáticos porque o MotorContas
+     * aplica as mesmas.
+     */
+    static Dinheiro calcularTaxaSaque(Dinheiro valor) {
+        return valor.percentual(TAXA_SAQUE);
+    }
+
+    /**
+     * Contas que possuem limite de crédito pagam taxa de 2% nas transferências, as demais 1%.
+     */
+    static Dinheiro calcularTaxaTransferencia(Dinheiro limiteCreditoOrigem, Dinheiro valor) {
+        return limiteCreditoOrigem.sinal() > 0
+                ? valor.percentual(TAXA_TRANSFERENCIA_COM_LIMITE)
+                : valor.percentual(TAXA_TRANSFERENCIA);
+    }
+
+    /**
+     * Busca as posições das contas que existem. Nos modos com UPDATE lê as entidades em uma única consulta; no modo
+     * LANCAMENTOS lê a posição de cada conta pelo cache de contas.
+     */
+    private Map<String, CabecalhoContaDto> buscarPosicoes(Collection<String> numerosConta) {
+        if (isModoLancamentos()) {
+            Map<String, CabecalhoContaDto> posicoes = new HashMap<>();
+            numerosConta.forEach(numero -> contaCorrenteService.buscarCabecalho(numero)
+                    .ifPresent(posicao -> posicoes.put(numero, posicao)));
+            return posicoes;
+        }
+        return contaCorrenteService.buscarContas(numerosConta).stream()
+                .collect(Collectors.toMap(ContaCorrente::getNumero, contaCorrenteService::montarCabecalho));
+    }
+
+    private boolean isModoLancamentos() {
+        return concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS;
+    }
+
+    /**
+     * No modo pessimista, bloqueia as contas da operação em ordem de número antes de qualquer leitura.
+     */
+    private void bloquearContasSeNecessario(String... numerosConta) {
+        if (concorrenciaProperties.getModo() == ModoConcorrencia.PESSIMISTA) {
+            contaCorrenteService.bloquearContas(numerosConta);
+        }
+    }
+
+    /**
+     * Busca a conta ou lança ContaNaoEncontradaException com a mensagem informada.
+     */
+    private ContaCorrente buscarConta(String numeroConta, String mensagemNaoEncontrada) {
+        return contaCorrenteService.buscarConta(numeroConta)
+                .orElseThrow(() -> new ContaNaoEncontradaException(mensagemNaoEncontrada + numeroConta));
+    }
+
+    /**
+     * Leitura de validação, feita antes do UPDATE. No modo atômico e no LANCAMENTOS passa pelo cache de contas, que no
+     * modo estrito (padrão) lê do banco dentro da transação, para que a taxa e a restituição de limite partam da conta
+     * confirmada; fora do modo estrito o UPDATE condicional ainda confere saldo e limite no banco, e um lançamento feito
+     * a partir de uma posição desatualizada repete uma sequência e é recusado. Nos modos pessimista
+     * e otimista lê a entidade, que já está (ou vai estar) no contexto de persistência por causa do bloqueio ou do débito
+     * pela versão.
+     */
+    private CabecalhoContaDto buscarCabecalho(String numeroConta, String mensagemNaoEncontrada) {
+        if (concorrenciaProperties.getModo() == ModoConcorrencia.PESSIMISTA || concorrenciaProperties.getModo() == ModoConcorrencia.OTIMISTA) {
+            return contaCorrenteService.montarCabecalho(buscarConta(numeroConta, mensagemNaoEncontrada));
+        }
+        return contaCorrenteService.buscarCabecalho(numeroConta)
+                .orElseThrow(() -> new ContaNaoEncontradaException(mensagemNaoEncontrada + numeroConta));
+    }
+
+    /**
+     * Calcula quanto do depósito restitui o limite de crédito, sem ultrapassar o limite máximo da conta.
+     */
+    private Dinheiro calcularRestituicaoLimite(CabecalhoContaDto conta, Dinheiro valor) {
+        return calcularRestituicaoLimite(Dinheiro.de(conta.getLimiteMaximo()), Dinheiro.de(conta.getLimiteCredito()), valor);
+    }
+
+    static Dinheiro calcularRestituicaoLimite(Dinheiro limiteMaximo, Dinheiro limiteCredito, Dinheiro valor) {
+        Dinheiro limiteDisponivel = limiteMaximo.subtrair(limiteCredito);
+        if (limiteDisponivel.sinal() <= 0) {
+            return Dinheiro.ZERO;
+        }
+        return valor.min(limiteDisponivel);
     }
 
 }
@@ -1,7 +1,10 @@
 package com.example.Banco_Magalu.ControllerTest;
 
 import com.example.Banco_Magalu.controller.AuditoriaController;
+import com.example.Banco_Magalu.dto.FormatoExportacao;
+import com.example.Banco_Magalu.dto.PaginaAuditoriaDto;
 import com.example.Banco_Magalu.service.AuditoriaService;
+import com.example.Banco_Magalu.service.ExportacaoService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,12 +12,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -27,6 +45,9 @@ public class AuditoriaControllerTest {
     @MockBean
     private AuditoriaService auditoriaService;
 
+    @MockBean
+    private ExportacaoService exportacaoService;
+
     @BeforeEach
     void setUp() {
         // Este método será executado antes de cada teste
@@ -46,16 +67,18 @@ public class AuditoriaControllerTest {
                 "Depósito de R$ 200.00 realizado na conta 321"
         );
 
-        when(auditoriaService.buscarMensagensPorConta(numeroConta)).thenReturn(mensagens);
+        when(auditoriaService.buscarMensagensPorConta(numeroConta, null, null, null, null, 50))
+                .thenReturn(new PaginaAuditoriaDto(mensagens, null, null));
 
 
         mockMvc.perform(get("/auditoria/conta/{numeroConta}", numeroConta)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())  // Espera um status 200 OK
-                .andExpect(jsonPath("$.length()").value(3))  // Verifica se o retorno tem 3 mensagens
-                .andExpect(jsonPath("$[0]").value("Transferência de R$ 100.00 realizada para conta 54321"))  // Verifica a primeira mensagem
-                .andExpect(jsonPath("$[1]").value("Saque de R$ 50.00 realizado na conta 321"))  // Verifica a segunda mensagem
-                .andExpect(jsonPath("$[2]").value("Depósito de R$ 200.00 realizado na conta 321"));  // Verifica a terceira mensagem
+                .andExpect(jsonPath("$.mensagens.length()").value(3))  // Verifica se o retorno tem 3 mensagens
+                .andExpect(jsonPath("$.mensagens[0]").value("Transferência de R$ 100.00 realizada para conta 54321"))  // Verifica a primeira mensagem
+                .andExpect(jsonPath("$.mensagens[1]").value("Saque de R$ 50.00 realizado na conta 321"))  // Verifica a segunda mensagem
+                .andExpect(jsonPath("$.mensagens[2]").value("Depósito de R$ 200.00 realizado na conta 321"))  // Verifica a terceira mensagem
+                .andExpect(jsonPath("$.proximoId").doesNotExist());  // Última página, sem cursor
     }
 
     /**
@@ -67,11 +90,87 @@ public class AuditoriaControllerTest {
 
         String numeroConta = "999";
 
-        when(auditoriaService.buscarMensagensPorConta(numeroConta)).thenReturn(List.of());
+        when(auditoriaService.buscarMensagensPorConta(numeroConta, null, null, null, null, 50))
+                .thenReturn(new PaginaAuditoriaDto(List.of(), null, null));
 
         mockMvc.perform(get("/auditoria/conta/{numeroConta}", numeroConta)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())  // Espera um status 200 OK
-                .andExpect(jsonPath("$.length()").value(0));  // Verifica que não há mensagens
+                .andExpect(jsonPath("$.mensagens.length()").value(0));  // Verifica que não há mensagens
+    }
+
+    /**
+     * Teste para buscar mensagens de auditoria por conta com período e cursor da página anterior
+     * @throws Exception
+     */
+    @Test
+    void testeBuscarMensagensAuditoriaContaComPeriodoECursor() throws Exception {
+
+        String numeroConta = "321";
+        LocalDate de = LocalDate.of(2024, 11, 1);
+        LocalDate ate = LocalDate.of(2024, 11, 30);
+        LocalDateTime cursorDataHora = LocalDateTime.of(2024, 11, 19, 10, 15, 30);
+        UUID cursorId = UUID.randomUUID();
+        UUID proximoId = UUID.randomUUID();
+
+        when(auditoriaService.buscarMensagensPorConta(numeroConta, de, ate, cursorDataHora, cursorId, 1))
+                .thenReturn(new PaginaAuditoriaDto(List.of("Saque de R$ 50.00 realizado na conta 321"),
+                        LocalDateTime.of(2024, 11, 18, 9, 0), proximoId));
+
+        mockMvc.perform(get("/auditoria/conta/{numeroConta}", numeroConta)
+                        .param("de", "2024-11-01")
+                        .param("ate", "2024-11-30")
+                        .param("cursorDataHora", "2024-11-19T10:15:30")
+                        .param("cursorId", cursorId.toString())
+                        .param("tamanho", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mensagens[0]").value("Saque de R$ 50.00 realizado na conta 321"))
+                .andExpect(jsonPath("$.proximaDataHora").value("2024-11-18T09:00:00"))
+                .andExpect(jsonPath("$.proximoId").value(proximoId.toString()));
+    }
+
+    /**
+     * Teste para exportar a auditoria em CSV, escrita pelo serviço direto na resposta
+     * @throws Exception
+     */
+    @Test
+    void testeExportarAuditoriaCsv() throws Exception {
+
+        doAnswer(invocacao -> {
+            OutputStream saida = invocacao.getArgument(4);
+            saida.write("id,numeroConta\r\n1,321\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportacaoService).exportarAuditoria(eq("321"), eq(LocalDate.of(2024, 11, 1)), isNull(),
+                eq(FormatoExportacao.CSV), any(OutputStream.class));
+
+        MvcResult resultado = mockMvc.perform(get("/auditoria/exportar")
+                        .param("conta", "321")
+                        .param("de", "2024-11-01")
+                        .param("formato", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"auditoria.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,numeroConta\r\n1,321\r\n"));
+    }
+
+    /**
+     * Teste para exportar a auditoria com período invertido, recusado antes de iniciar a resposta
+     * @throws Exception
+     */
+    @Test
+    void testeExportarAuditoriaPeriodoInvalido() throws Exception {
+
+        doThrow(new IllegalArgumentException("A data inicial do período não pode ser posterior à data final"))
+                .when(exportacaoService).validarPeriodo(LocalDate.of(2024, 11, 30), LocalDate.of(2024, 11, 1));
+
+        mockMvc.perform(get("/auditoria/exportar")
+                        .param("de", "2024-11-30")
+                        .param("ate", "2024-11-01"))
+                .andExpect(status().isBadRequest());
     }
 }
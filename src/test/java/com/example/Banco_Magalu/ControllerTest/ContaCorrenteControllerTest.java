@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 @SpringBootTest
+@ActiveProfiles("test")
 public class ContaCorrenteControllerTest {
 
     @Autowired
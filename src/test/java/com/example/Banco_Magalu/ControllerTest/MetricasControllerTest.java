@@ -0,0 +1,79 @@
+package com.example.Banco_Magalu.ControllerTest;
+
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.CacheContas;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Teste das métricas publicadas em /actuator/prometheus depois de operações feitas pelas rotas HTTP.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class MetricasControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private CacheContas cacheContas;
+
+    /**
+     * Depósito, saque recusado e lote aparecem nas métricas por operação e resultado, junto com a contagem de comandos
+     * SQL por rota e as métricas do pool do Hikari.
+     */
+    @Test
+    void testMetricasPublicadasNoFormatoPrometheus() throws Exception {
+        for (String numero : new String[]{"metricas-1", "metricas-2"}) {
+            contaCorrenteRepository.save(new ContaCorrente(numero, BigDecimal.valueOf(100), BigDecimal.ZERO, LocalDate.now(), BigDecimal.ZERO, null));
+            cacheContas.invalidar(numero);
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/transacao/deposito")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroConta\": \"metricas-1\", \"valor\": 50}"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.post("/transacao/saque")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numeroConta\": \"metricas-2\", \"valor\": 5000}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.post("/transacao/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transferencias\": [{\"contaOrigem\": \"metricas-1\", \"contaDestino\": \"metricas-2\", \"valor\": 10}," +
+                                "{\"contaOrigem\": \"metricas-2\", \"contaDestino\": \"nao-existe\", \"valor\": 10}]}"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        String metricas = mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(metricas.contains("banco_transacao_seconds_count{operacao=\"realizarDeposito\",resultado=\"sucesso\"} 1"), metricas);
+        assertTrue(metricas.contains("banco_transacao_seconds_count{operacao=\"realizarSaque\",resultado=\"SaldoInsuficienteException\"} 1"));
+        assertTrue(metricas.contains("banco_transacao_seconds_count{operacao=\"realizarTransferencia\",resultado=\"ContaNaoEncontradaException\"} 1"));
+        assertTrue(metricas.contains("banco_lote_tamanho_transferencias_count{modo=\"agendado\"} 1"));
+        assertTrue(metricas.contains("banco_lote_falhas_total{modo=\"agendado\"} 1.0"));
+        assertTrue(metricas.contains("banco_lote_duracao_seconds_count{modo=\"agendado\"} 1"));
+        assertTrue(metricas.contains("banco_sql_comandos_count{method=\"POST\",uri=\"/transacao/deposito\"} 1"));
+        assertTrue(metricas.contains("hikaricp_connections_pending"));
+        assertTrue(metricas.contains("hikaricp_connections_active"));
+    }
+}
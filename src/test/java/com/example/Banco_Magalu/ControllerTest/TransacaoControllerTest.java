@@ -1,5 +1,6 @@
 package com.example.Banco_Magalu.ControllerTest;
 
+import com.example.Banco_Magalu.config.LoteConfig;
 import com.example.Banco_Magalu.controller.TransacaoController;
 import com.example.Banco_Magalu.dto.DepositoDto;
 import com.example.Banco_Magalu.dto.LoteTransferenciaDto;
@@ -9,14 +10,22 @@ import com.example.Banco_Magalu.entity.ContaCorrente;
 import com.example.Banco_Magalu.entity.TipoTransacao;
 import com.example.Banco_Magalu.entity.Transacao;
 import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.ExecutorLote;
+import com.example.Banco_Magalu.service.AgrupadorDepositos;
+import com.example.Banco_Magalu.service.ExportacaoService;
+import com.example.Banco_Magalu.service.IdempotenciaService;
+import com.example.Banco_Magalu.service.LoteTransferenciaService;
+import com.example.Banco_Magalu.service.MotorContas;
 import com.example.Banco_Magalu.service.TransacaoService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -35,6 +44,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 
 @WebMvcTest(TransacaoController.class)
+@Import({LoteConfig.class, ExecutorLote.class, LoteTransferenciaService.class, SimpleMeterRegistry.class})
 public class TransacaoControllerTest {
 
     @Autowired
@@ -43,6 +53,18 @@ public class TransacaoControllerTest {
     @MockBean
     private ContaCorrenteRepository contaRepository;
 
+    @MockBean
+    private ExportacaoService exportacaoService;
+
+    @MockBean
+    private MotorContas motorContas;
+
+    @MockBean
+    private IdempotenciaService idempotenciaService;
+
+    @MockBean
+    private AgrupadorDepositos agrupadorDepositos;
+
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -0,0 +1,159 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import com.example.Banco_Magalu.service.AgrupadorDepositos;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do agrupamento de depósitos: depósitos concorrentes dividem transações, cada um recebe a sua Transacao
+ * e o saldo e o limite das contas ficam como se os depósitos tivessem sido feitos um a um.
+ */
+@SpringBootTest(properties = {
+        "banco.agrupamento-depositos.habilitado=true",
+        "banco.agrupamento-depositos.janela-ms=20",
+        "banco.agrupamento-depositos.tamanho-maximo-grupo=1000"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class AgrupadorDepositosTest {
+
+    private static final List<String> CONTAS = List.of("folha-1", "folha-2", "folha-3", "folha-4");
+    private static final int THREADS = 32;
+    private static final int DEPOSITOS_POR_THREAD = 20;
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private AgrupadorDepositos agrupadorDepositos;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        for (String numero : CONTAS) {
+            bancoDeTestes.criarConta(numero, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Com muitas threads depositando ao mesmo tempo, o número de transações deve cair uma ordem de grandeza
+     * e cada thread deve receber as suas próprias transações.
+     */
+    @Test
+    void testDepositosConcorrentesDividemTransacoes() throws Exception {
+        double gruposAntes = contador("banco.deposito.agrupamento.grupos");
+        double depositosAntes = contador("banco.deposito.agrupamento.depositos");
+
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Transacao>>> tarefas = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            String conta = CONTAS.get(t % CONTAS.size());
+            BigDecimal valor = BigDecimal.valueOf(t + 1);
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                List<Transacao> transacoes = new ArrayList<>();
+                for (int i = 0; i < DEPOSITOS_POR_THREAD; i++) {
+                    transacoes.add(agrupadorDepositos.realizarDeposito(conta, valor));
+                }
+                return transacoes;
+            }));
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+        BigDecimal[] esperados = new BigDecimal[CONTAS.size()];
+        java.util.Arrays.fill(esperados, BigDecimal.ZERO);
+        for (int t = 0; t < THREADS; t++) {
+            BigDecimal valor = BigDecimal.valueOf(t + 1);
+            for (Transacao transacao : tarefas.get(t).get()) {
+                assertEquals(TipoTransacao.DEPOSITO, transacao.getTipo());
+                assertEquals(0, transacao.getValor().compareTo(valor), "Cada depósito deve receber a sua própria transação.");
+            }
+            esperados[t % CONTAS.size()] = esperados[t % CONTAS.size()].add(valor.multiply(BigDecimal.valueOf(DEPOSITOS_POR_THREAD)));
+        }
+        for (int c = 0; c < CONTAS.size(); c++) {
+            assertEquals(0, contaCorrenteService.buscarCabecalho(CONTAS.get(c)).orElseThrow().getSaldo().compareTo(esperados[c]));
+        }
+        assertEquals(THREADS * DEPOSITOS_POR_THREAD, transacaoRepository.count());
+
+        double grupos = contador("banco.deposito.agrupamento.grupos") - gruposAntes;
+        double depositos = contador("banco.deposito.agrupamento.depositos") - depositosAntes;
+        assertEquals(THREADS * DEPOSITOS_POR_THREAD, depositos);
+        assertTrue(depositos / grupos >= 10, "Os depósitos concorrentes devem dividir as transações.");
+    }
+
+    /**
+     * Depósitos no mesmo grupo restituem o limite de crédito na ordem em que chegaram, como se fossem feitos um a um.
+     */
+    @Test
+    void testGrupoRestituiLimiteNaOrdemDosDepositos() {
+        bancoDeTestes.criarConta("credito", BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.valueOf(100));
+
+        CompletableFuture<Transacao> primeiro = agrupadorDepositos.depositar("credito", BigDecimal.valueOf(30));
+        CompletableFuture<Transacao> segundo = agrupadorDepositos.depositar("credito", BigDecimal.valueOf(50));
+        CompletableFuture<Transacao> terceiro = agrupadorDepositos.depositar("credito", BigDecimal.valueOf(40));
+
+        assertTrue(primeiro.join().getDescricao().contains("Restituição de limite de crédito: R$ 30.00, Saldo atual: R$ 0.00"));
+        assertTrue(segundo.join().getDescricao().contains("Restituição de limite de crédito: R$ 50.00, Saldo atual: R$ 0.00"));
+        assertTrue(terceiro.join().getDescricao().contains("Restituição de limite de crédito: R$ 20.00, Saldo atual: R$ 20.00"));
+
+        CabecalhoContaDto conta = contaCorrenteService.buscarCabecalho("credito").orElseThrow();
+        assertEquals(0, conta.getSaldo().compareTo(BigDecimal.valueOf(20)));
+        assertEquals(0, conta.getLimiteCredito().compareTo(BigDecimal.valueOf(100)));
+    }
+
+    /**
+     * Um depósito em conta inexistente falha sozinho; os outros depósitos do grupo são aplicados.
+     */
+    @Test
+    void testContaInexistenteFalhaSoOProprioDeposito() {
+        CompletableFuture<Transacao> valido = agrupadorDepositos.depositar(CONTAS.get(0), BigDecimal.TEN);
+        CompletableFuture<Transacao> invalido = agrupadorDepositos.depositar("nao-existe", BigDecimal.TEN);
+
+        assertNotNull(valido.join());
+        CompletionException erro = assertThrows(CompletionException.class, invalido::join);
+        assertInstanceOf(ContaNaoEncontradaException.class, erro.getCause());
+        assertThrows(ContaNaoEncontradaException.class, () -> agrupadorDepositos.realizarDeposito("nao-existe", BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> agrupadorDepositos.depositar(CONTAS.get(0), BigDecimal.ZERO));
+        assertEquals(0, contaCorrenteService.buscarCabecalho(CONTAS.get(0)).orElseThrow().getSaldo().compareTo(BigDecimal.TEN));
+    }
+
+    private double contador(String nome) {
+        return meterRegistry.counter(nome).count();
+    }
+}
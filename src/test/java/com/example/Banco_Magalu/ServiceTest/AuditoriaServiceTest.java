@@ -0,0 +1,306 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.AuditoriaProperties;
+import com.example.Banco_Magalu.dto.PaginaAuditoriaDto;
+import com.example.Banco_Magalu.dto.RegistroAuditoriaDto;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.entity.UuidV7Generator;
+import com.example.Banco_Magalu.repository.AuditoriaRepository;
+import com.example.Banco_Magalu.service.AuditoriaService;
+import com.example.Banco_Magalu.service.GravadorAuditoria;
+import com.example.Banco_Magalu.service.TransacaoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes da gravação assíncrona da auditoria, usando o H2 em memória.
+ * A fila tem capacidade 1 e não espera por espaço, para exercitar também o arquivo de contingência.
+ */
+@SpringBootTest(properties = {
+        "banco.auditoria.capacidade-fila=1",
+        "banco.auditoria.espera-fila-ms=0",
+        "banco.auditoria.espera-leitura-ms=10000",
+        "banco.auditoria.arquivo-contingencia=target/auditoria-pendente-teste.jsonl"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class AuditoriaServiceTest {
+
+    private static final String CONTA = "auditada";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private AuditoriaService auditoriaService;
+
+    @Autowired
+    private GravadorAuditoria gravadorAuditoria;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private AuditoriaRepository auditoriaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(CONTA, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Teste para verificar que a auditoria de uma operação confirmada aparece na leitura por conta
+     */
+    @Test
+    public void testAuditoriaVisivelAposCommit() {
+        transacaoService.realizarDeposito(CONTA, BigDecimal.valueOf(100));
+
+        List<String> mensagens = mensagens(CONTA);
+
+        assertEquals(1, mensagens.size(), "A auditoria do depósito deve ser gravada.");
+        assertTrue(mensagens.get(0).startsWith("Depósito na conta " + CONTA));
+    }
+
+    /**
+     * Teste para verificar que a auditoria de uma operação desfeita não é gravada
+     */
+    @Test
+    public void testAuditoriaDescartadaQuandoTransacaoDesfeita() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            transacaoService.realizarDeposito(CONTA, BigDecimal.valueOf(100));
+            status.setRollbackOnly();
+        });
+
+        assertTrue(mensagens(CONTA).isEmpty(), "A auditoria não deve ser gravada para operação desfeita.");
+    }
+
+    /**
+     * Teste para verificar que os registros que não cabem na fila passam pelo arquivo de contingência e são gravados
+     */
+    @Test
+    public void testAuditoriaComFilaCheiaUsaContingencia() throws Exception {
+        int depositos = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < depositos; i++) {
+            executor.submit(() -> transacaoService.realizarDeposito(CONTA, BigDecimal.ONE));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(depositos, mensagens(CONTA).size(),
+                "Todos os registros devem ser gravados, inclusive os que foram para a contingência.");
+    }
+
+    /**
+     * Teste para verificar que uma linha inválida no arquivo de contingência vai para a quarentena e não impede a
+     * gravação dos registros seguintes
+     */
+    @Test
+    public void testLinhaInvalidaDaContingenciaVaiParaQuarentena() throws Exception {
+        Path contingencia = Path.of("target/auditoria-pendente-teste.jsonl");
+        Path quarentena = Path.of("target/auditoria-pendente-teste.jsonl.quarentena");
+        Files.deleteIfExists(quarentena);
+        Files.writeString(contingencia, "{registro-corrompido\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Files.exists(quarentena) && System.nanoTime() < limite) {
+            Thread.sleep(50);
+        }
+        assertEquals(List.of("{registro-corrompido"), Files.readAllLines(quarentena, StandardCharsets.UTF_8));
+
+        transacaoService.realizarDeposito(CONTA, BigDecimal.ONE);
+        assertEquals(1, mensagens(CONTA).size(), "Os registros seguintes continuam sendo gravados.");
+    }
+
+    /**
+     * Teste para verificar que um registro recusado pela chave estrangeira, de uma transação que não existe, é
+     * descartado, e que um registro recusado por outra restrição vai para a quarentena em vez de ser descartado
+     */
+    @Test
+    public void testRegistroRecusadoPorOutraRestricaoVaiParaQuarentena() throws Exception {
+        Path quarentena = Path.of("target/auditoria-pendente-teste.jsonl.quarentena");
+        Files.deleteIfExists(quarentena);
+        Transacao transacao = transacaoService.realizarDeposito(CONTA, BigDecimal.ONE);
+
+        gravadorAuditoria.registrar(registro(UuidV7Generator.gerar(), CONTA));
+        RegistroAuditoriaDto contaInvalida = registro(transacao.getId(), "conta-com-numero-maior-que-a-coluna");
+        gravadorAuditoria.registrar(contaInvalida);
+        gravadorAuditoria.aguardarPendentes();
+
+        List<String> linhas = Files.readAllLines(quarentena, StandardCharsets.UTF_8);
+        assertEquals(1, linhas.size(), "Só o registro recusado por outra restrição vai para a quarentena.");
+        assertTrue(linhas.get(0).contains(contaInvalida.getId().toString()), linhas.get(0));
+        assertEquals(1, auditoriaRepository.count(), "Só a auditoria do depósito é gravada.");
+    }
+
+    /**
+     * Teste para verificar que os registros deixados no diário por uma execução que caiu são gravados na partida
+     * seguinte, e que um registro repetido no diário é gravado uma única vez
+     */
+    @Test
+    public void testDiarioDeixadoPorQuedaEGravadoNaPartida() throws Exception {
+        Transacao transacao = transacaoService.realizarDeposito(CONTA, BigDecimal.ONE);
+        gravadorAuditoria.aguardarPendentes();
+
+        Path diretorioDiario = Files.createTempDirectory(Path.of("target"), "auditoria-diario-queda");
+        RegistroAuditoriaDto registro = registro(transacao.getId(), CONTA);
+        registro.setId(UuidV7Generator.gerar());
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        String linha = objectMapper.writeValueAsString(registro) + "\n";
+        Files.writeString(diretorioDiario.resolve("segmento-1.jsonl"), linha + linha, StandardCharsets.UTF_8);
+
+        AuditoriaProperties properties = new AuditoriaProperties();
+        properties.setDiretorioDiario(diretorioDiario.toString());
+        properties.setArquivoContingencia(diretorioDiario.resolveSibling(diretorioDiario.getFileName() + ".jsonl").toString());
+        GravadorAuditoria gravadorReiniciado = new GravadorAuditoria(properties, entityManager, transactionManager,
+                new SimpleMeterRegistry());
+        gravadorReiniciado.start();
+        try {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!auditoriaRepository.existsById(registro.getId()) && System.nanoTime() < limite) {
+                Thread.sleep(50);
+            }
+        } finally {
+            gravadorReiniciado.stop();
+        }
+
+        assertTrue(auditoriaRepository.existsById(registro.getId()), "O registro do diário deve ser gravado.");
+        assertEquals(2, auditoriaRepository.count(), "O registro repetido no diário deve ser gravado uma única vez.");
+        try (Stream<Path> segmentos = Files.list(diretorioDiario)) {
+            assertEquals(0, segmentos.count(), "O diário recuperado deve ser apagado.");
+        }
+    }
+
+    /**
+     * Teste para verificar as colunas estruturadas de um saque que usa o limite de crédito e a mensagem montada na leitura
+     */
+    @Test
+    public void testAuditoriaEstruturadaSaqueComLimite() {
+        bancoDeTestes.criarConta("auditada-limite", BigDecimal.valueOf(50), BigDecimal.valueOf(100), BigDecimal.valueOf(100));
+
+        transacaoService.realizarSaque("auditada-limite", BigDecimal.valueOf(100));
+        List<String> mensagens = mensagens("auditada-limite");
+
+        Auditoria auditoria = auditoriaRepository.findAll().get(0);
+        assertEquals(TipoTransacao.SAQUE, auditoria.getTipo());
+        assertEquals("auditada-limite", auditoria.getNumeroConta(), "O número da conta é gravado no registro.");
+        assertEquals(Dinheiro.deCentavos(100), auditoria.getTaxa(), "A taxa de saque é de 1%.");
+        assertEquals(Dinheiro.deCentavos(5000), auditoria.getSaldoAnterior());
+        assertEquals(Dinheiro.ZERO, auditoria.getSaldoPosterior());
+        assertEquals(Dinheiro.deCentavos(10000), auditoria.getLimiteAnterior());
+        assertEquals(Dinheiro.deCentavos(4900), auditoria.getLimitePosterior());
+        assertNull(auditoria.getMensagem(), "A mensagem não é gravada, é montada na leitura.");
+        assertEquals(List.of("Saque de R$ 100.00 realizado na conta auditada-limite, na data de " + LocalDate.now() +
+                ". Taxa de saque: R$ 1.00. Limite disponível: R$ 49.00"), mensagens);
+    }
+
+    /**
+     * Teste para verificar saldo e limite anteriores e posteriores na auditoria de um lote compensado, para uma origem
+     * debitada pelo lote, usando o limite de crédito, e para uma origem creditada pelo lote
+     */
+    @Test
+    public void testAuditoriaDoLoteCompensado() {
+        bancoDeTestes.criarConta("lote-a", BigDecimal.valueOf(50), BigDecimal.valueOf(100), BigDecimal.valueOf(100));
+        bancoDeTestes.criarConta("lote-b", BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        ResultadoLoteDto resultado = transacaoService.realizarTransferenciasCompensadas(List.of(
+                new TransferenciaDto("lote-a", "lote-b", BigDecimal.valueOf(80)),
+                new TransferenciaDto("lote-b", "lote-a", BigDecimal.TEN)));
+        assertTrue(resultado.getFalhas().isEmpty(), resultado.getFalhas().toString());
+        gravadorAuditoria.aguardarPendentes();
+
+        // A: -80 - 1.60 de taxa + 10 = -71.60, 50 do saldo e 21.60 do limite; B: +80 - 10 - 0.10 de taxa = +69.90
+        Auditoria origemDebitada = auditoriaRepository.findAll().stream()
+                .filter(auditoria -> auditoria.getNumeroConta().equals("lote-a")).findFirst().orElseThrow();
+        assertEquals(Dinheiro.deCentavos(5000), origemDebitada.getSaldoAnterior());
+        assertEquals(Dinheiro.ZERO, origemDebitada.getSaldoPosterior());
+        assertEquals(Dinheiro.deCentavos(10000), origemDebitada.getLimiteAnterior());
+        assertEquals(Dinheiro.deCentavos(7840), origemDebitada.getLimitePosterior());
+
+        Auditoria origemCreditada = auditoriaRepository.findAll().stream()
+                .filter(auditoria -> auditoria.getNumeroConta().equals("lote-b")).findFirst().orElseThrow();
+        assertEquals(Dinheiro.ZERO, origemCreditada.getSaldoAnterior());
+        assertEquals(Dinheiro.deCentavos(6990), origemCreditada.getSaldoPosterior());
+        assertEquals(Dinheiro.ZERO, origemCreditada.getLimiteAnterior());
+        assertEquals(Dinheiro.ZERO, origemCreditada.getLimitePosterior());
+    }
+
+    /**
+     * Teste para verificar que as páginas seguem o cursor sem repetir nem pular registros e que o período filtra por data
+     */
+    @Test
+    public void testAuditoriaPaginadaPorCursorEPeriodo() {
+        int depositos = 5;
+        for (int i = 0; i < depositos; i++) {
+            transacaoService.realizarDeposito(CONTA, BigDecimal.ONE);
+        }
+
+        PaginaAuditoriaDto primeira = auditoriaService.buscarMensagensPorConta(CONTA, null, null, null, null, 2);
+        PaginaAuditoriaDto segunda = auditoriaService.buscarMensagensPorConta(CONTA, null, null,
+                primeira.getProximaDataHora(), primeira.getProximoId(), 2);
+        PaginaAuditoriaDto terceira = auditoriaService.buscarMensagensPorConta(CONTA, null, null,
+                segunda.getProximaDataHora(), segunda.getProximoId(), 2);
+
+        assertEquals(2, primeira.getMensagens().size());
+        assertEquals(2, segunda.getMensagens().size());
+        assertEquals(1, terceira.getMensagens().size());
+        assertNull(terceira.getProximoId(), "A última página não tem cursor.");
+        // O saldo atual cresce a cada depósito: a primeira página traz o mais recente
+        assertTrue(primeira.getMensagens().get(0).contains("Saldo atual: R$ 5.00"), primeira.getMensagens().get(0));
+        assertTrue(terceira.getMensagens().get(0).contains("Saldo atual: R$ 1.00"), terceira.getMensagens().get(0));
+
+        LocalDate hoje = LocalDate.now();
+        assertEquals(depositos, auditoriaService.buscarMensagensPorConta(CONTA, hoje, hoje, null, null, 10).getMensagens().size());
+        assertTrue(auditoriaService.buscarMensagensPorConta(CONTA, hoje.plusDays(1), null, null, null, 10).getMensagens().isEmpty(),
+                "Registros anteriores ao período não devem aparecer.");
+        assertThrows(IllegalArgumentException.class,
+                () -> auditoriaService.buscarMensagensPorConta(CONTA, hoje, hoje.minusDays(1), null, null, 10));
+    }
+
+    private static RegistroAuditoriaDto registro(UUID transacaoId, String numeroConta) {
+        return new RegistroAuditoriaDto(transacaoId, numeroConta, TipoTransacao.DEPOSITO, Dinheiro.deCentavos(100),
+                Dinheiro.ZERO, Dinheiro.ZERO, Dinheiro.deCentavos(100), Dinheiro.ZERO, Dinheiro.ZERO, null, LocalDateTime.now());
+    }
+
+    private List<String> mensagens(String conta) {
+        return auditoriaService.buscarMensagensPorConta(conta, null, null, null, null, 500).getMensagens();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.AuditoriaRepository;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.LancamentoRepository;
+import com.example.Banco_Magalu.repository.PontoProjecaoRepository;
+import com.example.Banco_Magalu.repository.SubSaldoRepository;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.GravadorAuditoria;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Preparação do banco H2 compartilhada pelos testes de serviço, importada com @Import(BancoDeTestes.class).
+ * Os testes com a mesma configuração dividem o contexto e o banco, então cada teste começa apagando o que os
+ * anteriores gravaram.
+ */
+@TestComponent
+public class BancoDeTestes {
+
+    private final GravadorAuditoria gravadorAuditoria;
+    private final AuditoriaRepository auditoriaRepository;
+    private final TransacaoRepository transacaoRepository;
+    private final LancamentoRepository lancamentoRepository;
+    private final SubSaldoRepository subSaldoRepository;
+    private final PontoProjecaoRepository pontoProjecaoRepository;
+    private final ContaCorrenteRepository contaCorrenteRepository;
+    private final CacheContas cacheContas;
+
+    public BancoDeTestes(GravadorAuditoria gravadorAuditoria, AuditoriaRepository auditoriaRepository,
+                         TransacaoRepository transacaoRepository, LancamentoRepository lancamentoRepository,
+                         SubSaldoRepository subSaldoRepository, PontoProjecaoRepository pontoProjecaoRepository,
+                         ContaCorrenteRepository contaCorrenteRepository, CacheContas cacheContas) {
+        this.gravadorAuditoria = gravadorAuditoria;
+        this.auditoriaRepository = auditoriaRepository;
+        this.transacaoRepository = transacaoRepository;
+        this.lancamentoRepository = lancamentoRepository;
+        this.subSaldoRepository = subSaldoRepository;
+        this.pontoProjecaoRepository = pontoProjecaoRepository;
+        this.contaCorrenteRepository = contaCorrenteRepository;
+        this.cacheContas = cacheContas;
+    }
+
+    /**
+     * Espera a auditoria dos testes anteriores chegar ao banco e apaga as tabelas, das que referenciam para as referenciadas
+     */
+    public void limpar() {
+        gravadorAuditoria.aguardarPendentes();
+        auditoriaRepository.deleteAllInBatch();
+        transacaoRepository.deleteAllInBatch();
+        lancamentoRepository.deleteAllInBatch();
+        subSaldoRepository.deleteAllInBatch();
+        pontoProjecaoRepository.deleteAllInBatch();
+        contaCorrenteRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Grava a conta direto pelo repositório e a tira do cache, que pode ter a conta de mesmo número de outro teste
+     */
+    public ContaCorrente criarConta(String numero, BigDecimal saldo, BigDecimal limiteCredito, BigDecimal limiteMaximo) {
+        ContaCorrente conta = contaCorrenteRepository.save(new ContaCorrente(numero, saldo, limiteCredito, LocalDate.now(),
+                limiteMaximo, null));
+        cacheContas.invalidar(numero);
+        return conta;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.AgrupadorDepositos;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes com o cache de contas fora do modo estrito (banco.cache-contas.estrito=false): as transações de escrita leem
+ * o cabeçalho do cache, que pode estar desatualizado, e os UPDATEs guardados recusam o que foi calculado a partir dele.
+ */
+@SpringBootTest(properties = {
+        "banco.cache-contas.estrito=false",
+        "banco.agrupamento-depositos.habilitado=true",
+        "banco.agrupamento-depositos.janela-ms=20"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class CacheContasNaoEstritoTest {
+
+    private static final String CONTA = "credito";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private AgrupadorDepositos agrupadorDepositos;
+
+    @Autowired
+    private CacheContas cacheContas;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+    }
+
+    /**
+     * Teste para verificar que fora do modo estrito as transações de escrita leem do cache
+     */
+    @Test
+    void testTransacaoDeEscritaLeDoCache() {
+        bancoDeTestes.criarConta(CONTA, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(100));
+        contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        // Alteração por fora do serviço: o cache continua com o saldo anterior até expirar
+        ContaCorrente conta = contaCorrenteRepository.findById(CONTA).orElseThrow();
+        conta.setSaldo(BigDecimal.valueOf(500));
+        contaCorrenteRepository.save(conta);
+
+        BigDecimal saldoEmCache = new TransactionTemplate(transactionManager)
+                .execute(status -> contaCorrenteService.buscarCabecalho(CONTA).orElseThrow().getSaldo());
+        assertEquals(0, saldoEmCache.compareTo(BigDecimal.valueOf(100)));
+    }
+
+    /**
+     * Teste para deposito com o cabeçalho da conta desatualizado no cache: a restituição calculada passaria do limite
+     * máximo, o UPDATE a recusa e o depósito é refeito uma única vez a partir da conta relida com bloqueio.
+     */
+    @Test
+    void testDepositoComCabecalhoDesatualizadoRestituiAteOLimiteMaximo() {
+        bancoDeTestes.criarConta(CONTA, BigDecimal.valueOf(100), BigDecimal.valueOf(300), BigDecimal.valueOf(500));
+        cacheContas.aquecer(List.of(new CabecalhoContaDto(CONTA, BigDecimal.valueOf(100), BigDecimal.valueOf(100),
+                BigDecimal.valueOf(500), LocalDate.now(), 0)));
+
+        transacaoService.realizarDeposito(CONTA, BigDecimal.valueOf(400));
+
+        ContaCorrente contaRecuperada = contaCorrenteRepository.findById(CONTA).orElseThrow();
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de credito deve parar no limite máximo.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(300)), "O saldo deve receber o que passou do limite máximo.");
+    }
+
+    /**
+     * Com o cabeçalho da conta desatualizado no cache, o UPDATE do grupo recusa a restituição calculada e o grupo é
+     * creditado de novo uma única vez, a partir da conta relida com bloqueio; a auditoria parte da posição relida.
+     */
+    @Test
+    void testGrupoComCabecalhoDesatualizadoRestituiAteOLimiteMaximo() {
+        bancoDeTestes.criarConta(CONTA, BigDecimal.ZERO, BigDecimal.valueOf(70), BigDecimal.valueOf(100));
+        cacheContas.aquecer(List.of(new CabecalhoContaDto(CONTA, BigDecimal.ZERO, BigDecimal.ZERO,
+                BigDecimal.valueOf(100), LocalDate.now(), 0)));
+
+        Transacao deposito = agrupadorDepositos.depositar(CONTA, BigDecimal.valueOf(40)).join();
+
+        assertTrue(deposito.getDescricao().contains("Restituição de limite de crédito: R$ 30.00, Saldo atual: R$ 10.00"));
+
+        cacheContas.invalidar(CONTA);
+        CabecalhoContaDto conta = contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        assertEquals(0, conta.getSaldo().compareTo(BigDecimal.valueOf(10)));
+        assertEquals(0, conta.getLimiteCredito().compareTo(BigDecimal.valueOf(100)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do cache de cabeçalhos de conta, usando o H2 em memória.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class CacheContasTest {
+
+    private static final String CONTA = "em-cache";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(CONTA, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(100));
+    }
+
+    /**
+     * Teste para verificar que a segunda consulta da conta vem do cache
+     */
+    @Test
+    void testSegundaConsultaVemDoCache() {
+        double acertosAntes = acertos();
+
+        CabecalhoContaDto primeira = contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        CabecalhoContaDto segunda = contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+
+        assertSame(primeira, segunda, "A segunda consulta deve devolver o cabeçalho do cache.");
+        assertEquals(acertosAntes + 1, acertos());
+    }
+
+    /**
+     * Teste para verificar que uma operação da aplicação invalida a conta e a próxima consulta vê o novo saldo
+     */
+    @Test
+    void testOperacaoInvalidaConta() {
+        contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+
+        transacaoService.realizarSaque(CONTA, BigDecimal.valueOf(10));
+
+        CabecalhoContaDto cabecalho = contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().compareTo(new BigDecimal("89.90")), "O saque com taxa de 1% deve aparecer na consulta.");
+    }
+
+    /**
+     * Teste para verificar que uma conta inexistente não fica no cache
+     */
+    @Test
+    void testContaInexistenteNaoFicaNoCache() {
+        assertTrue(contaCorrenteService.buscarCabecalho("nova").isEmpty());
+
+        bancoDeTestes.criarConta("nova", BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        assertTrue(contaCorrenteService.buscarCabecalho("nova").isPresent(), "A conta criada depois deve ser encontrada.");
+    }
+
+    /**
+     * Teste para verificar que no modo estrito as transações de escrita leem do banco; fora dele, leem do cache
+     * (CacheContasNaoEstritoTest)
+     */
+    @Test
+    void testModoEstritoLeDoBancoEmTransacaoDeEscrita() {
+        contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        // Alteração por fora do serviço: o cache continua com o saldo anterior até expirar
+        ContaCorrente conta = contaCorrenteRepository.findById(CONTA).orElseThrow();
+        conta.setSaldo(BigDecimal.valueOf(500));
+        contaCorrenteRepository.save(conta);
+
+        BigDecimal saldoDoBanco = new TransactionTemplate(transactionManager)
+                .execute(status -> contaCorrenteService.buscarCabecalho(CONTA).orElseThrow().getSaldo());
+        assertEquals(0, saldoDoBanco.compareTo(BigDecimal.valueOf(500)), "No modo estrito a leitura deve ir ao banco.");
+    }
+
+    /**
+     * Teste para verificar que uma transação desfeita não deixa no cache o que leu depois de alterar a conta
+     */
+    @Test
+    void testTransacaoDesfeitaNaoPreencheCache() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        transacao.executeWithoutResult(status -> {
+            contaCorrenteService.atualizarSaldo(CONTA, BigDecimal.valueOf(999));
+            assertEquals(0, contaCorrenteService.buscarCabecalho(CONTA).orElseThrow().getSaldo().compareTo(BigDecimal.valueOf(999)));
+            status.setRollbackOnly();
+        });
+
+        CabecalhoContaDto cabecalho = contaCorrenteService.buscarCabecalho(CONTA).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().compareTo(BigDecimal.valueOf(100)), "O saldo desfeito não deve ser visto.");
+    }
+
+    private double acertos() {
+        return meterRegistry.get("cache.gets").tag("cache", "contas").tag("result", "hit").functionCounter().count();
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.Banco_Magalu.ServiceTest;
 
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.dto.ExtratoDto;
 import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
 import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
 import com.example.Banco_Magalu.service.ContaCorrenteService;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.orm.jpa.JpaSystemException;
+import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -19,6 +25,7 @@ import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
+@ActiveProfiles("test")
 @Transactional
 public class ContaCorrenteServiceTest {
 
@@ -28,6 +35,9 @@ public class ContaCorrenteServiceTest {
     @Autowired
     private ContaCorrenteRepository contaCorrenteRepository;
 
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
     /**
      * Cria uma conta corrente para testes.
      */
@@ -53,6 +63,7 @@ public class ContaCorrenteServiceTest {
      */
     @Test
     void testCriarContaDuplicada() {
+        contaCorrenteRepository.save(new ContaCorrente("12345", BigDecimal.valueOf(1000), BigDecimal.valueOf(500), LocalDate.now(), BigDecimal.valueOf(1000), null));
         ContaCorrente conta = new ContaCorrente("12345", BigDecimal.valueOf(1000), BigDecimal.valueOf(500), LocalDate.now(), BigDecimal.valueOf(1000), null);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -129,5 +140,84 @@ public class ContaCorrenteServiceTest {
         assertEquals(BigDecimal.valueOf(1000), limiteMaximo, "O limite máximo deve ser 2000.");
     }
 
+    /**
+     * Teste Buscar Extrato paginado por cursor.
+     */
+    @Test
+    void testBuscarExtratoPaginado() {
+        ContaCorrente conta = contaCorrenteRepository.save(
+                new ContaCorrente("777", BigDecimal.valueOf(500), BigDecimal.valueOf(100), LocalDate.now(), BigDecimal.valueOf(100), null));
+        for (int i = 0; i < 3; i++) {
+            transacaoRepository.save(new Transacao(null, TipoTransacao.DEPOSITO, BigDecimal.TEN,
+                    LocalDate.now().minusDays(i), "Depósito " + i, conta));
+        }
+
+        ExtratoDto primeiraPagina = contaCorrenteService.buscarExtrato("777", null, null, 2);
+
+        assertEquals(2, primeiraPagina.getTransacoes().size(), "A primeira página deve ter 2 transações.");
+        assertEquals(LocalDate.now(), primeiraPagina.getTransacoes().get(0).getData(), "A transação mais recente deve vir primeiro.");
+        assertNotNull(primeiraPagina.getProximoId(), "Deve existir cursor para a próxima página.");
+
+        ExtratoDto segundaPagina = contaCorrenteService.buscarExtrato("777",
+                primeiraPagina.getProximaData(), primeiraPagina.getProximoId(), 2);
+
+        assertEquals(1, segundaPagina.getTransacoes().size(), "A segunda página deve ter a transação restante.");
+        assertEquals(LocalDate.now().minusDays(2), segundaPagina.getTransacoes().get(0).getData());
+        assertNull(segundaPagina.getProximoId(), "Não deve existir cursor após a última página.");
+    }
+
+    /**
+     * Teste Debitar usando saldo e limite de crédito, recusando débito acima do disponível.
+     */
+    @Test
+    void testDebitarSaldoELimite() {
+        contaCorrenteRepository.save(new ContaCorrente("888", BigDecimal.valueOf(100), BigDecimal.valueOf(50), LocalDate.now(), BigDecimal.valueOf(50), null));
+
+        assertFalse(contaCorrenteService.debitar("888", BigDecimal.valueOf(151)), "O débito acima de saldo + limite deve ser recusado.");
+        assertTrue(contaCorrenteService.debitar("888", BigDecimal.valueOf(130)), "O débito dentro de saldo + limite deve ser aplicado.");
+
+        ContaCorrente contaAtualizada = contaCorrenteRepository.findById("888").orElseThrow();
+        assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO), "O saldo deve ser zerado.");
+        assertEquals(0, contaAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(20)), "O restante deve sair do limite de crédito.");
+        assertFalse(contaCorrenteService.debitar("99999", BigDecimal.ONE), "O débito em conta inexistente deve ser recusado.");
+    }
+
+    /**
+     * Teste Debitar separando a parte que saiu do saldo, com a qual a auditoria reconstrói a posição anterior.
+     */
+    @Test
+    void testDebitarSeparandoSaldo() {
+        contaCorrenteRepository.save(new ContaCorrente("889", BigDecimal.valueOf(100), BigDecimal.valueOf(50), LocalDate.now(), BigDecimal.valueOf(50), null));
+
+        assertEquals(0, contaCorrenteService.debitarSeparandoSaldo("889", BigDecimal.valueOf(100)).orElseThrow().compareTo(BigDecimal.valueOf(100)),
+                "O débito igual ao saldo sai todo do saldo.");
+        contaCorrenteService.creditarSaldo("889", BigDecimal.valueOf(30));
+        assertEquals(0, contaCorrenteService.debitarSeparandoSaldo("889", BigDecimal.valueOf(45)).orElseThrow().compareTo(BigDecimal.valueOf(30)),
+                "Só o saldo existente sai do saldo; o resto sai do limite de crédito.");
+        assertTrue(contaCorrenteService.debitarSeparandoSaldo("889", BigDecimal.valueOf(36)).isEmpty(),
+                "O débito acima de saldo + limite deve ser recusado.");
+
+        ContaCorrente contaAtualizada = contaCorrenteRepository.findById("889").orElseThrow();
+        assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO));
+        assertEquals(0, contaAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(35)));
+    }
+
+    /**
+     * Teste Debitar a partir de um cabeçalho desatualizado: o UPDATE que confere o saldo lido é recusado e a conta,
+     * relida com bloqueio, é debitada com a parte do saldo atual.
+     */
+    @Test
+    void testDebitarComCabecalhoDesatualizado() {
+        contaCorrenteRepository.save(new ContaCorrente("890", BigDecimal.valueOf(20), BigDecimal.valueOf(50), LocalDate.now(), BigDecimal.valueOf(50), null));
+        CabecalhoContaDto cabecalhoDesatualizado = new CabecalhoContaDto("890", BigDecimal.valueOf(10), BigDecimal.valueOf(50),
+                BigDecimal.valueOf(50), LocalDate.now(), 0);
+
+        assertEquals(0, contaCorrenteService.debitarSeparandoSaldo(cabecalhoDesatualizado, BigDecimal.valueOf(40)).orElseThrow().compareTo(BigDecimal.valueOf(20)),
+                "A parte do saldo deve vir do saldo atual, e não do lido.");
+
+        ContaCorrente contaAtualizada = contaCorrenteRepository.findById("890").orElseThrow();
+        assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO));
+        assertEquals(0, contaAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(30)));
     }
 
+}
@@ -0,0 +1,66 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.SubSaldoRepository;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes de uma conta quente com a divisão do saldo desligada (banco.contas-quentes.habilitado=false), como depois de
+ * desligar o modo com partes já creditadas.
+ */
+@SpringBootTest(properties = {
+        "banco.contas-quentes.habilitado=false",
+        "banco.contas-quentes.contas=quente",
+        "banco.contas-quentes.slots=8"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class ContasQuentesDesligadasTest {
+
+    private static final String CONTA_QUENTE = "quente";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private SubSaldoRepository subSaldoRepository;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(CONTA_QUENTE, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(50));
+        // Parte creditada enquanto o modo estava ligado
+        subSaldoRepository.criarCreditando(CONTA_QUENTE, 3, BigDecimal.valueOf(200));
+    }
+
+    /**
+     * Com o modo desligado, os créditos voltam para a linha da conta e as partes que restaram continuam no saldo.
+     */
+    @Test
+    void testPartesContinuamNoSaldoComOModoDesligado() {
+        transacaoService.realizarDeposito(CONTA_QUENTE, BigDecimal.valueOf(5));
+
+        assertEquals(0, contaCorrenteRepository.findById(CONTA_QUENTE).orElseThrow().getSaldo().compareTo(BigDecimal.valueOf(105)));
+        assertEquals(0, contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow().getSaldo().compareTo(BigDecimal.valueOf(305)));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.SubSaldo;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.SubSaldoRepository;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes das contas quentes no modo ATOMICO: os créditos vão para as partes do saldo, as leituras somam as partes
+ * e os débitos consolidam as partes na conta antes de usar o limite de crédito.
+ */
+@SpringBootTest(properties = {
+        "banco.contas-quentes.habilitado=true",
+        "banco.contas-quentes.contas=quente",
+        "banco.contas-quentes.slots=8"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class ContasQuentesTest {
+
+    private static final String CONTA_QUENTE = "quente";
+    private static final String CONTA_ORIGEM = "origem";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private SubSaldoRepository subSaldoRepository;
+
+    @Autowired
+    private CacheContas cacheContas;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        // Limite de crédito cheio: os depósitos não restituem limite e vão inteiros para o saldo
+        bancoDeTestes.criarConta(CONTA_QUENTE, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(50));
+        bancoDeTestes.criarConta(CONTA_ORIGEM, BigDecimal.valueOf(100000), BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Depósitos e transferências recebidas ficam nas partes, a linha da conta não muda e a consulta soma tudo.
+     */
+    @Test
+    void testCreditosVaoParaAsPartes() {
+        long versaoAntes = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow().getVersao();
+
+        transacaoService.realizarDeposito(CONTA_QUENTE, BigDecimal.valueOf(200));
+        transacaoService.realizarTransferencia(CONTA_ORIGEM, CONTA_QUENTE, BigDecimal.valueOf(30));
+
+        assertEquals(0, contaCorrenteRepository.findById(CONTA_QUENTE).orElseThrow().getSaldo().compareTo(BigDecimal.valueOf(100)),
+                "A linha da conta quente não deve receber os créditos.");
+        BigDecimal somaPartes = subSaldoRepository.findByNumeroContaOrderBySlot(CONTA_QUENTE).stream()
+                .map(SubSaldo::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, somaPartes.compareTo(BigDecimal.valueOf(230)));
+
+        CabecalhoContaDto cabecalho = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().compareTo(BigDecimal.valueOf(330)), "A consulta deve somar as partes ao saldo.");
+        assertEquals(0, cabecalho.getLimiteCredito().compareTo(BigDecimal.valueOf(50)));
+        assertTrue(cabecalho.getVersao() > versaoAntes, "A versão deve mudar a cada crédito nas partes.");
+    }
+
+    /**
+     * Um saque maior que o saldo da linha da conta consolida as partes e só usa o limite de crédito depois delas.
+     */
+    @Test
+    void testSaqueConsolidaAsPartesAntesDoLimite() {
+        transacaoService.realizarDeposito(CONTA_QUENTE, BigDecimal.valueOf(200));
+
+        // 250 + 1% de taxa = 252.50, mais que os 100 da linha da conta e menos que os 300 do saldo com as partes
+        transacaoService.realizarSaque(CONTA_QUENTE, BigDecimal.valueOf(250));
+
+        CabecalhoContaDto cabecalho = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().compareTo(new BigDecimal("47.50")));
+        assertEquals(0, cabecalho.getLimiteCredito().compareTo(BigDecimal.valueOf(50)), "O limite de crédito não deve ser usado.");
+        assertTrue(subSaldoRepository.findByNumeroContaOrderBySlot(CONTA_QUENTE).stream().allMatch(parte -> parte.getSaldo().signum() == 0),
+                "As partes devem ter sido levadas para a conta.");
+
+        // 90 + 0.90 de taxa: 47.50 do saldo e 43.40 do limite
+        transacaoService.realizarSaque(CONTA_QUENTE, BigDecimal.valueOf(90));
+        cabecalho = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().compareTo(BigDecimal.ZERO));
+        assertEquals(0, cabecalho.getLimiteCredito().compareTo(new BigDecimal("6.60")));
+
+        assertThrows(SaldoInsuficienteException.class, () -> transacaoService.realizarSaque(CONTA_QUENTE, BigDecimal.valueOf(10)));
+    }
+
+    /**
+     * Créditos e saques concorrentes na conta quente conservam o dinheiro: o saldo final com as partes é o inicial
+     * mais os depósitos, menos os saques e as taxas aceitos.
+     */
+    @Test
+    void testCreditosEDebitosConcorrentesConservamOSaldo() throws Exception {
+        int threads = 8;
+        int depositosPorThread = 50;
+        AtomicInteger saquesAceitos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> tarefas = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tarefas.add(executor.submit(() -> {
+                for (int i = 0; i < depositosPorThread; i++) {
+                    transacaoService.realizarDeposito(CONTA_QUENTE, BigDecimal.TEN);
+                }
+                return null;
+            }));
+        }
+        tarefas.add(executor.submit(() -> {
+            for (int i = 0; i < 100; i++) {
+                try {
+                    transacaoService.realizarSaque(CONTA_QUENTE, BigDecimal.valueOf(20));
+                    saquesAceitos.incrementAndGet();
+                } catch (SaldoInsuficienteException e) {
+                    // Saldo ainda não chegou; o próximo saque tenta de novo
+                }
+            }
+            return null;
+        }));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+
+        BigDecimal esperado = BigDecimal.valueOf(100 + 50)
+                .add(BigDecimal.TEN.multiply(BigDecimal.valueOf((long) threads * depositosPorThread)))
+                .subtract(new BigDecimal("20.20").multiply(BigDecimal.valueOf(saquesAceitos.get())));
+        CabecalhoContaDto cabecalho = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow();
+        assertEquals(0, cabecalho.getSaldo().add(cabecalho.getLimiteCredito()).compareTo(esperado),
+                "Saldo com as partes + limite de crédito deve ser o inicial mais os depósitos, menos os saques com taxa.");
+        assertTrue(saquesAceitos.get() > 0);
+    }
+
+    /**
+     * Os primeiros créditos de uma conta quente criam as partes ao mesmo tempo; nenhum crédito pode se perder quando
+     * uma thread encontra as partes já criadas e creditadas por outra.
+     */
+    @Test
+    void testPrimeirosCreditosConcorrentesNaoSePerdem() throws Exception {
+        int threads = 16;
+        for (int rodada = 0; rodada < 5; rodada++) {
+            subSaldoRepository.apagarDaConta(CONTA_QUENTE);
+            BigDecimal antes = contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow().getSaldo();
+            CountDownLatch largada = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<Boolean>> tarefas = new java.util.ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tarefas.add(executor.submit(() -> {
+                    largada.await();
+                    return contaCorrenteService.creditarSaldo(CONTA_QUENTE, BigDecimal.ONE);
+                }));
+            }
+            largada.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            for (Future<Boolean> tarefa : tarefas) {
+                assertTrue(tarefa.get());
+            }
+
+            BigDecimal somaPartes = subSaldoRepository.findByNumeroContaOrderBySlot(CONTA_QUENTE).stream()
+                    .map(SubSaldo::getSaldo).reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, somaPartes.compareTo(BigDecimal.valueOf(threads)), "Rodada " + rodada);
+            cacheContas.invalidar(CONTA_QUENTE);
+            assertEquals(0, contaCorrenteService.buscarCabecalho(CONTA_QUENTE).orElseThrow().getSaldo()
+                    .compareTo(antes.add(BigDecimal.valueOf(threads))), "Rodada " + rodada);
+            contaCorrenteService.atualizarSaldo(CONTA_QUENTE, BigDecimal.valueOf(100));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.entity.Dinheiro;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DinheiroTest {
+
+    /**
+     * Teste do arredondamento das taxas: meio centavo é arredondado para longe do zero.
+     */
+    @Test
+    void testPercentualArredondaMeioCentavoParaCima() {
+        assertEquals(Dinheiro.deCentavos(1), Dinheiro.de(new BigDecimal("0.50")).percentual(100));
+        assertEquals(Dinheiro.ZERO, Dinheiro.de(new BigDecimal("0.49")).percentual(100));
+        assertEquals(Dinheiro.deCentavos(2469), Dinheiro.de(new BigDecimal("1234.56")).percentual(200));
+        assertEquals(Dinheiro.deCentavos(-1), Dinheiro.de(new BigDecimal("-0.50")).percentual(100));
+    }
+
+    /**
+     * Teste da conversão de BigDecimal com mais de duas casas decimais e da volta para BigDecimal.
+     */
+    @Test
+    void testConversaoBigDecimal() {
+        assertEquals(Dinheiro.deCentavos(1235), Dinheiro.de(new BigDecimal("12.345")));
+        assertEquals(Dinheiro.deCentavos(1000), Dinheiro.de(BigDecimal.TEN));
+        assertEquals(new BigDecimal("12.35"), Dinheiro.deCentavos(1235).toBigDecimal());
+        assertNull(Dinheiro.de(null));
+    }
+
+    /**
+     * Teste da formatação com duas casas decimais, independente do locale.
+     */
+    @Test
+    void testFormatacao() {
+        assertEquals("0.00", Dinheiro.ZERO.toString());
+        assertEquals("0.05", Dinheiro.deCentavos(5).toString());
+        assertEquals("-0.05", Dinheiro.deCentavos(-5).toString());
+        assertEquals("1234.50", Dinheiro.deCentavos(123450).toString());
+        assertEquals(new BigDecimal("92233720368547758.07").toPlainString(), Dinheiro.deCentavos(Long.MAX_VALUE).toString());
+    }
+
+    /**
+     * Teste do estouro: as operações não devem perder valor silenciosamente.
+     */
+    @Test
+    void testEstouroLancaExcecao() {
+        Dinheiro maximo = Dinheiro.deCentavos(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> maximo.somar(Dinheiro.deCentavos(1)));
+    }
+}
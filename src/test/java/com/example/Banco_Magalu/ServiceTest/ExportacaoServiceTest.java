@@ -0,0 +1,116 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.FormatoExportacao;
+import com.example.Banco_Magalu.service.ExportacaoService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes das exportações de auditoria e transações, usando o H2 em memória.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class ExportacaoServiceTest {
+
+    private static final String CONTA = "exportada";
+    private static final String OUTRA_CONTA = "exportada-outra";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private ExportacaoService exportacaoService;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(CONTA, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        bancoDeTestes.criarConta(OUTRA_CONTA, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        transacaoService.realizarDeposito(CONTA, BigDecimal.valueOf(100));
+        transacaoService.realizarDeposito(CONTA, BigDecimal.valueOf(50));
+        transacaoService.realizarSaque(CONTA, BigDecimal.valueOf(10));
+        transacaoService.realizarDeposito(OUTRA_CONTA, BigDecimal.valueOf(7));
+    }
+
+    /**
+     * Teste para verificar a exportação das transações de uma conta em NDJSON, uma linha por transação em ordem cronológica
+     */
+    @Test
+    void testExportarTransacoesNdjsonPorConta() throws IOException {
+        List<String> linhas = exportar(FormatoExportacao.NDJSON, false, CONTA, null, null);
+
+        assertEquals(3, linhas.size());
+        JsonNode primeira = objectMapper.readTree(linhas.get(0));
+        JsonNode ultima = objectMapper.readTree(linhas.get(2));
+        assertEquals(CONTA, primeira.get("numeroConta").asText());
+        assertEquals("DEPOSITO", primeira.get("tipo").asText());
+        assertEquals(0, primeira.get("valor").decimalValue().compareTo(BigDecimal.valueOf(100)));
+        assertEquals("SAQUE", ultima.get("tipo").asText());
+        assertEquals(LocalDate.now().toString(), ultima.get("data").asText());
+    }
+
+    /**
+     * Teste para verificar a exportação da auditoria de todas as contas em CSV, com cabeçalho e campos com vírgula entre aspas
+     */
+    @Test
+    void testExportarAuditoriaCsv() throws IOException {
+        List<String> linhas = exportar(FormatoExportacao.CSV, true, null, null, null);
+
+        assertEquals(5, linhas.size(), "Cabeçalho e uma linha por registro das duas contas.");
+        assertTrue(linhas.get(0).startsWith("id,numeroConta,transacaoId,tipo,valor,taxa,"));
+        String saque = linhas.stream().filter(linha -> linha.contains(",SAQUE,")).findFirst().orElseThrow();
+        assertTrue(saque.contains(",10.00,0.10,150.00,139.90,"), saque);
+        assertTrue(saque.endsWith("\"Saque de R$ 10.00 realizado na conta " + CONTA + ", na data de " + LocalDate.now() +
+                ". Taxa de saque: R$ 0.10. Limite disponível: R$ 0.00\""), "A mensagem tem vírgula e deve vir entre aspas: " + saque);
+    }
+
+    /**
+     * Teste para verificar que o período filtra as linhas exportadas e que um período invertido é recusado
+     */
+    @Test
+    void testExportarComPeriodo() throws IOException {
+        LocalDate hoje = LocalDate.now();
+
+        assertEquals(3, exportar(FormatoExportacao.NDJSON, true, CONTA, hoje, hoje).size());
+        assertTrue(exportar(FormatoExportacao.NDJSON, true, CONTA, hoje.plusDays(1), null).isEmpty());
+        assertTrue(exportar(FormatoExportacao.NDJSON, false, null, null, hoje.minusDays(1)).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> exportar(FormatoExportacao.CSV, false, null, hoje, hoje.minusDays(1)));
+    }
+
+    private List<String> exportar(FormatoExportacao formato, boolean auditoria, String conta, LocalDate de, LocalDate ate)
+            throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        if (auditoria) {
+            exportacaoService.exportarAuditoria(conta, de, ate, formato, saida);
+        } else {
+            exportacaoService.exportarTransacoes(conta, de, ate, formato, saida);
+        }
+        String conteudo = saida.toString(StandardCharsets.UTF_8);
+        return conteudo.isEmpty() ? List.of() : List.of(conteudo.split("\r?\n"));
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.IdempotenciaProperties;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ChaveIdempotenciaReutilizadaException;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.ChaveIdempotenciaRepository;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import com.example.Banco_Magalu.service.IdempotenciaService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes das chaves de idempotência, usando o H2 em memória.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class IdempotenciaServiceTest {
+
+    private static final String CONTA = "idempotencia-1";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private IdempotenciaProperties idempotenciaProperties;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Autowired
+    private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(CONTA, BigDecimal.valueOf(100), BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Teste para verificar que a repetição de um depósito com a mesma chave devolve a mesma transação sem depositar de novo
+     */
+    @Test
+    void testRepeticaoDevolveMesmaTransacao() {
+        String chave = UUID.randomUUID().toString();
+        Supplier<Transacao> deposito = () -> transacaoService.realizarDeposito(CONTA, BigDecimal.TEN);
+
+        Transacao primeira = idempotenciaService.executar(chave, "deposito", deposito, CONTA, BigDecimal.TEN);
+        Transacao repetida = idempotenciaService.executar(chave, "deposito", deposito, CONTA, new BigDecimal("10.00"));
+
+        assertEquals(primeira.getId(), repetida.getId());
+        assertEquals(primeira.getDescricao(), repetida.getDescricao());
+        assertEquals(0, BigDecimal.valueOf(110).compareTo(contaCorrenteRepository.findById(CONTA).orElseThrow().getSaldo()));
+        assertEquals(1, transacaoRepository.count());
+    }
+
+    /**
+     * Teste para verificar que a mesma chave em uma requisição diferente é recusada
+     */
+    @Test
+    void testChaveReutilizadaEmOutraRequisicao() {
+        String chave = UUID.randomUUID().toString();
+        idempotenciaService.executar(chave, "deposito", () -> transacao(), CONTA, BigDecimal.TEN);
+
+        assertThrows(ChaveIdempotenciaReutilizadaException.class,
+                () -> idempotenciaService.executar(chave, "deposito", () -> transacao(), CONTA, BigDecimal.ONE));
+        assertThrows(ChaveIdempotenciaReutilizadaException.class,
+                () -> idempotenciaService.executar(chave, "saque", () -> transacao(), CONTA, BigDecimal.TEN));
+    }
+
+    /**
+     * Teste para verificar que repetições simultâneas esperam a execução em andamento em vez de executar de novo
+     */
+    @Test
+    void testRepeticoesSimultaneasEsperamExecucaoEmAndamento() throws Exception {
+        String chave = UUID.randomUUID().toString();
+        AtomicInteger execucoes = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        Supplier<Transacao> lenta = () -> {
+            execucoes.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return transacao();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Transacao>> resultados = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                return idempotenciaService.executar(chave, "deposito", lenta, CONTA, BigDecimal.TEN);
+            }));
+        }
+        largada.countDown();
+        UUID id = resultados.get(0).get().getId();
+        for (Future<Transacao> resultado : resultados) {
+            assertEquals(id, resultado.get().getId());
+        }
+        executor.shutdown();
+        assertEquals(1, execucoes.get());
+    }
+
+    /**
+     * Teste para verificar que uma execução que falhou libera a chave para a repetição
+     */
+    @Test
+    void testFalhaLiberaChave() {
+        String chave = UUID.randomUUID().toString();
+        assertThrows(SaldoInsuficienteException.class, () -> idempotenciaService.executar(chave, "saque",
+                () -> { throw new SaldoInsuficienteException("Saldo insuficiente."); }, CONTA, BigDecimal.TEN));
+
+        Transacao transacao = transacao();
+        assertEquals(transacao.getId(), idempotenciaService.executar(chave, "saque", () -> transacao, CONTA, BigDecimal.TEN).getId());
+    }
+
+    /**
+     * Teste para verificar que o resultado gravado na tabela vale para outra instância, sem o cache em memória
+     */
+    @Test
+    void testResultadoGravadoValeParaOutraInstancia() {
+        String chave = UUID.randomUUID().toString();
+        Transacao primeira = idempotenciaService.executar(chave, "deposito", () -> transacao(), CONTA, BigDecimal.TEN);
+        assertTrue(chaveIdempotenciaRepository.findById(chave).orElseThrow().isConcluida());
+
+        IdempotenciaService outraInstancia = new IdempotenciaService(idempotenciaProperties, chaveIdempotenciaRepository,
+                entityManager, transactionManager);
+        Transacao repetida = outraInstancia.executar(chave, "deposito",
+                () -> fail("A operação não deve ser executada de novo"), CONTA, BigDecimal.TEN);
+
+        assertEquals(primeira.getId(), repetida.getId());
+        assertEquals(TipoTransacao.DEPOSITO, repetida.getTipo());
+    }
+
+    /**
+     * Teste para verificar que a reserva de uma execução em andamento expira em reserva-ms e o resultado em validade-ms
+     */
+    @Test
+    void testReservaExpiraAntesDoResultado() {
+        String chave = UUID.randomUUID().toString();
+        LocalDateTime inicio = LocalDateTime.now();
+        List<LocalDateTime> reservadaAte = new ArrayList<>();
+
+        idempotenciaService.executar(chave, "deposito", () -> {
+            reservadaAte.add(chaveIdempotenciaRepository.findById(chave).orElseThrow().getExpiraEm());
+            return transacao();
+        }, CONTA, BigDecimal.TEN);
+
+        LocalDateTime fimDaReserva = LocalDateTime.now().plus(Duration.ofMillis(idempotenciaProperties.getReservaMs()));
+        assertFalse(reservadaAte.get(0).isAfter(fimDaReserva), "Uma reserva deixada por uma queda não pode durar a validade do resultado.");
+        assertTrue(chaveIdempotenciaRepository.findById(chave).orElseThrow().getExpiraEm()
+                .isAfter(inicio.plus(Duration.ofMillis(idempotenciaProperties.getValidadeMs())).minusMinutes(1)));
+    }
+
+    private static Transacao transacao() {
+        return new Transacao(UUID.randomUUID(), TipoTransacao.DEPOSITO, BigDecimal.TEN, LocalDate.now(),
+                "Depósito de R$ 10.00", null);
+    }
+}
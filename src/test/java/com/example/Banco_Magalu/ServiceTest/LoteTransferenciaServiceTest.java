@@ -0,0 +1,169 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.LoteProperties;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.service.ExecutorLote;
+import com.example.Banco_Magalu.service.LoteTransferenciaService;
+import com.example.Banco_Magalu.service.MotorContas;
+import com.example.Banco_Magalu.service.TransacaoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Testes do agendamento das transferências em lote, com o TransacaoService simulado.
+ */
+public class LoteTransferenciaServiceTest {
+
+    private TransacaoService transacaoService;
+    private ExecutorLote executorLote;
+    private LoteTransferenciaService loteTransferenciaService;
+
+    private final Map<String, List<String>> ordemPorConta = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> emUsoPorConta = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> conflitos = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger emExecucao = new AtomicInteger();
+    private final AtomicInteger maximoEmExecucao = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LoteProperties properties = new LoteProperties();
+        properties.setMaxConcorrencia(4);
+        executorLote = new ExecutorLote(properties, new StaticListableBeanFactory().getBeanProvider(DataSource.class));
+        transacaoService = Mockito.mock(TransacaoService.class);
+        loteTransferenciaService = new LoteTransferenciaService(transacaoService, executorLote, Mockito.mock(MotorContas.class),
+                new SimpleMeterRegistry());
+
+        Mockito.when(transacaoService.realizarTransferencia(anyString(), anyString(), any(BigDecimal.class)))
+                .thenAnswer(invocacao -> {
+                    String origem = invocacao.getArgument(0);
+                    String destino = invocacao.getArgument(1);
+                    BigDecimal valor = invocacao.getArgument(2);
+                    registrarInicio(origem, valor);
+                    registrarInicio(destino, valor);
+                    maximoEmExecucao.accumulateAndGet(emExecucao.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    emExecucao.decrementAndGet();
+                    emUsoPorConta.get(origem).decrementAndGet();
+                    emUsoPorConta.get(destino).decrementAndGet();
+                    return null;
+                });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executorLote.destroy();
+    }
+
+    /**
+     * Teste para verificar que transferências com uma conta em comum não executam ao mesmo tempo
+     * e seguem a ordem de envio em cada conta.
+     */
+    @Test
+    public void testTransferenciasComContaEmComumSeguemOrdemDeEnvio() {
+        List<TransferenciaDto> transferencias = new ArrayList<>();
+        String[] contas = {"a", "b", "c", "d", "e"};
+        for (int i = 0; i < 60; i++) {
+            transferencias.add(new TransferenciaDto(contas[i % 5], contas[(i * 3 + 1) % 5], BigDecimal.valueOf(i + 1)));
+        }
+        transferencias.removeIf(transferencia -> transferencia.getContaOrigem().equals(transferencia.getContaDestino()));
+
+        ResultadoLoteDto resultado = loteTransferenciaService.realizarTransferencias(transferencias);
+
+        assertTrue(conflitos.isEmpty(), "Transferências com conta em comum não podem executar ao mesmo tempo: " + conflitos);
+        assertEquals(transferencias.size(), resultado.getSucesso().size());
+        for (String conta : contas) {
+            List<String> esperado = transferencias.stream()
+                    .filter(t -> t.getContaOrigem().equals(conta) || t.getContaDestino().equals(conta))
+                    .map(t -> t.getValor().toPlainString())
+                    .toList();
+            assertEquals(esperado, ordemPorConta.getOrDefault(conta, List.of()), "Ordem de execução da conta " + conta);
+        }
+    }
+
+    /**
+     * Teste para verificar que transferências entre contas distintas executam em paralelo.
+     */
+    @Test
+    public void testTransferenciasSemContaEmComumExecutamEmParalelo() {
+        List<TransferenciaDto> transferencias = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            transferencias.add(new TransferenciaDto("origem" + i, "destino" + i, BigDecimal.valueOf(i + 1)));
+        }
+
+        ResultadoLoteDto resultado = loteTransferenciaService.realizarTransferencias(transferencias);
+
+        assertEquals(20, resultado.getSucesso().size());
+        assertTrue(maximoEmExecucao.get() > 1, "Transferências independentes devem executar em paralelo.");
+        assertTrue(maximoEmExecucao.get() <= executorLote.getMaxConcorrencia(), "O limite de concorrência do lote deve ser respeitado.");
+    }
+
+    /**
+     * Teste para verificar que sucessos e falhas são retornados na ordem de envio.
+     */
+    @Test
+    public void testResultadoNaOrdemDeEnvio() {
+        Mockito.doThrow(new SaldoInsuficienteException("Saldo insuficiente na conta de origem: x"))
+                .when(transacaoService).realizarTransferencia(eq("x"), anyString(), any(BigDecimal.class));
+        List<TransferenciaDto> transferencias = List.of(
+                new TransferenciaDto("a", "b", BigDecimal.ONE),
+                new TransferenciaDto("x", "c", BigDecimal.TEN),
+                new TransferenciaDto("d", "e", BigDecimal.valueOf(2)),
+                new TransferenciaDto("b", "a", BigDecimal.valueOf(3)));
+
+        ResultadoLoteDto resultado = loteTransferenciaService.realizarTransferencias(transferencias);
+
+        assertEquals(List.of(transferencias.get(0), transferencias.get(2), transferencias.get(3)), resultado.getSucesso());
+        assertEquals(List.of("Erro na transferência de x para c: Saldo insuficiente na conta de origem: x"), resultado.getFalhas());
+    }
+
+    /**
+     * Teste para verificar que uma transferência para a própria conta é recusada sem travar o lote
+     * e sem atrasar as demais transferências da conta.
+     */
+    @Test
+    @Timeout(10)
+    public void testTransferenciaParaAPropriaContaERecusada() {
+        List<TransferenciaDto> transferencias = List.of(
+                new TransferenciaDto("a", "b", BigDecimal.ONE),
+                new TransferenciaDto("a", "a", BigDecimal.TEN),
+                new TransferenciaDto("b", "a", BigDecimal.valueOf(2)),
+                new TransferenciaDto("c", "c", BigDecimal.valueOf(3)));
+
+        ResultadoLoteDto resultado = loteTransferenciaService.realizarTransferencias(transferencias);
+
+        assertEquals(List.of(transferencias.get(0), transferencias.get(2)), resultado.getSucesso());
+        assertEquals(List.of("Erro na transferência de a para a: Conta de origem e destino não podem ser iguais.",
+                "Erro na transferência de c para c: Conta de origem e destino não podem ser iguais."), resultado.getFalhas());
+        assertEquals(List.of("1", "2"), ordemPorConta.get("a"));
+        Mockito.verify(transacaoService, Mockito.never()).realizarTransferencia(eq("a"), eq("a"), any(BigDecimal.class));
+    }
+
+    private void registrarInicio(String conta, BigDecimal valor) {
+        if (emUsoPorConta.computeIfAbsent(conta, c -> new AtomicInteger()).incrementAndGet() > 1) {
+            conflitos.add(conta);
+        }
+        ordemPorConta.computeIfAbsent(conta, c -> Collections.synchronizedList(new ArrayList<>())).add(valor.toPlainString());
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.MotorProperties;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.PontoProjecao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.ContaNaoEncontradaException;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.AuditoriaRepository;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.PontoProjecaoRepository;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import com.example.Banco_Magalu.service.AuditoriaService;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.GravadorAuditoria;
+import com.example.Banco_Magalu.service.MotorContas;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do motor em memória, usando o H2 em memória e um diretório temporário para o log.
+ * O motor do contexto fica desligado; cada teste cria o seu, para poder parar e reiniciar sobre o mesmo log.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class MotorContasTest {
+
+    private static final String ORIGEM = "motor-origem";
+    private static final String DESTINO = "motor-destino";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private PontoProjecaoRepository pontoProjecaoRepository;
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+
+    @Autowired
+    private AuditoriaRepository auditoriaRepository;
+
+    @Autowired
+    private AuditoriaService auditoriaService;
+
+    @Autowired
+    private GravadorAuditoria gravadorAuditoria;
+
+    @Autowired
+    private CacheContas cacheContas;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path diretorioLog;
+
+    private final List<MotorContas> motores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(ORIGEM, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(100));
+        bancoDeTestes.criarConta(DESTINO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        motores.forEach(MotorContas::stop);
+    }
+
+    /**
+     * Teste para verificar que o motor aplica as taxas e as regras de limite do TransacaoService
+     */
+    @Test
+    void testOperacoesSeguemRegrasDoTransacaoService() {
+        MotorContas motor = iniciarMotor(2);
+
+        // 120 + 2% de taxa (a origem tem limite) = 122,40: 100 do saldo e 22,40 do limite
+        Transacao transferencia = motor.realizarTransferencia(ORIGEM, DESTINO, BigDecimal.valueOf(120));
+        assertTrue(transferencia.getDescricao().contains("Taxa de transferência: R$ 2.40"), transferencia.getDescricao());
+        assertPosicao(motor, ORIGEM, "0.00", "27.60");
+        assertPosicao(motor, DESTINO, "120.00", "0.00");
+
+        assertThrows(SaldoInsuficienteException.class, () -> motor.realizarSaque(ORIGEM, BigDecimal.valueOf(30)),
+                "30 + 1% de taxa não cabe nos 27,60 de limite.");
+        assertThrows(ContaNaoEncontradaException.class, () -> motor.realizarTransferencia(ORIGEM, "inexistente", BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> motor.realizarDeposito(ORIGEM, BigDecimal.ZERO));
+
+        // O depósito restitui o limite primeiro: 50 vão para o limite, que passa a 77,60, e o saldo continua zerado
+        motor.realizarDeposito(ORIGEM, BigDecimal.valueOf(50));
+        assertPosicao(motor, ORIGEM, "0.00", "77.60");
+
+        // Saque de 10 + 0,10 de taxa, todo do saldo do destino
+        motor.realizarSaque(DESTINO, BigDecimal.TEN);
+        assertPosicao(motor, DESTINO, "109.90", "0.00");
+    }
+
+    /**
+     * Teste para verificar que a projeção grava as posições, as transações com o id devolvido pelo motor e a auditoria
+     */
+    @Test
+    void testProjecaoGravaContasTransacoesEAuditoria() {
+        MotorContas motor = iniciarMotor(4);
+
+        Transacao deposito = motor.realizarDeposito(DESTINO, BigDecimal.valueOf(30));
+        Transacao transferencia = motor.realizarTransferencia(ORIGEM, DESTINO, BigDecimal.valueOf(10));
+        motor.aguardarProjecao();
+
+        ContaCorrente origem = contaCorrenteRepository.findById(ORIGEM).orElseThrow();
+        ContaCorrente destino = contaCorrenteRepository.findById(DESTINO).orElseThrow();
+        assertEquals(0, origem.getSaldo().compareTo(new BigDecimal("89.80")));
+        assertEquals(0, destino.getSaldo().compareTo(BigDecimal.valueOf(40)));
+        assertTrue(transacaoRepository.findById(deposito.getId()).isPresent());
+        assertTrue(transacaoRepository.findById(transferencia.getId()).isPresent());
+        assertEquals(2, transacaoRepository.count(), "O crédito da transferência não tem Transacao própria.");
+
+        gravadorAuditoria.aguardarPendentes();
+        List<Auditoria> auditorias = auditoriaRepository.findAll();
+        assertEquals(2, auditorias.size());
+        Auditoria auditoriaTransferencia = auditorias.stream()
+                .filter(auditoria -> auditoria.getNumeroConta().equals(ORIGEM))
+                .findFirst().orElseThrow();
+        assertEquals(DESTINO, auditoriaTransferencia.getContaDestino());
+        assertEquals(0, auditoriaTransferencia.getSaldoAnterior().toBigDecimal().compareTo(BigDecimal.valueOf(100)));
+        assertTrue(pontoProjecaoRepository.findAll().stream().mapToLong(PontoProjecao::getLsn).max().orElse(0) >= 3,
+                "O ponto de projeção deve chegar ao último registro: depósito, débito e crédito.");
+    }
+
+    /**
+     * Teste para verificar que, com o banco parado antes da projeção, o motor reinicia pelo log e projeta de novo
+     */
+    @Test
+    void testReinicioReaplicaLogNaoProjetado() throws IOException {
+        MotorContas motor = iniciarMotor(4);
+        motor.realizarDeposito(DESTINO, BigDecimal.valueOf(100));
+        List<CompletableFuture<Transacao>> operacoes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            operacoes.add(motor.transferir(ORIGEM, DESTINO, BigDecimal.ONE));
+            operacoes.add(motor.transferir(DESTINO, ORIGEM, new BigDecimal("0.50")));
+        }
+        operacoes.forEach(CompletableFuture::join);
+        CabecalhoContaDto origemEsperada = motor.buscarPosicao(ORIGEM).orElseThrow();
+        CabecalhoContaDto destinoEsperado = motor.buscarPosicao(DESTINO).orElseThrow();
+        motor.stop();
+        motores.remove(motor);
+
+        // Volta o banco ao estado de antes da projeção, como se o processo tivesse caído logo após o fsync do log
+        bancoDeTestes.limpar();
+        setUp();
+        cacheContas.invalidar(ORIGEM);
+        cacheContas.invalidar(DESTINO);
+        escreverRegistroIncompleto();
+
+        MotorContas reiniciado = iniciarMotor(4);
+
+        assertPosicao(reiniciado, ORIGEM, origemEsperada.getSaldo().toPlainString(), origemEsperada.getLimiteCredito().toPlainString());
+        assertPosicao(reiniciado, DESTINO, destinoEsperado.getSaldo().toPlainString(), destinoEsperado.getLimiteCredito().toPlainString());
+        reiniciado.aguardarProjecao();
+        assertEquals(0, contaCorrenteRepository.findById(ORIGEM).orElseThrow().getSaldo().compareTo(origemEsperada.getSaldo()));
+        assertEquals(0, contaCorrenteRepository.findById(DESTINO).orElseThrow().getSaldo().compareTo(destinoEsperado.getSaldo()));
+        assertEquals(41, transacaoRepository.count());
+
+        // As operações seguintes continuam a numeração do log
+        reiniciado.realizarDeposito(DESTINO, BigDecimal.ONE);
+        reiniciado.aguardarProjecao();
+        assertEquals(42, transacaoRepository.count());
+    }
+
+    /**
+     * Teste para verificar que uma operação que não chega ao log é desfeita na conta e que o motor deixa de aceitar
+     * operações. Com segmentos de 64 bytes nenhum registro cabe no log e a primeira gravação falha.
+     */
+    @Test
+    void testFalhaDoLogDesfazOperacaoEParaOMotor() {
+        MotorContas motor = iniciarMotor(2, 64);
+
+        assertThrows(IllegalStateException.class, () -> motor.realizarDeposito(DESTINO, BigDecimal.TEN));
+        assertPosicao(motor, DESTINO, "0.00", "0.00");
+
+        IllegalStateException recusa = assertThrows(IllegalStateException.class,
+                () -> motor.realizarTransferencia(ORIGEM, DESTINO, BigDecimal.ONE));
+        assertTrue(recusa.getMessage().contains("não aceita operações"), recusa.getMessage());
+        assertPosicao(motor, ORIGEM, "100.00", "50.00");
+        assertPosicao(motor, DESTINO, "0.00", "0.00");
+    }
+
+    private MotorContas iniciarMotor(int shards) {
+        return iniciarMotor(shards, 1024 * 1024);
+    }
+
+    private MotorContas iniciarMotor(int shards, int tamanhoSegmentoBytes) {
+        MotorProperties properties = new MotorProperties();
+        properties.setHabilitado(true);
+        properties.setShards(shards);
+        properties.setDiretorioLog(diretorioLog.toString());
+        properties.setTamanhoSegmentoBytes(tamanhoSegmentoBytes);
+        properties.setIntervaloProjecaoMs(50);
+        MotorContas motor = new MotorContas(properties, contaCorrenteRepository, pontoProjecaoRepository, auditoriaService,
+                cacheContas, entityManager, transactionManager);
+        motor.start();
+        motores.add(motor);
+        return motor;
+    }
+
+    private static void assertPosicao(MotorContas motor, String numero, String saldo, String limiteCredito) {
+        CabecalhoContaDto posicao = motor.buscarPosicao(numero).orElseThrow();
+        assertEquals(0, posicao.getSaldo().compareTo(new BigDecimal(saldo)), numero + ": saldo " + posicao.getSaldo());
+        assertEquals(0, posicao.getLimiteCredito().compareTo(new BigDecimal(limiteCredito)), numero + ": limite " + posicao.getLimiteCredito());
+    }
+
+    /**
+     * Simula uma queda durante a gravação: um cabeçalho de registro sem o conteúdo logo depois do último registro.
+     */
+    private void escreverRegistroIncompleto() throws IOException {
+        Path segmento;
+        try (Stream<Path> arquivos = Files.list(diretorioLog)) {
+            segmento = arquivos.sorted().reduce((primeiro, segundo) -> segundo).orElseThrow();
+        }
+        byte[] conteudo = Files.readAllBytes(segmento);
+        int fim = conteudo.length;
+        while (fim > 0 && conteudo[fim - 1] == 0) {
+            fim--;
+        }
+        try (RandomAccessFile arquivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            arquivo.seek(fim);
+            arquivo.writeInt(200);
+            arquivo.writeInt(12345);
+        }
+    }
+}
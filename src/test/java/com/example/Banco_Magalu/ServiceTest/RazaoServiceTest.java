@@ -0,0 +1,174 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.Lancamento;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.LancamentoRepository;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.RazaoService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes do livro-razão de partidas dobradas (modo LANCAMENTOS), usando o H2 em memória.
+ */
+@SpringBootTest(properties = "banco.concorrencia.modo=LANCAMENTOS")
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class RazaoServiceTest {
+
+    private static final String ORIGEM = "razao-origem";
+    private static final String DESTINO = "razao-destino";
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private TransacaoService transacaoService;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private RazaoService razaoService;
+
+    @Autowired
+    private LancamentoRepository lancamentoRepository;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        bancoDeTestes.criarConta(ORIGEM, BigDecimal.valueOf(100), BigDecimal.valueOf(50), BigDecimal.valueOf(100));
+        bancoDeTestes.criarConta(DESTINO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Teste para verificar que a transferência grava três pernas que somam zero e não altera a linha da conta
+     */
+    @Test
+    void testTransferenciaGravaPernasQueSomamZero() {
+        Transacao transacao = transacaoService.realizarTransferencia(ORIGEM, DESTINO, BigDecimal.valueOf(120));
+
+        List<Lancamento> pernas = lancamentoRepository.findByMovimento(transacao.getId());
+        assertEquals(3, pernas.size(), "Débito na origem, crédito no destino e taxa na receita de tarifas.");
+        assertEquals(Dinheiro.ZERO, pernas.stream().map(Lancamento::getValor).reduce(Dinheiro.ZERO, Dinheiro::somar));
+
+        // 120 + 2% de taxa (a origem tem limite) = 122,40: 100 do saldo e 22,40 do limite
+        CabecalhoContaDto origem = contaCorrenteService.buscarCabecalho(ORIGEM).orElseThrow();
+        assertEquals(0, origem.getSaldo().compareTo(BigDecimal.ZERO));
+        assertEquals(0, origem.getLimiteCredito().compareTo(new BigDecimal("27.60")));
+        assertEquals(1, origem.getVersao(), "A versão da conta é a sequência do último lançamento.");
+        assertEquals(0, contaCorrenteService.buscarCabecalho(DESTINO).orElseThrow().getSaldo().compareTo(BigDecimal.valueOf(120)));
+        assertEquals(Dinheiro.de(new BigDecimal("2.40")), razaoService.calcularSaldoContaInterna(RazaoService.CONTA_RECEITA_TARIFAS));
+
+        ContaCorrente linha = contaCorrenteRepository.findById(ORIGEM).orElseThrow();
+        assertEquals(0, linha.getSaldo().compareTo(BigDecimal.valueOf(100)), "A linha da conta não deve receber UPDATE.");
+        assertEquals(0, linha.getVersao());
+    }
+
+    /**
+     * Teste para verificar que depósito e saque têm o caixa como contrapartida e que o depósito restitui o limite primeiro
+     */
+    @Test
+    void testDepositoESaqueContraCaixa() {
+        transacaoService.realizarSaque(ORIGEM, BigDecimal.valueOf(140));
+        transacaoService.realizarDeposito(ORIGEM, BigDecimal.valueOf(100));
+
+        // Saque de 140 + 1,40: 100 do saldo e 41,40 do limite; o depósito restitui 91,40 do limite e 8,60 vão para o saldo
+        CabecalhoContaDto origem = contaCorrenteService.buscarCabecalho(ORIGEM).orElseThrow();
+        assertEquals(0, origem.getSaldo().compareTo(new BigDecimal("8.60")));
+        assertEquals(0, origem.getLimiteCredito().compareTo(BigDecimal.valueOf(100)));
+        assertEquals(Dinheiro.de(BigDecimal.valueOf(40)), razaoService.calcularSaldoContaInterna(RazaoService.CONTA_CAIXA),
+                "O caixa recebe o saque e paga o depósito.");
+
+        assertThrows(SaldoInsuficienteException.class, () -> transacaoService.realizarSaque(ORIGEM, BigDecimal.valueOf(200)));
+        assertEquals(2, contaCorrenteService.buscarCabecalho(ORIGEM).orElseThrow().getVersao(), "O saque recusado não lança nada.");
+    }
+
+    /**
+     * Teste para verificar que o recálculo pelos lançamentos, em paralelo, chega às mesmas posições acumuladas
+     */
+    @Test
+    void testRecalculoConfereComPosicaoAcumulada() {
+        transacaoService.realizarDeposito(DESTINO, BigDecimal.valueOf(30));
+        transacaoService.realizarTransferencia(ORIGEM, DESTINO, BigDecimal.valueOf(80));
+        transacaoService.realizarTransferencia(DESTINO, ORIGEM, BigDecimal.valueOf(25));
+        ResultadoLoteDto lote = transacaoService.realizarTransferenciasCompensadas(List.of(
+                new TransferenciaDto(ORIGEM, DESTINO, BigDecimal.valueOf(10)),
+                new TransferenciaDto(DESTINO, ORIGEM, BigDecimal.valueOf(40))));
+        assertEquals(2, lote.getSucesso().size());
+
+        Map<String, CabecalhoContaDto> recalculadas = razaoService.recalcularPosicoes(List.of(ORIGEM, DESTINO, "inexistente"));
+
+        assertEquals(2, recalculadas.size());
+        for (String numero : List.of(ORIGEM, DESTINO)) {
+            CabecalhoContaDto acumulada = contaCorrenteService.buscarCabecalho(numero).orElseThrow();
+            assertEquals(0, acumulada.getSaldo().compareTo(recalculadas.get(numero).getSaldo()), numero);
+            assertEquals(0, acumulada.getLimiteCredito().compareTo(recalculadas.get(numero).getLimiteCredito()), numero);
+            assertEquals(acumulada.getVersao(), recalculadas.get(numero).getVersao(), numero);
+        }
+    }
+
+    /**
+     * Teste para verificar que saldo e limite não são alterados direto na linha, o que o cabeçalho ignoraria
+     */
+    @Test
+    void testAlteracaoDiretaDaContaEhRecusada() {
+        transacaoService.realizarDeposito(ORIGEM, BigDecimal.TEN);
+
+        assertThrows(IllegalArgumentException.class, () -> contaCorrenteService.atualizarSaldo(ORIGEM, BigDecimal.valueOf(500)));
+        assertThrows(IllegalArgumentException.class, () -> contaCorrenteService.atualizarLimite(ORIGEM, BigDecimal.valueOf(500)));
+
+        ContaCorrente linha = contaCorrenteRepository.findById(ORIGEM).orElseThrow();
+        assertEquals(0, linha.getSaldo().compareTo(BigDecimal.valueOf(100)));
+        assertEquals(0, linha.getLimiteCredito().compareTo(BigDecimal.valueOf(50)));
+        CabecalhoContaDto recalculada = razaoService.recalcularPosicoes(List.of(ORIGEM)).get(ORIGEM);
+        assertEquals(0, contaCorrenteService.buscarCabecalho(ORIGEM).orElseThrow().getSaldo().compareTo(recalculada.getSaldo()));
+    }
+
+    /**
+     * Teste para verificar que um lançamento feito a partir de uma posição já usada é recusado como conflito de concorrência
+     */
+    @Test
+    void testPosicaoDesatualizadaEhRecusada() {
+        CabecalhoContaDto lida = contaCorrenteService.buscarCabecalho(ORIGEM).orElseThrow();
+        transacaoService.realizarDeposito(ORIGEM, BigDecimal.TEN);
+
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        assertThrows(OptimisticLockingFailureException.class, () -> transacao.executeWithoutResult(status ->
+                razaoService.registrar(UUID.randomUUID(), List.of(
+                        razaoService.debito(lida, Dinheiro.de(BigDecimal.ONE)),
+                        razaoService.contrapartida(RazaoService.CONTA_CAIXA, Dinheiro.de(BigDecimal.ONE))))));
+
+        assertThrows(IllegalStateException.class, () -> transacao.executeWithoutResult(status ->
+                razaoService.registrar(UUID.randomUUID(), List.of(razaoService.debito(lida, Dinheiro.de(BigDecimal.ONE))))),
+                "Um movimento cujas pernas não somam zero não pode ser gravado.");
+    }
+}
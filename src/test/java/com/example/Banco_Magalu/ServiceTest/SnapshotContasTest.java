@@ -0,0 +1,171 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.SnapshotProperties;
+import com.example.Banco_Magalu.dto.DivergenciaSnapshotDto;
+import com.example.Banco_Magalu.dto.VerificacaoSnapshotDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.ContaCorrenteService;
+import com.example.Banco_Magalu.service.ContasAlteradas;
+import com.example.Banco_Magalu.service.ContasQuentes;
+import com.example.Banco_Magalu.service.SnapshotContas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes dos snapshots de contas, usando o H2 em memória e um diretório temporário para os arquivos.
+ * Os snapshots do contexto ficam desligados; cada teste cria os seus, para poder parar e reiniciar sobre o mesmo diretório.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
+public class SnapshotContasTest {
+
+    private static final List<String> CONTAS = List.of("snapshot-1", "snapshot-2", "snapshot-3");
+
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
+    @Autowired
+    private ContaCorrenteRepository contaCorrenteRepository;
+
+    @Autowired
+    private ContaCorrenteService contaCorrenteService;
+
+    @Autowired
+    private CacheContas cacheContas;
+
+    @Autowired
+    private ContasAlteradas contasAlteradas;
+
+    @Autowired
+    private ContasQuentes contasQuentes;
+
+    @Autowired
+    private ConcorrenciaProperties concorrenciaProperties;
+
+    @TempDir
+    private Path diretorio;
+
+    private final List<SnapshotContas> snapshots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bancoDeTestes.limpar();
+        CONTAS.forEach(numero -> {
+            bancoDeTestes.criarConta(numero, BigDecimal.valueOf(100), BigDecimal.ZERO, BigDecimal.valueOf(500));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshots.forEach(SnapshotContas::stop);
+        CONTAS.forEach(cacheContas::invalidar);
+    }
+
+    /**
+     * Teste para verificar que os incrementos regravam só as contas alteradas, incluindo as removidas
+     */
+    @Test
+    void testIncrementoGravaSoContasAlteradas() {
+        SnapshotContas snapshot = iniciarSnapshot();
+
+        assertEquals(3, snapshot.gravarAgora(), "O primeiro snapshot é uma base com todas as contas.");
+        assertEquals(0, snapshot.gravarAgora(), "Sem alterações nada é gravado.");
+
+        contaCorrenteService.creditarSaldo("snapshot-1", BigDecimal.TEN);
+        assertEquals(1, snapshot.gravarAgora());
+
+        contaCorrenteService.deletarConta("snapshot-3");
+        assertEquals(1, snapshot.gravarAgora());
+
+        VerificacaoSnapshotDto verificacao = snapshot.verificar();
+        assertEquals(2, verificacao.getContasNoSnapshot());
+        assertEquals(2, verificacao.getContasNoBanco());
+        assertTrue(verificacao.getDivergencias().isEmpty());
+    }
+
+    /**
+     * Teste para verificar que a partida depois de um desligamento limpo aquece o cache com o snapshot,
+     * e que a verificação aponta as contas alteradas por fora
+     */
+    @Test
+    void testReinicioAqueceCacheEVerificaDivergencias() {
+        SnapshotContas snapshot = iniciarSnapshot();
+        snapshot.gravarAgora();
+        contaCorrenteService.creditarSaldo("snapshot-1", BigDecimal.TEN);
+        snapshot.stop();
+
+        // Alteração feita direto no banco, sem passar pelo cache: só o snapshot tem o saldo de 110
+        ContaCorrente alterada = contaCorrenteRepository.findById("snapshot-1").orElseThrow();
+        alterada.setSaldo(BigDecimal.valueOf(90));
+        contaCorrenteRepository.save(alterada);
+        cacheContas.invalidar("snapshot-1");
+
+        SnapshotContas reiniciado = iniciarSnapshot();
+        assertEquals(0, new BigDecimal("110.00").compareTo(cacheContas.buscar("snapshot-1").orElseThrow().getSaldo()),
+                "O cabeçalho deve vir do snapshot, não do banco.");
+
+        VerificacaoSnapshotDto verificacao = reiniciado.verificar();
+        assertEquals(1, verificacao.getDivergencias().size());
+        DivergenciaSnapshotDto divergencia = verificacao.getDivergencias().get(0);
+        assertEquals("snapshot-1", divergencia.getNumero());
+        assertEquals(DivergenciaSnapshotDto.DESATUALIZADA, divergencia.getMotivo());
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(divergencia.getSaldoBanco()));
+    }
+
+    /**
+     * Teste para verificar que um snapshot corrompido é descartado, o cache não é aquecido e uma base nova é gravada
+     */
+    @Test
+    void testSnapshotCorrompidoGeraBaseNova() throws Exception {
+        SnapshotContas snapshot = iniciarSnapshot();
+        snapshot.gravarAgora();
+        contaCorrenteService.creditarSaldo("snapshot-2", BigDecimal.TEN);
+        snapshot.gravarAgora();
+        snapshot.stop();
+
+        Path ultimo;
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            ultimo = arquivos.sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        try (RandomAccessFile arquivo = new RandomAccessFile(ultimo.toFile(), "rw")) {
+            arquivo.seek(20);
+            arquivo.write(arquivo.read() ^ 0xFF);
+        }
+
+        SnapshotContas reiniciado = iniciarSnapshot();
+        assertEquals(3, reiniciado.gravarAgora(), "Depois de um snapshot final inválido o próximo é uma base completa.");
+        assertTrue(reiniciado.verificar().getDivergencias().isEmpty());
+    }
+
+    private SnapshotContas iniciarSnapshot() {
+        SnapshotProperties properties = new SnapshotProperties();
+        properties.setHabilitado(true);
+        properties.setDiretorio(diretorio.toString());
+        properties.setIntervaloMs(60_000);
+        SnapshotContas snapshot = new SnapshotContas(properties, contaCorrenteRepository, concorrenciaProperties,
+                cacheContas, contasAlteradas, contasQuentes);
+        snapshot.start();
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+}
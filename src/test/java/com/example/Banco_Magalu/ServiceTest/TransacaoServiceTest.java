@@ -1,29 +1,49 @@
 package com.example.Banco_Magalu.ServiceTest;
 
+import com.example.Banco_Magalu.config.ContadorComandosSql;
+import com.example.Banco_Magalu.config.OrcamentoComandosSql;
+import com.example.Banco_Magalu.dto.ResultadoLoteDto;
+import com.example.Banco_Magalu.dto.TransferenciaDto;
 import com.example.Banco_Magalu.entity.ContaCorrente;
 import com.example.Banco_Magalu.entity.TipoTransacao;
 import com.example.Banco_Magalu.entity.Transacao;
 import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
 import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
 import com.example.Banco_Magalu.repository.TransacaoRepository;
+import com.example.Banco_Magalu.service.CacheContas;
 import com.example.Banco_Magalu.service.TransacaoService;
 import jakarta.transaction.Transactional;
+import org.hibernate.Hibernate;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.*;
 
-
-@SpringBootTest
+/**
+ * Testes do TransacaoService no modo ATOMICO, o modo em que os orçamentos de comandos SQL são declarados e verificados.
+ */
+@SpringBootTest(properties = {
+        "banco.concorrencia.modo=ATOMICO",
+        "banco.sql.falhar-orcamento-excedido=true"
+})
+@ActiveProfiles("test")
+@Import(BancoDeTestes.class)
 @Transactional
 public class TransacaoServiceTest {
 
+    @Autowired
+    private BancoDeTestes bancoDeTestes;
+
     @Autowired
     private TransacaoService transacaoService;
 
@@ -33,6 +53,12 @@ public class TransacaoServiceTest {
     @Autowired
     private ContaCorrenteRepository contaCorrenteRepository;
 
+    @Autowired
+    private ContadorComandosSql contadorComandosSql;
+
+    @Autowired
+    private CacheContas cacheContas;
+
     /**
      * Teste para deposito em conta e no limite de credito
      */
@@ -51,11 +77,11 @@ public class TransacaoServiceTest {
        Transacao tr =  transacaoService.realizarDeposito(conta.getNumero(), valorDeposito);
         ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta.getNumero()).orElseThrow();
 
-        assertEquals(BigDecimal.valueOf(500), contaRecuperada.getLimiteCredito(), "O limite de credito deve ser atualizado com o valor restante do depósito.");
-        assertEquals(BigDecimal.valueOf(1200), contaRecuperada.getSaldo(), "O saldo deve ser incrementado com o valor restante do depósito.");
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de credito deve ser atualizado com o valor restante do depósito.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(1200)), "O saldo deve ser incrementado com o valor restante do depósito.");
         assertNotNull(tr, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.DEPOSITO, tr.getTipo(), "O tipo da transação deve ser DEPOSITO.");
-        assertEquals(BigDecimal.valueOf(500), contaRecuperada.getLimiteMaximo());
+        assertEquals(0, contaRecuperada.getLimiteMaximo().compareTo(BigDecimal.valueOf(500)));
 
     }
 
@@ -83,8 +109,8 @@ public class TransacaoServiceTest {
 
         ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta.getNumero())
                 .orElseThrow();
-        assertEquals(BigDecimal.valueOf(10), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(300), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(10)), "O saldo não deve ser alterado");
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(300)), "O limite de crédito deve ser zero.");
 
     }
 
@@ -112,8 +138,8 @@ public class TransacaoServiceTest {
 
         ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta.getNumero())
                 .orElseThrow();
-        assertEquals(BigDecimal.valueOf(10), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(300), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(10)), "O saldo não deve ser alterado");
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(300)), "O limite de crédito deve ser zero.");
 
     }
 
@@ -141,7 +167,7 @@ public class TransacaoServiceTest {
 
         // Verificações
         assertEquals(1, contaAtualizada.getSaldo().compareTo(BigDecimal.valueOf(898)), "O saldo deve ser decrementado com o valor do saque.");
-        assertEquals(BigDecimal.valueOf(300), contaAtualizada.getLimiteCredito(),
+        assertEquals(0, contaAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(300)),
                 "O limite de crédito não deve ser alterado.");
         assertNotNull(transacaoSaque, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.SAQUE, transacaoSaque.getTipo(), "O tipo da transação deve ser SAQUE.");
@@ -169,7 +195,7 @@ public class TransacaoServiceTest {
         ContaCorrente contaAtualizada = contaCorrenteRepository.findById(conta.getNumero())
                 .orElseThrow(() -> new RuntimeException("Conta não encontrada para o saque"));
 
-        assertEquals(BigDecimal.ZERO, contaAtualizada.getSaldo(), "O saldo deve ser zerado após o saque.");
+        assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO), "O saldo deve ser zerado após o saque.");
         assertEquals(-1, contaAtualizada.getSaldo().compareTo(BigDecimal.valueOf(389)),"O limite de crédito deve ser atualizado com o valor do saque.");
         assertNotNull(transacaoSaque, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.SAQUE, transacaoSaque.getTipo(), "O tipo da transação deve ser SAQUE.");
@@ -198,7 +224,7 @@ public class TransacaoServiceTest {
         ContaCorrente contaAtualizada = contaCorrenteRepository.findById(conta.getNumero())
                 .orElseThrow(() -> new RuntimeException("Conta não encontrada para o saque"));
 
-        assertEquals(BigDecimal.ZERO, contaAtualizada.getSaldo(), "O saldo deve ser zerado após o saque.");
+        assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO), "O saldo deve ser zerado após o saque.");
         assertEquals(0, contaAtualizada.getSaldo().compareTo(BigDecimal.ZERO), "O limite de crédito deve ser zerado após o saque.");
         assertNotNull(transacaoSaque, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.SAQUE, transacaoSaque.getTipo(), "O tipo da transação deve ser SAQUE.");
@@ -232,8 +258,8 @@ public class TransacaoServiceTest {
 
     ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta.getNumero())
             .orElseThrow();
-    assertEquals(BigDecimal.valueOf(10), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-    assertEquals(BigDecimal.valueOf(300), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+    assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(10)), "O saldo não deve ser alterado");
+    assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(300)), "O limite de crédito deve ser zero.");
 
 }
 
@@ -263,8 +289,8 @@ public void testSaqueContaValorNulo() {
 
     ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta.getNumero())
             .orElseThrow();
-    assertEquals(BigDecimal.valueOf(10), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-    assertEquals(BigDecimal.valueOf(300), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+    assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(10)), "O saldo não deve ser alterado");
+    assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(300)), "O limite de crédito deve ser zero.");
 
 }
 
@@ -304,19 +330,20 @@ public void testSaqueContaValorNulo() {
 
 
         Assertions.assertEquals(
-                BigDecimal.valueOf(1000),
-                contaRecuperada.getSaldo(),
+                0,
+                contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(1000)),
                 "O saldo deve permanecer inalterado após o saque inválido"
         );
         Assertions.assertEquals(
-                BigDecimal.valueOf(400),
-                contaRecuperada.getLimiteCredito(),
+                0,
+                contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(400)),
                 "O limite de crédito deve permanecer inalterado após o saque inválido"
         );
 
 
-        Assertions.assertFalse(
-                transacaoRepository.findAll().isEmpty(),
+        Assertions.assertTrue(
+                transacaoRepository.findAll().stream()
+                        .noneMatch(transacao -> transacao.getContaCorrente().getNumero().equals(conta.getNumero())),
                 "Nenhuma transação deve ser registrada para saque inválido"
         );
     }
@@ -357,9 +384,9 @@ public void testSaqueContaValorNulo() {
 
 
         assertEquals(0, conta1Atualizada.getSaldo().compareTo(BigDecimal.valueOf(490)), "O saldo da conta 1 deve ser decrementado com o valor da transferencia.");
-        assertEquals(BigDecimal.valueOf(1500), conta2Atualizada.getSaldo(), "O saldo da conta 2 deve ser incrementado com o valor da transferencia.");
-        assertEquals(BigDecimal.valueOf(500), conta1Atualizada.getLimiteCredito(), "O limite de crédito da conta 1 deve permanecer inalterado.");
-        assertEquals(BigDecimal.valueOf(500), conta2Atualizada.getLimiteCredito(), "O limite de crédito da conta 2 deve permanecer inalterado.");
+        assertEquals(0, conta2Atualizada.getSaldo().compareTo(BigDecimal.valueOf(1500)), "O saldo da conta 2 deve ser incrementado com o valor da transferencia.");
+        assertEquals(0, conta1Atualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito da conta 1 deve permanecer inalterado.");
+        assertEquals(0, conta2Atualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito da conta 2 deve permanecer inalterado.");
         assertNotNull(transacaoTransferencia, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.TRANSFERENCIA, transacaoTransferencia.getTipo(), "O tipo da transação deve ser TRANSFERENCIA.");
         assertEquals(valorTransferencia, transacaoTransferencia.getValor(), "O valor da transação deve corresponder à transferencia realizada.");
@@ -400,10 +427,10 @@ public void testSaqueContaValorNulo() {
                 .orElseThrow(() -> new RuntimeException("Conta não encontrada para a transferencia"));
 
 
-        assertEquals(BigDecimal.ZERO, conta1Atualizada.getSaldo(), "O saldo da conta 1 deve ser decrementado com o valor da transferencia e ficando Zero.");
-        assertEquals(BigDecimal.valueOf(2100), conta2Atualizada.getSaldo(), "O saldo da conta 2 deve ser incrementado com o valor da transferencia.");
+        assertEquals(0, conta1Atualizada.getSaldo().compareTo(BigDecimal.ZERO), "O saldo da conta 1 deve ser decrementado com o valor da transferencia e ficando Zero.");
+        assertEquals(0, conta2Atualizada.getSaldo().compareTo(BigDecimal.valueOf(2100)), "O saldo da conta 2 deve ser incrementado com o valor da transferencia.");
         assertEquals(0,conta1Atualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(378)),  "O limite de crédito foi alterado com o valor da transferencia.");
-        assertEquals(BigDecimal.valueOf(500), conta2Atualizada.getLimiteCredito(), "O limite de crédito da conta 2 deve permanecer inalterado.");
+        assertEquals(0, conta2Atualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito da conta 2 deve permanecer inalterado.");
         assertNotNull(transacaoTransferencia, "A transação não deve ser nula.");
         assertEquals(TipoTransacao.TRANSFERENCIA, transacaoTransferencia.getTipo(), "O tipo da transação deve ser TRANSFERENCIA.");
         assertEquals(valorTransferencia, transacaoTransferencia.getValor(), "O valor da transação deve corresponder à transferencia realizada.");
@@ -458,26 +485,28 @@ public void testSaqueContaValorNulo() {
 
 
         Assertions.assertEquals(
-                BigDecimal.valueOf(1000),
-                contaOrigemAtualizada.getSaldo(),
+                0,
+                contaOrigemAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)),
                 "O saldo da conta origem deve permanecer inalterado após transferência inválida"
         );
         Assertions.assertEquals(
-                BigDecimal.valueOf(500),
-                contaOrigemAtualizada.getLimiteCredito(),
+                0,
+                contaOrigemAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)),
                 "O limite de crédito da conta origem deve permanecer inalterado após transferência inválida"
         );
 
 
         Assertions.assertEquals(
-                BigDecimal.valueOf(1000),
-                contaDestinoAtualizada.getSaldo(),
+                0,
+                contaDestinoAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)),
                 "O saldo da conta destino deve permanecer inalterado após transferência inválida"
         );
 
 
-        Assertions.assertFalse(
-                transacaoRepository.findAll().isEmpty(),
+        Assertions.assertTrue(
+                transacaoRepository.findAll().stream()
+                        .map(transacao -> transacao.getContaCorrente().getNumero())
+                        .noneMatch(numero -> numero.equals(conta1.getNumero()) || numero.equals(conta2.getNumero())),
                 "Nenhuma transação deve ser registrada para transferência inválida"
         );
     }
@@ -529,20 +558,20 @@ public void testSaqueContaValorNulo() {
 
 
         Assertions.assertEquals(
-                BigDecimal.valueOf(1000),
-                contaOrigemAtualizada.getSaldo(),
+                0,
+                contaOrigemAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)),
                 "O saldo da conta origem deve permanecer inalterado após transferência inválida"
         );
         Assertions.assertEquals(
-                BigDecimal.valueOf(500),
-                contaOrigemAtualizada.getLimiteCredito(),
+                0,
+                contaOrigemAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)),
                 "O limite de crédito da conta origem deve permanecer inalterado após transferência inválida"
         );
 
 
         Assertions.assertEquals(
-                BigDecimal.valueOf(1000),
-                contaDestinoAtualizada.getSaldo(),
+                0,
+                contaDestinoAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)),
                 "O saldo da conta destino deve permanecer inalterado após transferência inválida"
         );
 
@@ -584,10 +613,10 @@ public void testSaqueContaValorNulo() {
         ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta1.getNumero())
                 .orElseThrow();
         ContaCorrente contaDestinoAtualizada = contaCorrenteRepository.findById(conta2.getNumero()).orElseThrow();
-        assertEquals(BigDecimal.valueOf(1000), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(500), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
-        assertEquals(BigDecimal.valueOf(1000), contaDestinoAtualizada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(500), contaDestinoAtualizada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(1000)), "O saldo não deve ser alterado");
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaDestinoAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)), "O saldo não deve ser alterado");
+        assertEquals(0, contaDestinoAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito deve ser zero.");
     }
 
     /**
@@ -626,11 +655,132 @@ public void testSaqueContaValorNulo() {
         ContaCorrente contaRecuperada = contaCorrenteRepository.findById(conta1.getNumero())
                 .orElseThrow();
         ContaCorrente contaDestinoAtualizada = contaCorrenteRepository.findById(conta2.getNumero()).orElseThrow();
-        assertEquals(BigDecimal.valueOf(1000), contaRecuperada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(500), contaRecuperada.getLimiteCredito(), "O limite de crédito deve ser zero.");
-        assertEquals(BigDecimal.valueOf(1000), contaDestinoAtualizada.getSaldo(), "O saldo não deve ser alterado");
-        assertEquals(BigDecimal.valueOf(500), contaDestinoAtualizada.getLimiteCredito(), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaRecuperada.getSaldo().compareTo(BigDecimal.valueOf(1000)), "O saldo não deve ser alterado");
+        assertEquals(0, contaRecuperada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito deve ser zero.");
+        assertEquals(0, contaDestinoAtualizada.getSaldo().compareTo(BigDecimal.valueOf(1000)), "O saldo não deve ser alterado");
+        assertEquals(0, contaDestinoAtualizada.getLimiteCredito().compareTo(BigDecimal.valueOf(500)), "O limite de crédito deve ser zero.");
     }
-}
 
+    /**
+     * Teste para transferências em lote por compensação: saldos líquidos aplicados e transferência descoberta recusada
+     */
+    @Test
+    public void testTransferenciasCompensadas() {
+        bancoDeTestes.criarConta("comp-a", BigDecimal.valueOf(100), BigDecimal.ZERO, BigDecimal.ZERO);
+        bancoDeTestes.criarConta("comp-b", BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        bancoDeTestes.criarConta("comp-c", BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        List<TransferenciaDto> transferencias = List.of(
+                new TransferenciaDto("comp-a", "comp-b", BigDecimal.valueOf(80)),
+                new TransferenciaDto("comp-b", "comp-a", BigDecimal.valueOf(50)),
+                new TransferenciaDto("comp-a", "comp-c", BigDecimal.valueOf(60)),
+                new TransferenciaDto("comp-c", "comp-a", BigDecimal.valueOf(100)));
+
+        ResultadoLoteDto resultado = transacaoService.realizarTransferenciasCompensadas(transferencias);
+
+        assertEquals(transferencias.subList(0, 3), resultado.getSucesso());
+        assertEquals(List.of("Erro na transferência de comp-c para comp-a: Saldo insuficiente na conta de origem: comp-c"), resultado.getFalhas());
+
+        ContaCorrente contaA = contaCorrenteRepository.findById("comp-a").orElseThrow();
+        ContaCorrente contaB = contaCorrenteRepository.findById("comp-b").orElseThrow();
+        ContaCorrente contaC = contaCorrenteRepository.findById("comp-c").orElseThrow();
+        assertEquals(0, contaA.getSaldo().compareTo(new BigDecimal("8.6")), "A conta A deve refletir o saldo líquido com as taxas.");
+        assertEquals(0, contaB.getSaldo().compareTo(new BigDecimal("29.5")), "A conta B deve refletir o saldo líquido com as taxas.");
+        assertEquals(0, contaC.getSaldo().compareTo(BigDecimal.valueOf(60)), "A conta C deve receber apenas a transferência aceita.");
+        assertEquals(3, transacaoRepository.findAll().stream()
+                .filter(transacao -> transacao.getContaCorrente().getNumero().startsWith("comp-"))
+                .count(), "Cada transferência aceita deve ser registrada.");
+    }
 
+    /**
+     * Teste para lote compensado maior que um grupo de inserção (banco.lote.tamanho-grupo-insercao=50): o contexto de
+     * persistência é descarregado e limpo depois da 50ª transferência, e a recusa no segundo grupo continua compensada
+     * pelos saldos líquidos do lote inteiro.
+     * A conta B só cobre o que envia no segundo grupo com o que recebeu no primeiro, e a última transferência da conta C
+     * passa do que ela tem e é recusada.
+     */
+    @Test
+    public void testTransferenciasCompensadasEmMaisDeUmGrupoDeInsercao() {
+        bancoDeTestes.criarConta("grupo-a", BigDecimal.valueOf(1000), BigDecimal.ZERO, BigDecimal.ZERO);
+        bancoDeTestes.criarConta("grupo-b", BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        bancoDeTestes.criarConta("grupo-c", BigDecimal.valueOf(10), BigDecimal.ZERO, BigDecimal.ZERO);
+
+        List<TransferenciaDto> transferencias = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            transferencias.add(new TransferenciaDto("grupo-a", "grupo-b", BigDecimal.TEN));
+        }
+        for (int i = 0; i < 5; i++) {
+            transferencias.add(new TransferenciaDto("grupo-b", "grupo-c", BigDecimal.valueOf(20)));
+        }
+        for (int i = 0; i < 4; i++) {
+            transferencias.add(new TransferenciaDto("grupo-c", "grupo-a", BigDecimal.TEN));
+        }
+        transferencias.add(new TransferenciaDto("grupo-c", "grupo-a", BigDecimal.valueOf(200)));
+
+        ResultadoLoteDto resultado = transacaoService.realizarTransferenciasCompensadas(transferencias);
+
+        assertEquals(transferencias.subList(0, 59), resultado.getSucesso());
+        assertEquals(List.of("Erro na transferência de grupo-c para grupo-a: Saldo insuficiente na conta de origem: grupo-c"), resultado.getFalhas());
+
+        ContaCorrente contaA = contaCorrenteRepository.findById("grupo-a").orElseThrow();
+        ContaCorrente contaB = contaCorrenteRepository.findById("grupo-b").orElseThrow();
+        ContaCorrente contaC = contaCorrenteRepository.findById("grupo-c").orElseThrow();
+        assertEquals(0, contaA.getSaldo().compareTo(BigDecimal.valueOf(535)), "A conta A deve refletir o saldo líquido com as taxas.");
+        assertEquals(0, contaB.getSaldo().compareTo(BigDecimal.valueOf(399)), "A conta B deve refletir o saldo líquido com as taxas.");
+        assertEquals(0, contaC.getSaldo().compareTo(new BigDecimal("69.6")), "A conta C não deve pagar a transferência recusada.");
+        assertEquals(59, transacaoRepository.findAll().stream()
+                .filter(transacao -> transacao.getContaCorrente().getNumero().startsWith("grupo-"))
+                .count(), "Cada transferência aceita, dos dois grupos, deve ser registrada.");
+        assertEquals(4, transacaoRepository.findAll().stream()
+                .filter(transacao -> transacao.getContaCorrente().getNumero().equals("grupo-c"))
+                .count(), "A transferência recusada não deve ser registrada.");
+    }
+
+    /**
+     * Teste do orçamento de comandos SQL de depósito, saque e transferência no modo ATOMICO, fora da transação do teste
+     * para que o commit entre na conta. A conta de origem tem histórico de transações, que não pode ser carregado pelas
+     * operações.
+     */
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void testOperacoesDentroDoOrcamentoDeComandosSql() throws NoSuchMethodException {
+        ContaCorrente origem = bancoDeTestes.criarConta("orcamento-a", BigDecimal.valueOf(1000),
+                BigDecimal.valueOf(500), BigDecimal.valueOf(600));
+        bancoDeTestes.criarConta("orcamento-b", BigDecimal.valueOf(1000),
+                BigDecimal.valueOf(500), BigDecimal.valueOf(600));
+        for (int i = 0; i < 30; i++) {
+            Transacao historico = new Transacao();
+            historico.setTipo(TipoTransacao.DEPOSITO);
+            historico.setValor(BigDecimal.ONE);
+            historico.setData(LocalDate.now());
+            historico.setDescricao("Histórico " + i);
+            historico.setContaCorrente(origem);
+            transacaoRepository.save(historico);
+        }
+
+        try {
+            contadorComandosSql.iniciar();
+            Transacao transferencia = transacaoService.realizarTransferencia("orcamento-a", "orcamento-b", BigDecimal.TEN);
+            assertTrue(contadorComandosSql.encerrar() <= orcamento("realizarTransferencia", String.class, String.class, BigDecimal.class));
+            // Com FetchType.EAGER o histórico vem no mesmo SELECT da conta, sem comando a mais: verificado à parte
+            assertFalse(Hibernate.isInitialized(transferencia.getContaCorrente().getTransacoes()),
+                    "O histórico de transações da conta não deve ser carregado pela transferência.");
+
+            contadorComandosSql.iniciar();
+            transacaoService.realizarDeposito("orcamento-a", BigDecimal.TEN);
+            assertTrue(contadorComandosSql.encerrar() <= orcamento("realizarDeposito", String.class, BigDecimal.class));
+
+            contadorComandosSql.iniciar();
+            transacaoService.realizarSaque("orcamento-a", BigDecimal.TEN);
+            assertTrue(contadorComandosSql.encerrar() <= orcamento("realizarSaque", String.class, BigDecimal.class));
+        } finally {
+            bancoDeTestes.limpar();
+            cacheContas.invalidar("orcamento-a");
+            cacheContas.invalidar("orcamento-b");
+        }
+    }
+
+    private static long orcamento(String metodo, Class<?>... parametros) throws NoSuchMethodException {
+        return TransacaoService.class.getMethod(metodo, parametros).getAnnotation(OrcamentoComandosSql.class).value();
+    }
+}
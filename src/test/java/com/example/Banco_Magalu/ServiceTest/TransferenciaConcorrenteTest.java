@@ -0,0 +1,174 @@
+package com.example.Banco_Magalu.ServiceTest;
+
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.exception.SaldoInsuficienteException;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.RazaoService;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Teste de estresse das transferências concorrentes nos modos pessimista, otimista e de lançamentos, usando o H2 em memória.
+ * Várias threads transferem entre poucas contas, em ambos os sentidos, e ao final o dinheiro deve ser conservado:
+ * soma dos saldos finais + taxas cobradas = soma dos saldos iniciais.
+ * Cada modo é uma classe aninhada com o seu banco.concorrencia.modo, em um contexto próprio.
+ */
+public class TransferenciaConcorrenteTest {
+
+    private static final List<String> CONTAS = List.of("c1", "c2", "c3", "c4");
+    private static final BigDecimal SALDO_INICIAL = BigDecimal.valueOf(10000);
+    private static final int THREADS = 8;
+    private static final int TRANSFERENCIAS_POR_THREAD = 25;
+
+    /**
+     * Teste de conservação do dinheiro com bloqueio pessimista ordenado.
+     */
+    @Nested
+    @SpringBootTest(properties = "banco.concorrencia.modo=PESSIMISTA")
+    class ModoPessimista extends Cenario {
+
+        @Test
+        void testTransferenciasConcorrentes() throws Exception {
+            executarTransferenciasConcorrentes();
+        }
+    }
+
+    /**
+     * Teste de conservação do dinheiro com versão otimista e retentativas.
+     * Com poucas contas a disputa é alta, então parte das operações pode esgotar as tentativas.
+     */
+    @Nested
+    @SpringBootTest(properties = {"banco.concorrencia.modo=OTIMISTA", "banco.concorrencia.tentativas=20"})
+    class ModoOtimista extends Cenario {
+
+        @Test
+        void testTransferenciasConcorrentes() throws Exception {
+            executarTransferenciasConcorrentes();
+        }
+    }
+
+    /**
+     * Teste de conservação do dinheiro no livro-razão: as operações só inserem lançamentos e o conflito de sequência
+     * é refeito. A receita de tarifas deve somar as taxas cobradas.
+     */
+    @Nested
+    @SpringBootTest(properties = {"banco.concorrencia.modo=LANCAMENTOS", "banco.concorrencia.tentativas=20"})
+    class ModoLancamentos extends Cenario {
+
+        @Test
+        void testTransferenciasConcorrentes() throws Exception {
+            executarTransferenciasConcorrentes();
+
+            BigDecimal saldoColunas = contaCorrenteRepository.findAllById(CONTAS).stream()
+                    .map(ContaCorrente::getSaldo)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, saldoColunas.compareTo(SALDO_INICIAL.multiply(BigDecimal.valueOf(CONTAS.size()))),
+                    "No modo de lançamentos as colunas de saldo das contas não são alteradas.");
+        }
+    }
+
+    @ActiveProfiles("test")
+    @Import(BancoDeTestes.class)
+    abstract class Cenario {
+
+        @Autowired
+        BancoDeTestes bancoDeTestes;
+
+        @Autowired
+        TransacaoService transacaoService;
+
+        @Autowired
+        ContaCorrenteRepository contaCorrenteRepository;
+
+        @Autowired
+        RazaoService razaoService;
+
+        @Autowired
+        ConcorrenciaProperties concorrenciaProperties;
+
+        @BeforeEach
+        void setUp() {
+            bancoDeTestes.limpar();
+            for (String numero : CONTAS) {
+                bancoDeTestes.criarConta(numero, SALDO_INICIAL, BigDecimal.ZERO, BigDecimal.ZERO);
+            }
+        }
+
+        void executarTransferenciasConcorrentes() throws Exception {
+            ConcurrentLinkedQueue<BigDecimal> valoresTransferidos = new ConcurrentLinkedQueue<>();
+            ConcurrentLinkedQueue<Throwable> errosInesperados = new ConcurrentLinkedQueue<>();
+            CountDownLatch largada = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+            for (int t = 0; t < THREADS; t++) {
+                executor.submit(() -> {
+                    largada.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERENCIAS_POR_THREAD; i++) {
+                        String origem = CONTAS.get(random.nextInt(CONTAS.size()));
+                        String destino = CONTAS.get(random.nextInt(CONTAS.size()));
+                        if (origem.equals(destino)) {
+                            continue;
+                        }
+                        BigDecimal valor = BigDecimal.valueOf(random.nextInt(1, 100));
+                        try {
+                            transacaoService.realizarTransferencia(origem, destino, valor);
+                            valoresTransferidos.add(valor);
+                        } catch (SaldoInsuficienteException | OptimisticLockingFailureException e) {
+                            // Esperado quando uma conta fica sem saldo ou as tentativas do modo otimista se esgotam
+                        } catch (Throwable e) {
+                            errosInesperados.add(e);
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            largada.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "As transferências devem terminar no tempo limite.");
+
+            assertTrue(errosInesperados.isEmpty(), "Não deve haver erros além dos conflitos esperados: " + errosInesperados);
+
+            BigDecimal taxas = valoresTransferidos.stream()
+                    .map(valor -> valor.multiply(BigDecimal.valueOf(0.01)))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal saldoFinal = concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS
+                    ? razaoService.recalcularPosicoes(CONTAS).values().stream()
+                            .map(CabecalhoContaDto::getSaldo)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    : contaCorrenteRepository.findAllById(CONTAS).stream()
+                            .map(ContaCorrente::getSaldo)
+                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal saldoInicial = SALDO_INICIAL.multiply(BigDecimal.valueOf(CONTAS.size()));
+
+            assertEquals(0, saldoFinal.add(taxas).compareTo(saldoInicial),
+                    "A soma dos saldos mais as taxas deve ser igual à soma inicial.");
+            if (concorrenciaProperties.getModo() == ModoConcorrencia.LANCAMENTOS) {
+                assertEquals(0, razaoService.calcularSaldoContaInterna(RazaoService.CONTA_RECEITA_TARIFAS).toBigDecimal().compareTo(taxas),
+                        "A receita de tarifas deve somar as taxas cobradas.");
+            }
+        }
+    }
+}
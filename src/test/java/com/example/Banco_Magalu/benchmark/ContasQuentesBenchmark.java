@@ -0,0 +1,77 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disputa em uma conta quente no H2 em memória: várias threads depositam na mesma conta, com todos os créditos na linha
+ * da conta (partes=false) ou com o saldo dividido em partes (partes=true). Com uma linha só, cada depósito espera o
+ * commit do anterior; com as partes, a vazão deve crescer com o número de threads (-t 1, -t 4, -t 16).
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=ContasQuentesBenchmark -Djmh.argumentos="-t 4".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class ContasQuentesBenchmark {
+
+    private static final String CONTA = "lojista";
+
+    @Param({"false", "true"})
+    public boolean partes;
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN",
+                        "--spring.datasource.hikari.maximum-pool-size=20",
+                        "--banco.contas-quentes.habilitado=" + partes,
+                        "--banco.contas-quentes.contas=" + CONTA,
+                        "--banco.contas-quentes.slots=16");
+        transacaoService = contexto.getBean(TransacaoService.class);
+        contexto.getBean(ContaCorrenteRepository.class)
+                .save(new ContaCorrente(CONTA, BigDecimal.ZERO, BigDecimal.ZERO, LocalDate.now(), BigDecimal.ZERO, null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Transacao deposito() {
+        return transacaoService.realizarDeposito(CONTA, BigDecimal.ONE);
+    }
+}
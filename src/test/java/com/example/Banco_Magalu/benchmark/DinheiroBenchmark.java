@@ -0,0 +1,89 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.entity.Dinheiro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o cálculo de uma transferência (taxa, débito do saldo e do limite, descrição) feito com BigDecimal e
+ * DecimalFormat, como era no TransacaoService, com o mesmo cálculo feito com Dinheiro.
+ * Para executar: mvn test-compile e rodar o main com o classpath de teste, ou pela IDE.
+ * Adicione "-prof gc" aos argumentos para ver a alocação por operação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DinheiroBenchmark {
+
+    private BigDecimal valor;
+    private BigDecimal saldo;
+    private BigDecimal limiteCredito;
+
+    private Dinheiro valorDinheiro;
+    private Dinheiro saldoDinheiro;
+    private Dinheiro limiteCreditoDinheiro;
+
+    // O DecimalFormat não é thread-safe; com Scope.Thread cada thread do benchmark tem o seu, como o campo do serviço não tinha
+    private final DecimalFormat df = new DecimalFormat("0.00");
+
+    @Setup
+    public void setUp() {
+        valor = new BigDecimal("1234.56");
+        saldo = new BigDecimal("1000.00");
+        limiteCredito = new BigDecimal("500.00");
+
+        valorDinheiro = Dinheiro.de(valor);
+        saldoDinheiro = Dinheiro.de(saldo);
+        limiteCreditoDinheiro = Dinheiro.de(limiteCredito);
+    }
+
+    @Benchmark
+    public String transferenciaBigDecimal() {
+        BigDecimal taxa = limiteCredito.compareTo(BigDecimal.ZERO) > 0
+                ? valor.multiply(BigDecimal.valueOf(0.02))
+                : valor.multiply(BigDecimal.valueOf(0.01));
+        BigDecimal valorComTaxa = valor.add(taxa);
+        BigDecimal debitoDoSaldo = saldo.min(valorComTaxa).max(BigDecimal.ZERO);
+        BigDecimal limiteFinal = limiteCredito.subtract(valorComTaxa.subtract(debitoDoSaldo));
+        return "Transferência de R$ " + df.format(valor) + ". Taxa de transferência: R$ " + df.format(taxa)
+                + " Limite disponível: R$ " + df.format(limiteFinal);
+    }
+
+    @Benchmark
+    public String transferenciaDinheiro() {
+        Dinheiro taxa = limiteCreditoDinheiro.sinal() > 0
+                ? valorDinheiro.percentual(200)
+                : valorDinheiro.percentual(100);
+        Dinheiro valorComTaxa = valorDinheiro.somar(taxa);
+        Dinheiro debitoDoSaldo = saldoDinheiro.min(valorComTaxa).max(Dinheiro.ZERO);
+        Dinheiro limiteFinal = limiteCreditoDinheiro.subtrair(valorComTaxa.subtrair(debitoDoSaldo));
+        return "Transferência de R$ " + valorDinheiro + ". Taxa de transferência: R$ " + taxa
+                + " Limite disponível: R$ " + limiteFinal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(DinheiroBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
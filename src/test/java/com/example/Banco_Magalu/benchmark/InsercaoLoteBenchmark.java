@@ -0,0 +1,109 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.repository.AuditoriaRepository;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.TransacaoRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a gravação de Transacao + Auditoria no H2 em memória, com e sem INSERTs em lote JDBC, por linha gravada.
+ * O tamanho de lote 1 reproduz o comportamento anterior, em que cada linha era um INSERT separado.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=InsercaoLoteBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsercaoLoteBenchmark {
+
+    private static final String CONTA = "benchmark";
+    private static final int TRANSACOES = 1000;
+    private static final int TAMANHO_GRUPO = 50;
+
+    @Param({"1", "50"})
+    public int tamanhoLoteJdbc;
+
+    private ConfigurableApplicationContext contexto;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private TransacaoRepository transacaoRepository;
+    private AuditoriaRepository auditoriaRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        entityManager = contexto.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        transacaoRepository = contexto.getBean(TransacaoRepository.class);
+        auditoriaRepository = contexto.getBean(AuditoriaRepository.class);
+        contexto.getBean(ContaCorrenteRepository.class)
+                .save(new ContaCorrente(CONTA, BigDecimal.ZERO, BigDecimal.ZERO, LocalDate.now(), BigDecimal.ZERO, null));
+    }
+
+    // As tabelas são esvaziadas a cada iteração, para que todas meçam a inserção sobre os mesmos índices
+    @TearDown(Level.Iteration)
+    public void limpar() {
+        auditoriaRepository.deleteAllInBatch();
+        transacaoRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    /**
+     * Grava as transações com suas auditorias em uma única transação, com flush a cada grupo.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TRANSACOES * 2)
+    public void gravar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(tamanhoLoteJdbc);
+            for (int i = 1; i <= TRANSACOES; i++) {
+                ContaCorrente conta = entityManager.getReference(ContaCorrente.class, CONTA);
+                Transacao transacao = new Transacao(null, TipoTransacao.DEPOSITO, BigDecimal.TEN, LocalDate.now(), "Depósito " + i, conta);
+                entityManager.persist(transacao);
+                entityManager.persist(new Auditoria(null, "Depósito " + i, transacao));
+                if (i % TAMANHO_GRUPO == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.config.MotorProperties;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.repository.PontoProjecaoRepository;
+import com.example.Banco_Magalu.service.AuditoriaService;
+import com.example.Banco_Magalu.service.CacheContas;
+import com.example.Banco_Magalu.service.MotorContas;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Vazão do motor em memória: cada chamada envia ENVIADAS transferências assíncronas entre contas sorteadas, sem esperar
+ * a confirmação de uma para enviar a próxima, e espera todas (fsync do log). A projeção no H2 fica fora da medição.
+ * A conservação do dinheiro no motor é conferida pelo MotorContasTest.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=MotorBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MotorBenchmark {
+
+    private static final List<String> CONTAS = IntStream.range(0, 1000).mapToObj(i -> "motor-bench-" + i).toList();
+    private static final BigDecimal SALDO_INICIAL = BigDecimal.valueOf(1_000_000_000);
+    private static final int ENVIADAS = 100;
+
+    private ConfigurableApplicationContext contexto;
+    private Path diretorioLog;
+    private MotorContas motor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        ContaCorrenteRepository contaCorrenteRepository = contexto.getBean(ContaCorrenteRepository.class);
+        contaCorrenteRepository.saveAll(CONTAS.stream()
+                .map(numero -> new ContaCorrente(numero, SALDO_INICIAL, BigDecimal.ZERO, LocalDate.now(), BigDecimal.ZERO, null))
+                .toList());
+
+        // O motor do contexto fica desligado; este usa um log próprio, apagado no fim
+        diretorioLog = Files.createTempDirectory("motor-benchmark");
+        MotorProperties properties = new MotorProperties();
+        properties.setHabilitado(true);
+        properties.setDiretorioLog(diretorioLog.toString());
+        motor = new MotorContas(properties, contaCorrenteRepository, contexto.getBean(PontoProjecaoRepository.class),
+                contexto.getBean(AuditoriaService.class), contexto.getBean(CacheContas.class),
+                contexto.getBean(EntityManager.class), contexto.getBean(PlatformTransactionManager.class));
+        motor.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        motor.stop();
+        contexto.close();
+        FileSystemUtils.deleteRecursively(diretorioLog);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENVIADAS)
+    public void transferencias() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] enviadas = new CompletableFuture<?>[ENVIADAS];
+        for (int i = 0; i < ENVIADAS; i++) {
+            int origem = random.nextInt(CONTAS.size());
+            int destino = (origem + random.nextInt(1, CONTAS.size())) % CONTAS.size();
+            enviadas[i] = motor.transferir(CONTAS.get(origem), CONTAS.get(destino), BigDecimal.valueOf(random.nextInt(1, 100)));
+        }
+        CompletableFuture.allOf(enviadas).join();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.config.ConcorrenciaProperties;
+import com.example.Banco_Magalu.config.ModoConcorrencia;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compara a vazão das transferências com UPDATE guardado das linhas das contas (modo ATOMICO), com as linhas bloqueadas
+ * em ordem antes do UPDATE (modo PESSIMISTA) e só com INSERTs no livro-razão (modo LANCAMENTOS), no H2 em memória. Várias threads transferem entre contas sorteadas, com saldo suficiente para que
+ * nenhuma transferência seja recusada; a conservação do dinheiro é conferida pelo TransferenciaConcorrenteTest.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=RazaoBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RazaoBenchmark {
+
+    private static final List<String> CONTAS = IntStream.range(0, 50).mapToObj(i -> "bench-" + i).toList();
+    private static final BigDecimal SALDO_INICIAL = BigDecimal.valueOf(1_000_000_000);
+
+    @Param({"ATOMICO", "PESSIMISTA", "LANCAMENTOS"})
+    public ModoConcorrencia modo;
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN",
+                        "--banco.concorrencia.modo=" + modo,
+                        "--banco.concorrencia.tentativas=20");
+        transacaoService = contexto.getBean(TransacaoService.class);
+        contexto.getBean(ContaCorrenteRepository.class).saveAll(CONTAS.stream()
+                .map(numero -> new ContaCorrente(numero, SALDO_INICIAL, BigDecimal.ZERO, LocalDate.now(), BigDecimal.ZERO, null))
+                .toList());
+        if (contexto.getBean(ConcorrenciaProperties.class).getModo() != modo) {
+            throw new IllegalStateException("Modo de concorrência não aplicado: " + modo);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Transacao transferencia() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int origem = random.nextInt(CONTAS.size());
+        int destino = (origem + random.nextInt(1, CONTAS.size())) % CONTAS.size();
+        return transacaoService.realizarTransferencia(CONTAS.get(origem), CONTAS.get(destino),
+                BigDecimal.valueOf(random.nextInt(1, 100)));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.dto.CabecalhoContaDto;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a serialização JSON das respostas com o ObjectMapper configurado como o do Spring: a ContaCorrente com a lista
+ * de transações (@JsonManagedReference), que cresce com o histórico da conta, a Transacao devolvida pelas operações e,
+ * para comparação, o CabecalhoContaDto devolvido pela consulta da conta.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=Serializacao, ou o main pela IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+    @Param({"0", "10", "100"})
+    private int transacoes;
+
+    private ObjectMapper objectMapper;
+    private ContaCorrente conta;
+    private Transacao transacao;
+    private CabecalhoContaDto cabecalho;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        conta = new ContaCorrente("12345", new BigDecimal("1000.00"), new BigDecimal("300.00"), LocalDate.now(),
+                new BigDecimal("500.00"), new ArrayList<>());
+        List<Transacao> historico = conta.getTransacoes();
+        for (int i = 0; i < transacoes; i++) {
+            historico.add(novaTransacao(i));
+        }
+        transacao = novaTransacao(transacoes);
+        cabecalho = new CabecalhoContaDto(conta.getNumero(), conta.getSaldo(), conta.getLimiteCredito(),
+                conta.getLimiteMaximo(), conta.getDataDeCriacao(), 1L);
+    }
+
+    @Benchmark
+    public byte[] contaCorrente() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(conta);
+    }
+
+    @Benchmark
+    public byte[] transacao() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transacao);
+    }
+
+    @Benchmark
+    public byte[] cabecalhoConta() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cabecalho);
+    }
+
+    private Transacao novaTransacao(int i) {
+        BigDecimal valor = new BigDecimal("100.00").add(BigDecimal.valueOf(i));
+        return new Transacao(UUID.randomUUID(), TipoTransacao.TRANSFERENCIA, valor, LocalDate.now(),
+                "Transferência de R$ " + valor + " para conta 54321 na data de " + LocalDate.now() +
+                        ". Taxa de transferência: R$ 2.00 Limite disponível: R$ 300.00", conta);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(SerializacaoBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.Banco_Magalu.benchmark;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Transacao;
+import com.example.Banco_Magalu.repository.ContaCorrenteRepository;
+import com.example.Banco_Magalu.service.TransacaoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede depósito, saque e transferência do TransacaoService de ponta a ponta, com a aplicação inteira (sem o servidor
+ * web) sobre um H2 em memória no modo MySQL: cache de contas, UPDATEs condicionais, INSERT da Transacao e auditoria
+ * assíncrona. As contas são sorteadas entre CONTAS, então a disputa por linha é baixa; use -t para várias threads.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=TransacaoServiceBenchmark, ou o main pela IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransacaoServiceBenchmark {
+
+    private static final int CONTAS = 1000;
+    private static final BigDecimal VALOR = new BigDecimal("10.00");
+
+    private ConfigurableApplicationContext contexto;
+    private TransacaoService transacaoService;
+    private List<String> numeros;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // O perfil test (src/test/resources) troca o MySQL do application.properties pelo H2 em memória
+        contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN");
+        transacaoService = contexto.getBean(TransacaoService.class);
+
+        ContaCorrenteRepository contaCorrenteRepository = contexto.getBean(ContaCorrenteRepository.class);
+        List<ContaCorrente> contas = new ArrayList<>(CONTAS);
+        numeros = new ArrayList<>(CONTAS);
+        for (int i = 0; i < CONTAS; i++) {
+            String numero = "bench-" + i;
+            numeros.add(numero);
+            contas.add(new ContaCorrente(numero, new BigDecimal("1000000000.00"), new BigDecimal("500.00"),
+                    LocalDate.now(), new BigDecimal("500.00"), null));
+        }
+        contaCorrenteRepository.saveAll(contas);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Transacao deposito() {
+        return transacaoService.realizarDeposito(sortear(), VALOR);
+    }
+
+    @Benchmark
+    public Transacao saque() {
+        return transacaoService.realizarSaque(sortear(), VALOR);
+    }
+
+    @Benchmark
+    public Transacao transferencia() {
+        int origem = ThreadLocalRandom.current().nextInt(CONTAS);
+        int destino = (origem + 1 + ThreadLocalRandom.current().nextInt(CONTAS - 1)) % CONTAS;
+        return transacaoService.realizarTransferencia(numeros.get(origem), numeros.get(destino), VALOR);
+    }
+
+    private String sortear() {
+        return numeros.get(ThreadLocalRandom.current().nextInt(CONTAS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(TransacaoServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.Banco_Magalu.carga;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Sorteia posições de 0 a n - 1 com a distribuição de Zipf: a posição k (0 é a mais popular) sai com probabilidade
+ * proporcional a 1/(k + 1)^expoente. A distribuição acumulada é calculada uma vez e cada sorteio é uma busca binária.
+ */
+final class DistribuicaoZipf {
+
+    private final double[] acumulada;
+
+    DistribuicaoZipf(int n, double expoente) {
+        acumulada = new double[n];
+        double soma = 0;
+        for (int k = 0; k < n; k++) {
+            soma += 1.0 / Math.pow(k + 1, expoente);
+            acumulada[k] = soma;
+        }
+        for (int k = 0; k < n; k++) {
+            acumulada[k] /= soma;
+        }
+    }
+
+    int sortear(Random random) {
+        int posicao = Arrays.binarySearch(acumulada, random.nextDouble());
+        return Math.min(posicao >= 0 ? posicao : -posicao - 1, acumulada.length - 1);
+    }
+}
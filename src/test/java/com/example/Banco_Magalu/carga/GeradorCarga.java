@@ -0,0 +1,454 @@
+package com.example.Banco_Magalu.carga;
+
+import com.example.Banco_Magalu.BancoMagaluApplication;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga de ponta a ponta: sobe a aplicação com o servidor web numa porta livre, gera contas e transações
+ * históricas sintéticas e dispara depósitos, saques, transferências, lotes, consultas e extratos pelos endpoints HTTP,
+ * imprimindo a vazão e os percentis de latência (HdrHistogram) de cada operação.
+ * A popularidade das contas segue a distribuição de Zipf, então poucas contas concentram boa parte do tráfego e do
+ * histórico, como acontece em produção. Tudo é sorteado a partir de --carga.semente, então duas execuções com os
+ * mesmos argumentos geram os mesmos dados e o mesmo tráfego.
+ * Sem --spring.datasource.url usa um H2 em memória no modo MySQL; para um MySQL local passe os --spring.datasource.*
+ * e --spring.jpa.hibernate.ddl-auto=create-drop (o banco é recriado).
+ * Para executar: mvn -Pcarga verify -Dcarga.argumentos="--carga.threads=32 --carga.duracao-s=60", ou o main pela IDE.
+ * As demais opções estão em PropriedadesCarga.
+ */
+public final class GeradorCarga {
+
+    private static final String PREFIXO_CONTA = "carga-";
+    private static final int TAMANHO_BLOCO = 1000;
+
+    /**
+     * Mediana e dispersão (do logaritmo) dos valores sorteados: a maioria das operações é pequena e poucas são grandes.
+     */
+    private static final double MEDIANA_SALDO = 5000;
+    private static final double MEDIANA_VALOR = 50;
+    private static final double DISPERSAO = 1.0;
+
+    enum Operacao {
+        DEPOSITO, SAQUE, TRANSFERENCIA, LOTE, CONSULTA, EXTRATO
+    }
+
+    private final PropriedadesCarga propriedades;
+    private final URI base;
+    private final HttpClient cliente;
+    private final DistribuicaoZipf popularidade;
+    private final int[] pesosAcumulados;
+
+    /**
+     * Contas em ordem de popularidade: a primeira é a mais sorteada.
+     */
+    private final List<String> contas;
+
+    private GeradorCarga(PropriedadesCarga propriedades, URI base, List<String> contas) {
+        this.propriedades = propriedades;
+        this.base = base;
+        this.contas = contas;
+        this.popularidade = new DistribuicaoZipf(contas.size(), propriedades.getZipf());
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        int[] pesos = {propriedades.getPesoDeposito(), propriedades.getPesoSaque(), propriedades.getPesoTransferencia(),
+                propriedades.getPesoLote(), propriedades.getPesoConsulta(), propriedades.getPesoExtrato()};
+        pesosAcumulados = new int[pesos.length];
+        int soma = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            soma += Math.max(pesos[i], 0);
+            pesosAcumulados[i] = soma;
+        }
+        if (soma == 0) {
+            throw new IllegalArgumentException("Ao menos um peso de operação deve ser maior que zero");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> argumentos = new ArrayList<>(List.of(args));
+        // Argumentos de linha de comando, para terem precedência sobre o application.properties (MySQL)
+        if (!possui(argumentos, "spring.datasource.url")) {
+            argumentos.addAll(List.of("--spring.datasource.url=jdbc:h2:mem:carga;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.datasource.hikari.connection-init-sql=SELECT 1",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.hibernate.ddl-auto=create-drop"));
+        }
+        if (!possui(argumentos, "server.port")) {
+            argumentos.add("--server.port=0");
+        }
+        if (!possui(argumentos, "logging.level.root")) {
+            argumentos.add("--logging.level.root=WARN");
+        }
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(BancoMagaluApplication.class)
+                .run(argumentos.toArray(String[]::new))) {
+            Environment ambiente = contexto.getEnvironment();
+            PropriedadesCarga propriedades = Binder.get(ambiente).bind("carga", PropriedadesCarga.class)
+                    .orElseGet(PropriedadesCarga::new);
+            if (propriedades.getContas() < 2) {
+                throw new IllegalArgumentException("A carga precisa de ao menos 2 contas");
+            }
+
+            System.out.printf(Locale.ROOT, "Banco: %s%n", ambiente.getProperty("spring.datasource.url"));
+            long inicio = System.nanoTime();
+            List<String> contas = popular(contexto.getBean(EntityManagerFactory.class), propriedades);
+            System.out.printf(Locale.ROOT, "Dados gerados em %.1f s: %d contas, %d transações históricas (semente %d)%n",
+                    (System.nanoTime() - inicio) / 1e9, propriedades.getContas(), propriedades.getHistorico(),
+                    propriedades.getSemente());
+
+            URI base = URI.create("http://localhost:" + ambiente.getProperty("local.server.port"));
+            new GeradorCarga(propriedades, base, contas).executar();
+        }
+    }
+
+    private static boolean possui(List<String> argumentos, String chave) {
+        return argumentos.stream().anyMatch(argumento -> argumento.startsWith("--" + chave + "="));
+    }
+
+    /**
+     * Grava as contas e o histórico em blocos, cada um na sua transação, e devolve os números das contas em ordem de
+     * popularidade. A ordem é embaralhada para que a popularidade não acompanhe a numeração das contas.
+     */
+    static List<String> popular(EntityManagerFactory fabrica, PropriedadesCarga propriedades) {
+        Random random = new Random(propriedades.getSemente());
+        LocalDate hoje = LocalDate.now();
+
+        List<String> contas = new ArrayList<>(propriedades.getContas());
+        EntityManager entityManager = fabrica.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < propriedades.getContas(); i++) {
+                String numero = String.format(Locale.ROOT, "%s%06d", PREFIXO_CONTA, i);
+                BigDecimal limite = BigDecimal.valueOf(500L * (1 + random.nextInt(10))).setScale(2);
+                LocalDate criacao = hoje.minusDays(propriedades.getDiasHistorico() + random.nextInt(365));
+                entityManager.persist(new ContaCorrente(numero, sortearValor(random, MEDIANA_SALDO), limite, criacao,
+                        limite, new ArrayList<>()));
+                contas.add(numero);
+                if ((i + 1) % TAMANHO_BLOCO == 0) {
+                    fecharBloco(entityManager);
+                }
+            }
+            fecharBloco(entityManager);
+            Collections.shuffle(contas, random);
+
+            DistribuicaoZipf popularidade = new DistribuicaoZipf(contas.size(), propriedades.getZipf());
+            int[] pesosTipo = {propriedades.getPesoDeposito(), propriedades.getPesoSaque(),
+                    propriedades.getPesoTransferencia()};
+            int somaTipo = Math.max(pesosTipo[0] + pesosTipo[1] + pesosTipo[2], 1);
+            for (int i = 0; i < propriedades.getHistorico(); i++) {
+                String numero = contas.get(popularidade.sortear(random));
+                BigDecimal valor = sortearValor(random, MEDIANA_VALOR);
+                LocalDate data = hoje.minusDays(random.nextInt(Math.max(propriedades.getDiasHistorico(), 1)));
+                int tipo = random.nextInt(somaTipo);
+                Transacao transacao;
+                if (tipo < pesosTipo[0]) {
+                    transacao = new Transacao(idHistorico(data, random), TipoTransacao.DEPOSITO, valor, data,
+                            "Depósito na conta " + numero + " na data de " + data, null);
+                } else if (tipo < pesosTipo[0] + pesosTipo[1]) {
+                    transacao = new Transacao(idHistorico(data, random), TipoTransacao.SAQUE, valor, data,
+                            "Saque de R$ " + valor + " na conta " + numero + " na data de " + data, null);
+                } else {
+                    String destino = contas.get(popularidade.sortear(random));
+                    transacao = new Transacao(idHistorico(data, random), TipoTransacao.TRANSFERENCIA, valor, data,
+                            "Transferência de R$ " + valor + " para conta " + destino + " na data de " + data, null);
+                }
+                transacao.setContaCorrente(entityManager.getReference(ContaCorrente.class, numero));
+                entityManager.persist(transacao);
+                if ((i + 1) % TAMANHO_BLOCO == 0) {
+                    fecharBloco(entityManager);
+                }
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+        return contas;
+    }
+
+    private static void fecharBloco(EntityManager entityManager) {
+        entityManager.flush();
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        entityManager.getTransaction().begin();
+    }
+
+    /**
+     * UUID versão 7 com o timestamp num horário sorteado da data da transação, para que o histórico fique na mesma
+     * ordem (data, id) do extrato e seja igual entre execuções com a mesma semente.
+     */
+    private static UUID idHistorico(LocalDate data, Random random) {
+        long milissegundos = data.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli()
+                + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(1));
+        long maisSignificativos = (milissegundos << 16) | 0x7000L | (random.nextInt() & 0xFFF);
+        long menosSignificativos = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(maisSignificativos, menosSignificativos);
+    }
+
+    /**
+     * Valor com distribuição log-normal em torno da mediana, com centavos e no mínimo R$ 0,01.
+     */
+    private static BigDecimal sortearValor(Random random, double mediana) {
+        double valor = mediana * Math.exp(DISPERSAO * random.nextGaussian());
+        return BigDecimal.valueOf(Math.max(valor, 0.01)).setScale(2, RoundingMode.HALF_EVEN);
+    }
+
+    private void executar() throws Exception {
+        int threads = propriedades.getThreads();
+        System.out.printf(Locale.ROOT, "Carga em %s: %d threads, %s, zipf %.2f, aquecimento %d s, medição %d s%n",
+                base, threads,
+                propriedades.getTaxa() > 0 ? String.format(Locale.ROOT, "%.0f req/s", propriedades.getTaxa()) : "carga fechada",
+                propriedades.getZipf(), propriedades.getAquecimentoS(), propriedades.getDuracaoS());
+
+        long inicio = System.nanoTime();
+        long inicioMedicao = inicio + TimeUnit.SECONDS.toNanos(propriedades.getAquecimentoS());
+        long fim = inicioMedicao + TimeUnit.SECONDS.toNanos(propriedades.getDuracaoS());
+
+        List<Callable<Medicao>> tarefas = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int indice = i;
+            tarefas.add(() -> gerar(indice, inicio, inicioMedicao, fim));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Medicao total = new Medicao();
+        try {
+            for (Future<Medicao> resultado : executor.invokeAll(tarefas)) {
+                total.somar(resultado.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        imprimir(total);
+    }
+
+    /**
+     * Laço de uma thread. Na carga aberta (taxa > 0) cada requisição tem um horário agendado, e a latência conta a
+     * partir dele: se o servidor trava, as requisições que ficaram esperando entram com a espera na medição.
+     */
+    private Medicao gerar(int indice, long inicio, long inicioMedicao, long fim) {
+        Random random = new Random(propriedades.getSemente() + 1 + indice);
+        Medicao medicao = new Medicao();
+        long intervalo = propriedades.getTaxa() > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) * propriedades.getThreads() / propriedades.getTaxa())
+                : 0;
+        long agendado = inicio + intervalo * indice / Math.max(propriedades.getThreads(), 1);
+
+        while (agendado < fim) {
+            if (intervalo > 0) {
+                long espera = agendado - System.nanoTime();
+                if (espera > 0) {
+                    LockSupport.parkNanos(espera);
+                }
+            } else {
+                agendado = System.nanoTime();
+            }
+
+            Operacao operacao = sortearOperacao(random);
+            HttpRequest requisicao = montar(operacao, random);
+            int status;
+            try {
+                status = cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long latencia = System.nanoTime() - agendado;
+            if (agendado >= inicioMedicao) {
+                medicao.registrar(operacao, status, latencia);
+            }
+            agendado += intervalo;
+        }
+        return medicao;
+    }
+
+    private Operacao sortearOperacao(Random random) {
+        int sorteio = random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (sorteio < pesosAcumulados[i]) {
+                return Operacao.values()[i];
+            }
+        }
+        throw new IllegalStateException("Sorteio fora dos pesos: " + sorteio);
+    }
+
+    private HttpRequest montar(Operacao operacao, Random random) {
+        String conta = sortearConta(random);
+        return switch (operacao) {
+            case DEPOSITO -> post("/transacao/deposito",
+                    "{\"numeroConta\":\"" + conta + "\",\"valor\":" + sortearValor(random, MEDIANA_VALOR) + "}");
+            case SAQUE -> post("/transacao/saque",
+                    "{\"numeroConta\":\"" + conta + "\",\"valor\":" + sortearValor(random, MEDIANA_VALOR) + "}");
+            case TRANSFERENCIA -> post("/transacao/transferencia", transferencia(conta, random));
+            case LOTE -> {
+                StringBuilder corpo = new StringBuilder("{\"transferencias\":[");
+                for (int i = 0; i < propriedades.getTamanhoLote(); i++) {
+                    corpo.append(i > 0 ? "," : "").append(transferencia(i == 0 ? conta : sortearConta(random), random));
+                }
+                yield post("/transacao/lote", corpo.append("]}").toString());
+            }
+            case CONSULTA -> get("/conta-corrente/" + conta);
+            case EXTRATO -> get("/conta-corrente/" + conta + "/extrato?tamanho=50");
+        };
+    }
+
+    private String transferencia(String origem, Random random) {
+        String destino = sortearConta(random);
+        while (destino.equals(origem)) {
+            destino = contas.get(random.nextInt(contas.size()));
+        }
+        return "{\"contaOrigem\":\"" + origem + "\",\"contaDestino\":\"" + destino + "\",\"valor\":"
+                + sortearValor(random, MEDIANA_VALOR) + "}";
+    }
+
+    private String sortearConta(Random random) {
+        return contas.get(popularidade.sortear(random));
+    }
+
+    private HttpRequest post(String caminho, String corpo) {
+        return HttpRequest.newBuilder(base.resolve(caminho))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+    }
+
+    private HttpRequest get(String caminho) {
+        return HttpRequest.newBuilder(base.resolve(caminho))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private void imprimir(Medicao medicao) throws IOException {
+        double segundos = propriedades.getDuracaoS();
+        System.out.printf(Locale.ROOT, "%n%-14s %9s %9s %9s %7s %10s %9s %9s %9s %9s%n",
+                "operação", "total", "2xx", "4xx", "erros", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Histogram geral = new Histogram(3);
+        long[] somaGeral = new long[3];
+        for (Operacao operacao : Operacao.values()) {
+            Histogram histograma = medicao.histogramas.get(operacao);
+            long[] contagem = medicao.contagens.get(operacao);
+            geral.add(histograma);
+            for (int i = 0; i < contagem.length; i++) {
+                somaGeral[i] += contagem[i];
+            }
+            imprimirLinha(operacao.name().toLowerCase(Locale.ROOT), histograma, contagem, segundos);
+            gravar(operacao.name().toLowerCase(Locale.ROOT), histograma);
+        }
+        imprimirLinha("total", geral, somaGeral, segundos);
+        gravar("total", geral);
+    }
+
+    private static void imprimirLinha(String nome, Histogram histograma, long[] contagem, double segundos) {
+        long total = contagem[0] + contagem[1] + contagem[2];
+        System.out.printf(Locale.ROOT, "%-14s %9d %9d %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                nome, total, contagem[0], contagem[1], contagem[2], total / segundos,
+                milissegundos(histograma.getValueAtPercentile(50)), milissegundos(histograma.getValueAtPercentile(99)),
+                milissegundos(histograma.getValueAtPercentile(99.9)), milissegundos(histograma.getMaxValue()));
+    }
+
+    private static double milissegundos(long nanossegundos) {
+        return nanossegundos / 1e6;
+    }
+
+    /**
+     * Grava a distribuição de percentis em milissegundos no formato .hgrm, que o HdrHistogram plotter lê.
+     */
+    private void gravar(String nome, Histogram histograma) throws IOException {
+        if (propriedades.getDiretorioSaida().isBlank()) {
+            return;
+        }
+        Path diretorio = Files.createDirectories(Path.of(propriedades.getDiretorioSaida()));
+        try (PrintStream saida = new PrintStream(Files.newOutputStream(diretorio.resolve(nome + ".hgrm")))) {
+            histograma.outputPercentileDistribution(saida, 1e6);
+        }
+    }
+
+    /**
+     * Latências (em nanossegundos) e contagens por operação de uma thread; as threads são somadas no fim.
+     * As contagens são, nesta ordem, respostas 2xx, respostas 4xx e erros (5xx ou falha de conexão).
+     */
+    private static final class Medicao {
+
+        private final Map<Operacao, Histogram> histogramas = new EnumMap<>(Operacao.class);
+        private final Map<Operacao, long[]> contagens = new EnumMap<>(Operacao.class);
+
+        Medicao() {
+            for (Operacao operacao : Operacao.values()) {
+                histogramas.put(operacao, new Histogram(3));
+                contagens.put(operacao, new long[3]);
+            }
+        }
+
+        void registrar(Operacao operacao, int status, long latencia) {
+            long[] contagem = contagens.get(operacao);
+            if (status >= 200 && status < 300) {
+                contagem[0]++;
+            } else if (status >= 400 && status < 500) {
+                contagem[1]++;
+            } else {
+                contagem[2]++;
+            }
+            if (status > 0) {
+                histogramas.get(operacao).recordValue(latencia);
+            }
+        }
+
+        void somar(Medicao outra) {
+            for (Operacao operacao : Operacao.values()) {
+                histogramas.get(operacao).add(outra.histogramas.get(operacao));
+                long[] contagem = contagens.get(operacao);
+                long[] outraContagem = outra.contagens.get(operacao);
+                for (int i = 0; i < contagem.length; i++) {
+                    contagem[i] += outraContagem[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.Banco_Magalu.carga;
+
+/**
+ * Configurações do gerador de carga, lidas dos argumentos --carga.* (por exemplo --carga.contas=50000).
+ */
+public class PropriedadesCarga {
+
+    /**
+     * Semente dos dados gerados e do tráfego. A mesma semente com a mesma configuração gera as mesmas contas, o mesmo
+     * histórico e, em cada thread, a mesma sequência de operações.
+     */
+    private long semente = 42;
+
+    /**
+     * Quantidade de contas criadas antes da carga.
+     */
+    private int contas = 10000;
+
+    /**
+     * Quantidade de transações históricas criadas antes da carga, distribuídas pelas contas com a mesma popularidade
+     * do tráfego e com datas nos últimos diasHistorico dias.
+     */
+    private int historico = 100000;
+
+    private int diasHistorico = 365;
+
+    /**
+     * Expoente da distribuição de Zipf da popularidade das contas: a k-ésima conta mais popular é escolhida com
+     * probabilidade proporcional a 1/k^zipf. Zero deixa todas as contas igualmente populares.
+     */
+    private double zipf = 1.0;
+
+    /**
+     * Threads que enviam as requisições.
+     */
+    private int threads = 16;
+
+    /**
+     * Requisições por segundo somando todas as threads. Zero envia a próxima requisição assim que a anterior
+     * responde (carga fechada); acima de zero cada thread segue a sua agenda e a latência é medida a partir do
+     * horário agendado, para que uma resposta lenta não esconda as requisições que deveriam ter saído enquanto isso.
+     */
+    private double taxa = 0;
+
+    /**
+     * Segundos de carga antes da medição, para aquecer a JVM, os caches e o pool de conexões.
+     */
+    private int aquecimentoS = 5;
+
+    /**
+     * Segundos de carga medidos.
+     */
+    private int duracaoS = 30;
+
+    /**
+     * Pesos de cada operação na mistura do tráfego.
+     */
+    private int pesoDeposito = 35;
+    private int pesoSaque = 20;
+    private int pesoTransferencia = 30;
+    private int pesoLote = 5;
+    private int pesoConsulta = 7;
+    private int pesoExtrato = 3;
+
+    /**
+     * Transferências em cada requisição de lote.
+     */
+    private int tamanhoLote = 10;
+
+    /**
+     * Diretório onde é gravada a distribuição de percentis (.hgrm) de cada operação; vazio não grava.
+     */
+    private String diretorioSaida = "";
+
+    public long getSemente() {
+        return semente;
+    }
+
+    public void setSemente(long semente) {
+        this.semente = semente;
+    }
+
+    public int getContas() {
+        return contas;
+    }
+
+    public void setContas(int contas) {
+        this.contas = contas;
+    }
+
+    public int getHistorico() {
+        return historico;
+    }
+
+    public void setHistorico(int historico) {
+        this.historico = historico;
+    }
+
+    public int getDiasHistorico() {
+        return diasHistorico;
+    }
+
+    public void setDiasHistorico(int diasHistorico) {
+        this.diasHistorico = diasHistorico;
+    }
+
+    public double getZipf() {
+        return zipf;
+    }
+
+    public void setZipf(double zipf) {
+        this.zipf = zipf;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public double getTaxa() {
+        return taxa;
+    }
+
+    public void setTaxa(double taxa) {
+        this.taxa = taxa;
+    }
+
+    public int getAquecimentoS() {
+        return aquecimentoS;
+    }
+
+    public void setAquecimentoS(int aquecimentoS) {
+        this.aquecimentoS = aquecimentoS;
+    }
+
+    public int getDuracaoS() {
+        return duracaoS;
+    }
+
+    public void setDuracaoS(int duracaoS) {
+        this.duracaoS = duracaoS;
+    }
+
+    public int getPesoDeposito() {
+        return pesoDeposito;
+    }
+
+    public void setPesoDeposito(int pesoDeposito) {
+        this.pesoDeposito = pesoDeposito;
+    }
+
+    public int getPesoSaque() {
+        return pesoSaque;
+    }
+
+    public void setPesoSaque(int pesoSaque) {
+        this.pesoSaque = pesoSaque;
+    }
+
+    public int getPesoTransferencia() {
+        return pesoTransferencia;
+    }
+
+    public void setPesoTransferencia(int pesoTransferencia) {
+        this.pesoTransferencia = pesoTransferencia;
+    }
+
+    public int getPesoLote() {
+        return pesoLote;
+    }
+
+    public void setPesoLote(int pesoLote) {
+        this.pesoLote = pesoLote;
+    }
+
+    public int getPesoConsulta() {
+        return pesoConsulta;
+    }
+
+    public void setPesoConsulta(int pesoConsulta) {
+        this.pesoConsulta = pesoConsulta;
+    }
+
+    public int getPesoExtrato() {
+        return pesoExtrato;
+    }
+
+    public void setPesoExtrato(int pesoExtrato) {
+        this.pesoExtrato = pesoExtrato;
+    }
+
+    public int getTamanhoLote() {
+        return tamanhoLote;
+    }
+
+    public void setTamanhoLote(int tamanhoLote) {
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public String getDiretorioSaida() {
+        return diretorioSaida;
+    }
+
+    public void setDiretorioSaida(String diretorioSaida) {
+        this.diretorioSaida = diretorioSaida;
+    }
+}
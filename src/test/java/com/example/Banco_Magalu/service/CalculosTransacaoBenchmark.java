@@ -0,0 +1,109 @@
+package com.example.Banco_Magalu.service;
+
+import com.example.Banco_Magalu.entity.Auditoria;
+import com.example.Banco_Magalu.entity.ContaCorrente;
+import com.example.Banco_Magalu.entity.Dinheiro;
+import com.example.Banco_Magalu.entity.TipoTransacao;
+import com.example.Banco_Magalu.entity.Transacao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede as contas feitas em cada operação, sem banco: as taxas de saque e transferência e a restituição de limite do
+ * TransacaoService, a descrição da Transacao (montada pelo MotorContas com o mesmo texto do TransacaoService) e a
+ * mensagem de auditoria do AuditoriaService. Fica no pacote service porque esses métodos são de pacote.
+ * Para executar: mvn -Pbenchmark verify -Djmh.filtro=CalculosTransacao, ou o main pela IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculosTransacaoBenchmark {
+
+    private Dinheiro valor;
+    private Dinheiro limiteCredito;
+    private Dinheiro limiteMaximo;
+    private RegistroMotor registroTransferencia;
+    private ContaCorrente conta;
+    private Auditoria auditoria;
+
+    @Setup
+    public void setUp() {
+        valor = Dinheiro.de(new BigDecimal("1234.56"));
+        limiteCredito = Dinheiro.de(new BigDecimal("300.00"));
+        limiteMaximo = Dinheiro.de(new BigDecimal("500.00"));
+
+        Dinheiro taxa = TransacaoService.calcularTaxaTransferencia(limiteCredito, valor);
+        Dinheiro saldoAnterior = Dinheiro.de(new BigDecimal("1000.00"));
+        Dinheiro limitePosterior = limiteCredito.subtrair(valor.somar(taxa).subtrair(saldoAnterior));
+        registroTransferencia = new RegistroMotor(1, UUID.randomUUID(), RegistroMotor.Operacao.DEBITO_TRANSFERENCIA,
+                "12345", "54321", valor, taxa, saldoAnterior, Dinheiro.ZERO, limiteCredito, limitePosterior,
+                System.currentTimeMillis());
+        conta = new ContaCorrente("12345", BigDecimal.ZERO, limitePosterior.toBigDecimal(), LocalDate.now(),
+                limiteMaximo.toBigDecimal(), null);
+
+        auditoria = new Auditoria();
+        auditoria.setNumeroConta("12345");
+        auditoria.setTipo(TipoTransacao.TRANSFERENCIA);
+        auditoria.setValor(valor);
+        auditoria.setTaxa(taxa);
+        auditoria.setSaldoAnterior(saldoAnterior);
+        auditoria.setSaldoPosterior(Dinheiro.ZERO);
+        auditoria.setLimiteAnterior(limiteCredito);
+        auditoria.setLimitePosterior(limitePosterior);
+        auditoria.setContaDestino("54321");
+        auditoria.setDataHora(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public Dinheiro taxaSaque() {
+        return TransacaoService.calcularTaxaSaque(valor);
+    }
+
+    @Benchmark
+    public Dinheiro taxaTransferencia() {
+        return TransacaoService.calcularTaxaTransferencia(limiteCredito, valor);
+    }
+
+    @Benchmark
+    public Dinheiro restituicaoLimite() {
+        return TransacaoService.calcularRestituicaoLimite(limiteMaximo, limiteCredito, valor);
+    }
+
+    @Benchmark
+    public Transacao descricaoTransferencia() {
+        return MotorContas.transacaoDe(registroTransferencia, conta);
+    }
+
+    @Benchmark
+    public String mensagemAuditoria() {
+        return AuditoriaService.montarMensagem(auditoria);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opcoes = new OptionsBuilder()
+                .include(CalculosTransacaoBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opcoes).run();
+    }
+}